@@ -0,0 +1,120 @@
+package com.example.dogpics;
+
+import android.content.Intent;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.ActivityTestRule;
+import androidx.viewpager.widget.ViewPager;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Swipes through 70 pages of ImageScreenActivity's ViewPager with and without page recycling and
+ * logs the inflated pages, allocations and the time each page change took on the main thread.
+ * Images point at a file that doesn't exist, so the numbers are about the pages, not decoding.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PagerRecyclingBenchmark {
+    private static final String TAG = PagerRecyclingBenchmark.class.getName();
+    private static final int PAGES = 70;
+
+    @Rule
+    public ActivityTestRule<ImageScreenActivity> activityRule =
+            new ActivityTestRule<>(ImageScreenActivity.class, false, false);
+
+    @Test
+    public void swipeThroughAllPages() {
+        // No extras, so the screen doesn't make any Api call
+        ImageScreenActivity activity = activityRule.launchActivity(new Intent());
+        ViewPager viewPager = activity.findViewById(R.id.view_pager);
+
+        Result before = swipe(activity, viewPager, false);
+        Result after = swipe(activity, viewPager, true);
+
+        Log.i(TAG, "Without recycling: " + before);
+        Log.i(TAG, "With recycling:    " + after);
+
+        // Each page is created once going forward, so without recycling every one is inflated
+        int maxAttached = 1 + 2 * viewPager.getOffscreenPageLimit();
+        assertEquals(PAGES, before.inflatedPages);
+        assertTrue(after.inflatedPages <= maxAttached + ViewPagerAdapter.MAX_POOLED_PAGES);
+    }
+
+    @SuppressWarnings("deprecation")
+    private Result swipe(final ImageScreenActivity activity, final ViewPager viewPager,
+                         boolean recycle) {
+        List<String> urls = new ArrayList<>();
+
+        for (int i = 0; i < PAGES; i++) {
+            urls.add("file:///android_asset/missing_" + i + ".jpg");
+        }
+
+        final ViewPagerAdapter adapter = new ViewPagerAdapter(activity, urls, "Pug");
+        adapter.setRecyclingEnabled(recycle);
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                viewPager.setAdapter(adapter);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        long[] frameNanos = new long[PAGES - 1];
+        Debug.resetAllCounts();
+        Debug.startAllocCounting();
+
+        for (int i = 1; i < PAGES; i++) {
+            final int page = i;
+            long start = System.nanoTime();
+
+            // Changing the page creates and destroys pages right away, like a swipe settling
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    viewPager.setCurrentItem(page, false);
+                }
+            });
+
+            frameNanos[i - 1] = System.nanoTime() - start;
+        }
+
+        Debug.stopAllocCounting();
+
+        Result result = new Result();
+        result.inflatedPages = adapter.getInflatedPages();
+        result.allocations = Debug.getGlobalAllocCount();
+        result.allocatedBytes = Debug.getGlobalAllocSize();
+        Arrays.sort(frameNanos);
+        result.medianMs = frameNanos[frameNanos.length / 2] / 1e6;
+        result.worstMs = frameNanos[frameNanos.length - 1] / 1e6;
+
+        return result;
+    }
+
+    private static class Result {
+        int inflatedPages;
+        int allocations;
+        int allocatedBytes;
+        double medianMs;
+        double worstMs;
+
+        @Override
+        public String toString() {
+            return String.format("inflated %d pages, %d allocations (%d bytes), "
+                            + "page change median %.2f ms, worst %.2f ms",
+                    inflatedPages, allocations, allocatedBytes, medianMs, worstMs);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.dogpics;
+
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.ActivityTestRule;
+import androidx.viewpager.widget.ViewPager;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static androidx.test.espresso.Espresso.onView;
+import static androidx.test.espresso.action.ViewActions.swipeLeft;
+import static androidx.test.espresso.matcher.ViewMatchers.withId;
+import static org.junit.Assert.*;
+
+/**
+ * Swipes through 70 pages of ImageScreenActivity's ViewPager with real touch swipes and checks
+ * the frames FrameTracker saw against a frame budget. Every page shows its own JPEG written to
+ * the cache directory beforehand, so pages are inflated and pictures decoded like in the app,
+ * without the network.
+ *
+ * <p>The budget can be changed with instrumentation arguments, e.g.
+ * -e maxJankyRatio 0.05 -e maxFrames 4, see FrameStats.Report.passes().
+ */
+@RunWith(AndroidJUnit4.class)
+public class PagerSwipeJankTest {
+    private static final String TAG = PagerSwipeJankTest.class.getName();
+    private static final int PAGES = 70;
+    private static final int IMAGE_SIZE = 1024;
+
+    @Rule
+    public ActivityTestRule<ImageScreenActivity> activityRule =
+            new ActivityTestRule<>(ImageScreenActivity.class, false, false);
+
+    @Test
+    public void swipeThroughAllPages_staysWithinFrameBudget() throws Exception {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        float maxJankyRatio = Float.parseFloat(arguments.getString("maxJankyRatio", "0.1"));
+        int maxFrames = Integer.parseInt(arguments.getString("maxFrames", "6"));
+
+        // No extras, so the screen doesn't make any Api call
+        final ImageScreenActivity activity = activityRule.launchActivity(new Intent());
+        final ViewPager viewPager = activity.findViewById(R.id.view_pager);
+        final ViewPagerAdapter adapter =
+                new ViewPagerAdapter(activity, writeImages(activity.getCacheDir()), "Pug");
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                viewPager.setAdapter(adapter);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        for (int i = 1; i < PAGES; i++) {
+            final CountDownLatch settled = new CountDownLatch(1);
+            final ViewPager.OnPageChangeListener listener =
+                    new ViewPager.SimpleOnPageChangeListener() {
+                        @Override
+                        public void onPageScrollStateChanged(int state) {
+                            if (state == ViewPager.SCROLL_STATE_IDLE) {
+                                settled.countDown();
+                            }
+                        }
+                    };
+            viewPager.addOnPageChangeListener(listener);
+
+            onView(withId(R.id.view_pager)).perform(swipeLeft());
+
+            assertTrue("Page " + i + " never settled", settled.await(5, TimeUnit.SECONDS));
+            viewPager.removeOnPageChangeListener(listener);
+        }
+
+        assertEquals(PAGES - 1, viewPager.getCurrentItem());
+
+        FrameStats.Report report = activity.getFrameTracker().getTotalReport();
+        boolean passed = report.passes(maxJankyRatio, maxFrames);
+
+        Log.i(TAG, (passed ? "PASS " : "FAIL ") + report + " budget: janky <= "
+                + maxJankyRatio * 100 + "%, frames <= " + maxFrames + " refreshes");
+        assertTrue("Over the frame budget: " + report, passed);
+    }
+
+    /**
+     * @return file: URLs of one JPEG per page, each with its own colors so nothing is shared
+     */
+    private static List<String> writeImages(File dir) throws IOException {
+        List<String> urls = new ArrayList<>();
+        Bitmap bitmap = Bitmap.createBitmap(IMAGE_SIZE, IMAGE_SIZE, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint();
+
+        for (int i = 0; i < PAGES; i++) {
+            canvas.drawColor(Color.HSVToColor(new float[]{i * 360f / PAGES, 0.6f, 0.9f}));
+
+            for (int stripe = 0; stripe < IMAGE_SIZE; stripe += 32) {
+                paint.setColor(Color.HSVToColor(new float[]{(i * 37 + stripe) % 360, 0.8f, 0.7f}));
+                canvas.drawRect(stripe, 0, stripe + 16, IMAGE_SIZE, paint);
+            }
+
+            File file = new File(dir, "swipe_" + i + ".jpg");
+            FileOutputStream out = new FileOutputStream(file);
+
+            try {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 85, out);
+            } finally {
+                out.close();
+            }
+            urls.add("file://" + file.getAbsolutePath());
+        }
+
+        bitmap.recycle();
+        return urls;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.dogpics;
+
+import android.content.Intent;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.ActivityTestRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Creates and destroys pages of ViewPagerAdapter straight on a container, the way ViewPager does
+ * while swiping, and checks destroyed pages are reused for new positions instead of inflating
+ * new ones. Images point at files that don't exist, so no page waits on a picture.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ViewPagerAdapterRecyclingTest {
+    private static final int PAGES = 20;
+
+    @Rule
+    public ActivityTestRule<ImageScreenActivity> activityRule =
+            new ActivityTestRule<>(ImageScreenActivity.class, false, false);
+
+    private ImageScreenActivity activity;
+    private FrameLayout container;
+    private ViewPagerAdapter adapter;
+
+    @Before
+    public void setUp() {
+        // No extras, so the screen doesn't make any Api call
+        activity = activityRule.launchActivity(new Intent());
+        container = new FrameLayout(activity);
+
+        List<String> urls = new ArrayList<>();
+        List<String> breeds = new ArrayList<>();
+
+        for (int i = 0; i < PAGES; i++) {
+            urls.add("file:///android_asset/missing_" + i + ".jpg");
+            breeds.add("Breed " + i);
+        }
+
+        adapter = new ViewPagerAdapter(activity, urls, breeds);
+    }
+
+    @Test
+    public void destroyedPage_isReusedForTheNextPosition() {
+        View first = instantiate(0);
+        destroy(0, first);
+        View second = instantiate(1);
+
+        assertSame(first, second);
+        assertEquals(1, adapter.getInflatedPages());
+        assertEquals(1, container.getChildCount());
+        assertEquals("Breed 1",
+                ((TextView) second.findViewById(R.id.vp_breed_tv)).getText().toString());
+    }
+
+    @Test
+    public void swipingThroughAllPages_inflatesOnlyOneMoreThanAttached() {
+        // Like a ViewPager keeping one page on each side of the current one
+        View[] pages = new View[PAGES];
+        pages[0] = instantiate(0);
+        pages[1] = instantiate(1);
+
+        for (int i = 1; i < PAGES - 1; i++) {
+            pages[i + 1] = instantiate(i + 1);
+
+            if (i >= 2) {
+                destroy(i - 2, pages[i - 2]);
+            }
+        }
+
+        assertEquals(4, adapter.getInflatedPages());
+        assertEquals(Arrays.asList(pages[PAGES - 3], pages[PAGES - 2], pages[PAGES - 1]),
+                childrenOf(container));
+    }
+
+    @Test
+    public void withoutRecycling_everyPageIsInflated() {
+        adapter.setRecyclingEnabled(false);
+        View first = instantiate(0);
+        destroy(0, first);
+        View second = instantiate(1);
+
+        assertNotSame(first, second);
+        assertEquals(2, adapter.getInflatedPages());
+        assertEquals(Arrays.asList(second), childrenOf(container));
+    }
+
+    // Pages are created and destroyed on the main thread, the checks run on the test thread
+    private View instantiate(final int position) {
+        final View[] page = new View[1];
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                page[0] = (View) adapter.instantiateItem(container, position);
+            }
+        });
+        return page[0];
+    }
+
+    private void destroy(final int position, final View page) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                adapter.destroyItem(container, position, page);
+            }
+        });
+    }
+
+    private static List<View> childrenOf(FrameLayout container) {
+        List<View> children = new ArrayList<>();
+
+        for (int i = 0; i < container.getChildCount(); i++) {
+            children.add(container.getChildAt(i));
+        }
+        return children;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.dogpics;
+
+/**
+ * Decides how much the image screen loads ahead of the user for the network it is on. On a slow
+ * link pictures are decoded smaller and fewer pages are prefetched, so the bandwidth goes to the
+ * picture on screen instead of ones the user may never swipe to, and the URLs come in bigger
+ * pages since every request costs a long round trip. On metered networks the prefetching of the
+ * next slower tier is used so data isn't spent on pages the user may never see.
+ *
+ * <p>Moving to a faster tier takes a speed a margin above its threshold, so a speed hovering
+ * around a threshold doesn't switch the settings back and forth with every download. Pure Java,
+ * driven by NetworkQuality snapshots.
+ */
+public class AdaptiveImagePolicy {
+    // Speed needed above a threshold before moving up to its tier
+    static final float UPGRADE_MARGIN = 1.25f;
+
+    public enum Tier {
+        // Nothing to prefetch, only stored pictures are shown
+        OFFLINE(0, 1f, 0, 0, ImageFeed.MIN_PAGE_SIZE),
+        POOR(0, 0.5f, 1, 0, 25),
+        MODERATE(400, 0.75f, 2, 0, 15),
+        GOOD(1500, 1f, 3, 1, ImageFeed.MIN_PAGE_SIZE);
+
+        // Slowest speed in kbps of the tier
+        final long minKbps;
+        final float decodeScale;
+        final int prefetchAhead;
+        final int prefetchBehind;
+        final int minPageSize;
+
+        Tier(long minKbps, float decodeScale, int prefetchAhead, int prefetchBehind,
+             int minPageSize) {
+            this.minKbps = minKbps;
+            this.decodeScale = decodeScale;
+            this.prefetchAhead = prefetchAhead;
+            this.prefetchBehind = prefetchBehind;
+            this.minPageSize = minPageSize;
+        }
+
+        /**
+         * @return The tier below, POOR for the slowest connected one
+         */
+        Tier slower() {
+            return this == GOOD ? MODERATE : POOR;
+        }
+
+        static Tier of(long kbps) {
+            if (kbps >= GOOD.minKbps) {
+                return GOOD;
+            }
+            return kbps >= MODERATE.minKbps ? MODERATE : POOR;
+        }
+    }
+
+    // The app's behaviour before anything is known
+    private Tier tier = Tier.GOOD;
+    private boolean metered;
+
+    /**
+     * Moves to the tier of the network.
+     *
+     * @return Whether any of the settings changed
+     */
+    public boolean update(NetworkQuality quality) {
+        Tier previousTier = tier;
+        boolean previousMetered = metered;
+
+        metered = quality.isMetered();
+        tier = tierFor(quality);
+
+        return tier != previousTier || metered != previousMetered;
+    }
+
+    private Tier tierFor(NetworkQuality quality) {
+        if (!quality.isConnected()) {
+            return Tier.OFFLINE;
+        }
+
+        long kbps = quality.getBestKbps();
+
+        // Nothing measured or claimed yet, mobile data is likely the slower
+        if (kbps == NetworkQuality.UNKNOWN) {
+            return quality.isMetered() ? Tier.MODERATE : Tier.GOOD;
+        }
+
+        Tier measured = Tier.of(kbps);
+
+        // Coming back online there is no earlier tier to stick to
+        if (tier == Tier.OFFLINE || measured.compareTo(tier) <= 0) {
+            return measured;
+        }
+
+        // Only move up as far as the speed clears the thresholds by the margin
+        Tier clear = Tier.of((long) (kbps / UPGRADE_MARGIN));
+        return clear.compareTo(tier) > 0 ? clear : tier;
+    }
+
+    // Getters
+    public Tier getTier() {
+        return tier;
+    }
+
+    public boolean isMetered() {
+        return metered;
+    }
+
+    /**
+     * @return The factor the decode size of ImageSizePolicy is scaled by
+     */
+    public float getDecodeScale() {
+        return tier.decodeScale;
+    }
+
+    public int getPrefetchAhead() {
+        return prefetchTier().prefetchAhead;
+    }
+
+    public int getPrefetchBehind() {
+        return prefetchTier().prefetchBehind;
+    }
+
+    /**
+     * @return The fewest URLs the feed should ask for at a time after the first page
+     */
+    public int getMinPageSize() {
+        return tier.minPageSize;
+    }
+
+    private Tier prefetchTier() {
+        return metered && tier != Tier.OFFLINE ? tier.slower() : tier;
+    }
+
+    @Override
+    public String toString() {
+        return tier + (metered ? " metered" : "") + ": scale=" + getDecodeScale() + " ahead="
+                + getPrefetchAhead() + " behind=" + getPrefetchBehind() + " page="
+                + getMinPageSize();
+    }
+}
@@ -2,6 +2,7 @@ package com.example.dogpics;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Path;
 
 /**
@@ -12,15 +13,32 @@ public interface ApiCalls {
     @GET("breeds/list/all")
     Call<BreedInfo> getAllBreed();
 
-    // Gets 70 random images
-    @GET("breeds/image/random/70")
-    Call<RandomImage> getRandom();
+    // Revalidates a cached copy of the breeds list. Null validators are left out of the request,
+    // and the server answers 304 Not Modified when the cached copy is still current
+    @GET("breeds/list/all")
+    Call<BreedInfo> getAllBreedIfChanged(@Header("If-None-Match") String eTag,
+                                         @Header("If-Modified-Since") String lastModified);
+
+    // Gets every picture of a particular breed
+    @GET("breed/{breed}/images")
+    Call<RandomBreed> getAllByBreed(@Path("breed") String breed);
+
+    // Gets every picture of a particular breed and sub-breed
+    @GET("breed/{breed}/{subBreed}/images")
+    Call<RandomSubBreed> getAllBySubBreed(@Path("breed") String breed,
+                                          @Path("subBreed") String sBreed);
+
+    // Gets one page of random images, the Api returns at most 50 at a time
+    @GET("breeds/image/random/{count}")
+    Call<RandomImage> getRandomPage(@Path("count") int count);
 
-    // Gets 70 pictures of a particular breed that is provided by user at runtime
-    @GET("breed/{breed}/images/random/70")
-    Call<RandomBreed> getByBreed(@Path("breed") String breed);
+    // Gets one page of random pictures of a particular breed
+    @GET("breed/{breed}/images/random/{count}")
+    Call<RandomBreed> getByBreedPage(@Path("breed") String breed, @Path("count") int count);
 
-    // Gets 70 pictures of a particular breed and sub-breed that is provided by user at runtime
-    @GET("breed/{breed}/{subBreed}/images/random/70")
-    Call<RandomSubBreed> getBySubBreed(@Path("breed") String breed, @Path("subBreed") String sBreed);
+    // Gets one page of random pictures of a particular breed and sub-breed
+    @GET("breed/{breed}/{subBreed}/images/random/{count}")
+    Call<RandomSubBreed> getBySubBreedPage(@Path("breed") String breed,
+                                           @Path("subBreed") String sBreed,
+                                           @Path("count") int count);
 }
@@ -0,0 +1,222 @@
+package com.example.dogpics;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Holds the one OkHttpClient and Retrofit generated ApiCalls implementation the whole app shares,
+ * so every screen reuses the same connection pool, thread pool and HTTP response cache instead of
+ * building its own on every onCreate. The ApiCalls handed out go through an ApiRepository, so
+ * identical calls made at the same time only reach the network once, and then through
+ * ResilientApiCalls, which hedges slow calls and retries failed ones. Api requests pass a
+ * CircuitBreaker that answers from the cache while the Api is down; the client returned by
+ * getHttpClient() doesn't, so images can share it. Responses are decoded by ApiJsonAdapters.
+ * Created once by DogPicsApp; use the Builder to change the base URL, cache or timeouts.
+ */
+public class ApiClient {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = ApiClient.class.getName();
+
+    // Endpoint name the warm-up request is reported under by MetricsEventListener
+    static final String WARM_UP_ENDPOINT = "warm_up";
+
+    // Runs callbacks on the thread that delivers them
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private final OkHttpClient httpClient;
+    private final ApiCalls apiCalls;
+    private final ResilientApiCalls resilientApiCalls;
+    private final CircuitBreaker circuitBreaker;
+    private final String baseUrl;
+
+    private ApiClient(Builder builder) {
+        OkHttpClient.Builder clientBuilder = builder.baseClient != null
+                ? builder.baseClient.newBuilder()
+                : new OkHttpClient.Builder();
+
+        clientBuilder
+                .connectionPool(new ConnectionPool(builder.maxIdleConnections,
+                        builder.keepAliveMs, TimeUnit.MILLISECONDS))
+                .connectTimeout(builder.connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(builder.readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(builder.readTimeoutMs, TimeUnit.MILLISECONDS);
+
+        if (builder.cacheDir != null) {
+            clientBuilder.cache(new Cache(builder.cacheDir, builder.cacheSize));
+        }
+
+        if (builder.eventListenerFactory != null) {
+            clientBuilder.eventListenerFactory(builder.eventListenerFactory);
+        }
+
+        httpClient = clientBuilder.build();
+        baseUrl = builder.baseUrl;
+
+        // Generate an implementation of the ApiCalls interface backed by the shared client. Its
+        // callbacks run on OkHttp's threads, ResilientApiCalls hands the results over
+        circuitBreaker = new CircuitBreaker();
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(httpClient.newBuilder().addInterceptor(circuitBreaker).build())
+                .callbackExecutor(DIRECT)
+                .addConverterFactory(GsonConverterFactory.create(new GsonBuilder()
+                        .registerTypeAdapterFactory(new ApiJsonAdapters())
+                        .create()))
+                .build();
+
+        resilientApiCalls = new ResilientApiCalls(retrofit.create(ApiCalls.class), circuitBreaker,
+                builder.callbackExecutor);
+        apiCalls = new ApiRepository(resilientApiCalls, builder.callbackExecutor);
+    }
+
+    /**
+     * Opens a connection to the Api host before the first call needs one, so its DNS lookup, TCP
+     * and TLS handshakes are already paid for; the connection then waits in the shared pool. The
+     * other hosts, e.g. the image host, are only looked up. Blocks, so call it off the main
+     * thread.
+     *
+     * @param otherHosts Host names to resolve ahead of time
+     */
+    public void warmUp(String... otherHosts) {
+        Request request = new Request.Builder()
+                .url(baseUrl)
+                .head()
+                .tag(String.class, WARM_UP_ENDPOINT)
+                .build();
+
+        try {
+            httpClient.newCall(request).execute().close();
+        } catch (IOException e) {
+            Log.d(TAG, "warmUp() failed: " + e.getMessage());
+        }
+
+        for (String host : otherHosts) {
+            try {
+                httpClient.dns().lookup(host);
+            } catch (UnknownHostException e) {
+                Log.d(TAG, "warmUp() could not resolve " + host);
+            }
+        }
+    }
+
+    // Getters
+    public OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public ApiCalls getApiCalls() {
+        return apiCalls;
+    }
+
+    public ResilientApiCalls getResilientApiCalls() {
+        return resilientApiCalls;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Configures an ApiClient. Only the base URL is required; everything else has defaults suited
+     * to the few small JSON responses the dog Api returns.
+     */
+    public static class Builder {
+        private final String baseUrl;
+        private OkHttpClient baseClient;
+        private Executor callbackExecutor = DIRECT;
+        private File cacheDir;
+        private EventListener.Factory eventListenerFactory;
+        private long cacheSize = 5 * 1024 * 1024;
+        private long connectTimeoutMs = 10_000;
+        private long readTimeoutMs = 15_000;
+        private int maxIdleConnections = 5;
+        private long keepAliveMs = 5 * 60 * 1000;
+
+        /**
+         * @param baseUrl Base URL of the dog Api, ending in '/'
+         */
+        public Builder(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        /**
+         * Start from an existing client's configuration, e.g. one that trusts a test certificate.
+         */
+        public Builder baseClient(OkHttpClient baseClient) {
+            this.baseClient = baseClient;
+            return this;
+        }
+
+        /**
+         * Cache HTTP responses in the given directory, using at most maxBytes of disk.
+         */
+        public Builder cache(File cacheDir, long maxBytes) {
+            this.cacheDir = cacheDir;
+            this.cacheSize = maxBytes;
+            return this;
+        }
+
+        /**
+         * Call the enqueue() callbacks on the given executor, the main thread in the app. By
+         * default they run on OkHttp's threads.
+         */
+        public Builder callbackExecutor(Executor callbackExecutor) {
+            this.callbackExecutor = callbackExecutor;
+            return this;
+        }
+
+        /**
+         * Report the events of every call to listeners from the factory, including the calls of
+         * clients made from getHttpClient().
+         */
+        public Builder eventListenerFactory(EventListener.Factory eventListenerFactory) {
+            this.eventListenerFactory = eventListenerFactory;
+            return this;
+        }
+
+        public Builder timeouts(long connectTimeoutMs, long readTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+            return this;
+        }
+
+        /**
+         * Keep up to maxIdleConnections open for keepAliveMs after their last use.
+         */
+        public Builder connectionPool(int maxIdleConnections, long keepAliveMs) {
+            this.maxIdleConnections = maxIdleConnections;
+            this.keepAliveMs = keepAliveMs;
+            return this;
+        }
+
+        public ApiClient build() {
+            return new ApiClient(this);
+        }
+    }
+}
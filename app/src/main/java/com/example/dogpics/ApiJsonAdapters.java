@@ -0,0 +1,229 @@
+package com.example.dogpics;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gson adapters for the Api responses, reading the "message" straight from the stream into what
+ * the app keeps, without reflection and without building Gson's own maps and lists first. Picture
+ * URLs go into a frozen ImageRefList, the breed list into a read only map whose breeds without
+ * sub-breeds all share one empty list. Every other field, like "status", is skipped. Register
+ * with GsonBuilder.registerTypeAdapterFactory().
+ */
+public class ApiJsonAdapters implements TypeAdapterFactory {
+    // Random pages hold at most 50 URLs, the list grows for longer ones
+    private static final int URL_CAPACITY = 50;
+
+    // There are about 100 breeds
+    private static final int BREED_CAPACITY = 128;
+
+    private static final String MESSAGE = "message";
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+
+        if (rawType == RandomImage.class) {
+            return (TypeAdapter<T>) new UrlListAdapter<RandomImage>() {
+                @Override
+                RandomImage wrap(List<String> urls) {
+                    return new RandomImage(urls);
+                }
+
+                @Override
+                List<String> unwrap(RandomImage value) {
+                    return value.getRandomList();
+                }
+            };
+        }
+
+        if (rawType == RandomBreed.class) {
+            return (TypeAdapter<T>) new UrlListAdapter<RandomBreed>() {
+                @Override
+                RandomBreed wrap(List<String> urls) {
+                    return new RandomBreed(urls);
+                }
+
+                @Override
+                List<String> unwrap(RandomBreed value) {
+                    return value.getBreedList();
+                }
+            };
+        }
+
+        if (rawType == RandomSubBreed.class) {
+            return (TypeAdapter<T>) new UrlListAdapter<RandomSubBreed>() {
+                @Override
+                RandomSubBreed wrap(List<String> urls) {
+                    return new RandomSubBreed(urls);
+                }
+
+                @Override
+                List<String> unwrap(RandomSubBreed value) {
+                    return value.getSubBreed();
+                }
+            };
+        }
+
+        if (rawType == BreedInfo.class) {
+            return (TypeAdapter<T>) new BreedInfoAdapter();
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads {"message": ["https://...", ...]} into an ImageRefList. A message that isn't a list,
+     * e.g. the error text of a failed call, leaves the list null.
+     */
+    abstract static class UrlListAdapter<T> extends TypeAdapter<T> {
+        abstract T wrap(List<String> urls);
+
+        abstract List<String> unwrap(T value);
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            ImageRefList urls = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals(MESSAGE) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                    urls = new ImageRefList(URL_CAPACITY);
+
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        urls.add(ImageRef.parse(in.nextString()));
+                    }
+                    in.endArray();
+
+                    urls.freeze();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+
+            return wrap(urls);
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            out.name(MESSAGE);
+            List<String> urls = unwrap(value);
+
+            if (urls == null) {
+                out.nullValue();
+            } else {
+                out.beginArray();
+                for (int i = 0; i < urls.size(); i++) {
+                    out.value(urls.get(i));
+                }
+                out.endArray();
+            }
+
+            out.endObject();
+        }
+    }
+
+    /**
+     * Reads {"message": {"breed": ["sub-breed", ...], ...}} into a read only map.
+     */
+    static class BreedInfoAdapter extends TypeAdapter<BreedInfo> {
+        @Override
+        public BreedInfo read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            Map<String, List<String>> catalog = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals(MESSAGE) && in.peek() == JsonToken.BEGIN_OBJECT) {
+                    catalog = readCatalog(in);
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+
+            return new BreedInfo(catalog);
+        }
+
+        /**
+         * Also reads the bundled snapshot, which is a message on its own.
+         */
+        static Map<String, List<String>> readCatalog(JsonReader in) throws IOException {
+            Map<String, List<String>> catalog = new HashMap<>(BREED_CAPACITY * 4 / 3 + 1);
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String breed = in.nextName();
+                List<String> subBreeds = Collections.emptyList();
+
+                in.beginArray();
+                while (in.hasNext()) {
+                    if (subBreeds.isEmpty()) {
+                        subBreeds = new ArrayList<>(4);
+                    }
+                    subBreeds.add(in.nextString());
+                }
+                in.endArray();
+
+                catalog.put(breed, subBreeds.isEmpty()
+                        ? subBreeds
+                        : Collections.unmodifiableList(subBreeds));
+            }
+            in.endObject();
+
+            return Collections.unmodifiableMap(catalog);
+        }
+
+        @Override
+        public void write(JsonWriter out, BreedInfo value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            out.name(MESSAGE);
+            out.beginObject();
+            for (Map.Entry<String, List<String>> entry : value.getBreedInfo().entrySet()) {
+                out.name(entry.getKey());
+                out.beginArray();
+                for (String subBreed : entry.getValue()) {
+                    out.value(subBreed);
+                }
+                out.endArray();
+            }
+            out.endObject();
+            out.endObject();
+        }
+    }
+}
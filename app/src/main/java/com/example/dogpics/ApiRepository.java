@@ -0,0 +1,426 @@
+package com.example.dogpics;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Sits in front of the Retrofit generated ApiCalls and merges identical requests: a call made
+ * while the same request is already in flight doesn't go to the network, it waits for the one in
+ * flight and gets the same Response. Responses of the calls that always return the same thing,
+ * e.g. the breed list, are also kept for a few seconds, so tapping search twice or rotating the
+ * screen doesn't fetch them again. Calls for random pictures are merged while in flight but never
+ * kept, the next page has to be a new one.
+ *
+ * The calls returned behave like Retrofit's, except that a canceled call is not called back and
+ * that the response bodies are shared between callers, so they must not be modified.
+ */
+public class ApiRepository implements ApiCalls {
+    // How long responses that don't change from call to call are kept
+    private static final long SHORT_CACHE_MS = 10 * 1000;
+    private static final long NO_CACHE = 0;
+
+    private final ApiCalls delegate;
+    private final Executor callbackExecutor;
+    private final long cacheMs;
+
+    // Guarded by this
+    private final Map<String, Flight<?>> inFlight = new HashMap<>();
+    private final Map<String, CachedResponse> cache = new HashMap<>();
+
+    /**
+     * @param delegate         The ApiCalls making the actual requests
+     * @param callbackExecutor Executor kept responses are handed over on, should be the same
+     *                         Retrofit calls back on, i.e. the main thread on Android
+     */
+    public ApiRepository(ApiCalls delegate, Executor callbackExecutor) {
+        this(delegate, callbackExecutor, SHORT_CACHE_MS);
+    }
+
+    // Lets tests use their own cache time
+    ApiRepository(ApiCalls delegate, Executor callbackExecutor, long cacheMs) {
+        this.delegate = delegate;
+        this.callbackExecutor = callbackExecutor;
+        this.cacheMs = cacheMs;
+    }
+
+    @Override
+    public Call<BreedInfo> getAllBreed() {
+        return share(delegate.getAllBreed(), cacheMs);
+    }
+
+    @Override
+    public Call<BreedInfo> getAllBreedIfChanged(String eTag, String lastModified) {
+        // The validators are part of the request, so only identical revalidations are merged
+        return share(delegate.getAllBreedIfChanged(eTag, lastModified), cacheMs);
+    }
+
+    @Override
+    public Call<RandomBreed> getAllByBreed(String breed) {
+        return share(delegate.getAllByBreed(breed), cacheMs);
+    }
+
+    @Override
+    public Call<RandomSubBreed> getAllBySubBreed(String breed, String sBreed) {
+        return share(delegate.getAllBySubBreed(breed, sBreed), cacheMs);
+    }
+
+    @Override
+    public Call<RandomImage> getRandomPage(int count) {
+        return share(delegate.getRandomPage(count), NO_CACHE);
+    }
+
+    @Override
+    public Call<RandomBreed> getByBreedPage(String breed, int count) {
+        return share(delegate.getByBreedPage(breed, count), NO_CACHE);
+    }
+
+    @Override
+    public Call<RandomSubBreed> getBySubBreedPage(String breed, String sBreed, int count) {
+        return share(delegate.getBySubBreedPage(breed, sBreed, count), NO_CACHE);
+    }
+
+    /**
+     * @return The number of different requests in flight, for tests
+     */
+    synchronized int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private <T> Call<T> share(Call<T> call, long keepMs) {
+        return new SharedCall<>(call, keepMs);
+    }
+
+    /**
+     * Requests are the same if their method, URL and headers are.
+     */
+    private static String keyOf(Request request) {
+        return request.method() + " " + request.url() + "\n" + request.headers();
+    }
+
+    /**
+     * Joins the flight of an identical request, or starts one with the subscriber's own call.
+     * Kept responses are handed over on the callback executor without a flight.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void join(final SharedCall<T> subscriber, final Callback<T> callback) {
+        Flight<T> flight;
+        boolean start = false;
+
+        synchronized (this) {
+            final Response<T> kept = (Response<T>) getCached(subscriber.key);
+
+            if (kept != null) {
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!subscriber.isCanceled()) {
+                            callback.onResponse(subscriber, kept);
+                        }
+                    }
+                });
+                return;
+            }
+
+            flight = (Flight<T>) inFlight.get(subscriber.key);
+
+            if (flight == null) {
+                flight = new Flight<>(subscriber.key, subscriber.call, subscriber.keepMs);
+                inFlight.put(subscriber.key, flight);
+                start = true;
+            }
+            flight.subscribers.add(subscriber);
+            flight.callbacks.put(subscriber, callback);
+        }
+
+        if (start) {
+            flight.enqueue();
+        }
+    }
+
+    /**
+     * Runs the request on the calling thread, or waits for the identical one in flight.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Response<T> await(SharedCall<T> subscriber) throws IOException {
+        Flight<T> flight;
+        boolean start;
+
+        synchronized (this) {
+            Response<T> kept = (Response<T>) getCached(subscriber.key);
+
+            if (kept != null) {
+                return kept;
+            }
+
+            flight = (Flight<T>) inFlight.get(subscriber.key);
+            start = flight == null;
+
+            if (start) {
+                flight = new Flight<>(subscriber.key, subscriber.call, subscriber.keepMs);
+                inFlight.put(subscriber.key, flight);
+            }
+            flight.subscribers.add(subscriber);
+        }
+
+        if (start) {
+            flight.execute();
+        }
+        return flight.await(subscriber);
+    }
+
+    /**
+     * Removes a canceled subscriber, canceling the request once nobody waits for it anymore.
+     */
+    private synchronized void leave(SharedCall<?> subscriber) {
+        Flight<?> flight = inFlight.get(subscriber.key);
+
+        if (flight == null || !flight.subscribers.remove(subscriber)) {
+            return;
+        }
+
+        flight.callbacks.remove(subscriber);
+
+        if (flight.subscribers.isEmpty()) {
+            inFlight.remove(flight.key);
+            flight.call.cancel();
+        }
+    }
+
+    // Called with the lock held
+    private Response<?> getCached(String key) {
+        CachedResponse cached = cache.get(key);
+
+        if (cached == null) {
+            return null;
+        }
+
+        if (System.currentTimeMillis() >= cached.expiresAt) {
+            cache.remove(key);
+            return null;
+        }
+        return cached.response;
+    }
+
+    // Called with the lock held
+    private void dropExpired(long now) {
+        Iterator<CachedResponse> iterator = cache.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (now >= iterator.next().expiresAt) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * One request on its way to the network and everyone waiting for it.
+     */
+    private class Flight<T> {
+        private final String key;
+        private final Call<T> call;
+        private final long keepMs;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        // Guarded by ApiRepository.this
+        private final List<SharedCall<T>> subscribers = new ArrayList<>();
+        private final Map<SharedCall<T>, Callback<T>> callbacks = new HashMap<>();
+
+        private Response<T> response;
+        private Throwable error;
+
+        // Set if the flight runs on a caller's thread, the callbacks are then posted
+        private boolean synchronous;
+
+        Flight(String key, Call<T> call, long keepMs) {
+            this.key = key;
+            this.call = call;
+            this.keepMs = keepMs;
+        }
+
+        void enqueue() {
+            call.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                    complete(response, null);
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    complete(null, t);
+                }
+            });
+        }
+
+        void execute() {
+            synchronous = true;
+
+            try {
+                complete(call.execute(), null);
+            } catch (IOException | RuntimeException e) {
+                complete(null, e);
+            }
+        }
+
+        Response<T> await(SharedCall<T> subscriber) throws IOException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+
+            if (subscriber.isCanceled()) {
+                throw new IOException("Canceled");
+            }
+
+            if (error instanceof IOException) {
+                throw (IOException) error;
+            } else if (error != null) {
+                throw new IOException(error);
+            }
+            return response;
+        }
+
+        /**
+         * Ends the flight, keeps a successful response if asked to and hands the result to every
+         * subscriber still waiting.
+         */
+        private void complete(Response<T> response, Throwable error) {
+            List<Map.Entry<SharedCall<T>, Callback<T>>> waiting;
+
+            synchronized (ApiRepository.this) {
+                this.response = response;
+                this.error = error;
+
+                if (inFlight.get(key) == this) {
+                    inFlight.remove(key);
+                }
+
+                if (response != null && response.isSuccessful() && keepMs > 0) {
+                    long now = System.currentTimeMillis();
+                    dropExpired(now);
+                    cache.put(key, new CachedResponse(response, now + keepMs));
+                }
+
+                waiting = new ArrayList<>(callbacks.entrySet());
+                callbacks.clear();
+            }
+
+            done.countDown();
+
+            for (final Map.Entry<SharedCall<T>, Callback<T>> entry : waiting) {
+                if (synchronous) {
+                    callbackExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            callBack(entry.getKey(), entry.getValue());
+                        }
+                    });
+                } else {
+                    callBack(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        private void callBack(SharedCall<T> subscriber, Callback<T> callback) {
+            if (response != null) {
+                callback.onResponse(subscriber, response);
+            } else {
+                callback.onFailure(subscriber, error);
+            }
+        }
+    }
+
+    /**
+     * The Call handed out by the repository. Holds the delegate's call, which is only used if this
+     * call ends up starting the flight.
+     */
+    private class SharedCall<T> implements Call<T> {
+        private final Call<T> call;
+        private final String key;
+        private final long keepMs;
+        private volatile boolean executed;
+        private volatile boolean canceled;
+
+        SharedCall(Call<T> call, long keepMs) {
+            this.call = call;
+            this.key = keyOf(call.request());
+            this.keepMs = keepMs;
+        }
+
+        @NonNull
+        @Override
+        public Response<T> execute() throws IOException {
+            markExecuted();
+            return await(this);
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            markExecuted();
+            join(this, callback);
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            leave(this);
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        @Override
+        public Call<T> clone() {
+            return new SharedCall<>(call.clone(), keepMs);
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return call.request();
+        }
+
+        private synchronized void markExecuted() {
+            if (executed) {
+                throw new IllegalStateException("Already executed.");
+            }
+            executed = true;
+        }
+    }
+
+    /**
+     * A successful response and when it stops being used.
+     */
+    private static class CachedResponse {
+        private final Response<?> response;
+        private final long expiresAt;
+
+        CachedResponse(Response<?> response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.dogpics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A versioned binary file of strings and lists of string indexes, read through a memory mapped
+ * ByteBuffer so a single string or list entry can be read without parsing the rest of the file.
+ * CatalogSnapshot and UrlListSnapshot store the breed list and the image lists in it.
+ *
+ * <pre>
+ * header   int magic "DOGS", short version, short reserved, int CRC32 of the body,
+ *          int body length
+ * body     varint property count, then key and value string indexes as varints
+ *          int string count, int offset of every string, then every string as a varint
+ *          byte length and its UTF-8 bytes
+ *          int list count, int offset of every list, then every list as an int size and its
+ *          int entries
+ * </pre>
+ *
+ * Offsets count from the start of the file. Files are written to a temporary file and renamed
+ * over the old one, and the checksum is verified when opening, so a crash or a damaged file
+ * never gets read as a valid snapshot. Safe to read from any thread once opened.
+ */
+public final class BinarySnapshot {
+    static final int MAGIC = 0x444F4753;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final Map<String, String> properties;
+    private final int stringCount;
+    private final int stringOffsets;
+    private final int listCount;
+    private final int listOffsets;
+
+    private BinarySnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        try {
+            int[] position = {HEADER_SIZE};
+            int propertyCount = readVarint(buffer, position);
+            int[] propertyIndexes = new int[propertyCount * 2];
+
+            for (int i = 0; i < propertyIndexes.length; i++) {
+                propertyIndexes[i] = readVarint(buffer, position);
+            }
+
+            stringCount = buffer.getInt(position[0]);
+            stringOffsets = position[0] + 4;
+
+            int listsStart = stringCount > 0
+                    ? endOfString(stringCount - 1)
+                    : stringOffsets;
+            listCount = buffer.getInt(listsStart);
+            listOffsets = listsStart + 4;
+
+            Map<String, String> read = new HashMap<>();
+
+            for (int i = 0; i < propertyIndexes.length; i += 2) {
+                read.put(getString(propertyIndexes[i]), getString(propertyIndexes[i + 1]));
+            }
+            properties = Collections.unmodifiableMap(read);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Snapshot layout is broken", e);
+        }
+    }
+
+    /**
+     * Maps a snapshot file and checks its header and checksum.
+     *
+     * @throws IOException If the file can't be read, is of another version or is damaged
+     */
+    public static BinarySnapshot open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        ByteBuffer buffer;
+
+        try {
+            long size = raf.length();
+
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot has a bad size: " + size);
+            }
+
+            // The mapping stays valid after the file is closed
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            raf.close();
+        }
+
+        return wrap(buffer);
+    }
+
+    /**
+     * Reads a snapshot held in memory, checking it like open() does.
+     */
+    static BinarySnapshot wrap(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot");
+        }
+
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Snapshot version " + buffer.getShort(4) + " isn't supported");
+        }
+
+        if (buffer.getInt(12) != buffer.capacity() - HEADER_SIZE) {
+            throw new IOException("Snapshot is truncated");
+        }
+
+        if (buffer.getInt(8) != crcOf(buffer)) {
+            throw new IOException("Snapshot checksum doesn't match");
+        }
+
+        return new BinarySnapshot(buffer);
+    }
+
+    /**
+     * CRC32.update(ByteBuffer) needs API 26, so the body goes through a small array.
+     */
+    private static int crcOf(ByteBuffer buffer) {
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+
+        while (body.hasRemaining()) {
+            int length = Math.min(chunk.length, body.remaining());
+            body.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @return The value stored for the key, or null
+     */
+    public String getProperty(String key) {
+        return properties.get(key);
+    }
+
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    /**
+     * Decodes one string of the string table.
+     */
+    public String getString(int index) {
+        checkIndex(index, stringCount);
+        int[] position = {buffer.getInt(stringOffsets + index * 4)};
+        int length = readVarint(buffer, position);
+        byte[] bytes = new byte[length];
+
+        // A duplicate so reads from other threads don't share the position
+        ByteBuffer string = buffer.duplicate();
+        string.position(position[0]);
+        string.get(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+
+    public int getListCount() {
+        return listCount;
+    }
+
+    public int getListSize(int list) {
+        checkIndex(list, listCount);
+        return buffer.getInt(buffer.getInt(listOffsets + list * 4));
+    }
+
+    /**
+     * @return The string index stored at position i of the list
+     */
+    public int getListEntry(int list, int i) {
+        checkIndex(i, getListSize(list));
+        return buffer.getInt(buffer.getInt(listOffsets + list * 4) + 4 + i * 4);
+    }
+
+    private int endOfString(int index) {
+        int[] position = {buffer.getInt(stringOffsets + index * 4)};
+        int length = readVarint(buffer, position);
+        return position[0] + length;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint at position[0] and moves position[0] past it.
+     */
+    static int readVarint(ByteBuffer buffer, int[] position) {
+        int value = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get(position[0]++);
+            value |= (b & 0x7f) << shift;
+
+            if (b >= 0) {
+                return value;
+            }
+        }
+
+        throw new IndexOutOfBoundsException("Varint is too long");
+    }
+
+    static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Collects the strings, lists and properties of a snapshot and writes them out. Equal strings
+     * are only stored once.
+     */
+    public static class Builder {
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+        private final List<byte[]> strings = new ArrayList<>();
+        private final List<int[]> lists = new ArrayList<>();
+        private final Map<String, String> properties = new HashMap<>();
+
+        /**
+         * @return The index of the string in the string table
+         */
+        public int addString(String string) {
+            Integer index = stringIndexes.get(string);
+
+            if (index == null) {
+                index = strings.size();
+                stringIndexes.put(string, index);
+                strings.add(string.getBytes(UTF_8));
+            }
+            return index;
+        }
+
+        /**
+         * @param entries String indexes returned by addString()
+         * @return The index of the list
+         */
+        public int addList(int[] entries) {
+            lists.add(entries);
+            return lists.size() - 1;
+        }
+
+        public Builder putProperty(String key, String value) {
+            properties.put(key, value);
+            return this;
+        }
+
+        /**
+         * @return The whole file, header included
+         */
+        byte[] toByteArray() throws IOException {
+            // Properties go into the string table like everything else
+            int[] propertyIndexes = new int[properties.size() * 2];
+            int p = 0;
+
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                propertyIndexes[p++] = addString(property.getKey());
+                propertyIndexes[p++] = addString(property.getValue());
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            // Header, the checksum and length are filled in at the end
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeInt(0);
+            out.writeInt(0);
+
+            writeVarint(out, properties.size());
+            for (int index : propertyIndexes) {
+                writeVarint(out, index);
+            }
+
+            // Strings: the offset table first, so every offset is known before the data
+            out.writeInt(strings.size());
+            int offset = out.size() + strings.size() * 4;
+
+            for (byte[] string : strings) {
+                out.writeInt(offset);
+                offset += varintSize(string.length) + string.length;
+            }
+            for (byte[] string : strings) {
+                writeVarint(out, string.length);
+                out.write(string);
+            }
+
+            out.writeInt(lists.size());
+            offset = out.size() + lists.size() * 4;
+
+            for (int[] list : lists) {
+                out.writeInt(offset);
+                offset += 4 + list.length * 4;
+            }
+            for (int[] list : lists) {
+                out.writeInt(list.length);
+                for (int entry : list) {
+                    out.writeInt(entry);
+                }
+            }
+
+            out.flush();
+            ByteBuffer file = ByteBuffer.wrap(bytes.toByteArray());
+            file.putInt(8, crcOf(file));
+            file.putInt(12, file.capacity() - HEADER_SIZE);
+
+            return file.array();
+        }
+
+        /**
+         * Writes the snapshot to a temporary file, syncs it and renames it over the file, so the
+         * file is either the old snapshot or the whole new one.
+         */
+        public void writeTo(File file) throws IOException {
+            byte[] bytes = toByteArray();
+            File tmp = new File(file.getPath() + ".tmp");
+            FileOutputStream out = new FileOutputStream(tmp);
+
+            try {
+                out.write(bytes);
+                out.getFD().sync();
+            } finally {
+                out.close();
+            }
+
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("Could not rename " + tmp);
+            }
+        }
+
+        private static int varintSize(int value) {
+            int size = 1;
+
+            while ((value & ~0x7f) != 0) {
+                value >>>= 7;
+                size++;
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.dogpics;
+
+import android.util.Log;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import retrofit2.Response;
+
+/**
+ * Keeps the list of breeds and sub-breeds from https://dog.ceo/api/breeds/list/all on disk, along
+ * with the time it was last checked and the ETag/Last-Modified validators the server sent with it.
+ * A saved copy is handed to the listener straight away, then the copy is revalidated in the
+ * background with a conditional request so the server only sends the list again when it changed.
+ * On the very first launch a snapshot of the list bundled with the app stands in for the saved
+ * copy. Owned by DogPicsApp, which preloads it while the first activity is being created.
+ */
+public class BreedCatalogRepository {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = BreedCatalogRepository.class.getName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Properties saved along with the list
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last_modified";
+    private static final String CHECKED_AT = "checked_at";
+
+    // Saved copies checked more recently than this are not revalidated again
+    private static final long REVALIDATE_INTERVAL_MS = 10 * 60 * 1000;
+
+    /**
+     * Receives the breed information, first from the saved copy (if there is one) and then again
+     * whenever revalidation finds that the list changed. Always called on the callback executor.
+     * The map is shared, it must not be modified.
+     */
+    public interface Listener {
+        void onCatalogLoaded(Map<String, List<String>> catalog);
+    }
+
+    /**
+     * Opens the bundled snapshot, a JSON object of breeds to their sub-breeds like the "message"
+     * of the Api's response, e.g. an asset.
+     */
+    public interface Snapshot {
+        InputStream open() throws IOException;
+    }
+
+    private final ApiCalls apiCalls;
+    private final File cacheFile;
+    private final Snapshot snapshot;
+    private final Executor callbackExecutor;
+    private final long revalidateIntervalMs;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+
+    // Only touched on the io thread
+    private CachedCatalog cached;
+    private boolean diskRead;
+
+    // The list last handed out and the listener, guarded by this so each list reaches a new
+    // listener exactly once
+    private Map<String, List<String>> latest;
+    private volatile Listener listener;
+
+    // Released once the saved copy or the snapshot has been read
+    private final CountDownLatch readDone = new CountDownLatch(1);
+
+    // Set while a load is queued or running, so repeated loads don't queue up
+    private final AtomicBoolean loading = new AtomicBoolean();
+
+    /**
+     * @param apiCalls         The Api used to fetch and revalidate the list
+     * @param cacheFile        The file the list and its validators are saved to
+     * @param snapshot         The list bundled with the app, used until one is saved, may be null
+     * @param callbackExecutor Executor the listener gets called on, usually the main thread
+     */
+    public BreedCatalogRepository(ApiCalls apiCalls, File cacheFile, Snapshot snapshot,
+                                  Executor callbackExecutor) {
+        this(apiCalls, cacheFile, snapshot, callbackExecutor, REVALIDATE_INTERVAL_MS);
+    }
+
+    // Lets tests revalidate on every load
+    BreedCatalogRepository(ApiCalls apiCalls, File cacheFile, Snapshot snapshot,
+                           Executor callbackExecutor, long revalidateIntervalMs) {
+        this.apiCalls = apiCalls;
+        this.cacheFile = cacheFile;
+        this.snapshot = snapshot;
+        this.callbackExecutor = callbackExecutor;
+        this.revalidateIntervalMs = revalidateIntervalMs;
+    }
+
+    /**
+     * Delivers the saved list to the listener as soon as it is read from disk, or right away if
+     * it was preloaded, then revalidates it with the server if it has not been checked recently.
+     * Replaces any previous listener. A load made while another is still running only replaces
+     * the listener, e.g. when connectivity changes several times before the first load is done.
+     *
+     * @param listener Receives the list of breeds and sub-breeds
+     */
+    public void load(Listener listener) {
+        synchronized (this) {
+            this.listener = listener;
+
+            if (latest != null) {
+                deliver(latest);
+            }
+        }
+
+        start();
+    }
+
+    /**
+     * Reads the saved copy, or the snapshot, into memory and starts revalidating it, before anyone
+     * listens. Blocks until the list is in memory, so call it off the main thread.
+     *
+     * @return Whether there was a list to read
+     */
+    public boolean preload() {
+        start();
+
+        try {
+            readDone.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            return latest != null;
+        }
+    }
+
+    private void start() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!diskRead) {
+                        cached = readFromDisk();
+
+                        if (cached == null) {
+                            cached = readSnapshot();
+                        }
+
+                        diskRead = true;
+
+                        if (cached != null) {
+                            publish(cached.catalog);
+                        }
+                        readDone.countDown();
+                    }
+
+                    if (cached == null || System.currentTimeMillis() - cached.checkedAt
+                            >= revalidateIntervalMs) {
+                        revalidate();
+                    }
+                } finally {
+                    readDone.countDown();
+                    loading.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops delivering results, e.g. when the activity listening goes away.
+     */
+    public void removeListener() {
+        listener = null;
+    }
+
+    /**
+     * Stops the background thread. The repository can't be used after this.
+     */
+    public void close() {
+        listener = null;
+        ioExecutor.shutdownNow();
+        readDone.countDown();
+    }
+
+    /**
+     * Sends a conditional request carrying the validators of the saved copy. A 304 only refreshes
+     * the time the copy was checked; a 200 replaces the copy and is delivered to the listener.
+     * Runs on the io thread.
+     */
+    private void revalidate() {
+        String eTag = cached != null ? cached.eTag : null;
+        String lastModified = cached != null ? cached.lastModified : null;
+
+        try {
+            // Api call link: https://dog.ceo/api/breeds/list/all
+            Response<BreedInfo> response =
+                    apiCalls.getAllBreedIfChanged(eTag, lastModified).execute();
+
+            if (response.code() == 304 && cached != null) {
+                cached.checkedAt = System.currentTimeMillis();
+                writeToDisk(cached);
+                return;
+            }
+
+            // Log and exit function if Api call was unsuccessful
+            if (!response.isSuccessful() || response.body() == null) {
+                Log.d(TAG, "revalidate() Response Code: " + response.code());
+                return;
+            }
+
+            CachedCatalog fresh = new CachedCatalog();
+            fresh.catalog = response.body().getBreedInfo();
+            fresh.eTag = response.headers().get("ETag");
+            fresh.lastModified = response.headers().get("Last-Modified");
+            fresh.checkedAt = System.currentTimeMillis();
+
+            boolean changed = cached == null || !fresh.catalog.equals(cached.catalog);
+            cached = fresh;
+            writeToDisk(fresh);
+
+            if (changed) {
+                publish(fresh.catalog);
+            }
+        } catch (IOException e) {
+            Log.d(TAG, "revalidate() onFailure: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Makes the catalog the latest one and hands it to the listener, if there is one yet.
+     */
+    private synchronized void publish(Map<String, List<String>> catalog) {
+        latest = catalog;
+
+        if (listener != null) {
+            deliver(catalog);
+        }
+    }
+
+    /**
+     * Hands the catalog to the current listener on the callback executor, unless it was replaced
+     * or removed in the meantime. The map is never changed once made, so every delivery shares it
+     * instead of copying it. Called holding this.
+     */
+    private void deliver(final Map<String, List<String>> catalog) {
+        final Listener target = listener;
+
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (listener == target) {
+                    target.onCatalogLoaded(catalog);
+                }
+            }
+        });
+    }
+
+    /**
+     * Opens the saved copy, returning null if there is none or it can't be read. The breeds are
+     * read from the mapped file as they are used instead of all being parsed up front.
+     */
+    private CachedCatalog readFromDisk() {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+
+        try {
+            CatalogSnapshot snapshot = CatalogSnapshot.open(cacheFile);
+
+            CachedCatalog catalog = new CachedCatalog();
+            catalog.catalog = snapshot;
+            catalog.eTag = snapshot.getProperty(ETAG);
+            catalog.lastModified = snapshot.getProperty(LAST_MODIFIED);
+            catalog.checkedAt = Long.parseLong(snapshot.getProperty(CHECKED_AT));
+            return catalog;
+        } catch (IOException | NumberFormatException e) {
+            // Damaged, or written by another version, fetched again as if there was none
+            Log.d(TAG, "readFromDisk() failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the bundled snapshot with a streaming parser, returning null if there is none or it
+     * can't be parsed. It has no validators and was never checked, so it gets revalidated at once.
+     */
+    private CachedCatalog readSnapshot() {
+        if (snapshot == null) {
+            return null;
+        }
+
+        JsonReader reader = null;
+
+        try {
+            reader = new JsonReader(new InputStreamReader(snapshot.open(), UTF_8));
+
+            CachedCatalog snapshotCatalog = new CachedCatalog();
+            snapshotCatalog.catalog = ApiJsonAdapters.BreedInfoAdapter.readCatalog(reader);
+            return snapshotCatalog;
+        } catch (IOException | IllegalStateException e) {
+            Log.d(TAG, "readSnapshot() failed: " + e.getMessage());
+            return null;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Saves the copy as a CatalogSnapshot, which is written to a temporary file and renamed over
+     * the old one.
+     */
+    private void writeToDisk(CachedCatalog catalog) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(ETAG, catalog.eTag);
+        properties.put(LAST_MODIFIED, catalog.lastModified);
+        properties.put(CHECKED_AT, Long.toString(catalog.checkedAt));
+
+        try {
+            CatalogSnapshot.write(cacheFile, catalog.catalog, properties);
+        } catch (IOException e) {
+            Log.d(TAG, "writeToDisk() failed: " + e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * What gets saved to disk: the breed information plus the data needed to revalidate it.
+     * Read back from disk the catalog is a CatalogSnapshot.
+     */
+    private static class CachedCatalog {
+        Map<String, List<String>> catalog;
+        String eTag;
+        String lastModified;
+        long checkedAt;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.dogpics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the single search box on MainActivity can find: every breed on its own, e.g.
+ * "hound" for all hounds, and every "sub-breed breed" combination, e.g. "afghan hound". Each
+ * entry maps back to the breed and sub-breed to search for in a hash lookup, however big the
+ * catalog gets.
+ */
+public class BreedCatalogSearch {
+    // Breeds with sub-breeds rank ahead of their sub-breeds, the plain breed is the broader search
+    private static final int BREED_WEIGHT = 1;
+
+    private final BreedSearchIndex index;
+    private final List<String> names;
+    private final Map<String, Selection> selections;
+
+    /**
+     * @param catalog Breeds mapped to their sub-breeds, as in BreedInfo
+     */
+    public BreedCatalogSearch(Map<String, List<String>> catalog) {
+        List<String> breeds = new ArrayList<>(catalog.keySet());
+        Collections.sort(breeds);
+
+        BreedSearchIndex.Builder builder = new BreedSearchIndex.Builder();
+        List<String> allNames = new ArrayList<>();
+        selections = new HashMap<>();
+
+        for (String breed : breeds) {
+            add(builder, allNames, breed, new Selection(breed, null), BREED_WEIGHT);
+            List<String> subBreeds = catalog.get(breed);
+
+            if (subBreeds == null) {
+                continue;
+            }
+
+            for (String subBreed : subBreeds) {
+                add(builder, allNames, subBreed + " " + breed, new Selection(breed, subBreed), 0);
+            }
+        }
+
+        index = builder.build();
+        names = Collections.unmodifiableList(allNames);
+    }
+
+    private void add(BreedSearchIndex.Builder builder, List<String> allNames, String name,
+                     Selection selection, int weight) {
+        if (selections.put(BreedSearchIndex.normalize(name), selection) == null) {
+            builder.add(name, weight);
+            allNames.add(name);
+        }
+    }
+
+    /**
+     * @return What to search for the entry, typed in any case, or null if it isn't one
+     */
+    public Selection get(String name) {
+        return selections.get(BreedSearchIndex.normalize(name));
+    }
+
+    // Getters
+    public BreedSearchIndex getIndex() {
+        return index;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * The breed and sub-breed an entry searches for.
+     */
+    public static class Selection {
+        private final String breed;
+        private final String subBreed;
+
+        Selection(String breed, String subBreed) {
+            this.breed = breed;
+            this.subBreed = subBreed;
+        }
+
+        // Getters
+        public String getBreed() {
+            return breed;
+        }
+
+        /**
+         * @return The sub-breed, or null to search every picture of the breed
+         */
+        public String getSubBreed() {
+            return subBreed;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.dogpics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gives every breed path segment found in an image URL, e.g. "hound-afghan", a small id, along
+ * with the name to display for it. There are only a couple hundred breeds, so image references
+ * store the id and share one copy of each segment and name instead of repeating them per URL.
+ * Shared by the whole process; safe to use from any thread.
+ */
+public final class BreedDictionary {
+    private static final BreedDictionary INSTANCE = new BreedDictionary();
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Open addressing table of id + 1 by segment, 0 is a free slot. Capacity is always a power
+    // of two, so segments are looked up on the URL itself like in BreedNameParser
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private final List<String> paths = new ArrayList<>();
+    private final List<String> displayNames = new ArrayList<>();
+    private final BreedNameParser nameParser = new BreedNameParser();
+
+    // Consecutive URLs are usually of the same breed, so the last id is checked before the map
+    private int lastId = -1;
+
+    private BreedDictionary() {
+    }
+
+    public static BreedDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Looks up the id of the segment between start and end of the URL, adding it if it's new.
+     * Only allocates the first time a segment is seen.
+     *
+     * @param url   The image URL
+     * @param start Index of the first character of the breed segment
+     * @param end   Index just past the breed segment
+     * @return The id of the segment
+     */
+    public synchronized int idOf(String url, int start, int end) {
+        int length = end - start;
+
+        if (lastId >= 0) {
+            String last = paths.get(lastId);
+
+            if (last.length() == length && url.regionMatches(start, last, 0, length)) {
+                return lastId;
+            }
+        }
+
+        int mask = slots.length - 1;
+        int slot = BreedNameParser.hash(url, start, end) & mask;
+
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            String path = paths.get(id);
+
+            if (path.length() == length && url.regionMatches(start, path, 0, length)) {
+                lastId = id;
+                return id;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        String path = url.substring(start, end);
+        int id = paths.size();
+        slots[slot] = id + 1;
+        paths.add(path);
+        displayNames.add(nameParser.displayNameOfSegment(path, 0, path.length()));
+
+        // Keep the table at most half full
+        if (paths.size() * 2 > slots.length) {
+            grow();
+        }
+
+        lastId = id;
+        return id;
+    }
+
+    /**
+     * @return The breed segment of the id, e.g. "hound-afghan"
+     */
+    public synchronized String getPath(int id) {
+        return paths.get(id);
+    }
+
+    /**
+     * @return The name to show for the id, e.g. "Afghan Hound"
+     */
+    public synchronized String getDisplayName(int id) {
+        return displayNames.get(id);
+    }
+
+    private void grow() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+
+        for (int id = 0; id < paths.size(); id++) {
+            String path = paths.get(id);
+            int slot = BreedNameParser.hash(path, 0, path.length()) & mask;
+
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.dogpics;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import retrofit2.Response;
+
+/**
+ * Keeps the full list of pictures of each breed (https://dog.ceo/api/breed/{breed}/images) on disk
+ * and hands out random pages from it locally, so asking for more of a breed needs no network call.
+ * Pages are drawn without replacement: every picture of a breed comes up once before any of them
+ * comes up again. A saved list older than the TTL is fetched again the next time it's used, and
+ * still used if that fails.
+ */
+public class BreedImageIndex {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = BreedImageIndex.class.getName();
+
+    // Property saved along with each list
+    private static final String FETCHED_AT = "fetched_at";
+
+    // Saved lists older than this are fetched again
+    private static final long TTL_MS = 24 * 60 * 60 * 1000;
+
+    /**
+     * Receives one page of URLs, or an error if the breed's list could not be loaded at all.
+     * Always called on the callback executor.
+     */
+    public interface SampleCallback {
+        void onSample(List<String> urls);
+
+        void onError();
+    }
+
+    private final ApiCalls apiCalls;
+    private final File cacheDir;
+    private final Executor callbackExecutor;
+    private final long ttlMs;
+    private final Random random;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+
+    // Only touched on the io thread
+    private final Map<String, Sampler> samplers = new HashMap<>();
+
+    /**
+     * @param apiCalls         The Api used to fetch the image lists
+     * @param cacheDir         The directory the lists are saved in, one file per breed
+     * @param callbackExecutor Executor the callbacks get called on, usually the main thread
+     */
+    public BreedImageIndex(ApiCalls apiCalls, File cacheDir, Executor callbackExecutor) {
+        this(apiCalls, cacheDir, callbackExecutor, TTL_MS, new Random());
+    }
+
+    // Lets tests expire the lists and fix the random order
+    BreedImageIndex(ApiCalls apiCalls, File cacheDir, Executor callbackExecutor, long ttlMs,
+                    Random random) {
+        this.apiCalls = apiCalls;
+        this.cacheDir = cacheDir;
+        this.callbackExecutor = callbackExecutor;
+        this.ttlMs = ttlMs;
+        this.random = random;
+    }
+
+    /**
+     * Draws a page of random pictures of a breed, loading its list from disk or the Api first if
+     * needed.
+     *
+     * @param breed    The breed
+     * @param subBreed The sub-breed, or null for every picture of the breed
+     * @param count    The number of URLs wanted
+     * @param callback Receives the URLs, fewer than count if the breed has fewer pictures
+     */
+    public void sample(final String breed, final String subBreed, final int count,
+                       final SampleCallback callback) {
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Sampler sampler = getSampler(breed, subBreed);
+
+                if (sampler == null) {
+                    deliverError(callback);
+                    return;
+                }
+
+                deliver(callback, sampler.next(count));
+            }
+        });
+    }
+
+    /**
+     * Stops the background thread. The index can't be used after this.
+     */
+    public void close() {
+        ioExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the sampler of a breed, reading the list from disk or fetching it when there is no
+     * list in memory or it's past the TTL. Runs on the io thread.
+     */
+    private Sampler getSampler(String breed, String subBreed) {
+        String key = subBreed != null ? breed + "-" + subBreed : breed;
+        Sampler sampler = samplers.get(key);
+        File file = new File(cacheDir, key + ".snap");
+
+        if (sampler == null) {
+            CachedList saved = readFromDisk(file);
+
+            if (saved != null) {
+                sampler = new Sampler(saved);
+                samplers.put(key, sampler);
+            }
+        }
+
+        if (sampler != null && System.currentTimeMillis() - sampler.fetchedAt < ttlMs) {
+            return sampler;
+        }
+
+        CachedList fresh = fetch(breed, subBreed);
+
+        if (fresh == null) {
+            // Better an old list than none
+            return sampler;
+        }
+
+        writeToDisk(file, fresh);
+
+        if (sampler != null && sampler.urls.equals(fresh.urls)) {
+            // Same pictures, keep the place in the current round
+            sampler.fetchedAt = fresh.fetchedAt;
+            return sampler;
+        }
+
+        sampler = new Sampler(fresh);
+        samplers.put(key, sampler);
+
+        return sampler;
+    }
+
+    /**
+     * Fetches every URL of a breed or sub-breed, returning null if the call fails.
+     */
+    private CachedList fetch(String breed, String subBreed) {
+        try {
+            List<String> urls;
+            int code;
+
+            if (subBreed != null) {
+                // Api call link: https://dog.ceo/api/breed/{breed}/{subBreed}/images
+                Response<RandomSubBreed> response =
+                        apiCalls.getAllBySubBreed(breed, subBreed).execute();
+                code = response.code();
+                urls = response.body() != null ? response.body().getSubBreed() : null;
+            } else {
+                // Api call link: https://dog.ceo/api/breed/{breed}/images
+                Response<RandomBreed> response = apiCalls.getAllByBreed(breed).execute();
+                code = response.code();
+                urls = response.body() != null ? response.body().getBreedList() : null;
+            }
+
+            // Log and exit function if Api call was unsuccessful
+            if (code < 200 || code >= 300 || urls == null || urls.isEmpty()) {
+                Log.d(TAG, "fetch() Response Code: " + code);
+                return null;
+            }
+
+            CachedList list = new CachedList();
+            // Never changed, so the decoded list is kept as it is
+            list.urls = urls;
+            list.fetchedAt = System.currentTimeMillis();
+
+            return list;
+        } catch (IOException e) {
+            Log.d(TAG, "fetch() onFailure: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void deliver(final SampleCallback callback, final List<String> urls) {
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSample(urls);
+            }
+        });
+    }
+
+    private void deliverError(final SampleCallback callback) {
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onError();
+            }
+        });
+    }
+
+    /**
+     * Opens a saved list, returning null if there is none or it can't be read. The URLs stay in
+     * the mapped file and are only decoded when they are drawn.
+     */
+    private CachedList readFromDisk(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            UrlListSnapshot snapshot = UrlListSnapshot.open(file);
+
+            CachedList list = new CachedList();
+            list.urls = snapshot;
+            list.fetchedAt = Long.parseLong(snapshot.getProperty(FETCHED_AT));
+
+            return !list.urls.isEmpty() ? list : null;
+        } catch (IOException | NumberFormatException e) {
+            // Damaged, or written by another version, fetched again as if there was none
+            Log.d(TAG, "readFromDisk() failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the list as a UrlListSnapshot, which is written to a temporary file and renamed over
+     * the old one.
+     */
+    private void writeToDisk(File file, CachedList list) {
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            Log.d(TAG, "writeToDisk() could not create " + cacheDir);
+            return;
+        }
+
+        try {
+            UrlListSnapshot.write(file, list.urls,
+                    Collections.singletonMap(FETCHED_AT, Long.toString(list.fetchedAt)));
+        } catch (IOException e) {
+            Log.d(TAG, "writeToDisk() failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Draws URLs without replacement with a Fisher-Yates shuffle done a page at a time: the first
+     * remaining entries of order are the ones not drawn yet in this round. Once all are drawn a
+     * new round starts. The URLs are kept as they were fetched or read, an ImageRefList or a
+     * UrlListSnapshot, pages are handed out as ImageRefLists.
+     */
+    private class Sampler {
+        final List<String> urls;
+        final int[] order;
+        int remaining;
+        long fetchedAt;
+
+        Sampler(CachedList list) {
+            this.urls = list.urls;
+            this.order = new int[urls.size()];
+            this.remaining = order.length;
+            this.fetchedAt = list.fetchedAt;
+
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+        }
+
+        ImageRefList next(int count) {
+            ImageRefList page = new ImageRefList(Math.min(count, order.length));
+
+            while (page.size() < count && page.size() < order.length) {
+                if (remaining == 0) {
+                    remaining = order.length;
+                }
+
+                // Move a random undrawn entry to the end of the undrawn part and shrink it
+                int pick = random.nextInt(remaining);
+                int index = order[pick];
+                order[pick] = order[remaining - 1];
+                order[remaining - 1] = index;
+                remaining--;
+
+                if (urls instanceof ImageRefList) {
+                    page.add(((ImageRefList) urls).getRef(index));
+                } else {
+                    page.add(urls.get(index));
+                }
+            }
+
+            return page;
+        }
+    }
+
+    /**
+     * What gets saved to disk for each breed.
+     */
+    private static class CachedList {
+        List<String> urls;
+        long fetchedAt;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.dogpics;
 
 import com.google.gson.annotations.SerializedName;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,6 +15,16 @@ public class BreedInfo {
     @SerializedName("message")
     private Map<String, List<String>> breedInfo = new HashMap<>();
 
+    // Used by Gson when ApiJsonAdapters isn't registered
+    BreedInfo() {
+    }
+
+    BreedInfo(Map<String, List<String>> breedInfo) {
+        this.breedInfo = breedInfo != null
+                ? breedInfo
+                : Collections.<String, List<String>>emptyMap();
+    }
+
     // Getter
     public Map<String, List<String>> getBreedInfo() {
         return breedInfo;
@@ -0,0 +1,144 @@
+package com.example.dogpics;
+
+import java.util.Collection;
+
+/**
+ * Works out the breed name to show for an image URL, e.g.
+ * ".../breeds/hound-afghan/n02088094_1003.jpg" becomes "Afghan Hound". Names are kept in a table
+ * keyed by the breed path segment and looked up straight from the characters of the URL, so
+ * parsing a URL of a breed seen before allocates nothing. Not thread safe.
+ */
+public class BreedNameParser {
+    // Constants for parsing the URL
+    private static final String PREFIX = "breeds/";
+    private static final char DELIM = '/';
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Open addressing table, capacity is always a power of two
+    private String[] segments = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int size;
+
+    public BreedNameParser() {
+    }
+
+    /**
+     * @param knownSegments Breed path segments to put in the table up front, e.g. "hound-afghan"
+     */
+    public BreedNameParser(Collection<String> knownSegments) {
+        for (String segment : knownSegments) {
+            displayNameOfSegment(segment, 0, segment.length());
+        }
+    }
+
+    /**
+     * @param url The image URL
+     * @return The name to display for it, or an empty String if the URL has no breed segment
+     */
+    public String parse(String url) {
+        int start = url.lastIndexOf(PREFIX);
+
+        if (start < 0) {
+            return "";
+        }
+
+        start += PREFIX.length();
+        int end = url.indexOf(DELIM, start);
+
+        return end > start ? displayNameOfSegment(url, start, end) : "";
+    }
+
+    /**
+     * Looks up the name of the segment between start and end of the text, working it out and
+     * adding it to the table the first time.
+     */
+    public String displayNameOfSegment(String text, int start, int end) {
+        int length = end - start;
+        int mask = segments.length - 1;
+        int slot = hash(text, start, end) & mask;
+
+        while (segments[slot] != null) {
+            String segment = segments[slot];
+
+            if (segment.length() == length && text.regionMatches(start, segment, 0, length)) {
+                return names[slot];
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        String segment = text.substring(start, end);
+        String name = toDisplayName(segment);
+        segments[slot] = segment;
+        names[slot] = name;
+
+        // Keep the table at most half full
+        if (++size * 2 > segments.length) {
+            grow();
+        }
+
+        return name;
+    }
+
+    /**
+     * @return How many breeds are in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Turns "hound-afghan" into "Afghan Hound" and "pug" into "Pug".
+     */
+    public static String toDisplayName(String segment) {
+        int splitIndex = segment.indexOf('-');
+
+        if (splitIndex < 0) {
+            return capitalize(segment);
+        }
+
+        return capitalize(segment.substring(splitIndex + 1)) + " "
+                + capitalize(segment.substring(0, splitIndex));
+    }
+
+    private static String capitalize(String word) {
+        return word.isEmpty() ? word : word.substring(0, 1).toUpperCase() + word.substring(1);
+    }
+
+    /**
+     * Same as String.hashCode() of the substring, without making it.
+     */
+    static int hash(String text, int start, int end) {
+        int hash = 0;
+
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+
+        // Spread the bits, the table only uses the low ones
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        String[] oldSegments = segments;
+        String[] oldNames = names;
+        segments = new String[oldSegments.length * 2];
+        names = new String[segments.length];
+        int mask = segments.length - 1;
+
+        for (int i = 0; i < oldSegments.length; i++) {
+            if (oldSegments[i] != null) {
+                String segment = oldSegments[i];
+                int slot = hash(segment, 0, segment.length()) & mask;
+
+                while (segments[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+
+                segments[slot] = segment;
+                names[slot] = oldNames[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.dogpics;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Adapter for the breed search AutoCompleteTextView. Instead of ArrayAdapter's filter,
+ * which lowercases and scans every name on each keystroke, the suggestions come from a
+ * BreedSearchIndex: ranked completions of what was typed, or names close to it if it looks
+ * misspelled.
+ */
+public class BreedSearchAdapter extends BaseAdapter implements Filterable {
+    private final LayoutInflater inflater;
+    private final BreedSearchIndex index;
+    private final List<String> allNames;
+    private List<String> results = Collections.emptyList();
+
+    /**
+     * @param context  The activity context
+     * @param index    The index searched as the user types
+     * @param allNames The names shown when the field is empty, e.g. when the dropdown is opened
+     *                 by tapping the field
+     */
+    public BreedSearchAdapter(Context context, BreedSearchIndex index, List<String> allNames) {
+        this.inflater = LayoutInflater.from(context);
+        this.index = index;
+        this.allNames = new ArrayList<>(allNames);
+    }
+
+    @Override
+    public int getCount() {
+        return results.size();
+    }
+
+    @Override
+    public String getItem(int position) {
+        return results.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        TextView view = (TextView) (convertView != null
+                ? convertView
+                : inflater.inflate(android.R.layout.simple_list_item_1, parent, false));
+
+        view.setText(results.get(position));
+        return view;
+    }
+
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    private final Filter filter = new Filter() {
+        /**
+         * Runs on the Filter's background thread, the index is safe to search from there.
+         */
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            List<String> found = constraint == null || constraint.toString().trim().isEmpty()
+                    ? allNames
+                    : index.search(constraint, BreedSearchIndex.MAX_RESULTS);
+
+            FilterResults filterResults = new FilterResults();
+            filterResults.values = found;
+            filterResults.count = found.size();
+
+            return filterResults;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults filterResults) {
+            results = filterResults.values != null
+                    ? (List<String>) filterResults.values
+                    : Collections.<String>emptyList();
+
+            if (filterResults.count > 0) {
+                notifyDataSetChanged();
+            } else {
+                notifyDataSetInvalidated();
+            }
+        }
+    };
+}
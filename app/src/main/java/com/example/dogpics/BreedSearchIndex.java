@@ -0,0 +1,637 @@
+package com.example.dogpics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Search index over breed names for the autocomplete fields. Every word of every name goes into a
+ * prefix trie whose nodes keep their best few matches ranked ahead of time, so completing what the
+ * user typed only walks the typed characters. Misspellings are looked up in BK-trees over the same
+ * words, which only compares the query against a small part of the words to find the ones within
+ * an edit distance or two. The index can't be changed once built and is safe to search from any
+ * thread, e.g. the background thread of a Filter.
+ */
+public class BreedSearchIndex {
+    // Results returned by default, about what the dropdown shows without scrolling
+    public static final int MAX_RESULTS = 10;
+
+    private final String[] names;
+    private final String[] lowerNames;
+    private final String[][] nameWords;
+    private final int[] weights;
+    private final Map<String, Integer> ids;
+    private final TrieNode root;
+    private final Map<Character, BkNode> bkRoots = new HashMap<>();
+    private final Comparator<Match> ranking;
+
+    private BreedSearchIndex(Builder builder) {
+        int size = builder.names.size();
+        names = builder.names.toArray(new String[size]);
+        lowerNames = new String[size];
+        nameWords = new String[size][];
+        weights = new int[size];
+        ids = new HashMap<>(size * 2);
+
+        for (int i = 0; i < size; i++) {
+            lowerNames[i] = normalize(names[i]);
+            nameWords[i] = tokenize(lowerNames[i]);
+            weights[i] = builder.weights.get(i);
+            ids.put(lowerNames[i], i);
+        }
+
+        ranking = new Comparator<Match>() {
+            @Override
+            public int compare(Match a, Match b) {
+                return compareMatches(a, b);
+            }
+        };
+
+        // Every word of every name, pointing back at the names containing it
+        Map<String, List<Match>> words = new HashMap<>();
+        root = new TrieNode();
+
+        for (int id = 0; id < size; id++) {
+            String[] tokens = nameWords[id];
+
+            for (int position = 0; position < tokens.length; position++) {
+                Match match = new Match(id, position, 0);
+                insert(tokens[position], match);
+
+                List<Match> matches = words.get(tokens[position]);
+
+                if (matches == null) {
+                    matches = new ArrayList<>();
+                    words.put(tokens[position], matches);
+                }
+
+                matches.add(match);
+            }
+        }
+
+        root.rank(this);
+
+        // One BK-tree per first letter, typos are rarely in the first letter
+        for (Map.Entry<String, List<Match>> word : words.entrySet()) {
+            int[] ids = new int[word.getValue().size()];
+
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = word.getValue().get(i).id;
+            }
+
+            char first = word.getKey().charAt(0);
+            BkNode bk = bkRoots.get(first);
+
+            if (bk == null) {
+                bkRoots.put(first, new BkNode(word.getKey(), ids));
+            } else {
+                bk.add(word.getKey(), ids);
+            }
+        }
+    }
+
+    /**
+     * @return The number of names in the index
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return True if the text is one of the names, ignoring case and surrounding spaces
+     */
+    public boolean contains(String text) {
+        return indexOf(text) >= 0;
+    }
+
+    /**
+     * @return The name as it was added for text typed in any case, or null if there's no such name
+     */
+    public String find(String text) {
+        int id = indexOf(text);
+        return id >= 0 ? names[id] : null;
+    }
+
+    /**
+     * Names with a word starting with the query, best first: a name equal to the query, then names
+     * starting with it, then names with a later word starting with it. Ties go to the higher
+     * weight, then the shorter name. A query of several words matches names that have a word
+     * starting with each of them, in any order, e.g. "hound af" finds "afghan hound".
+     *
+     * @param query What the user typed so far
+     * @param limit The most names to return, at most MAX_RESULTS
+     * @return The matching names, empty if none
+     */
+    public List<String> complete(CharSequence query, int limit) {
+        String lower = normalizeQuery(query);
+        String[] tokens = tokenize(lower);
+
+        if (tokens.length > 1) {
+            return completeWords(lower, tokens, limit);
+        }
+
+        TrieNode node = lower.isEmpty() ? null : root.find(lower);
+
+        if (node == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> results = new ArrayList<>(Math.min(limit, node.best.length));
+        int exact = indexOf(lower);
+
+        if (exact >= 0) {
+            results.add(names[exact]);
+        }
+
+        for (int i = 0; i < node.best.length && results.size() < limit; i++) {
+            if (node.best[i].id != exact) {
+                results.add(names[node.best[i].id]);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Completes a query of several words. The longest word is likely the one fewest names match,
+     * so the names under it in the trie are the candidates, and each one is checked for the other
+     * words. Its node's best matches are checked first, the whole subtree is only walked when too
+     * few of those have the other words.
+     */
+    private List<String> completeWords(String lower, String[] tokens, int limit) {
+        int pivot = 0;
+
+        for (int i = 1; i < tokens.length; i++) {
+            if (tokens[i].length() > tokens[pivot].length()) {
+                pivot = i;
+            }
+        }
+
+        TrieNode node = root.find(tokens[pivot]);
+
+        if (node == null) {
+            return Collections.emptyList();
+        }
+
+        // Ranked already, and every name of the subtree outside them ranks lower
+        int exact = indexOf(lower);
+        List<String> results = toNames(withWords(Arrays.asList(node.best), tokens, pivot),
+                exact, limit);
+
+        if (results.size() >= limit || node.best.length < MAX_RESULTS) {
+            return results;
+        }
+
+        List<Match> candidates = new ArrayList<>();
+        node.collect(candidates);
+
+        List<Match> found = withWords(candidates, tokens, pivot);
+        Collections.sort(found, ranking);
+
+        return toNames(found, exact, limit);
+    }
+
+    /**
+     * @return The matches whose name has a word starting with each token, in the same order
+     */
+    private List<Match> withWords(List<Match> matches, String[] tokens, int pivot) {
+        List<Match> found = new ArrayList<>();
+
+        for (Match match : matches) {
+            if (hasWordsStartingWith(match.id, tokens, pivot)) {
+                found.add(match);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * @return True if the name has a word starting with each token, the token at skip aside
+     */
+    private boolean hasWordsStartingWith(int id, String[] tokens, int skip) {
+        for (int t = 0; t < tokens.length; t++) {
+            if (t == skip) {
+                continue;
+            }
+
+            boolean found = false;
+
+            for (String word : nameWords[id]) {
+                if (word.startsWith(tokens[t])) {
+                    found = true;
+                    break;
+                }
+            }
+
+            if (!found) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * The names of the ranked matches without repeats, the exact match (if any) first.
+     */
+    private List<String> toNames(List<Match> ranked, int exact, int limit) {
+        List<String> results = new ArrayList<>(Math.min(limit, ranked.size() + 1));
+
+        if (exact >= 0) {
+            results.add(names[exact]);
+        }
+
+        for (int i = 0; i < ranked.size() && results.size() < limit; i++) {
+            String name = names[ranked.get(i).id];
+
+            if (!results.contains(name)) {
+                results.add(name);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * "Did you mean" lookup: names with a word within a couple of typos of the query, closest
+     * first. One typo is allowed for words of up to four letters, two for longer ones. Words with
+     * the same first letter are searched first, the rest only if none of those are close. In a
+     * query of several words the first word nothing starts with is taken as the misspelled one
+     * and the others still have to match.
+     *
+     * @param query What the user typed
+     * @param limit The most names to return
+     * @return The closest names, empty if nothing is close enough
+     */
+    public List<String> suggest(CharSequence query, int limit) {
+        String lower = normalizeQuery(query);
+        String[] tokens = tokenize(lower);
+
+        if (lower.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int misspelled = 0;
+
+        if (tokens.length > 1) {
+            while (misspelled < tokens.length - 1 && root.find(tokens[misspelled]) != null) {
+                misspelled++;
+            }
+
+            lower = tokens[misspelled];
+        }
+
+        int maxDistance = lower.length() <= 4 ? 1 : 2;
+        List<Match> found = new ArrayList<>();
+        int[] row = new int[lower.length() + 1];
+        BkNode sameLetter = bkRoots.get(lower.charAt(0));
+
+        if (sameLetter != null) {
+            sameLetter.search(lower, maxDistance, row, found);
+        }
+
+        if (found.isEmpty()) {
+            for (BkNode bk : bkRoots.values()) {
+                if (bk != sameLetter) {
+                    bk.search(lower, maxDistance, row, found);
+                }
+            }
+        }
+
+        if (tokens.length > 1) {
+            for (int i = found.size() - 1; i >= 0; i--) {
+                if (!hasWordsStartingWith(found.get(i).id, tokens, misspelled)) {
+                    found.remove(i);
+                }
+            }
+        }
+
+        // The same name can come up for more than one of its words, keep its closest
+        Collections.sort(found, new Comparator<Match>() {
+            @Override
+            public int compare(Match a, Match b) {
+                return a.distance != b.distance ? a.distance - b.distance : compareMatches(a, b);
+            }
+        });
+
+        return toNames(found, -1, limit);
+    }
+
+    /**
+     * Completions if there are any, otherwise suggestions for a misspelling.
+     */
+    public List<String> search(CharSequence query, int limit) {
+        List<String> results = complete(query, limit);
+        return results.isEmpty() ? suggest(query, limit) : results;
+    }
+
+    private int indexOf(String text) {
+        Integer id = ids.get(normalize(text));
+        return id != null ? id : -1;
+    }
+
+    private void insert(String word, Match match) {
+        TrieNode node = root;
+
+        for (int i = 0; i < word.length(); i++) {
+            node = node.childFor(word.charAt(i));
+        }
+
+        if (node.terminals == null) {
+            node.terminals = new ArrayList<>(1);
+        }
+
+        node.terminals.add(match);
+    }
+
+    /**
+     * Names matched on their first word go first, then the higher weight, the shorter name and the
+     * alphabetical order.
+     */
+    private int compareMatches(Match a, Match b) {
+        if ((a.position == 0) != (b.position == 0)) {
+            return a.position == 0 ? -1 : 1;
+        }
+
+        if (weights[a.id] != weights[b.id]) {
+            return weights[b.id] - weights[a.id];
+        }
+
+        if (lowerNames[a.id].length() != lowerNames[b.id].length()) {
+            return lowerNames[a.id].length() - lowerNames[b.id].length();
+        }
+
+        return lowerNames[a.id].compareTo(lowerNames[b.id]);
+    }
+
+    static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.US);
+    }
+
+    /**
+     * Lower case, without the separators the user typed ahead of the next word, e.g. "afghan-"
+     * looks up "afghan".
+     */
+    private static String normalizeQuery(CharSequence query) {
+        return normalize(query.toString()).replaceAll("^[\\s-]+|[\\s-]+$", "");
+    }
+
+    private static String[] tokenize(String lower) {
+        String[] tokens = lower.split("[\\s-]+");
+
+        // A leading separator leaves an empty first token
+        return tokens.length > 0 && tokens[0].isEmpty()
+                ? Arrays.copyOfRange(tokens, 1, tokens.length)
+                : tokens;
+    }
+
+    /**
+     * Builds a BreedSearchIndex. Names are kept as given and searched ignoring case.
+     */
+    public static class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final List<Integer> weights = new ArrayList<>();
+
+        public Builder add(String name) {
+            return add(name, 0);
+        }
+
+        /**
+         * @param name   The name to show and search
+         * @param weight Ranks the name ahead of others matching as well, higher goes first
+         */
+        public Builder add(String name, int weight) {
+            names.add(name);
+            weights.add(weight);
+            return this;
+        }
+
+        public Builder addAll(Iterable<String> names) {
+            for (String name : names) {
+                add(name);
+            }
+
+            return this;
+        }
+
+        public BreedSearchIndex build() {
+            return new BreedSearchIndex(this);
+        }
+    }
+
+    /**
+     * A name matched through one of its words.
+     */
+    private static class Match {
+        final int id;
+        final int position;
+        final int distance;
+
+        Match(int id, int position, int distance) {
+            this.id = id;
+            this.position = position;
+            this.distance = distance;
+        }
+    }
+
+    private static class TrieNode {
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+        private static final Match[] NO_MATCHES = new Match[0];
+
+        // Sorted, searched with a binary search
+        char[] keys = new char[0];
+        TrieNode[] children = NO_CHILDREN;
+
+        // Names with a word ending here, then the best matches of the whole subtree
+        List<Match> terminals;
+        Match[] best = NO_MATCHES;
+
+        TrieNode childFor(char c) {
+            int index = Arrays.binarySearch(keys, c);
+
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insertAt = -index - 1;
+            TrieNode child = new TrieNode();
+            char[] newKeys = new char[keys.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = child;
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1,
+                    children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+
+            return child;
+        }
+
+        /**
+         * Adds the matches of every word ending in this subtree.
+         */
+        void collect(List<Match> out) {
+            if (terminals != null) {
+                out.addAll(terminals);
+            }
+
+            for (TrieNode child : children) {
+                child.collect(out);
+            }
+        }
+
+        TrieNode find(String prefix) {
+            TrieNode node = this;
+
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                int index = Arrays.binarySearch(node.keys, prefix.charAt(i));
+                node = index >= 0 ? node.children[index] : null;
+            }
+
+            return node;
+        }
+
+        /**
+         * Works out the best matches of every node bottom up, each one from its own words and the
+         * best of its children, keeping MAX_RESULTS of them.
+         */
+        void rank(BreedSearchIndex index) {
+            List<Match> candidates = terminals != null
+                    ? new ArrayList<>(terminals)
+                    : new ArrayList<Match>();
+
+            for (TrieNode child : children) {
+                child.rank(index);
+                candidates.addAll(Arrays.asList(child.best));
+            }
+
+            Collections.sort(candidates, index.ranking);
+
+            List<Match> kept = new ArrayList<>(MAX_RESULTS);
+
+            // A name can reach a node through more than one of its words
+            for (int i = 0; i < candidates.size() && kept.size() < MAX_RESULTS; i++) {
+                if (!containsId(kept, candidates.get(i).id)) {
+                    kept.add(candidates.get(i));
+                }
+            }
+
+            best = kept.toArray(new Match[kept.size()]);
+        }
+
+        private static boolean containsId(List<Match> matches, int id) {
+            for (Match match : matches) {
+                if (match.id == id) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Node of the BK-tree: a word, the names containing it, and children by their edit distance to
+     * the word. Searching only goes into children whose distance is within the allowed typos of
+     * the query's distance to this word.
+     */
+    private static class BkNode {
+        final String word;
+        final int[] ids;
+        BkNode[] children = new BkNode[0];
+
+        BkNode(String word, int[] ids) {
+            this.word = word;
+            this.ids = ids;
+        }
+
+        void add(String newWord, int[] newIds) {
+            BkNode node = this;
+
+            while (true) {
+                int distance = distance(node.word, newWord,
+                        Math.max(node.word.length(), newWord.length()), null);
+
+                if (distance >= node.children.length) {
+                    node.children = Arrays.copyOf(node.children, distance + 1);
+                }
+
+                if (node.children[distance] == null) {
+                    node.children[distance] = new BkNode(newWord, newIds);
+                    return;
+                }
+
+                node = node.children[distance];
+            }
+        }
+
+        void search(String query, int maxDistance, int[] row, List<Match> found) {
+            // Past this distance there's neither a match here nor a child to visit
+            int limit = Math.max(maxDistance, children.length - 1 + maxDistance);
+            int distance = distance(word, query, limit, row);
+
+            if (distance <= maxDistance) {
+                for (int id : ids) {
+                    found.add(new Match(id, 0, distance));
+                }
+            }
+
+            int from = Math.max(1, distance - maxDistance);
+            int to = Math.min(children.length - 1, distance + maxDistance);
+
+            for (int d = from; d <= to; d++) {
+                if (children[d] != null) {
+                    children[d].search(query, maxDistance, row, found);
+                }
+            }
+        }
+    }
+
+    /**
+     * Levenshtein distance between a and b using one row of the table. Stops early once every
+     * entry of the row is past the limit, the distance can only grow from there.
+     *
+     * @param limit Distances above this are all the same to the caller, limit + 1 is returned
+     * @param row   Scratch space of at least b.length() + 1 ints, or null to allocate one
+     */
+    static int distance(String a, String b, int limit, int[] row) {
+        if (Math.abs(a.length() - b.length()) > limit) {
+            return limit + 1;
+        }
+
+        int[] costs = row != null && row.length > b.length() ? row : new int[b.length() + 1];
+
+        for (int j = 0; j <= b.length(); j++) {
+            costs[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            int diagonal = costs[0];
+            costs[0] = i;
+            int rowMin = i;
+
+            for (int j = 1; j <= b.length(); j++) {
+                int above = costs[j];
+                int substitution = diagonal + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                costs[j] = Math.min(substitution, Math.min(above, costs[j - 1]) + 1);
+                rowMin = Math.min(rowMin, costs[j]);
+                diagonal = above;
+            }
+
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+        }
+
+        return Math.min(costs[b.length()], limit + 1);
+    }
+}
@@ -8,12 +8,14 @@ import java.util.Map;
 /**
  * Persistent storage class of the list of available dog breeds and sub-breeds obtained from
  * https://dog.ceo/api/breeds/list/all. Class used to save the data so that only one Api call
- * is made to retrieve this information during the apps whole lifecycle.
+ * is made to retrieve this information during the apps whole lifecycle. Also keeps the search
+ * built from the list so a rotation doesn't build it again.
  */
 public class BreedsSubBreedsInfoVM extends ViewModel {
     private Map<String, List<String>> breedInfoMap;
+    private BreedCatalogSearch catalogSearch;
 
-    // Getter and setter
+    // Getters and setters
     public Map<String, List<String>> getBreedInfoMap() {
         return breedInfoMap;
     }
@@ -21,4 +23,12 @@ public class BreedsSubBreedsInfoVM extends ViewModel {
     public void setBreedInfoMap(Map<String, List<String>> breedInfoMap) {
         this.breedInfoMap = breedInfoMap;
     }
+
+    public BreedCatalogSearch getCatalogSearch() {
+        return catalogSearch;
+    }
+
+    public void setCatalogSearch(BreedCatalogSearch catalogSearch) {
+        this.catalogSearch = catalogSearch;
+    }
 }
@@ -0,0 +1,198 @@
+package com.example.dogpics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * The breed list stored as a BinarySnapshot and read as a Map of breeds to their sub-breeds. List
+ * 0 holds the breeds sorted by name, list 1 + i the sub-breeds of breed i. Nothing is decoded when
+ * opening: get() finds a breed with a binary search over the mapped file, decoding a handful of
+ * names, and the sub-breeds are decoded when read. Read only.
+ */
+public final class CatalogSnapshot extends AbstractMap<String, List<String>> {
+    private static final int BREEDS = 0;
+
+    private final BinarySnapshot snapshot;
+    private final int size;
+
+    private CatalogSnapshot(BinarySnapshot snapshot) throws IOException {
+        if (snapshot.getListCount() < 1
+                || snapshot.getListCount() != snapshot.getListSize(BREEDS) + 1) {
+            throw new IOException("Not a catalog snapshot");
+        }
+
+        this.snapshot = snapshot;
+        this.size = snapshot.getListSize(BREEDS);
+    }
+
+    /**
+     * @throws IOException If the file can't be read or isn't a valid catalog snapshot
+     */
+    public static CatalogSnapshot open(File file) throws IOException {
+        return new CatalogSnapshot(BinarySnapshot.open(file));
+    }
+
+    /**
+     * @param properties Saved along with the catalog, e.g. its validators
+     */
+    public static void write(File file, Map<String, List<String>> catalog,
+                             Map<String, String> properties) throws IOException {
+        toBuilder(catalog, properties).writeTo(file);
+    }
+
+    // Lets tests read a snapshot without a file
+    static BinarySnapshot.Builder toBuilder(Map<String, List<String>> catalog,
+                                            Map<String, String> properties) {
+        BinarySnapshot.Builder builder = new BinarySnapshot.Builder();
+        List<String> breeds = new ArrayList<>(catalog.keySet());
+        Collections.sort(breeds);
+
+        int[] breedIndexes = new int[breeds.size()];
+
+        for (int i = 0; i < breedIndexes.length; i++) {
+            breedIndexes[i] = builder.addString(breeds.get(i));
+        }
+        builder.addList(breedIndexes);
+
+        for (String breed : breeds) {
+            List<String> subBreeds = catalog.get(breed);
+            int[] subBreedIndexes = new int[subBreeds != null ? subBreeds.size() : 0];
+
+            for (int i = 0; i < subBreedIndexes.length; i++) {
+                subBreedIndexes[i] = builder.addString(subBreeds.get(i));
+            }
+            builder.addList(subBreedIndexes);
+        }
+
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            if (property.getValue() != null) {
+                builder.putProperty(property.getKey(), property.getValue());
+            }
+        }
+        return builder;
+    }
+
+    // Lets tests read a snapshot without a file
+    static CatalogSnapshot of(BinarySnapshot snapshot) throws IOException {
+        return new CatalogSnapshot(snapshot);
+    }
+
+    /**
+     * @return The value saved for the key, or null
+     */
+    public String getProperty(String key) {
+        return snapshot.getProperty(key);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && indexOf((String) key) >= 0;
+    }
+
+    @Override
+    public List<String> get(Object key) {
+        int index = key instanceof String ? indexOf((String) key) : -1;
+        return index >= 0 ? new SubBreeds(index) : null;
+    }
+
+    /**
+     * @return The position of the breed in the sorted breeds, or -1
+     */
+    private int indexOf(String breed) {
+        int low = 0;
+        int high = size - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = breedAt(middle).compareTo(breed);
+
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private String breedAt(int index) {
+        return snapshot.getString(snapshot.getListEntry(BREEDS, index));
+    }
+
+    @Override
+    public Set<Entry<String, List<String>>> entrySet() {
+        return new AbstractSet<Entry<String, List<String>>>() {
+            @Override
+            public Iterator<Entry<String, List<String>>> iterator() {
+                return new Iterator<Entry<String, List<String>>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<String, List<String>> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+
+                        int index = next++;
+                        return new SimpleImmutableEntry<String, List<String>>(breedAt(index),
+                                new SubBreeds(index));
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * The sub-breeds of one breed, decoded as they are read.
+     */
+    private class SubBreeds extends AbstractList<String> implements RandomAccess {
+        private final int list;
+
+        SubBreeds(int breedIndex) {
+            this.list = breedIndex + 1;
+        }
+
+        @Override
+        public String get(int index) {
+            return snapshot.getString(snapshot.getListEntry(list, index));
+        }
+
+        @Override
+        public int size() {
+            return snapshot.getListSize(list);
+        }
+    }
+}
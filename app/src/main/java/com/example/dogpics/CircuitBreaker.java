@@ -0,0 +1,154 @@
+package com.example.dogpics;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * OkHttp interceptor that stops sending requests to the dog Api after several failures in a row
+ * and answers from the HTTP cache instead, 504 if the response isn't cached. After a while one
+ * request is let through to check on the Api: if it succeeds requests go to the network again,
+ * otherwise the breaker stays open for another while. Failures are connection errors and 5xx
+ * responses. Calls canceled by the app, e.g. the losing hedge or a screen going away, say nothing
+ * about the Api and aren't counted.
+ */
+public class CircuitBreaker implements Interceptor {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = CircuitBreaker.class.getName();
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_MS = 30 * 1000;
+
+    public enum State {
+        // Requests go to the network
+        CLOSED,
+        // Requests are answered from the cache
+        OPEN,
+        // One request went to the network to check if the Api is back
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMs;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker() {
+        this(FAILURE_THRESHOLD, OPEN_MS);
+    }
+
+    // Lets tests trip and reset the breaker quickly
+    CircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+
+        if (!allowRequest()) {
+            return chain.proceed(request.newBuilder()
+                    .cacheControl(CacheControl.FORCE_CACHE)
+                    .build());
+        }
+
+        Response response;
+
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            if (chain.call().isCanceled()) {
+                onAbandoned();
+            } else {
+                onFailure();
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            onAbandoned();
+            throw e;
+        }
+
+        if (response.code() >= 500) {
+            onFailure();
+        } else {
+            onSuccess();
+        }
+        return response;
+    }
+
+    /**
+     * @return Whether the next request may go to the network. Once the breaker has been open long
+     * enough this returns true for a single request, which then decides the new state.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now() - openedAt >= openMs) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                // A check is already on its way
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            Log.d(TAG, "Api is back, closing");
+        }
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            Log.d(TAG, "Opening after " + failures + " failures");
+            state = State.OPEN;
+            openedAt = now();
+        }
+    }
+
+    /**
+     * A request ended without telling whether the Api works, e.g. it was canceled. If it was the
+     * check, the breaker goes back to open without waiting again, so the next request checks.
+     */
+    public synchronized void onAbandoned() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    /**
+     * @return Whether requests are currently answered from the cache
+     */
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    // Getter
+    public synchronized State getState() {
+        return state;
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.dogpics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps how many bytes each decoded page bitmap takes, next to what the same picture took with
+ * the old fixed 500px ARGB_8888 decode, so the savings of ImageSizePolicy can be checked in Logcat.
+ * Pages are keyed by URL, so a page shown again from the memory cache is only counted once.
+ */
+public class DecodeReport {
+    // What every page used to be decoded at
+    private static final int OLD_HEIGHT = 500;
+    private static final int OLD_BYTES_PER_PIXEL = 4;
+
+    // Bytes saved by each page against the old decode, by URL
+    private final Map<String, Long> savedBytes = new HashMap<>();
+    private long decodedBytes;
+    private long oldBytes;
+
+    /**
+     * Records a decoded page, unless its URL was recorded already.
+     *
+     * @param url       The URL of the picture
+     * @param width     Width of the decoded bitmap
+     * @param height    Height of the decoded bitmap
+     * @param byteCount Bytes the decoded bitmap takes
+     */
+    public synchronized void record(String url, int width, int height, long byteCount) {
+        if (savedBytes.containsKey(url)) {
+            return;
+        }
+
+        long old = 0;
+
+        if (height > 0) {
+            long oldWidth = Math.round((double) width * OLD_HEIGHT / height);
+            old = oldWidth * OLD_HEIGHT * OLD_BYTES_PER_PIXEL;
+        }
+
+        savedBytes.put(url, old - byteCount);
+        decodedBytes += byteCount;
+        oldBytes += old;
+    }
+
+    public synchronized int getPages() {
+        return savedBytes.size();
+    }
+
+    public synchronized long getDecodedBytes() {
+        return decodedBytes;
+    }
+
+    /**
+     * @param url The URL of the picture
+     * @return The bytes its page saved against the old decode, negative if it takes more, or null
+     * if it wasn't recorded
+     */
+    public synchronized Long getSavedBytes(String url) {
+        return savedBytes.get(url);
+    }
+
+    /**
+     * @param fraction The percentile wanted, e.g. 0.5 for the median
+     * @return The bytes saved by the page at that percentile, 0 if no page was recorded
+     */
+    public synchronized long savedBytesPercentile(double fraction) {
+        if (savedBytes.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> sorted = new ArrayList<>(savedBytes.values());
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(fraction * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (savedBytes.isEmpty()) {
+            return "Decoded pages: 0";
+        }
+
+        return "Decoded pages: " + savedBytes.size() + ", " + decodedBytes
+                + " bytes, 500px ARGB_8888 would have been " + oldBytes
+                + " bytes. Saved per page: least " + savedBytesPercentile(0)
+                + ", p10 " + savedBytesPercentile(0.1)
+                + ", median " + savedBytesPercentile(0.5)
+                + ", p90 " + savedBytesPercentile(0.9)
+                + ", most " + savedBytesPercentile(1.0);
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.dogpics;
+
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import okio.ByteString;
+
+/**
+ * Files in one directory, one per key, that together never take up more than a set number of
+ * bytes. Adding a file past the cap deletes the least recently used ones. The use order is kept
+ * in the files' modification times, so it survives restarts without a journal.
+ *
+ * The files are written and read outside the lock, only the bookkeeping, renames and deletes are
+ * locked, so looking a key up never waits for a file being written.
+ */
+public class DiskLruStore {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = DiskLruStore.class.getName();
+
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final File directory;
+    private final long maxBytes;
+
+    // File name to size, least recently used first. Guarded by this
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private boolean opened;
+    private int tmpCount;
+
+    /**
+     * Doesn't touch the disk, call open() on a background thread before use.
+     *
+     * @param directory Directory the files go to, not shared with anything else
+     * @param maxBytes  Cap on the total size of the files
+     */
+    public DiskLruStore(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Reads what's already in the directory, removing half written files and trimming to the cap
+     * in case it got smaller. Does nothing if already open.
+     */
+    public synchronized void open() {
+        if (opened) {
+            return;
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.d(TAG, "open() could not create " + directory);
+        }
+
+        File[] files = directory.listFiles();
+        List<File> existing = new ArrayList<>(files != null
+                ? Arrays.asList(files)
+                : Collections.<File>emptyList());
+
+        // Oldest first, so the map ends up in use order
+        Collections.sort(existing, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+
+        for (File file : existing) {
+            if (file.getName().endsWith(TMP_SUFFIX)) {
+                deleteFile(file);
+            } else {
+                entries.put(file.getName(), file.length());
+                size += file.length();
+            }
+        }
+
+        opened = true;
+        trimTo(maxBytes);
+    }
+
+    /**
+     * Copies the stream into the entry for the key, replacing any earlier one. The stream is read
+     * to the end but not closed.
+     *
+     * @return Whether the entry was stored, false if it doesn't fit in the cap or writing failed
+     */
+    public boolean put(String key, InputStream in) {
+        File tmp;
+
+        synchronized (this) {
+            open();
+            tmp = new File(directory, fileNameOf(key) + "." + (tmpCount++) + TMP_SUFFIX);
+        }
+
+        long length = 0;
+        OutputStream out = null;
+
+        try {
+            out = new FileOutputStream(tmp);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+
+            while ((read = in.read(buffer)) != -1) {
+                length += read;
+
+                // Stop copying as soon as the entry can't fit
+                if (length > maxBytes) {
+                    out.close();
+                    out = null;
+                    deleteFile(tmp);
+                    return false;
+                }
+                out.write(buffer, 0, read);
+            }
+
+            out.close();
+            out = null;
+        } catch (IOException e) {
+            Log.d(TAG, "put() failed: " + e.getMessage());
+            closeQuietly(out);
+            deleteFile(tmp);
+            return false;
+        }
+
+        return commit(key, tmp, length);
+    }
+
+    /**
+     * Stores the bytes as the entry for the key.
+     */
+    public boolean put(String key, byte[] data) {
+        return put(key, new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Marks the entry as just used.
+     *
+     * @return The entry's file, or null if there's no entry for the key
+     */
+    public File get(String key) {
+        String name = fileNameOf(key);
+        File file;
+
+        synchronized (this) {
+            if (entries.get(name) == null) {
+                return null;
+            }
+            file = new File(directory, name);
+        }
+
+        // Keeps the use order for the next open()
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            Log.d(TAG, "get() could not touch " + file);
+        }
+        return file;
+    }
+
+    /**
+     * Looks the key up without marking it used or touching the disk.
+     *
+     * @return The entry's file, or null if there's no entry for the key
+     */
+    public synchronized File peek(String key) {
+        String name = fileNameOf(key);
+
+        // A plain get() would move the entry to the end of the access ordered map
+        return entries.containsKey(name) ? new File(directory, name) : null;
+    }
+
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(fileNameOf(key));
+    }
+
+    public synchronized boolean remove(String key) {
+        String name = fileNameOf(key);
+        Long length = entries.remove(name);
+
+        if (length == null) {
+            return false;
+        }
+
+        size -= length;
+        deleteFile(new File(directory, name));
+        return true;
+    }
+
+    // Getters
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Moves a fully written file in place and evicts until the store fits the cap again.
+     */
+    private synchronized boolean commit(String key, File tmp, long length) {
+        String name = fileNameOf(key);
+        File file = new File(directory, name);
+
+        if (!tmp.renameTo(file)) {
+            Log.d(TAG, "commit() could not rename " + tmp);
+            deleteFile(tmp);
+            return false;
+        }
+
+        Long previous = entries.put(name, length);
+
+        if (previous != null) {
+            size -= previous;
+        }
+        size += length;
+
+        trimTo(maxBytes);
+        return true;
+    }
+
+    // Called with the lock held
+    private void trimTo(long bytes) {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+
+        while (size > bytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.getValue();
+            deleteFile(new File(directory, eldest.getKey()));
+        }
+    }
+
+    /**
+     * Keys can be anything, e.g. URLs, so the file is named after a hash of the key.
+     */
+    static String fileNameOf(String key) {
+        return ByteString.encodeUtf8(key).md5().hex();
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.d(TAG, "Could not delete " + file);
+        }
+    }
+
+    private static void closeQuietly(OutputStream out) {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
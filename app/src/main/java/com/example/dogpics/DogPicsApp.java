@@ -0,0 +1,258 @@
+package com.example.dogpics;
+
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.Context;
+
+import com.squareup.picasso.LruCache;
+import com.squareup.picasso.OkHttp3Downloader;
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+/**
+ * Application class that owns the network layer shared by every screen: one ApiClient for the dog
+ * Api and a Picasso instance downloading images through the same connection and thread pools, with
+ * its memory cache sized to the device's bitmap memory budget. Also owns the ResponseProcessor the
+ * responses are worked on before they reach the main thread, and the NetworkQualityMonitor the
+ * screens adapt their loading to. Every HTTP call and picture reports to one Metrics instance,
+ * shown by the hidden MetricsActivity. While the first activity is being created, the
+ * StartupPipeline reads the breed list and connects to the Api in the background.
+ */
+public class DogPicsApp extends Application {
+    // Disk space for cached Api responses and for downloaded images
+    private static final long API_CACHE_SIZE = 5 * 1024 * 1024;
+    private static final long IMAGE_CACHE_SIZE = 50 * 1024 * 1024;
+    // Disk space for pictures kept for offline browsing, in files/ so the system doesn't clear it
+    private static final long OFFLINE_STORE_SIZE = 30 * 1024 * 1024;
+    // Picture downloads at once per host, so the picture on screen shares the link with at most
+    // one other
+    private static final int IMAGE_REQUESTS_PER_HOST = 2;
+
+    // File in the app's private storage the breed list is saved to between launches
+    private static final String CATALOG_FILE = "breed_catalog.snap";
+    // Asset with the breed list as it was when the app was built, for the very first launch
+    private static final String CATALOG_SNAPSHOT = "breed_catalog_snapshot.json";
+
+    private ApiClient apiClient;
+    private BreedCatalogRepository breedCatalogRepository;
+    private BreedImageIndex breedImageIndex;
+    private MainThreadBudget mainThreadBudget;
+    private ResponseProcessor responseProcessor;
+    private OfflineImageStore offlineImageStore;
+    private NetworkQualityMonitor networkQualityMonitor;
+    private final Metrics metrics = new Metrics();
+    private final StartupPipeline startupPipeline = new StartupPipeline(metrics);
+    private final ImagePipelineMetrics imagePipelineMetrics = new ImagePipelineMetrics(metrics);
+    private long bitmapMemoryBudget;
+    private final ImageByteCounter imageByteCounter = new ImageByteCounter();
+    private final ThroughputEstimator throughputEstimator = new ThroughputEstimator();
+    private final HostRequestLimiter hostRequestLimiter =
+            new HostRequestLimiter(IMAGE_REQUESTS_PER_HOST);
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // In the budget test mode main thread work over budget crashes the app
+        if (BuildConfig.MAIN_THREAD_BUDGET_CHECKS) {
+            MainThreadBudget.enableStrictMode();
+            mainThreadBudget = new MainThreadBudget(MainThreadBudget.DEFAULT_BUDGET_MS,
+                    MainThreadBudget.STRICT_MODE);
+        } else {
+            mainThreadBudget = new MainThreadBudget(MainThreadBudget.DEFAULT_BUDGET_MS,
+                    MainThreadBudget.LOG);
+        }
+        responseProcessor = new ResponseProcessor(new MainThreadExecutor(), mainThreadBudget);
+
+        networkQualityMonitor = new NetworkQualityMonitor(this, throughputEstimator,
+                new MainThreadExecutor());
+        networkQualityMonitor.start();
+
+        apiClient = new ApiClient.Builder(BuildConfig.API_BASE_URL)
+                .cache(new File(getCacheDir(), "api"), API_CACHE_SIZE)
+                .callbackExecutor(new MainThreadExecutor())
+                .eventListenerFactory(new MetricsEventListener.Factory(metrics))
+                .build();
+
+        // The saved breed list, or the bundled one on the first launch
+        breedCatalogRepository = new BreedCatalogRepository(apiClient.getApiCalls(),
+                new File(getFilesDir(), CATALOG_FILE),
+                new BreedCatalogRepository.Snapshot() {
+                    @Override
+                    public InputStream open() throws IOException {
+                        return getAssets().open(CATALOG_SNAPSHOT);
+                    }
+                },
+                mainThreadBudget.timed("Breed catalog", new MainThreadExecutor()));
+        startWarmUp();
+
+        // Random pages of a breed are drawn from its full image list, saved once per breed
+        breedImageIndex = new BreedImageIndex(apiClient.getApiCalls(),
+                new File(getCacheDir(), "breed_images"),
+                mainThreadBudget.timed("Breed image page", new MainThreadExecutor()));
+
+        // Decoded bitmaps get a share of the memory class, the page sizes are fitted into it
+        ActivityManager activityManager =
+                (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
+        bitmapMemoryBudget = ImageSizePolicy.memoryBudgetFor(
+                activityManager != null ? activityManager.getMemoryClass() : 16);
+
+        // newBuilder() keeps the connection pool and dispatcher, only the cache differs
+        OkHttpClient.Builder imageClientBuilder = apiClient.getHttpClient().newBuilder()
+                .cache(new Cache(new File(getCacheDir(), "images"), IMAGE_CACHE_SIZE));
+
+        // Builds pointed at another Api, e.g. the FakeDogApi, get their pictures from it too
+        if (!BuildConfig.IMAGE_BASE_URL.isEmpty()) {
+            imageClientBuilder.addInterceptor(new ImageHostInterceptor(BuildConfig.IMAGE_BASE_URL));
+        }
+
+        // The offline store's copies only read the cache, they don't wait for a slot to the host
+        // and aren't pictures shown
+        OkHttpClient cacheClient = imageClientBuilder.build();
+        OkHttpClient imageClient = imageClientBuilder
+                .addInterceptor(imagePipelineMetrics)
+                .addInterceptor(hostRequestLimiter)
+                .addNetworkInterceptor(imageByteCounter)
+                .addNetworkInterceptor(throughputEstimator)
+                .build();
+        Picasso picasso = new Picasso.Builder(this)
+                .memoryCache(new LruCache((int) bitmapMemoryBudget))
+                .downloader(new OkHttp3Downloader(imageClient))
+                .build();
+        Picasso.setSingletonInstance(picasso);
+        registerGauges(picasso);
+
+        // Pictures the user looked at are copied out of the image cache for offline browsing
+        offlineImageStore = new OfflineImageStore(
+                new DiskLruStore(new File(getFilesDir(), "offline"), OFFLINE_STORE_SIZE),
+                new File(getFilesDir(), "offline_index"), cacheClient, new MainThreadExecutor());
+    }
+
+    /**
+     * Starts what MainActivity would otherwise wait for: the breed list is read into memory for
+     * the search box, then the Api connection is opened and the image host resolved, so the
+     * first requests skip the handshakes.
+     */
+    private void startWarmUp() {
+        final String imageHost = HttpUrl.get(BuildConfig.IMAGE_BASE_URL.isEmpty()
+                ? ImageRef.URL_PREFIX
+                : BuildConfig.IMAGE_BASE_URL).host();
+
+        startupPipeline.add("catalog", new Runnable() {
+            @Override
+            public void run() {
+                breedCatalogRepository.preload();
+            }
+        });
+        startupPipeline.add("network", new Runnable() {
+            @Override
+            public void run() {
+                if (networkQualityMonitor.isConnected()) {
+                    apiClient.warmUp(imageHost);
+                }
+            }
+        });
+    }
+
+    /**
+     * Values read when the metrics are dumped, from objects that keep their own counts.
+     */
+    private void registerGauges(final Picasso picasso) {
+        metrics.register("picasso.memory_hits", new Metrics.Gauge() {
+            @Override
+            public long get() {
+                return picasso.getSnapshot().cacheHits;
+            }
+        });
+        metrics.register("picasso.memory_misses", new Metrics.Gauge() {
+            @Override
+            public long get() {
+                return picasso.getSnapshot().cacheMisses;
+            }
+        });
+        metrics.register("picasso.memory_bytes", new Metrics.Gauge() {
+            @Override
+            public long get() {
+                return picasso.getSnapshot().size;
+            }
+        });
+        metrics.register("picasso.download_bytes", new Metrics.Gauge() {
+            @Override
+            public long get() {
+                return picasso.getSnapshot().totalDownloadSize;
+            }
+        });
+        metrics.register("api.circuit_breaker_open", new Metrics.Gauge() {
+            @Override
+            public long get() {
+                return apiClient.getCircuitBreaker().isOpen() ? 1 : 0;
+            }
+        });
+        metrics.register("network.measured_kbps", new Metrics.Gauge() {
+            @Override
+            public long get() {
+                return throughputEstimator.getKbps();
+            }
+        });
+    }
+
+    // Getters
+    public ApiClient getApiClient() {
+        return apiClient;
+    }
+
+    public BreedCatalogRepository getBreedCatalogRepository() {
+        return breedCatalogRepository;
+    }
+
+    public StartupPipeline getStartupPipeline() {
+        return startupPipeline;
+    }
+
+    public BreedImageIndex getBreedImageIndex() {
+        return breedImageIndex;
+    }
+
+    public MainThreadBudget getMainThreadBudget() {
+        return mainThreadBudget;
+    }
+
+    public ResponseProcessor getResponseProcessor() {
+        return responseProcessor;
+    }
+
+    public OfflineImageStore getOfflineImageStore() {
+        return offlineImageStore;
+    }
+
+    public NetworkQualityMonitor getNetworkQualityMonitor() {
+        return networkQualityMonitor;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public ImagePipelineMetrics getImagePipelineMetrics() {
+        return imagePipelineMetrics;
+    }
+
+    public ImageByteCounter getImageByteCounter() {
+        return imageByteCounter;
+    }
+
+    public HostRequestLimiter getHostRequestLimiter() {
+        return hostRequestLimiter;
+    }
+
+    public long getBitmapMemoryBudget() {
+        return bitmapMemoryBudget;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.dogpics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Adds up the frames drawn while the ViewPager scrolls, from the frame times Choreographer hands
+ * out. A frame that took more than one and a half refresh intervals is janky, and every refresh it
+ * spanned beyond the first is a dropped frame. The slowest frames are kept with the page that was
+ * mostly on screen, so a stall can be traced to the page that was being created or decoded.
+ * Pure Java, fed by FrameTracker.
+ */
+public class FrameStats {
+    // Slowest frames kept for the report
+    static final int SLOWEST_KEPT = 5;
+
+    private final long frameIntervalNanos;
+
+    // Frame time of the previous frame of the same scroll, 0 between scrolls
+    private long lastFrameNanos;
+
+    private int frames;
+    private int jankyFrames;
+    private long droppedFrames;
+    private long totalNanos;
+    private final List<SlowFrame> slowest = new ArrayList<>();
+
+    /**
+     * @param frameIntervalNanos The display's refresh interval, 16.7ms at 60Hz
+     */
+    public FrameStats(long frameIntervalNanos) {
+        this.frameIntervalNanos = frameIntervalNanos;
+    }
+
+    /**
+     * @param frameTimeNanos The frame time passed to Choreographer.FrameCallback.doFrame()
+     * @param position       The page mostly on screen
+     * @return How long the frame took in nanoseconds, 0 for the first frame of a scroll
+     */
+    public long onFrame(long frameTimeNanos, int position) {
+        long previous = lastFrameNanos;
+        lastFrameNanos = frameTimeNanos;
+
+        if (previous == 0) {
+            return 0;
+        }
+
+        long nanos = frameTimeNanos - previous;
+        frames++;
+        totalNanos += nanos;
+
+        long refreshes = Math.max(1, Math.round((double) nanos / frameIntervalNanos));
+        droppedFrames += refreshes - 1;
+
+        if (nanos * 2 > frameIntervalNanos * 3) {
+            jankyFrames++;
+        }
+
+        keepIfSlowest(new SlowFrame(nanos, position));
+        return nanos;
+    }
+
+    /**
+     * Ends a scroll, the time until the next one isn't a frame.
+     */
+    public void pause() {
+        lastFrameNanos = 0;
+    }
+
+    public Report getReport() {
+        return new Report(frames, jankyFrames, droppedFrames, totalNanos, frameIntervalNanos,
+                new ArrayList<>(slowest));
+    }
+
+    private void keepIfSlowest(SlowFrame frame) {
+        if (slowest.size() == SLOWEST_KEPT) {
+            if (frame.nanos <= slowest.get(SLOWEST_KEPT - 1).nanos) {
+                return;
+            }
+            slowest.remove(SLOWEST_KEPT - 1);
+        }
+
+        // Slowest first
+        int index = 0;
+
+        while (index < slowest.size() && slowest.get(index).nanos >= frame.nanos) {
+            index++;
+        }
+        slowest.add(index, frame);
+    }
+
+    /**
+     * One slow frame and the page on screen while it was drawn.
+     */
+    public static class SlowFrame {
+        public final long nanos;
+        public final int position;
+
+        SlowFrame(long nanos, int position) {
+            this.nanos = nanos;
+            this.position = position;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%.1fms@page%d", nanos / 1e6, position);
+        }
+    }
+
+    /**
+     * The frames of one or more scrolls. Never changes once made.
+     */
+    public static class Report {
+        public final int frames;
+        public final int jankyFrames;
+        public final long droppedFrames;
+        public final long totalNanos;
+        public final long frameIntervalNanos;
+        public final List<SlowFrame> slowest;
+
+        Report(int frames, int jankyFrames, long droppedFrames, long totalNanos,
+               long frameIntervalNanos, List<SlowFrame> slowest) {
+            this.frames = frames;
+            this.jankyFrames = jankyFrames;
+            this.droppedFrames = droppedFrames;
+            this.totalNanos = totalNanos;
+            this.frameIntervalNanos = frameIntervalNanos;
+            this.slowest = Collections.unmodifiableList(slowest);
+        }
+
+        /**
+         * @return The share of frames that were janky, 0 if there were none
+         */
+        public float getJankyRatio() {
+            return frames == 0 ? 0 : (float) jankyFrames / frames;
+        }
+
+        /**
+         * @return The longest frame in nanoseconds, 0 if there were none
+         */
+        public long getSlowestNanos() {
+            return slowest.isEmpty() ? 0 : slowest.get(0).nanos;
+        }
+
+        /**
+         * @param maxJankyRatio Share of frames allowed to be janky, e.g. 0.05
+         * @param maxFrames     Longest frame allowed, in refresh intervals
+         * @return Whether the frames stayed within the budget
+         */
+        public boolean passes(float maxJankyRatio, int maxFrames) {
+            return getJankyRatio() <= maxJankyRatio
+                    && getSlowestNanos() <= maxFrames * frameIntervalNanos;
+        }
+
+        /**
+         * @return e.g. "frames=410 janky=12 (2.9%) dropped=20 slowest=[48.2ms@page12, ...]"
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "frames=%d janky=%d (%.1f%%) dropped=%d slowest=%s",
+                    frames, jankyFrames, getJankyRatio() * 100, droppedFrames, slowest);
+        }
+    }
+}
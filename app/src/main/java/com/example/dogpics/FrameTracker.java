@@ -0,0 +1,116 @@
+package com.example.dogpics;
+
+import android.content.Context;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.WindowManager;
+
+import androidx.viewpager.widget.ViewPager;
+
+/**
+ * Follows the frames drawn while a ViewPager scrolls, from the first drag until it settles. Each
+ * scroll is logged with its dropped frames and slowest frames, and reported to Metrics. Frames are
+ * only watched while scrolling, so an idle pager costs nothing. Add it as a page change listener
+ * and call stop() when the screen goes away.
+ */
+public class FrameTracker extends ViewPager.SimpleOnPageChangeListener
+        implements Choreographer.FrameCallback {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = FrameTracker.class.getName();
+
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    private final Metrics metrics;
+    private final long frameIntervalNanos;
+
+    // Every scroll since the tracker was made, and the one going on
+    private final FrameStats total;
+    private FrameStats scroll;
+    private int position;
+
+    /**
+     * @param context Used to read the display's refresh rate
+     * @param metrics Where the frames get reported, may be null
+     */
+    public FrameTracker(Context context, Metrics metrics) {
+        this.metrics = metrics;
+        this.frameIntervalNanos = (long) (1e9 / refreshRateOf(context));
+        this.total = new FrameStats(frameIntervalNanos);
+    }
+
+    private static float refreshRateOf(Context context) {
+        WindowManager windowManager =
+                (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        Display display = windowManager != null ? windowManager.getDefaultDisplay() : null;
+        float rate = display != null ? display.getRefreshRate() : 0;
+
+        return rate >= 10 ? rate : DEFAULT_REFRESH_RATE;
+    }
+
+    @Override
+    public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+        // The page taking up most of the screen
+        this.position = positionOffset > 0.5f ? position + 1 : position;
+    }
+
+    @Override
+    public void onPageScrollStateChanged(int state) {
+        if (state != ViewPager.SCROLL_STATE_IDLE && scroll == null) {
+            scroll = new FrameStats(frameIntervalNanos);
+            Choreographer.getInstance().postFrameCallback(this);
+        } else if (state == ViewPager.SCROLL_STATE_IDLE && scroll != null) {
+            endScroll();
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (scroll == null) {
+            return;
+        }
+
+        long nanos = scroll.onFrame(frameTimeNanos, position);
+        total.onFrame(frameTimeNanos, position);
+
+        if (metrics != null && nanos > 0) {
+            metrics.record("pager.frame", nanos / 1000000);
+        }
+
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Stops watching frames, ending the scroll going on if any.
+     */
+    public void stop() {
+        Choreographer.getInstance().removeFrameCallback(this);
+
+        if (scroll != null) {
+            endScroll();
+        }
+    }
+
+    /**
+     * @return The frames of every scroll so far
+     */
+    public FrameStats.Report getTotalReport() {
+        return total.getReport();
+    }
+
+    private void endScroll() {
+        Choreographer.getInstance().removeFrameCallback(this);
+        FrameStats.Report report = scroll.getReport();
+        scroll = null;
+        total.pause();
+
+        Log.d(TAG, "Scroll: " + report);
+
+        if (metrics != null) {
+            metrics.increment("pager.scrolls");
+            metrics.add("pager.frames", report.frames);
+            metrics.add("pager.janky_frames", report.jankyFrames);
+            metrics.add("pager.dropped_frames", report.droppedFrames);
+        }
+    }
+}
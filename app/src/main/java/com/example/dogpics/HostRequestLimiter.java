@@ -0,0 +1,193 @@
+package com.example.dogpics;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * OkHttp interceptor limiting how many requests run at once per host. A request holds its slot
+ * until its body is read to the end or closed. When a slot frees up the waiting request with the
+ * highest priority gets it, so the picture on screen doesn't queue behind prefetches. Picasso
+ * makes its calls synchronously, which skips the limits of OkHttp's own Dispatcher, hence this.
+ */
+public class HostRequestLimiter implements Interceptor {
+    /**
+     * Ranks the URLs waiting for a slot, higher goes first. Asked from OkHttp's threads.
+     */
+    public interface Priorities {
+        int priorityOf(String url);
+    }
+
+    private final int maxPerHost;
+    private volatile Priorities priorities;
+
+    // Guarded by this
+    private final Map<String, Integer> running = new HashMap<>();
+    private final List<Waiter> waiting = new ArrayList<>();
+    private long nextTicket;
+
+    /**
+     * @param maxPerHost Most requests running at once to the same host
+     */
+    public HostRequestLimiter(int maxPerHost) {
+        this.maxPerHost = maxPerHost;
+    }
+
+    /**
+     * Sets who ranks the waiting requests, e.g. the image screen's ImageScheduler. Without one
+     * they go first come, first served.
+     */
+    public void setPriorities(Priorities priorities) {
+        this.priorities = priorities;
+    }
+
+    /**
+     * Removes the ranking, if it's still the one given.
+     */
+    public synchronized void removePriorities(Priorities priorities) {
+        if (this.priorities == priorities) {
+            this.priorities = null;
+        }
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        final String host = chain.request().url().host();
+        acquire(host, chain.request().url().toString());
+
+        Response response;
+
+        try {
+            response = chain.proceed(chain.request());
+        } catch (IOException | RuntimeException e) {
+            release(host);
+            throw e;
+        }
+
+        final ResponseBody body = response.body();
+
+        if (body == null) {
+            release(host);
+            return response;
+        }
+
+        // Hold the slot until the body is read, that's where most of the download happens
+        final AtomicBoolean released = new AtomicBoolean();
+        ForwardingSource source = new ForwardingSource(body.source()) {
+            @Override
+            public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+                long read = super.read(sink, byteCount);
+
+                if (read == -1 && released.compareAndSet(false, true)) {
+                    release(host);
+                }
+                return read;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (released.compareAndSet(false, true)) {
+                    release(host);
+                }
+                super.close();
+            }
+        };
+
+        return response.newBuilder()
+                .body(ResponseBody.create(body.contentType(), body.contentLength(),
+                        Okio.buffer(source)))
+                .build();
+    }
+
+    private synchronized void acquire(String host, String url) throws IOException {
+        Waiter waiter = new Waiter(host, url, nextTicket++);
+        waiting.add(waiter);
+
+        try {
+            while (runningTo(host) >= maxPerHost || next(host) != waiter) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + host);
+        } finally {
+            waiting.remove(waiter);
+
+            // Someone else may be next now
+            notifyAll();
+        }
+
+        running.put(host, runningTo(host) + 1);
+    }
+
+    private synchronized void release(String host) {
+        int count = runningTo(host) - 1;
+
+        if (count > 0) {
+            running.put(host, count);
+        } else {
+            running.remove(host);
+        }
+        notifyAll();
+    }
+
+    private int runningTo(String host) {
+        Integer count = running.get(host);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * @return The waiter to the host with the highest priority, the longest waiting of those
+     */
+    private Waiter next(String host) {
+        Priorities current = priorities;
+        Waiter next = null;
+        int nextPriority = 0;
+
+        for (Waiter waiter : waiting) {
+            if (!waiter.host.equals(host)) {
+                continue;
+            }
+
+            int priority = current != null ? current.priorityOf(waiter.url) : 0;
+
+            if (next == null || priority > nextPriority
+                    || (priority == nextPriority && waiter.ticket < next.ticket)) {
+                next = waiter;
+                nextPriority = priority;
+            }
+        }
+        return next;
+    }
+
+    // Lets tests wait until requests are queued
+    synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+
+    private static class Waiter {
+        final String host;
+        final String url;
+        final long ticket;
+
+        Waiter(String host, String url, long ticket) {
+            this.host = host;
+            this.url = url;
+            this.ticket = ticket;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.dogpics;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * OkHttp network interceptor remembering how many bytes the most recent image downloads were, so
+ * the bytes of prefetched pages that were never looked at can be reported. Only responses that
+ * actually came over the network are seen, cache hits cost nothing. Downloads are kept under the
+ * URL the app asked for, also when ImageHostInterceptor sent them to another server.
+ */
+public class ImageByteCounter implements Interceptor {
+    // How many URLs to remember
+    private static final int MAX_ENTRIES = 256;
+
+    private final Map<String, Long> bytesByUrl =
+            new LinkedHashMap<String, Long>(MAX_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+
+        if (response.body() != null && response.body().contentLength() >= 0) {
+            synchronized (bytesByUrl) {
+                bytesByUrl.put(ImageHostInterceptor.originalUrl(chain.request()),
+                        response.body().contentLength());
+            }
+        }
+
+        return response;
+    }
+
+    /**
+     * @param url The image URL
+     * @return The size of its last download, or 0 if it wasn't downloaded recently
+     */
+    public long bytesFor(String url) {
+        synchronized (bytesByUrl) {
+            Long bytes = bytesByUrl.get(url);
+            return bytes != null ? bytes : 0;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.dogpics;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Endless list of image URLs fetched a page at a time. The first page is kept small so the first
+ * picture shows up as soon as possible, later pages are fetched in the background once the user
+ * gets close to the end of what is loaded. The faster the user swipes, the bigger the pages get
+ * and the earlier the next one is asked for. URLs the server already sent are dropped, so the
+ * same picture never shows up twice. Only the ImageRefs seen so far are kept here, the new URLs
+ * of every page go to the listener, which keeps the list. A page that fails is reported to the
+ * listener and asked for again after a growing backoff.
+ */
+public class ImageFeed {
+    // Page sizes. The Api hands out at most 50 random images per call
+    static final int FIRST_PAGE_SIZE = 8;
+    static final int MIN_PAGE_SIZE = 10;
+    static final int MAX_PAGE_SIZE = 50;
+
+    // Ask for the next page when fewer pages than this are left to swipe through
+    private static final int MIN_PAGES_LEFT = 5;
+
+    // Seconds of swiping at the current speed the loaded pages should cover
+    private static final int SECONDS_AHEAD = 3;
+
+    // Stop after this many pages in a row brought nothing new, the breed has no more pictures
+    private static final int MAX_EMPTY_PAGES = 3;
+
+    // Weight of the newest swipe in the average swipe interval
+    private static final float SWIPE_WEIGHT = 0.3f;
+
+    // Wait before asking again after a failed page, doubled for every failure in a row
+    static final long FIRST_BACKOFF_MS = 1000;
+    static final long MAX_BACKOFF_MS = 30000;
+
+    /**
+     * Fetches one page of URLs. The callback is expected on the thread that uses the feed.
+     */
+    public interface PageLoader {
+        void loadPage(int count, PageCallback callback);
+    }
+
+    public interface PageCallback {
+        void onPage(List<String> urls);
+
+        void onError();
+    }
+
+    /**
+     * Told about every page that added new URLs, with only those URLs in a frozen ImageRefList.
+     */
+    public interface Listener {
+        void onImagesAdded(ImageRefList added);
+
+        /**
+         * A page could not be loaded. The feed asks again after a backoff or on retry().
+         */
+        void onLoadFailed();
+    }
+
+    private final PageLoader loader;
+    private final Listener listener;
+    private final Set<ImageRef> seen = new HashSet<>();
+    // URLs handed out so far
+    private int count;
+
+    private int minPageSize = MIN_PAGE_SIZE;
+    private boolean loading;
+    private boolean endReached;
+    private int emptyPages;
+
+    // Failed pages in a row, and the earliest time to ask again
+    private int failures;
+    private long requestedAtMs;
+    private long retryAtMs;
+
+    // Swipe speed tracking
+    private int lastPosition = -1;
+    private long lastSwipeMs;
+    private float averageSwipeMs;
+
+    public ImageFeed(PageLoader loader, Listener listener) {
+        this.loader = loader;
+        this.listener = listener;
+    }
+
+    /**
+     * Puts back URLs loaded earlier, e.g. after process death, without asking the server again.
+     */
+    public void restore(List<String> restored) {
+        for (int i = 0; i < restored.size(); i++) {
+            ImageRef ref = ImageRef.of(restored, i);
+
+            if (seen.add(ref)) {
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Loads the first page, unless there already are URLs or a page is on its way.
+     */
+    public void start() {
+        if (count == 0) {
+            loadMore(FIRST_PAGE_SIZE, 0);
+        }
+    }
+
+    /**
+     * Asks again for the page that failed without waiting for the backoff, e.g. when the user
+     * taps retry or the network comes back. Does nothing unless the last page failed.
+     *
+     * @param nowMs The current time in milliseconds
+     */
+    public void retry(long nowMs) {
+        if (failures == 0) {
+            return;
+        }
+
+        retryAtMs = 0;
+        loadMore(count == 0 ? FIRST_PAGE_SIZE : getNextPageSize(), nowMs);
+    }
+
+    /**
+     * Updates the swipe speed and fetches the next page if the user is getting close to the end.
+     *
+     * @param position The page now shown
+     * @param nowMs    The current time in milliseconds
+     */
+    public void onPageSelected(int position, long nowMs) {
+        if (lastPosition >= 0 && position != lastPosition) {
+            float perPage = (float) (nowMs - lastSwipeMs) / Math.abs(position - lastPosition);
+            averageSwipeMs = averageSwipeMs == 0
+                    ? perPage
+                    : SWIPE_WEIGHT * perPage + (1 - SWIPE_WEIGHT) * averageSwipeMs;
+        }
+
+        lastPosition = position;
+        lastSwipeMs = nowMs;
+
+        if (count - 1 - position < getPagesAhead()) {
+            loadMore(getNextPageSize(), nowMs);
+        }
+    }
+
+    // Getters
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    /**
+     * Sets the fewest URLs asked for at a time after the first page. Slow networks take bigger
+     * pages, every request costs them a long round trip.
+     */
+    public void setMinPageSize(int minPageSize) {
+        this.minPageSize = Math.min(MAX_PAGE_SIZE, Math.max(MIN_PAGE_SIZE, minPageSize));
+    }
+
+    /**
+     * @return The pages worth of swiping that should stay loaded ahead of the user
+     */
+    int getPagesAhead() {
+        return Math.max(MIN_PAGES_LEFT, Math.round(getPagesPerSecond() * SECONDS_AHEAD));
+    }
+
+    /**
+     * @return The size of the next page: enough for a few seconds of swiping at the current speed
+     */
+    int getNextPageSize() {
+        int size = minPageSize + Math.round(getPagesPerSecond() * SECONDS_AHEAD * 2);
+        return Math.min(MAX_PAGE_SIZE, Math.max(minPageSize, size));
+    }
+
+    private float getPagesPerSecond() {
+        return averageSwipeMs > 0 ? 1000f / averageSwipeMs : 0;
+    }
+
+    /**
+     * @return How long to wait after the failures so far before asking again
+     */
+    long getBackoffMs() {
+        return Math.min(MAX_BACKOFF_MS, FIRST_BACKOFF_MS << Math.min(failures - 1, 5));
+    }
+
+    private void loadMore(int count, long nowMs) {
+        if (loading || endReached || nowMs < retryAtMs) {
+            return;
+        }
+
+        loading = true;
+        requestedAtMs = nowMs;
+        loader.loadPage(count, new PageCallback() {
+            @Override
+            public void onPage(List<String> page) {
+                loading = false;
+                failures = 0;
+                retryAtMs = 0;
+                addPage(page);
+            }
+
+            @Override
+            public void onError() {
+                loading = false;
+                failures++;
+                retryAtMs = requestedAtMs + getBackoffMs();
+                listener.onLoadFailed();
+            }
+        });
+    }
+
+    private void addPage(List<String> page) {
+        ImageRefList added = new ImageRefList(page.size());
+
+        for (int i = 0; i < page.size(); i++) {
+            ImageRef ref = ImageRef.of(page, i);
+
+            if (seen.add(ref)) {
+                added.add(ref);
+            }
+        }
+
+        if (added.isEmpty()) {
+            endReached = ++emptyPages >= MAX_EMPTY_PAGES;
+        } else {
+            emptyPages = 0;
+            count += added.size();
+            listener.onImagesAdded(added.freeze());
+        }
+
+        // A page of mostly duplicates may leave the user short again
+        if (lastPosition >= 0 && count - 1 - lastPosition < getPagesAhead()) {
+            loadMore(getNextPageSize(), lastSwipeMs);
+        }
+    }
+}
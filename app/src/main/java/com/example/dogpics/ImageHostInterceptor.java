@@ -0,0 +1,70 @@
+package com.example.dogpics;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * OkHttp interceptor sending picture requests to another server than images.dog.ceo, e.g. the
+ * local FakeDogApi of the load tests. The app keeps the URLs the Api returned, so ImageRef and the
+ * caches work the same, only the request leaving the client goes elsewhere.
+ */
+public class ImageHostInterceptor implements Interceptor {
+    private final String imageBaseUrl;
+
+    /**
+     * @param imageBaseUrl Where the pictures are served, replacing ImageRef.URL_PREFIX
+     */
+    public ImageHostInterceptor(String imageBaseUrl) {
+        this.imageBaseUrl = imageBaseUrl.endsWith("/") ? imageBaseUrl : imageBaseUrl + "/";
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpUrl rewritten = rewrite(request.url().toString());
+
+        if (rewritten != null) {
+            request = request.newBuilder()
+                    .url(rewritten)
+                    .tag(OriginalUrl.class, new OriginalUrl(request.url().toString()))
+                    .build();
+        }
+        return chain.proceed(request);
+    }
+
+    /**
+     * @return The URL the app asked for, before this interceptor sent it to another server
+     */
+    public static String originalUrl(Request request) {
+        OriginalUrl original = request.tag(OriginalUrl.class);
+        return original != null ? original.url : request.url().toString();
+    }
+
+    /**
+     * @return The URL on the configured server, or null if the URL isn't a dog picture
+     */
+    HttpUrl rewrite(String url) {
+        if (!url.startsWith(ImageRef.URL_PREFIX)) {
+            return null;
+        }
+        return HttpUrl.parse(imageBaseUrl + url.substring(ImageRef.URL_PREFIX.length()));
+    }
+
+    /**
+     * Tag of a rewritten request holding the URL it had before.
+     */
+    private static class OriginalUrl {
+        final String url;
+
+        OriginalUrl(String url) {
+            this.url = url;
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package com.example.dogpics;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.SavedStateHandle;
+import androidx.lifecycle.ViewModel;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Holds the image URLs shown on ImageScreenActivity and the page the user is on. The pictures come
+ * from an endless ImageFeed: a small first page, then more pages fetched in the background as the
+ * user swipes. The Api calls are made here rather than in the activity, so a rotation neither
+ * fires a new call nor loses the one in flight. The URLs around the page shown (minus the prefix
+ * every one of them shares) and the page index are also kept in the SavedStateHandle, so the same
+ * pictures come back without a network call after the process gets killed in the background.
+ * Responses are turned into ImageRefLists on the ResponseProcessor's pool, the main thread only
+ * gets the finished page. The VM keeps the one list of every URL, the LiveData only carries each
+ * page as it is appended, so a long session doesn't copy the whole list for every page.
+ */
+public class ImageListVM extends ViewModel {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = ImageListVM.class.getName();
+
+    // Keys in the SavedStateHandle
+    private static final String KEY_URL_SUFFIXES = "url_suffixes";
+    private static final String KEY_URL_OFFSET = "url_offset";
+    private static final String KEY_PAGE = "page";
+    private static final String KEY_DIALOG_SHOWN = "dialog_shown";
+
+    // Every URL the Api returns starts with this, so only the rest of it is saved
+    static final String IMAGE_URL_PREFIX = ImageRef.URL_PREFIX;
+
+    // Most URLs saved, centered on the page shown, so a long session can't outgrow the Bundle
+    static final int MAX_SAVED_URLS = 200;
+
+    // Parses a page of URLs off the main thread
+    private static final ResponseProcessor.Stage<List<String>, List<String>> PARSE_PAGE =
+            new ResponseProcessor.Stage<List<String>, List<String>>() {
+                @Override
+                public List<String> process(List<String> urls) {
+                    // ApiJsonAdapters already decodes pages into frozen ImageRefLists
+                    if (urls instanceof ImageRefList && ((ImageRefList) urls).isFrozen()) {
+                        return urls;
+                    }
+                    return new ImageRefList(urls).freeze();
+                }
+            };
+
+    private final SavedStateHandle state;
+    private final MutableLiveData<ImageList> images = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> loadFailed = new MutableLiveData<>();
+    // Every URL loaded so far, only touched on the main thread
+    private final ImageRefList urls = new ImageRefList();
+    private final List<String> breedNames = new AbstractList<String>() {
+        @Override
+        public String get(int index) {
+            return urls.getDisplayName(index);
+        }
+
+        @Override
+        public int size() {
+            return urls.size();
+        }
+    };
+    // The part of the URLs last saved
+    private int savedOffset;
+    private int savedCount;
+    private ResponseProcessor processor;
+    private ImageFeed feed;
+    private Call<?> inFlight;
+    private boolean offlineLoading;
+    private int minPageSize = ImageFeed.MIN_PAGE_SIZE;
+
+    public ImageListVM(SavedStateHandle state) {
+        this.state = state;
+
+        // Restore the URLs after process death
+        ImageRefList restored = getSavedUrls();
+
+        if (restored != null) {
+            // The saved part becomes the whole list, the page moves along
+            Integer offset = state.get(KEY_URL_OFFSET);
+            int page = getCurrentPage() - (offset != null ? offset : 0);
+            setCurrentPage(Math.max(0, Math.min(page, restored.size() - 1)));
+            state.set(KEY_URL_OFFSET, 0);
+            savedCount = restored.size();
+
+            append(restored.freeze());
+        }
+    }
+
+    // Getters and setters
+    /**
+     * @return The pages as they are appended, the last one again to a new observer
+     */
+    public LiveData<ImageList> getImages() {
+        return images;
+    }
+
+    /**
+     * @return Whether the last page failed to load, until a page arrives or retry() is called
+     */
+    public LiveData<Boolean> getLoadFailed() {
+        return loadFailed;
+    }
+
+    /**
+     * @return Every URL loaded so far, read only
+     */
+    public List<String> getUrls() {
+        return Collections.unmodifiableList(urls);
+    }
+
+    /**
+     * @return The breed name of every URL in getUrls(), read only
+     */
+    public List<String> getBreedNames() {
+        return breedNames;
+    }
+
+    public int getCurrentPage() {
+        Integer page = state.get(KEY_PAGE);
+        return page != null ? page : 0;
+    }
+
+    public void setCurrentPage(int page) {
+        state.set(KEY_PAGE, page);
+    }
+
+    public boolean isDialogShown() {
+        Boolean shown = state.get(KEY_DIALOG_SHOWN);
+        return shown != null && shown;
+    }
+
+    public void setDialogShown() {
+        state.set(KEY_DIALOG_SHOWN, true);
+    }
+
+    /**
+     * Sets the fewest URLs the feed asks for at a time, see ImageFeed.setMinPageSize().
+     */
+    public void setMinPageSize(int minPageSize) {
+        this.minPageSize = minPageSize;
+
+        if (feed != null) {
+            feed.setMinPageSize(minPageSize);
+        }
+    }
+
+    /**
+     * Sets the pool the Api responses are parsed on, must be called before loading.
+     */
+    public void setResponseProcessor(ResponseProcessor processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * Starts a feed of random images, unless it was already started.
+     */
+    public void loadRandom(final ApiCalls apiCalls) {
+        startFeed(new ImageFeed.PageLoader() {
+            @Override
+            public void loadPage(int count, ImageFeed.PageCallback callback) {
+                // Api call link: https://dog.ceo/api/breeds/image/random/{count}
+                Call<RandomImage> call = apiCalls.getRandomPage(count);
+                inFlight = call;
+
+                call.enqueue(new PageCallback<RandomImage>("loadRandom()", callback) {
+                    @Override
+                    List<String> urlsOf(RandomImage body) {
+                        return body.getRandomList();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Starts a feed of images of a particular breed, unless it was already started. Pages are
+     * drawn locally from the breed's full image list, the Api's random call is only used if that
+     * list can't be loaded.
+     */
+    public void loadBreed(final ApiCalls apiCalls, BreedImageIndex index, final String breed) {
+        startFeed(new IndexPageLoader(index, breed, null) {
+            @Override
+            void loadFromApi(int count, ImageFeed.PageCallback callback) {
+                // Api call link: https://dog.ceo/api/breed/{breed}/images/random/{count}
+                Call<RandomBreed> call = apiCalls.getByBreedPage(breed, count);
+                inFlight = call;
+
+                call.enqueue(new PageCallback<RandomBreed>("loadBreed()", callback) {
+                    @Override
+                    List<String> urlsOf(RandomBreed body) {
+                        return body.getBreedList();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Starts a feed of images of a particular breed and sub-breed, unless it was already started.
+     * Pages are drawn locally like in loadBreed().
+     */
+    public void loadSubBreed(final ApiCalls apiCalls, BreedImageIndex index, final String breed,
+                             final String subBreed) {
+        startFeed(new IndexPageLoader(index, breed, subBreed) {
+            @Override
+            void loadFromApi(int count, ImageFeed.PageCallback callback) {
+                // Api call link: https://dog.ceo/api/breed/{breed}/{subBreed}/images/random/{count}
+                Call<RandomSubBreed> call = apiCalls.getBySubBreedPage(breed, subBreed, count);
+                inFlight = call;
+
+                call.enqueue(new PageCallback<RandomSubBreed>("loadSubBreed()", callback) {
+                    @Override
+                    List<String> urlsOf(RandomSubBreed body) {
+                        return body.getSubBreed();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Shows the pictures kept for offline browsing, without any Api call. Nothing more is loaded
+     * when the user reaches the end.
+     *
+     * @param breed    The breed, or null for every stored picture
+     * @param subBreed The sub-breed, or null for every picture of the breed
+     */
+    public void loadOffline(OfflineImageStore store, String breed, String subBreed) {
+        if (images.getValue() != null || offlineLoading) {
+            return;
+        }
+
+        offlineLoading = true;
+        store.loadUrls(breed, subBreed, new OfflineImageStore.UrlsCallback() {
+            @Override
+            public void onUrls(List<String> stored) {
+                offlineLoading = false;
+                append(new ImageRefList(stored).freeze());
+                saveUrls();
+            }
+        });
+    }
+
+    /**
+     * Lets the feed fetch the next page in time if the user is nearing the end.
+     *
+     * @param position The page now shown
+     */
+    public void onPageSelected(int position) {
+        setCurrentPage(position);
+
+        // Save the URLs around the page again once the user leaves the saved part
+        if (!urls.isEmpty() && (position < savedOffset || position >= savedOffset + savedCount)) {
+            saveUrls();
+        }
+
+        if (feed != null) {
+            feed.onPageSelected(position, SystemClock.uptimeMillis());
+        }
+    }
+
+    /**
+     * Asks again for a page that failed to load, without waiting for the feed's backoff.
+     */
+    public void retry() {
+        if (feed != null) {
+            loadFailed.setValue(false);
+            feed.retry(SystemClock.uptimeMillis());
+        }
+    }
+
+    /**
+     * Cancel the call if the screen is closed before it finishes.
+     */
+    @Override
+    protected void onCleared() {
+        if (inFlight != null) {
+            inFlight.cancel();
+        }
+    }
+
+    private void startFeed(ImageFeed.PageLoader loader) {
+        if (feed != null) {
+            return;
+        }
+
+        feed = new ImageFeed(loader, new ImageFeed.Listener() {
+            @Override
+            public void onImagesAdded(ImageRefList added) {
+                if (Boolean.TRUE.equals(loadFailed.getValue())) {
+                    loadFailed.setValue(false);
+                }
+
+                append(added);
+                saveUrls();
+            }
+
+            @Override
+            public void onLoadFailed() {
+                loadFailed.setValue(true);
+            }
+        });
+
+        feed.setMinPageSize(minPageSize);
+
+        // Continue after the URLs restored from the saved state
+        feed.restore(urls);
+
+        feed.start();
+    }
+
+    /**
+     * Adds a page to the list and hands it to the observers.
+     *
+     * @param page The new URLs, frozen
+     */
+    private void append(ImageRefList page) {
+        int start = urls.size();
+        urls.addAll(page);
+        images.setValue(new ImageList(page, start));
+    }
+
+    /**
+     * Saves at most MAX_SAVED_URLS URLs around the current page without their shared prefix,
+     * along with the position of the first one.
+     */
+    private void saveUrls() {
+        int count = Math.min(urls.size(), MAX_SAVED_URLS);
+        int offset = Math.max(0, Math.min(getCurrentPage() - count / 2, urls.size() - count));
+        String[] suffixes = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            String url = urls.get(offset + i);
+            suffixes[i] = url.startsWith(IMAGE_URL_PREFIX)
+                    ? url.substring(IMAGE_URL_PREFIX.length())
+                    : url;
+        }
+
+        state.set(KEY_URL_SUFFIXES, suffixes);
+        state.set(KEY_URL_OFFSET, offset);
+        savedOffset = offset;
+        savedCount = count;
+    }
+
+    private ImageRefList getSavedUrls() {
+        String[] suffixes = state.get(KEY_URL_SUFFIXES);
+
+        if (suffixes == null) {
+            return null;
+        }
+
+        ImageRefList restored = new ImageRefList(suffixes.length);
+
+        for (String suffix : suffixes) {
+            restored.add(suffix.startsWith("http") ? suffix : IMAGE_URL_PREFIX + suffix);
+        }
+
+        return restored;
+    }
+
+    /**
+     * Draws pages from the BreedImageIndex and falls back to the Api when the index has no list
+     * for the breed, e.g. when the full list could not be fetched.
+     */
+    private abstract class IndexPageLoader implements ImageFeed.PageLoader {
+        private final BreedImageIndex index;
+        private final String breed;
+        private final String subBreed;
+
+        IndexPageLoader(BreedImageIndex index, String breed, String subBreed) {
+            this.index = index;
+            this.breed = breed;
+            this.subBreed = subBreed;
+        }
+
+        abstract void loadFromApi(int count, ImageFeed.PageCallback callback);
+
+        @Override
+        public void loadPage(final int count, final ImageFeed.PageCallback callback) {
+            index.sample(breed, subBreed, count, new BreedImageIndex.SampleCallback() {
+                @Override
+                public void onSample(List<String> urls) {
+                    callback.onPage(urls);
+                }
+
+                @Override
+                public void onError() {
+                    loadFromApi(count, callback);
+                }
+            });
+        }
+    }
+
+    /**
+     * Hands the URLs of a successful response to the feed, parsed by the ResponseProcessor, and
+     * logs failures.
+     */
+    private abstract class PageCallback<T> implements Callback<T> {
+        private final String caller;
+        private final ImageFeed.PageCallback callback;
+
+        PageCallback(String caller, ImageFeed.PageCallback callback) {
+            this.caller = caller;
+            this.callback = callback;
+        }
+
+        abstract List<String> urlsOf(T body);
+
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            inFlight = null;
+            T body = response.body();
+
+            // Log and exit function if Api call was unsuccessful
+            if (!response.isSuccessful() || body == null || urlsOf(body) == null) {
+                Log.d(TAG, caller + " Response Code: " + response.code());
+                callback.onError();
+                return;
+            }
+
+            processor.process(caller, urlsOf(body), PARSE_PAGE,
+                    new ResponseProcessor.Consumer<List<String>>() {
+                        @Override
+                        public void onResult(List<String> urls) {
+                            callback.onPage(urls);
+                        }
+
+                        @Override
+                        public void onError() {
+                            callback.onError();
+                        }
+                    });
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            inFlight = null;
+            Log.d(TAG, caller + " onFailure: " + t.getMessage());
+            callback.onError();
+        }
+    }
+
+    /**
+     * One page of URLs appended to the list, along with the breed name to show under each picture
+     * and where the page starts. The URLs are kept as ImageRefs and the names are looked up in the
+     * BreedDictionary when asked for, so only the URLs take up memory. Never changes once made.
+     */
+    public static class ImageList {
+        private final ImageRefList urls;
+        private final List<String> breedNames;
+        private final int start;
+
+        /**
+         * @param urls  The URLs of the page, frozen
+         * @param start Position of the first one in the whole list
+         */
+        ImageList(final ImageRefList urls, int start) {
+            this.urls = urls;
+            this.start = start;
+            this.breedNames = new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    return urls.getDisplayName(index);
+                }
+
+                @Override
+                public int size() {
+                    return urls.size();
+                }
+            };
+        }
+
+        // Getters
+        public ImageRefList getUrls() {
+            return urls;
+        }
+
+        public List<String> getBreedNames() {
+            return breedNames;
+        }
+
+        public int getStart() {
+            return start;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.dogpics;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import com.squareup.picasso.Transformation;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Records where the pictures Picasso loads come from and how long they take to decode. Works as an
+ * OkHttp application interceptor on the image client: it counts each response as coming from the
+ * disk cache or the network, and reads the body to the end before Picasso gets it, so the time
+ * from there to the decoded bitmap is decode time rather than download time. Picasso decodes on
+ * the thread that made the request, where getDecodeTimer() picks the time up again.
+ *
+ * <p>Memory cache hits never reach OkHttp, ViewPagerAdapter reports those. Pictures read from the
+ * OfflineImageStore get neither a source nor a decode time here, and the store's copies out of
+ * the HTTP cache go through a client without this interceptor, so they neither count as a source
+ * nor leave a body time behind on their thread.
+ */
+public class ImagePipelineMetrics implements Interceptor {
+    // Bigger bodies are left streaming and aren't timed
+    private static final long MAX_BUFFERED_BYTES = 4 * 1024 * 1024;
+
+    private final Metrics metrics;
+
+    // When the body read by this thread was ready, in nanoseconds
+    private final ThreadLocal<Long> bodyReadAt = new ThreadLocal<>();
+
+    private final Transformation decodeTimer = new DecodeTimer("image.decode", "decode-timer");
+    private final Transformation previewDecodeTimer =
+            new DecodeTimer("image.decode.preview", "preview-decode-timer");
+
+    public ImagePipelineMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+
+        // Same test Picasso uses to tell the disk from the network, a revalidated copy is disk
+        metrics.increment(response.cacheResponse() != null
+                ? "image.source.disk"
+                : "image.source.network");
+
+        ResponseBody body = response.body();
+
+        if (response.isSuccessful() && body != null
+                && body.contentLength() <= MAX_BUFFERED_BYTES) {
+            body.source().request(MAX_BUFFERED_BYTES);
+            bodyReadAt.set(System.nanoTime());
+        }
+        return response;
+    }
+
+    /**
+     * Goes last in every Picasso request of the image screen. Passes the bitmap through unchanged.
+     */
+    public Transformation getDecodeTimer() {
+        return decodeTimer;
+    }
+
+    /**
+     * Goes last in the preview requests of the image screen, so the small decodes are timed apart
+     * from the full ones.
+     */
+    public Transformation getPreviewDecodeTimer() {
+        return previewDecodeTimer;
+    }
+
+    /**
+     * Counts a picture that was already decoded in Picasso's memory cache.
+     */
+    public void onMemoryHit() {
+        metrics.increment("image.source.memory");
+    }
+
+    /**
+     * Records the time from a page being created to the first picture, preview or full, on it.
+     */
+    public void onFirstPixel(long ms) {
+        metrics.record("image.time_to_first_pixel", ms);
+    }
+
+    /**
+     * Records the time from the body read by this thread to the decoded bitmap. Passes the bitmap
+     * through unchanged.
+     */
+    private class DecodeTimer implements Transformation {
+        private final String name;
+        private final String key;
+
+        DecodeTimer(String name, String key) {
+            this.name = name;
+            this.key = key;
+        }
+
+        @Override
+        public Bitmap transform(Bitmap source) {
+            Long readAt = bodyReadAt.get();
+            bodyReadAt.remove();
+
+            if (readAt != null) {
+                metrics.record(name, (System.nanoTime() - readAt) / 1000000);
+            }
+            return source;
+        }
+
+        @Override
+        public String key() {
+            return key;
+        }
+    }
+}
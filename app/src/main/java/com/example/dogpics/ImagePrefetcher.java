@@ -0,0 +1,234 @@
+package com.example.dogpics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Warms the image cache for the pages the user is about to swipe to. After every page change it
+ * keeps a window of the next {@code ahead} pages in the swipe direction and the previous
+ * {@code behind} pages fetched at low priority, and cancels prefetches that fall out of the window,
+ * so a fast fling does not leave downloads running for pages that were skipped.
+ *
+ * <p>Pages next to the current one are left alone since the ViewPager already creates them.
+ * Counts how often a selected page had been prefetched, how many prefetches failed and how many
+ * prefetched bytes were never looked at.
+ */
+public class ImagePrefetcher {
+    /**
+     * Does the actual loading. Callbacks are expected on the thread that calls onPageSelected().
+     */
+    public interface Fetcher {
+        void fetch(int position, String url, FetchListener listener);
+
+        void cancel(int position);
+    }
+
+    public interface FetchListener {
+        void onFetched(int position, boolean success);
+    }
+
+    private final Fetcher fetcher;
+    private final ImageByteCounter byteCounter;
+    private final List<String> urls;
+    private int ahead;
+    private int behind;
+    private final int offscreenLimit;
+
+    // Prefetches currently inside the window, by position
+    private final Map<Integer, Prefetch> prefetches = new HashMap<>();
+    private int lastPosition = -1;
+
+    // Counters
+    private int pagesSelected;
+    private int hits;
+    private int issued;
+    private int cancelled;
+    private int failed;
+    private int wasted;
+    private long wastedBytes;
+
+    /**
+     * @param fetcher        Loads images into the cache
+     * @param byteCounter    Knows how many bytes were downloaded per URL, may be null
+     * @param urls           The URLs of every page
+     * @param ahead          Pages to prefetch in the direction of the swipe
+     * @param behind         Pages to prefetch in the opposite direction
+     * @param offscreenLimit Pages on each side the ViewPager creates by itself
+     */
+    public ImagePrefetcher(Fetcher fetcher, ImageByteCounter byteCounter, List<String> urls,
+                           int ahead, int behind, int offscreenLimit) {
+        this.fetcher = fetcher;
+        this.byteCounter = byteCounter;
+        this.urls = urls;
+        this.ahead = ahead;
+        this.behind = behind;
+        this.offscreenLimit = offscreenLimit;
+    }
+
+    /**
+     * Moves the window to the selected page, cancelling prefetches that are now outside it and
+     * starting the ones that are missing.
+     *
+     * @param position The page now shown
+     */
+    public void onPageSelected(int position) {
+        boolean forward = position >= lastPosition;
+        lastPosition = position;
+        pagesSelected++;
+
+        Prefetch current = prefetches.get(position);
+
+        if (current != null) {
+            current.seen = true;
+
+            if (current.state == State.SUCCEEDED) {
+                hits++;
+            }
+        }
+
+        int first = Math.max(0, position - (forward ? behind : ahead));
+        int last = Math.min(urls.size() - 1, position + (forward ? ahead : behind));
+
+        // Drop everything outside the window
+        List<Integer> outside = new ArrayList<>();
+
+        for (Integer prefetched : prefetches.keySet()) {
+            if (prefetched < first || prefetched > last) {
+                outside.add(prefetched);
+            }
+        }
+
+        for (Integer prefetched : outside) {
+            drop(prefetched);
+        }
+
+        // Start the missing ones, nearest first
+        for (int distance = offscreenLimit + 1; distance <= Math.max(ahead, behind); distance++) {
+            start(position + (forward ? distance : -distance), first, last);
+            start(position - (forward ? distance : -distance), first, last);
+        }
+    }
+
+    /**
+     * Changes how many pages are prefetched, from the next page change on.
+     */
+    public void setWindow(int ahead, int behind) {
+        this.ahead = ahead;
+        this.behind = behind;
+    }
+
+    /**
+     * Cancels everything, e.g. when the screen is closed. Prefetched pages never shown count as
+     * wasted.
+     */
+    public void close() {
+        for (Integer prefetched : new ArrayList<>(prefetches.keySet())) {
+            drop(prefetched);
+        }
+    }
+
+    /**
+     * @return The counters so far, for logging
+     */
+    public Stats getStats() {
+        return new Stats(pagesSelected, hits, issued, cancelled, failed, wasted, wastedBytes);
+    }
+
+    private void start(int position, int first, int last) {
+        if (position < first || position > last || prefetches.containsKey(position)) {
+            return;
+        }
+
+        final Prefetch prefetch = new Prefetch(urls.get(position));
+        prefetches.put(position, prefetch);
+        issued++;
+
+        fetcher.fetch(position, prefetch.url, new FetchListener() {
+            @Override
+            public void onFetched(int fetchedPosition, boolean success) {
+                // A cancelled prefetch may still report, it was already counted
+                if (prefetch.state != State.PENDING
+                        || prefetches.get(fetchedPosition) != prefetch) {
+                    return;
+                }
+
+                prefetch.state = success ? State.SUCCEEDED : State.FAILED;
+
+                if (!success) {
+                    failed++;
+                }
+            }
+        });
+    }
+
+    private void drop(int position) {
+        Prefetch prefetch = prefetches.remove(position);
+
+        // Failed prefetches were counted when they finished, there is nothing to cancel
+        if (prefetch.state == State.PENDING) {
+            fetcher.cancel(position);
+            cancelled++;
+        } else if (prefetch.state == State.SUCCEEDED && !prefetch.seen) {
+            wasted++;
+
+            if (byteCounter != null) {
+                wastedBytes += byteCounter.bytesFor(prefetch.url);
+            }
+        }
+    }
+
+    private enum State {
+        PENDING, SUCCEEDED, FAILED
+    }
+
+    private static class Prefetch {
+        final String url;
+        State state = State.PENDING;
+        boolean seen;
+
+        Prefetch(String url) {
+            this.url = url;
+        }
+    }
+
+    /**
+     * Prefetch counters at one point in time.
+     */
+    public static class Stats {
+        public final int pagesSelected;
+        public final int hits;
+        public final int issued;
+        public final int cancelled;
+        public final int failed;
+        public final int wasted;
+        public final long wastedBytes;
+
+        Stats(int pagesSelected, int hits, int issued, int cancelled, int failed, int wasted,
+              long wastedBytes) {
+            this.pagesSelected = pagesSelected;
+            this.hits = hits;
+            this.issued = issued;
+            this.cancelled = cancelled;
+            this.failed = failed;
+            this.wasted = wasted;
+            this.wastedBytes = wastedBytes;
+        }
+
+        /**
+         * @return The share of selected pages whose image had already been prefetched
+         */
+        public float getHitRate() {
+            return pagesSelected == 0 ? 0 : (float) hits / pagesSelected;
+        }
+
+        @Override
+        public String toString() {
+            return "Prefetch hit rate: " + Math.round(getHitRate() * 100) + "% (" + hits + "/"
+                    + pagesSelected + "), issued: " + issued + ", cancelled: " + cancelled
+                    + ", failed: " + failed + ", wasted: " + wasted + " (" + wastedBytes
+                    + " bytes)";
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.dogpics;
+
+import java.util.List;
+
+/**
+ * A dog picture referenced by its breed id in the BreedDictionary and its file name, e.g. the id of
+ * "hound-afghan" and "n02088094_1003.jpg". The full URL is only built when it's asked for. URLs
+ * that don't look like https://images.dog.ceo/breeds/{breed}/{file} are kept whole.
+ */
+public final class ImageRef {
+    // Every URL the Api returns starts with this
+    public static final String URL_PREFIX = "https://images.dog.ceo/breeds/";
+
+    // Breed id of URLs kept whole
+    static final int NO_BREED = -1;
+
+    private final int breedId;
+    private final String fileName;
+
+    ImageRef(int breedId, String fileName) {
+        this.breedId = breedId;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Splits an image URL into its breed id and file name.
+     *
+     * @param url The image URL
+     * @return The reference to the same picture
+     */
+    public static ImageRef parse(String url) {
+        if (url.startsWith(URL_PREFIX)) {
+            int start = URL_PREFIX.length();
+            int end = url.indexOf('/', start);
+
+            if (end > start && url.indexOf('/', end + 1) < 0) {
+                int id = BreedDictionary.getInstance().idOf(url, start, end);
+                return new ImageRef(id, url.substring(end + 1));
+            }
+        }
+
+        return new ImageRef(NO_BREED, url);
+    }
+
+    /**
+     * Returns the reference of an element without going through the URL when the list already
+     * holds references.
+     */
+    static ImageRef of(List<String> urls, int index) {
+        return urls instanceof ImageRefList
+                ? ((ImageRefList) urls).getRef(index)
+                : parse(urls.get(index));
+    }
+
+    /**
+     * Builds the full URL, for the image loader.
+     */
+    public String toUrl() {
+        return toUrl(breedId, fileName);
+    }
+
+    static String toUrl(int breedId, String fileName) {
+        if (breedId == NO_BREED) {
+            return fileName;
+        }
+
+        String path = BreedDictionary.getInstance().getPath(breedId);
+
+        return new StringBuilder(URL_PREFIX.length() + path.length() + 1 + fileName.length())
+                .append(URL_PREFIX)
+                .append(path)
+                .append('/')
+                .append(fileName)
+                .toString();
+    }
+
+    /**
+     * @return The name to show under the picture, e.g. "Afghan Hound", empty if the URL has no
+     * breed in it
+     */
+    public String getDisplayName() {
+        return breedId == NO_BREED ? "" : BreedDictionary.getInstance().getDisplayName(breedId);
+    }
+
+    // Getters
+    public int getBreedId() {
+        return breedId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof ImageRef)) {
+            return false;
+        }
+
+        ImageRef other = (ImageRef) o;
+        return breedId == other.breedId && fileName.equals(other.fileName);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * breedId + fileName.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toUrl();
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.dogpics;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A growable list of image URLs stored as ImageRefs: an int breed id and a file name per URL, kept
+ * in two arrays rather than as one String per URL. Reads as a plain List of URLs, each one built
+ * when get() is called, so it can be handed to anything expecting the URLs. A list can be frozen
+ * once filled, after which it can be shared between threads.
+ */
+public class ImageRefList extends AbstractList<String> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] breedIds;
+    private String[] fileNames;
+    private int size;
+    private boolean frozen;
+
+    public ImageRefList() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ImageRefList(int capacity) {
+        breedIds = new int[Math.max(1, capacity)];
+        fileNames = new String[breedIds.length];
+    }
+
+    /**
+     * Copies the URLs. Another ImageRefList is copied without going through the URLs.
+     */
+    public ImageRefList(Collection<String> urls) {
+        if (urls instanceof ImageRefList) {
+            ImageRefList other = (ImageRefList) urls;
+            breedIds = Arrays.copyOf(other.breedIds, Math.max(1, other.size));
+            fileNames = Arrays.copyOf(other.fileNames, breedIds.length);
+            size = other.size;
+        } else {
+            breedIds = new int[Math.max(1, urls.size())];
+            fileNames = new String[breedIds.length];
+            addAll(urls);
+        }
+    }
+
+    @Override
+    public String get(int index) {
+        checkIndex(index);
+        return ImageRef.toUrl(breedIds[index], fileNames[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(String url) {
+        return add(ImageRef.parse(url));
+    }
+
+    public boolean add(ImageRef ref) {
+        checkNotFrozen();
+        ensureCapacity(size + 1);
+
+        breedIds[size] = ref.getBreedId();
+        fileNames[size] = ref.getFileName();
+        size++;
+        modCount++;
+
+        return true;
+    }
+
+    /**
+     * Copies another ImageRefList without going through the URLs.
+     */
+    @Override
+    public boolean addAll(Collection<? extends String> urls) {
+        if (!(urls instanceof ImageRefList)) {
+            return super.addAll(urls);
+        }
+
+        ImageRefList other = (ImageRefList) urls;
+        checkNotFrozen();
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.breedIds, 0, breedIds, size, other.size);
+        System.arraycopy(other.fileNames, 0, fileNames, size, other.size);
+        size += other.size;
+        modCount++;
+
+        return other.size > 0;
+    }
+
+    /**
+     * @return A new list with the entries from index from (inclusive) to to (exclusive)
+     */
+    public ImageRefList copyOfRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException(
+                    "From: " + from + ", To: " + to + ", Size: " + size);
+        }
+
+        ImageRefList copy = new ImageRefList(to - from);
+        System.arraycopy(breedIds, from, copy.breedIds, 0, to - from);
+        System.arraycopy(fileNames, from, copy.fileNames, 0, to - from);
+        copy.size = to - from;
+
+        return copy;
+    }
+
+    /**
+     * Makes the list read only; add() and clear() throw from now on.
+     *
+     * @return This list
+     */
+    public ImageRefList freeze() {
+        frozen = true;
+        return this;
+    }
+
+    @Override
+    public void clear() {
+        checkNotFrozen();
+        Arrays.fill(fileNames, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    public ImageRef getRef(int index) {
+        checkIndex(index);
+        return new ImageRef(breedIds[index], fileNames[index]);
+    }
+
+    public int getBreedId(int index) {
+        checkIndex(index);
+        return breedIds[index];
+    }
+
+    /**
+     * @return The name to show under the picture at index, see ImageRef.getDisplayName()
+     */
+    public String getDisplayName(int index) {
+        checkIndex(index);
+        return breedIds[index] == ImageRef.NO_BREED
+                ? ""
+                : BreedDictionary.getInstance().getDisplayName(breedIds[index]);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > breedIds.length) {
+            int grown = Math.max(capacity, breedIds.length + (breedIds.length >> 1) + 1);
+            breedIds = Arrays.copyOf(breedIds, grown);
+            fileNames = Arrays.copyOf(fileNames, grown);
+        }
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("ImageRefList is frozen");
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
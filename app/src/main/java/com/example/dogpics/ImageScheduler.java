@@ -0,0 +1,212 @@
+package com.example.dogpics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides in which order the pictures of one image screen get downloaded. Every request of the
+ * screen is tagged with its position, the page shown gets the highest priority, the pages the
+ * ViewPager keeps next to it come after and prefetches last. While the pager settles after a
+ * swipe, requests for pages outside the new window are paused so the page the user lands on gets
+ * the bandwidth, and resumed once it is idle. close() cancels everything left.
+ *
+ * <p>Also tells the HostRequestLimiter the priority of a URL, which is asked from OkHttp's threads,
+ * so everything here is synchronized.
+ */
+public class ImageScheduler implements HostRequestLimiter.Priorities {
+    public static final int PRIORITY_PAUSED = 0;
+    public static final int PRIORITY_LOW = 1;
+    public static final int PRIORITY_NORMAL = 2;
+    public static final int PRIORITY_HIGH = 3;
+
+    /**
+     * Pauses, resumes and cancels requests by tag, e.g. through Picasso.
+     */
+    public interface Requests {
+        void pause(Object tag);
+
+        void resume(Object tag);
+
+        void cancel(Object tag);
+    }
+
+    // Keeps this screen's tags apart from any other screen's
+    private final Object screen = new Object();
+    private final Requests requests;
+    private final int offscreenLimit;
+
+    // Requests started and not finished yet, and the ones of them paused
+    private final Map<PageTag, String> active = new HashMap<>();
+    private final Set<PageTag> paused = new HashSet<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private int currentPage;
+    private boolean settling;
+
+    /**
+     * @param requests       Pauses, resumes and cancels the tagged requests
+     * @param offscreenLimit Pages on each side the ViewPager creates by itself
+     */
+    public ImageScheduler(Requests requests, int offscreenLimit) {
+        this.requests = requests;
+        this.offscreenLimit = offscreenLimit;
+    }
+
+    /**
+     * Registers a request about to start.
+     *
+     * @param prefetch Whether the request is a prefetch rather than a page of the pager
+     * @return The tag to give the request
+     */
+    public synchronized Object start(int position, String url, boolean prefetch) {
+        PageTag tag = new PageTag(screen, position, prefetch);
+        active.put(tag, url);
+        positions.put(url, position);
+
+        return tag;
+    }
+
+    /**
+     * Forgets a request that finished or whose page went away.
+     */
+    public synchronized void finish(Object tag) {
+        String url = active.remove(tag);
+        paused.remove(tag);
+
+        if (url != null && !active.containsValue(url)) {
+            positions.remove(url);
+        }
+    }
+
+    /**
+     * Cancels the request of a position, if it's still running.
+     */
+    public synchronized void cancel(int position, boolean prefetch) {
+        PageTag tag = new PageTag(screen, position, prefetch);
+
+        if (active.containsKey(tag)) {
+            requests.cancel(tag);
+            finish(tag);
+        }
+    }
+
+    /**
+     * Moves to the page the pager is showing or scrolling to. Call before the pager creates the
+     * pages around it, so they start with the right priority.
+     */
+    public synchronized void setCurrentPage(int position) {
+        currentPage = position;
+    }
+
+    /**
+     * Pauses the requests outside the window around the current page when the pager starts
+     * settling, and resumes them when it stops.
+     */
+    public synchronized void setSettling(boolean settling) {
+        if (this.settling == settling) {
+            return;
+        }
+
+        this.settling = settling;
+
+        if (settling) {
+            for (PageTag tag : active.keySet()) {
+                if (!isInWindow(tag.position) && paused.add(tag)) {
+                    requests.pause(tag);
+                }
+            }
+        } else {
+            for (PageTag tag : paused) {
+                requests.resume(tag);
+            }
+            paused.clear();
+        }
+    }
+
+    /**
+     * @return One of the PRIORITY constants for the page at the position
+     */
+    public synchronized int priorityOf(int position) {
+        if (position == currentPage) {
+            return PRIORITY_HIGH;
+        }
+
+        if (isInWindow(position)) {
+            return PRIORITY_NORMAL;
+        }
+        return settling ? PRIORITY_PAUSED : PRIORITY_LOW;
+    }
+
+    /**
+     * @return The priority of the page showing the URL, or PRIORITY_LOW for URLs this screen
+     * didn't ask for
+     */
+    @Override
+    public synchronized int priorityOf(String url) {
+        Integer position = positions.get(url);
+        return position != null ? priorityOf(position) : PRIORITY_LOW;
+    }
+
+    /**
+     * Cancels every request still running, e.g. when the screen goes away.
+     */
+    public synchronized void close() {
+        List<PageTag> tags = new ArrayList<>(active.keySet());
+
+        for (PageTag tag : tags) {
+            requests.cancel(tag);
+        }
+
+        active.clear();
+        paused.clear();
+        positions.clear();
+    }
+
+    // Lets tests check what is still running
+    synchronized int getActiveCount() {
+        return active.size();
+    }
+
+    private boolean isInWindow(int position) {
+        return Math.abs(position - currentPage) <= offscreenLimit;
+    }
+
+    /**
+     * Picasso compares tags with equals(), so tags for the same screen, position and kind match.
+     */
+    private static class PageTag {
+        private final Object screen;
+        private final int position;
+        private final boolean prefetch;
+
+        PageTag(Object screen, int position, boolean prefetch) {
+            this.screen = screen;
+            this.position = position;
+            this.prefetch = prefetch;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PageTag)) {
+                return false;
+            }
+
+            PageTag other = (PageTag) o;
+            return screen == other.screen && position == other.position
+                    && prefetch == other.prefetch;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * screen.hashCode() + position) + (prefetch ? 1 : 0);
+        }
+
+        @Override
+        public String toString() {
+            return (prefetch ? "prefetch " : "page ") + position;
+        }
+    }
+}
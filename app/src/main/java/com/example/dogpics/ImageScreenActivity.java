@@ -3,218 +3,303 @@ package com.example.dogpics;
 import android.content.Intent;
 
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.View;
+import android.widget.Toast;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.SavedStateViewModelFactory;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.viewpager.widget.ViewPager;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.squareup.picasso.Picasso;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
+import java.util.List;
 
 /**
  * Class to display images of dogs on the screen based on the information user chose on the Main
- * Screen.
+ * Screen. The URLs and the current page live in ImageListVM, so rotating the screen or coming back
+ * after process death shows the same pictures without another Api call.
  */
 public class ImageScreenActivity extends AppCompatActivity {
-    // Constant for Logging and constants for parsing the URL
-    private static final String TAG = MainActivity.class.getName();
-    private static final String PREFIX = "breeds/";
-    private static final String DELIM = "/";
+    // Tag used for logging messages to Logcat
+    private static final String TAG = ImageScreenActivity.class.getName();
 
-    // The lists of URLS for the different search types
-    private List<String> randomImgUrls = new ArrayList<>();
-    private List<String> randomBreedUrls = new ArrayList<>();
-    private List<String> randomSubBreedUrls = new ArrayList<>();
+    // Most pages to prefetch in the direction of the swipe and behind it, on a fast network
+    private static final int PREFETCH_AHEAD = 3;
+    private static final int PREFETCH_BEHIND = 1;
 
-    private List<String> breedNameToDisplay = new ArrayList<>();
     private String breed;
     private String subBreed;
+    private boolean offline;
     private ApiCalls apiCalls;
+    private OfflineImageStore offlineStore;
+    private BreedImageIndex breedImageIndex;
+    private ImageListVM imageListVM;
+    private ViewPager viewPager;
+    private ImagePrefetcher prefetcher;
+    private ViewPagerAdapter adapter;
+    private FrameTracker frameTracker;
+    private ImageSizePolicy sizePolicy;
+    private ImageScheduler scheduler;
+    private HostRequestLimiter requestLimiter;
+    private View loadError;
+
+    // For the time from opening the screen to the first picture on it
+    private long createdAtMs;
+    private boolean firstImageShown;
+
+    // For the time from swiping to a page to its picture being on screen
+    private long selectedAtMs;
+    private int selectedPosition = -1;
+    private boolean swiping;
+
+    // Adapts decode size, prefetching and page size to the network
+    private final AdaptiveImagePolicy adaptivePolicy = new AdaptiveImagePolicy();
+    private NetworkQualityMonitor networkQualityMonitor;
+    private NetworkQualityMonitor.Listener networkListener;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdAtMs = SystemClock.uptimeMillis();
         setContentView(R.layout.image_screen);
 
-        // Instantiate a Retrofit object with the base URL and generate an implementation of the
-        // ApiCalls interface with it
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl("https://dog.ceo/api/")
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-        apiCalls = retrofit.create(ApiCalls.class);
+        // Use the ApiCalls implementation shared across the whole app
+        apiCalls = ((DogPicsApp) getApplication()).getApiClient().getApiCalls();
+        breedImageIndex = ((DogPicsApp) getApplication()).getBreedImageIndex();
+        offlineStore = ((DogPicsApp) getApplication()).getOfflineImageStore();
 
-        makeCalls();
-    }
-
-    /**
-     * Gets the information user chose in the Main Screen and begins the appropriate API calls to
-     * fetch and display the images on the screen.
-     */
-    private void makeCalls() {
-        // Get the data passed in to the intent from previous screen
-        Intent intent = getIntent();
-        Bundle bundle = intent.getExtras();
+        viewPager = findViewById(R.id.view_pager);
 
-        if (bundle != null) {
-            // Start random image search
-            if (intent.getBooleanExtra("RANDOM", false)) {
-                getJsonRandom();
-            } else {
-                breed = bundle.getString("BREED");
-                subBreed = bundle.getString("SUB_BREED");
+        // The page shown downloads first, the ones left behind in a fling wait
+        scheduler = new ImageScheduler(new ImageScheduler.Requests() {
+            @Override
+            public void pause(Object tag) {
+                Picasso.get().pauseTag(tag);
             }
-        }
 
-        if (breed != null && subBreed != null) {
-            // Start breeds only search
-            if (subBreed.equals(getResources().getString(R.string.no_sub_breed))) {
-                getJsonBreeds();
-            } else {
-                // Start breeds search with a specific sub-breed
-                getJsonSubBreeds();
+            @Override
+            public void resume(Object tag) {
+                Picasso.get().resumeTag(tag);
             }
-        }
-    }
 
-    /**
-     * Gets a List of 70 random image URLs from the JSON Object returned by the Api call.
-     */
-    private void getJsonRandom() {
-        // Api call link: https://dog.ceo/api/breeds/image/random/70
-        Call<RandomImage> call = apiCalls.getRandom();
+            @Override
+            public void cancel(Object tag) {
+                Picasso.get().cancelTag(tag);
+            }
+        }, viewPager.getOffscreenPageLimit());
+        requestLimiter = ((DogPicsApp) getApplication()).getHostRequestLimiter();
+        requestLimiter.setPriorities(scheduler);
 
-        // Asynchronous call to be performed on the background thread
-        call.enqueue(new Callback<RandomImage>() {
+        viewPager.addOnPageChangeListener(new ViewPager.SimpleOnPageChangeListener() {
             @Override
-            public void onResponse(@NonNull Call<RandomImage> call,
-                                   @NonNull Response<RandomImage> response) {
-                // Log and exit function if Api call was unsuccessful
-                if (!response.isSuccessful()) {
-                    Log.d(TAG, "getJsonRandom() Response Code: " + response.code());
-                    return;
+            public void onPageSelected(int position) {
+                imageListVM.onPageSelected(position);
+                scheduler.setCurrentPage(position);
+                selectedPosition = -1;
+
+                // Only swipes count, not pages set from code, e.g. when the screen opens
+                if (swiping && adapter != null && adapter.isImageShown(position)) {
+                    // Loaded while it was next to the page shown
+                    ((DogPicsApp) getApplication()).getMetrics().record(
+                            "pager.time_to_visible_image", 0);
+                } else if (swiping) {
+                    selectedAtMs = SystemClock.uptimeMillis();
+                    selectedPosition = position;
                 }
 
-                RandomImage randomImage = response.body();
-
-                if (randomImage != null) {
-                    for (int i = 0; i < randomImage.getRandomList().size(); i++) {
-                        randomImgUrls.add(randomImage.getRandomList().get(i));
-                        Log.d(TAG, "Random Image Search URL: " + randomImgUrls.get(i));
-                    }
-
-                    // Get the name of the breeds/sub-breeds, then provide the URL links for the
-                    // ViewPager to use
-                    parseUrl();
-                    setImagesToScreen(randomImgUrls);
+                if (prefetcher != null) {
+                    prefetcher.onPageSelected(position);
                 }
             }
 
             @Override
-            public void onFailure(@NonNull Call<RandomImage> call, @NonNull Throwable t) {
-                Log.d(TAG, "getJsonRandom() onFailure: " + t.getMessage());
+            public void onPageScrollStateChanged(int state) {
+                swiping = state != ViewPager.SCROLL_STATE_IDLE;
+                scheduler.setSettling(state == ViewPager.SCROLL_STATE_SETTLING);
             }
         });
-    }
 
-    /**
-     * Gets a List of 70 random image URLs for a particular breed from the JSON Object returned by
-     * the Api call.
-     */
-    private void getJsonBreeds() {
-        // Api call link: https://dog.ceo/api/breed/{breed}/images/random/70
-        Call<RandomBreed> call = apiCalls.getByBreed(breed);
+        // Frame times while swiping, for spotting pages that stall the scroll
+        frameTracker = new FrameTracker(this, ((DogPicsApp) getApplication()).getMetrics());
+        viewPager.addOnPageChangeListener(frameTracker);
 
-        // Asynchronous call to be performed on the background thread
-        call.enqueue(new Callback<RandomBreed>() {
-            @Override
-            public void onResponse(@NonNull Call<RandomBreed> call,
-                                   @NonNull Response<RandomBreed> response) {
-                // Log and exit function if Api call was unsuccessful
-                if (!response.isSuccessful()) {
-                    Log.d(TAG, "getJsonBreeds() Response Code: " + response.code());
-                    return;
-                }
+        imageListVM = new ViewModelProvider(this,
+                new SavedStateViewModelFactory(getApplication(), this)).get(ImageListVM.class);
+        imageListVM.setResponseProcessor(((DogPicsApp) getApplication()).getResponseProcessor());
 
-                RandomBreed randomBreed = response.body();
+        networkQualityMonitor = ((DogPicsApp) getApplication()).getNetworkQualityMonitor();
+        adaptivePolicy.update(networkQualityMonitor.getQuality());
+        imageListVM.setMinPageSize(adaptivePolicy.getMinPageSize());
+        networkListener = new NetworkQualityMonitor.Listener() {
+            private boolean connected = networkQualityMonitor.isConnected();
 
-                if (randomBreed != null) {
-                    for (int i = 0; i < randomBreed.getBreedList().size(); i++) {
-                        randomBreedUrls.add(randomBreed.getBreedList().get(i));
-                        Log.d(TAG, "Random Breed Search URL: " + randomBreedUrls.get(i));
-                    }
+            @Override
+            public void onQualityChanged(NetworkQuality quality) {
+                if (adaptivePolicy.update(quality)) {
+                    applyAdaptivePolicy();
                 }
 
-                // Provide the URL links for the  ViewPager to use
-                setImagesToScreen(randomBreedUrls);
+                // Back online, a page that failed can be asked for right away
+                if (quality.isConnected() && !connected) {
+                    imageListVM.retry();
+                }
+                connected = quality.isConnected();
             }
+        };
+        networkQualityMonitor.addListener(networkListener);
+        imageListVM.getImages().observe(this, new Observer<ImageListVM.ImageList>() {
+            @Override
+            public void onChanged(ImageListVM.ImageList imageList) {
+                showImages(imageList);
+            }
+        });
 
+        // With no picture to show, a failed page leaves the screen empty until the user retries.
+        // Later pages are asked for again as the user swipes
+        loadError = findViewById(R.id.load_error);
+        findViewById(R.id.retry).setOnClickListener(new View.OnClickListener() {
             @Override
-            public void onFailure(@NonNull Call<RandomBreed> call, @NonNull Throwable t) {
-                Log.d(TAG, "getJsonBreeds() onFailure: " + t.getMessage());
+            public void onClick(View v) {
+                imageListVM.retry();
             }
         });
+        imageListVM.getLoadFailed().observe(this, new Observer<Boolean>() {
+            @Override
+            public void onChanged(Boolean failed) {
+                boolean empty = imageListVM.getUrls().isEmpty();
+                loadError.setVisibility(failed && empty ? View.VISIBLE : View.GONE);
+            }
+        });
+
+        makeCalls();
     }
 
     /**
-     * Gets a List of 70 random image URLs for a particular breed and sub-breed from the JSON Object
-     * returned by the Api call.
+     * Save the offline index now, the app may get killed once in the background.
      */
-    private void getJsonSubBreeds() {
-        // Api call link: https://dog.ceo/api/breed/{breed}/{subBreed}/images/random/70
-        Call<RandomSubBreed> call = apiCalls.getBySubBreed(breed, subBreed);
+    @Override
+    protected void onStop() {
+        super.onStop();
+        offlineStore.flush();
+    }
 
-        // Asynchronous call to be performed on the background thread
-        call.enqueue(new Callback<RandomSubBreed>() {
-            @Override
-            public void onResponse(@NonNull Call<RandomSubBreed> call,
-                                   @NonNull Response<RandomSubBreed> response) {
-                // Log and exit function if Api call was unsuccessful
-                if (!response.isSuccessful()) {
-                    Log.d(TAG, "getJsonSubBreeds() Response Code: " + response.code());
-                    return;
-                }
+    /**
+     * Cancel the picture requests still running and log how useful the prefetches were.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        networkQualityMonitor.removeListener(networkListener);
+        requestLimiter.removePriorities(scheduler);
+        scheduler.close();
+        frameTracker.stop();
+        Log.d(TAG, "Swipe frames: " + frameTracker.getTotalReport());
+
+        if (prefetcher != null) {
+            prefetcher.close();
+            Log.d(TAG, prefetcher.getStats().toString());
+        }
 
-                RandomSubBreed randomSubBreed = response.body();
+        if (adapter != null) {
+            Log.d(TAG, adapter.getDecodeReport().toString());
+        }
+    }
 
-                if (randomSubBreed != null) {
-                    for (int i = 0; i < randomSubBreed.getSubBreed().size(); i++) {
-                        randomSubBreedUrls.add(randomSubBreed.getSubBreed().get(i));
-                        Log.d(TAG, "Random Sub-Breed URL: " + randomSubBreedUrls.get(i));
-                    }
-                }
+    // Lets tests read the frames of their swipes
+    FrameTracker getFrameTracker() {
+        return frameTracker;
+    }
+
+    /**
+     * Gets the information user chose in the Main Screen and begins the appropriate API calls to
+     * fetch and display the images on the screen. ImageListVM ignores the call if it already has
+     * the URLs or is fetching them. Offline, the saved pictures are shown instead.
+     */
+    private void makeCalls() {
+        // Get the data passed in to the intent from previous screen
+        Intent intent = getIntent();
+        Bundle bundle = intent.getExtras();
+        offline = intent.getBooleanExtra("OFFLINE", false);
 
-                // Provide the URL links for the  ViewPager to use
-                setImagesToScreen(randomSubBreedUrls);
+        if (bundle != null) {
+            // Start random image search
+            if (intent.getBooleanExtra("RANDOM", false)) {
+                if (offline) {
+                    imageListVM.loadOffline(offlineStore, null, null);
+                } else {
+                    imageListVM.loadRandom(apiCalls);
+                }
+            } else {
+                breed = bundle.getString("BREED");
+                subBreed = bundle.getString("SUB_BREED");
             }
+        }
 
-            @Override
-            public void onFailure(@NonNull Call<RandomSubBreed> call, @NonNull Throwable t) {
-                Log.d(TAG, "getJsonSubBreeds() onFailure: " + t.getMessage());
+        if (breed != null && subBreed != null) {
+            boolean noSubBreed = subBreed.equals(getResources().getString(R.string.no_sub_breed));
+
+            if (offline) {
+                imageListVM.loadOffline(offlineStore, breed, noSubBreed ? null : subBreed);
+            } else if (noSubBreed) {
+                // Start breeds only search
+                imageListVM.loadBreed(apiCalls, breedImageIndex, breed);
+            } else {
+                // Start breeds search with a specific sub-breed
+                imageListVM.loadSubBreed(apiCalls, breedImageIndex, breed, subBreed);
             }
-        });
+        }
     }
 
     /**
-     * Function takes in the list of Urls passed in and and sets an appropriate ViewPagerAdapter to
-     * the ViewPager based on the information user chose on the Main Screen.
+     * Shows the pictures on the screen. The first page gets a new adapter with every URL the VM
+     * holds, later pages are only appended.
      *
-     * @param urls List of image URL links.
+     * @param page The page the feed appended, with the breed names parsed from its URLs.
      */
-    private void setImagesToScreen(List<String> urls) {
-        // Show user the dialog box
-        ImageScreenDialog dialog = new ImageScreenDialog();
-        dialog.show(getSupportFragmentManager(), "Dialog");
+    private void showImages(ImageListVM.ImageList page) {
+        if (adapter == null) {
+            setImagesToScreen();
+            return;
+        }
+
+        int shown = adapter.getCount();
+
+        if (page.getStart() == shown) {
+            adapter.addImages(page.getUrls(), page.getBreedNames());
+        } else if (page.getStart() + page.getUrls().size() > shown) {
+            // Pages loaded while the screen was stopped only come as the last one
+            int total = imageListVM.getUrls().size();
+            adapter.addImages(imageListVM.getUrls().subList(shown, total),
+                    imageListVM.getBreedNames().subList(shown, total));
+        }
+    }
+
+    /**
+     * Function takes the list of Urls held by the VM and sets an appropriate ViewPagerAdapter to
+     * the ViewPager based on the information user chose on the Main Screen, then moves to the page
+     * the user was last on.
+     */
+    private void setImagesToScreen() {
+        if (offline && imageListVM.getUrls().isEmpty()) {
+            Toast.makeText(getApplicationContext(), R.string.offline_empty, Toast.LENGTH_LONG)
+                    .show();
+            finish();
+            return;
+        }
+
+        // Show user the dialog box the first time the pictures show up
+        if (!imageListVM.isDialogShown()) {
+            ImageScreenDialog dialog = new ImageScreenDialog();
+            dialog.show(getSupportFragmentManager(), "Dialog");
+            imageListVM.setDialogShown();
+        }
 
-        ViewPager viewPager = findViewById(R.id.view_pager);
-        ViewPagerAdapter adapter;
+        List<String> urls = imageListVM.getUrls();
 
         if (breed != null && subBreed != null) {
             // Capitalize first letter and pass in the breed name
@@ -233,43 +318,77 @@ public class ImageScreenActivity extends AppCompatActivity {
         } else {
             // Pass in the list of random breeds
             adapter = new ViewPagerAdapter
-                    (ImageScreenActivity.this, urls, breedNameToDisplay);
+                    (ImageScreenActivity.this, urls, imageListVM.getBreedNames());
         }
 
+        adapter.setOfflineStore(offlineStore);
+        adapter.setScheduler(scheduler);
+        adapter.setProgressive(true);
+        adapter.setImageMetrics(((DogPicsApp) getApplication()).getImagePipelineMetrics());
+        adapter.setImageListener(new ViewPagerAdapter.ImageListener() {
+            @Override
+            public void onImageShown(int position) {
+                if (!firstImageShown && position == viewPager.getCurrentItem()) {
+                    firstImageShown = true;
+                    ((DogPicsApp) getApplication()).getMetrics().record(
+                            "screen.time_to_first_image", SystemClock.uptimeMillis() - createdAtMs);
+                }
+
+                if (position == selectedPosition) {
+                    selectedPosition = -1;
+                    ((DogPicsApp) getApplication()).getMetrics().record(
+                            "pager.time_to_visible_image",
+                            SystemClock.uptimeMillis() - selectedAtMs);
+                }
+            }
+        });
+
+        // Decode for the area the picture gets on this screen, keeping every page the pager and
+        // the prefetcher hold within the bitmap memory budget
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        int offscreenLimit = viewPager.getOffscreenPageLimit();
+        sizePolicy = new ImageSizePolicy(metrics.density,
+                ((DogPicsApp) getApplication()).getBitmapMemoryBudget(),
+                1 + 2 * offscreenLimit + PREFETCH_AHEAD + PREFETCH_BEHIND);
+        sizePolicy.setDecodeScale(adaptivePolicy.getDecodeScale());
+        adapter.setSizePolicy(sizePolicy);
+        adapter.measureImageArea(viewPager,
+                viewPager.getWidth() > 0 ? viewPager.getWidth() : metrics.widthPixels,
+                viewPager.getHeight() > 0 ? viewPager.getHeight() : metrics.heightPixels);
+
+        if (prefetcher != null) {
+            prefetcher.close();
+            prefetcher = null;
+        }
+
+        // Read the page first, setting the adapter can report page 0 as selected
+        int page = imageListVM.getCurrentPage();
         viewPager.setAdapter(adapter);
+        viewPager.setCurrentItem(page, false);
+
+        // Start warming the cache around the page shown
+        prefetcher = new ImagePrefetcher(new PicassoPrefetchFetcher(adapter, scheduler),
+                ((DogPicsApp) getApplication()).getImageByteCounter(), adapter.getImageUrls(),
+                adaptivePolicy.getPrefetchAhead(), adaptivePolicy.getPrefetchBehind(),
+                offscreenLimit);
+        prefetcher.onPageSelected(page);
     }
 
     /**
-     * Parses the random image URLs to get the dog's breed/sub-breed information and store that
-     * data in the global variable, which then passes it to the ViewPagerAdapter class to display on
-     * the screen.
+     * Passes the settings of the AdaptiveImagePolicy on after the network changed. Pictures
+     * already shown keep their size, the next ones get the new one.
      */
-    private void parseUrl() {
-        String dogBreed;
-
-        for (int i = 0; i < randomImgUrls.size(); i++) {
-            dogBreed = randomImgUrls.get(i);
-            int indexBegin = dogBreed.lastIndexOf(PREFIX) + PREFIX.length();
-            int indexEnd = dogBreed.indexOf(DELIM, indexBegin);
-            dogBreed = dogBreed.substring(indexBegin, indexEnd);
-
-            if (dogBreed.contains("-")) {
-                int splitIndex = dogBreed.indexOf('-');
-                String parsedBreed = dogBreed
-                        .substring(0, 1)
-                        .toUpperCase() + dogBreed.substring(1, splitIndex);
-                String parsedSubBreed = dogBreed
-                        .substring(splitIndex + 1, splitIndex + 2)
-                        .toUpperCase() + dogBreed.substring(splitIndex + 2);
-
-                breedNameToDisplay.add(parsedSubBreed + " " + parsedBreed);
-                Log.d(TAG, parsedSubBreed + " " + parsedBreed);
-            } else {
-                dogBreed = dogBreed.substring(0, 1).toUpperCase() + dogBreed.substring(1);
+    private void applyAdaptivePolicy() {
+        Log.d(TAG, "Network changed: " + adaptivePolicy);
+        imageListVM.setMinPageSize(adaptivePolicy.getMinPageSize());
 
-                breedNameToDisplay.add(dogBreed);
-                Log.d(TAG, dogBreed);
-            }
+        if (sizePolicy != null) {
+            sizePolicy.setDecodeScale(adaptivePolicy.getDecodeScale());
+        }
+
+        if (prefetcher != null) {
+            prefetcher.setWindow(adaptivePolicy.getPrefetchAhead(),
+                    adaptivePolicy.getPrefetchBehind());
         }
     }
 }
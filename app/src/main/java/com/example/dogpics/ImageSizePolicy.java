@@ -0,0 +1,115 @@
+package com.example.dogpics;
+
+/**
+ * Works out how big the dog pictures get decoded. The target is the area vp_image can actually
+ * take up on this screen, so small phones don't decode more pixels than they can show and tablets
+ * aren't stuck with a blurry 500px image. JPEGs have no alpha channel and can be decoded as
+ * RGB_565, half the memory of ARGB_8888. The size is scaled down further if needed so the pages
+ * kept around by the ViewPager and the prefetcher all fit in the bitmap memory budget at once. On
+ * slow networks the AdaptiveImagePolicy can scale the size down further.
+ */
+public class ImageSizePolicy {
+    // Share of the app's memory class that decoded bitmaps may use, 1/7 is about 15%
+    private static final int MEMORY_BUDGET_DIVISOR = 7;
+
+    // Used until the available area is known, in dp
+    private static final int DEFAULT_HEIGHT_DP = 300;
+
+    private final float density;
+    private final long memoryBudgetBytes;
+    private final int pagesInMemory;
+    private int availableWidth;
+    private int availableHeight;
+    private float decodeScale = 1f;
+
+    /**
+     * @param density           Screen density, pixels per dp
+     * @param memoryBudgetBytes Memory all decoded bitmaps may use together
+     * @param pagesInMemory     Pages whose bitmaps are expected to be in memory at the same time
+     */
+    public ImageSizePolicy(float density, long memoryBudgetBytes, int pagesInMemory) {
+        this.density = density;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.pagesInMemory = Math.max(1, pagesInMemory);
+    }
+
+    /**
+     * @param memoryClassMb The memory class of the device, from ActivityManager.getMemoryClass()
+     * @return How many bytes of decoded bitmaps the app should keep in memory
+     */
+    public static long memoryBudgetFor(int memoryClassMb) {
+        return (long) memoryClassMb * 1024 * 1024 / MEMORY_BUDGET_DIVISOR;
+    }
+
+    /**
+     * @param url The image URL
+     * @return True if the image format has no alpha channel, so RGB_565 loses nothing
+     */
+    public static boolean isOpaque(String url) {
+        String lower = url.toLowerCase();
+        return lower.endsWith(".jpg") || lower.endsWith(".jpeg");
+    }
+
+    /**
+     * Sets the area in pixels vp_image can take up inside a page.
+     */
+    public void setAvailableArea(int width, int height) {
+        this.availableWidth = width;
+        this.availableHeight = height;
+    }
+
+    /**
+     * Sets the factor the decode size is scaled by, 1 for the full available area.
+     */
+    public void setDecodeScale(float decodeScale) {
+        this.decodeScale = Math.max(0.1f, Math.min(1f, decodeScale));
+    }
+
+    public boolean hasAvailableArea() {
+        return availableWidth > 0 && availableHeight > 0;
+    }
+
+    /**
+     * @param opaque Whether the image will be decoded without alpha
+     * @return The width to decode to, 0 means keep the aspect ratio to the height
+     */
+    public int getTargetWidth(boolean opaque) {
+        return hasAvailableArea() ? scaleToBudget(availableWidth, opaque) : 0;
+    }
+
+    /**
+     * @param opaque Whether the image will be decoded without alpha
+     * @return The height to decode to
+     */
+    public int getTargetHeight(boolean opaque) {
+        int height = hasAvailableArea()
+                ? availableHeight
+                : Math.round(DEFAULT_HEIGHT_DP * density);
+
+        return scaleToBudget(height, opaque);
+    }
+
+    /**
+     * @return The most memory one decoded page may take
+     */
+    public long getPageBudgetBytes() {
+        return memoryBudgetBytes / pagesInMemory;
+    }
+
+    /**
+     * Shrinks one side of the target box by the same factor as the other would need, so the
+     * largest bitmap the box allows stays within the per page budget.
+     */
+    private int scaleToBudget(int side, boolean opaque) {
+        int width = hasAvailableArea() ? availableWidth : Math.round(DEFAULT_HEIGHT_DP * density);
+        int height = hasAvailableArea() ? availableHeight : Math.round(DEFAULT_HEIGHT_DP * density);
+        long bytes = (long) width * height * (opaque ? 2 : 4);
+        long budget = getPageBudgetBytes();
+
+        if (bytes <= budget) {
+            return Math.round(side * decodeScale);
+        }
+
+        return (int) (side * Math.sqrt((double) budget / bytes) * decodeScale);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.dogpics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in buckets that grow with the value, 8 per doubling, so any percentile is known
+ * to within about 10% using a fixed 1KB of memory however many values are recorded. Covers 0 to
+ * about 65 seconds, longer latencies land in the last bucket.
+ *
+ * <p>Lock free, so recording from OkHttp and Picasso threads never waits. A percentile read while
+ * values are recorded may miss the newest few.
+ */
+public class LatencyHistogram {
+    // Buckets per doubling, and doublings covered above the first 8 one millisecond buckets
+    private static final int SUB_BUCKETS = 8;
+    private static final int DOUBLINGS = 13;
+    private static final int BUCKETS = SUB_BUCKETS * (DOUBLINGS + 1);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong maxMs = new AtomicLong();
+
+    /**
+     * @param ms A latency in milliseconds, negative values count as 0
+     */
+    public void record(long ms) {
+        ms = Math.max(0, ms);
+        counts.incrementAndGet(bucketOf(ms));
+        count.incrementAndGet();
+
+        long max = maxMs.get();
+
+        while (ms > max && !maxMs.compareAndSet(max, ms)) {
+            max = maxMs.get();
+        }
+    }
+
+    /**
+     * @param fraction The percentile wanted, e.g. 0.99 for p99
+     * @return The upper bound of the bucket the percentile falls in, or 0 if nothing was recorded
+     */
+    public long percentile(double fraction) {
+        long total = count.get();
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long max = maxMs.get();
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    public void clear() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        maxMs.set(0);
+    }
+
+    // Getters
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxMs() {
+        return maxMs.get();
+    }
+
+    /**
+     * @return e.g. "n=120 p50=35ms p90=80ms p99=410ms max=900ms"
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "n=%d p50=%dms p90=%dms p99=%dms max=%dms", getCount(),
+                percentile(0.5), percentile(0.9), percentile(0.99), getMaxMs());
+    }
+
+    /**
+     * Values below 8 get a bucket each, above that each doubling is split in 8 equal buckets.
+     */
+    static int bucketOf(long ms) {
+        if (ms < SUB_BUCKETS) {
+            return (int) ms;
+        }
+
+        // Position of the highest bit, 3 for 8..15
+        int exponent = 63 - Long.numberOfLeadingZeros(ms);
+        int doubling = exponent - 2;
+
+        if (doubling > DOUBLINGS) {
+            return BUCKETS - 1;
+        }
+
+        int sub = (int) (ms >> (exponent - 3)) - SUB_BUCKETS;
+        return doubling * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return The largest value that falls in the bucket
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int doubling = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        int exponent = doubling + 2;
+        long width = 1L << (exponent - 3);
+
+        return ((SUB_BUCKETS + sub) << (exponent - 3)) + width - 1;
+    }
+}
@@ -1,39 +1,26 @@
 package com.example.dogpics;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
-import android.widget.ArrayAdapter;
+import android.widget.AdapterView;
 import android.widget.AutoCompleteTextView;
 import android.widget.Button;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.ViewModelProvider;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
 
 /**
- * Main screen where user enters the breed/sub-breed of a dog they want to see pictures of or of
- * random dog pictures. Passes the user selected option(s) to the ImageScreenActivity class
- * through Intent. This class makes only one Api call during the app lifecycle to fetch the
- * available breeds and sub-breeds from the website.
+ * Main screen where user searches for the breed or sub-breed of a dog they want to see pictures of
+ * in a single search box, or asks for random dog pictures. Passes the user selected option(s) to
+ * the ImageScreenActivity class through Intent. The available breeds and sub-breeds come from the
+ * app's BreedCatalogRepository, which DogPicsApp starts loading before this screen is created.
  */
 public class MainActivity extends AppCompatActivity {
     // Tag used for logging messages to Logcat
@@ -41,23 +28,23 @@ public class MainActivity extends AppCompatActivity {
 
     // Api call related data and user inputs
     private BreedsSubBreedsInfoVM breedsSubBreedsInfoVM;
-    private List<String> breeds = new ArrayList<>();
-    private List<String> subBreeds = new ArrayList<>();
-    private ApiCalls apiCalls;
-    private String userInputBreed;
-    private String userInputSubBreed;
+    private BreedCatalogSearch catalogSearch;
+    private BreedCatalogRepository catalogRepository;
+    private ResponseProcessor responseProcessor;
+    private StartupPipeline startupPipeline;
     private Intent intent;
 
     // Views on the activity screen
-    private AutoCompleteTextView breedACTxtView;
-    private AutoCompleteTextView subACTxtView;
+    private AutoCompleteTextView searchACTxtView;
     private Button searchButton;
 
-    // The BroadcastReceiver that tracks network connectivity changes.
-    private NetworkReceiver receiver;
+    // Follows the connectivity changes reported by the app's NetworkQualityMonitor
+    private NetworkQualityMonitor networkQualityMonitor;
+    private NetworkListener networkListener;
 
     // Connection flag and no connection message
-    private static boolean isConnected = false;
+    private boolean isConnected = false;
+    private boolean destroyed;
     private static String no_internet;
 
     @Override
@@ -66,256 +53,242 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         // Set the views to member variables
-        breedACTxtView = findViewById(R.id.breed_ac);
+        searchACTxtView = findViewById(R.id.search_ac);
         searchButton = findViewById(R.id.search);
-        subACTxtView = findViewById(R.id.sub_breed_ac);
 
         breedsSubBreedsInfoVM = new ViewModelProvider(this).get(BreedsSubBreedsInfoVM.class);
 
         no_internet = getResources().getString(R.string.no_internet);
 
-        // Register BroadcastReceiver to track connection changes.
-        IntentFilter filter = new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION);
-        receiver = new NetworkReceiver();
-        this.registerReceiver(receiver, filter);
         intent = new Intent(this, ImageScreenActivity.class);
 
-        checkInternetConnection();
+        // Use the ApiCalls implementation shared across the whole app
+        DogPicsApp app = (DogPicsApp) getApplication();
 
-        // Instantiate a Retrofit object with the base URL and generate an implementation of the
-        // ApiCalls interface with it
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl("https://dog.ceo/api/")
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-        apiCalls = retrofit.create(ApiCalls.class);
+        // Listen for connection changes
+        networkQualityMonitor = app.getNetworkQualityMonitor();
+        isConnected = networkQualityMonitor.isConnected();
+        networkListener = new NetworkListener();
+        networkQualityMonitor.addListener(networkListener);
+
+        if (!isConnected) {
+            Toast.makeText(this, no_internet, Toast.LENGTH_SHORT).show();
+        }
+
+        responseProcessor = app.getResponseProcessor();
+        startupPipeline = app.getStartupPipeline();
+
+        // Serve the breeds the app preloaded straight away instead of waiting for a connection
+        // and a network round trip
+        catalogRepository = app.getBreedCatalogRepository();
+        getJsonBreedInfo();
+
+        // Hidden debug screen with the performance metrics
+        findViewById(R.id.app_logo).setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                startActivity(new Intent(MainActivity.this, MetricsActivity.class));
+                return true;
+            }
+        });
 
         Button randomButton = findViewById(R.id.random_search);
 
-        // Start ImageScreenActivity with random dog pictures
+        // Start ImageScreenActivity with random dog pictures, or the saved ones when offline
         randomButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                if (isConnected) {
-                    intent.putExtra("RANDOM", true);
-                    startActivity(intent);
-                } else {
-                    Toast.makeText(getApplicationContext(), no_internet, Toast.LENGTH_LONG).show();
+                if (!isConnected) {
+                    Toast.makeText(getApplicationContext(), R.string.offline_mode,
+                            Toast.LENGTH_LONG).show();
                 }
+
+                intent.putExtra("OFFLINE", !isConnected);
+                intent.putExtra("RANDOM", true);
+                startActivity(intent);
             }
         });
     }
 
     /**
-     * Unregister the receiver when the activity gets destroyed
+     * Stop listening for connection changes and for the breed list when the activity gets
+     * destroyed
      */
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        destroyed = true;
 
-        if (receiver != null) {
-            this.unregisterReceiver(receiver);
-        }
-    }
-
-    /**
-     * Checks to see if user is connected to the internet when app first starts up and sets the
-     * connection flag appropriately.
-     */
-    private void checkInternetConnection() {
-        ConnectivityManager cManager =
-                (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo networkInfo = null;
-
-        if (cManager != null) {
-            networkInfo = cManager.getActiveNetworkInfo();
-        }
-
-        isConnected = (networkInfo != null && networkInfo.isConnected());
+        catalogRepository.removeListener();
+        networkQualityMonitor.removeListener(networkListener);
     }
 
     /**
-     * Inner class which extends BroadcastReceiver and intercepts the
-     * android.net.ConnectivityManager.CONNECTIVITY_ACTION, which indicates a connection change.
-     * Sets the global connection flag based on connection status and starts the api call when
-     * internet connection is found.
+     * Inner class told by the NetworkQualityMonitor about network changes. Sets the connection
+     * flag and starts the api call when internet connection is found. Changes of the measured
+     * speed alone are ignored here.
      */
-    public class NetworkReceiver extends BroadcastReceiver {
+    private class NetworkListener implements NetworkQualityMonitor.Listener {
         @Override
-        public void onReceive(Context context, Intent intent) {
-            ConnectivityManager connMgr =
-                    (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-            NetworkInfo networkInfo = null;
-
-            if (connMgr != null) {
-                networkInfo = connMgr.getActiveNetworkInfo();
+        public void onQualityChanged(NetworkQuality quality) {
+            if (quality.isConnected() == isConnected) {
+                return;
             }
 
-            // Checks to see if the device has an internet connection
-            if (networkInfo != null) {
-                isConnected = true;
+            isConnected = quality.isConnected();
 
+            if (isConnected) {
                 if (breedsSubBreedsInfoVM.getBreedInfoMap() == null) {
                     getJsonBreedInfo();
                 }
             } else {
-                isConnected = false;
-                Toast.makeText(context, no_internet, Toast.LENGTH_SHORT).show();
+                Toast.makeText(getApplicationContext(), no_internet, Toast.LENGTH_SHORT).show();
             }
         }
     }
 
     /**
-     * Gets all the breeds and sub-breeds from the JSON Object returned by the api call and stores
-     * the data in the persistent BreedsSubBreedsInfoVM object. The JSON object returned by this
-     * call contains multiple key value pairs where the values are JSON arrays of Strings.
+     * Gets all the breeds and sub-breeds from the BreedCatalogRepository and stores the data in the
+     * persistent BreedsSubBreedsInfoVM object. The repository hands over the copy saved on disk,
+     * or the bundled one, right away and then revalidates it with
+     * https://dog.ceo/api/breeds/list/all in the background, calling back again only if the list
+     * changed. The search index is built on the ResponseProcessor's pool, the search box is only
+     * set up once it's done, which is when a cold start counts as interactive.
      */
     private void getJsonBreedInfo() {
-        // Only make the call to retrieve the breed information once during the lifecycle of the app
-        if (breedsSubBreedsInfoVM.getBreedInfoMap() != null) {
+        // The search kept over a rotation is set up right away, the listener below still gets
+        // the list should the revalidation change it
+        if (breedsSubBreedsInfoVM.getCatalogSearch() != null) {
             getUserBreedInfo();
-            return;
+            setSearchListener();
         }
 
-        // Api call link: https://dog.ceo/api/breeds/list/all
-        Call<BreedInfo> call = apiCalls.getAllBreed();
-
-        // Asynchronous call to be performed on the background thread
-        call.enqueue(new Callback<BreedInfo>() {
+        catalogRepository.load(new BreedCatalogRepository.Listener() {
             @Override
-            public void onResponse(@NonNull Call<BreedInfo> call,
-                                   @NonNull Response<BreedInfo> response) {
-                // Log and exit function if Api call was unsuccessful
-                if (!response.isSuccessful()) {
-                    Log.d(TAG, "getJsonBreedInfo() Response Code: " + response.code());
+            public void onCatalogLoaded(final Map<String, List<String>> catalog) {
+                // The repository hands out the same map until the list changes
+                if (catalog == breedsSubBreedsInfoVM.getBreedInfoMap()
+                        && breedsSubBreedsInfoVM.getCatalogSearch() != null) {
                     return;
                 }
 
-                BreedInfo breedInfo = response.body();
-                Map<String, List<String>> breedInfoMap = new HashMap<>();
-
-                if (breedInfo != null) {
-                    for (String key : (breedInfo.getBreedInfo()).keySet()) {
-                        breedInfoMap.put(key, (breedInfo.getBreedInfo()).get(key));
-                        Log.d(TAG, "Key: " + key + "\tValue: " + breedInfoMap.get(key));
-                    }
-
-                    breedsSubBreedsInfoVM.setBreedInfoMap(breedInfoMap);
-                    getUserBreedInfo();
-
-                    // Start the activity to show the images for a breed/sub-breed if user entered
-                    // the information correctly, otherwise inform them of incorrect spelling.
-                    searchButton.setOnClickListener(new View.OnClickListener() {
-                        @Override
-                        public void onClick(View v) {
-                            if (isConnected) {
-                                subACTxtView.setEnabled(false);
-                                userInputSubBreed = subACTxtView.getText().toString().trim();
-                                Log.d(TAG, userInputBreed + "   " + userInputSubBreed);
-
-                                if (breeds.contains(userInputBreed) && (subBreeds.contains(userInputSubBreed) ||
-                                        userInputSubBreed.equals(getResources().getString(R.string.no_sub_breed)))) {
-                                    intent.putExtra("RANDOM", false);
-                                    intent.putExtra("BREED", userInputBreed);
-                                    intent.putExtra("SUB_BREED", userInputSubBreed);
-                                    startActivity(intent);
-                                } else {
-                                    Log.d(TAG, "sub: " + userInputSubBreed);
-                                    subACTxtView.setError(getResources().getString(R.string.error_message));
-                                    subACTxtView.setEnabled(true);
+                responseProcessor.process("Breed search index", catalog, new BuildSearch(),
+                        new ResponseProcessor.Consumer<BreedCatalogSearch>() {
+                            @Override
+                            public void onResult(BreedCatalogSearch search) {
+                                breedsSubBreedsInfoVM.setBreedInfoMap(catalog);
+                                breedsSubBreedsInfoVM.setCatalogSearch(search);
+
+                                // Built after the activity went away, e.g. on a rotation
+                                if (destroyed) {
+                                    return;
                                 }
-                            } else {
-                                Toast.makeText(getApplicationContext(),
-                                        no_internet, Toast.LENGTH_LONG).show();
+
+                                getUserBreedInfo();
+                                setSearchListener();
+                                startupPipeline.onInteractive(MainActivity.this);
                             }
-                        }
-                    });
-                }
-            }
 
-            @Override
-            public void onFailure(@NonNull Call<BreedInfo> call, @NonNull Throwable t) {
-                Log.d(TAG, "getJsonBreedInfo() onFailure: " + t.getMessage());
+                            @Override
+                            public void onError() {
+                                Log.d(TAG, "Breed search index could not be built");
+                            }
+                        });
             }
         });
     }
 
     /**
-     * Populate the Breed AutoCompleteTextView with the available breeds retrieved from the Api call
-     * earlier.
+     * Start the activity for the entry typed in the search box, or for the best match of what was
+     * typed, e.g. "afgh" searches "afghan hound". If nothing matches, point out the closest
+     * spelling.
      */
-    private void getUserBreedInfo() {
-        final Map<String, List<String>> breedsMap = breedsSubBreedsInfoVM.getBreedInfoMap();
-        breeds.addAll(breedsMap.keySet());
-
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_list_item_1,
-                breeds);
+    private void setSearchListener() {
+        searchButton.setEnabled(true);
+        searchButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                String input = searchACTxtView.getText().toString().trim();
+                BreedCatalogSearch.Selection selection = catalogSearch.get(input);
 
-        breedACTxtView.setAdapter(adapter);
+                if (selection == null) {
+                    List<String> matches = catalogSearch.getIndex().complete(input, 1);
+                    selection = matches.isEmpty() ? null : catalogSearch.get(matches.get(0));
+                }
 
-        // Check if user entered breed information correctly. Change View states depending on user
-        // input.
-        breedACTxtView.setOnFocusChangeListener(new View.OnFocusChangeListener() {
-            @Override
-            public void onFocusChange(View v, boolean hasFocus) {
-                if (hasFocus) {
-                    searchButton.setEnabled(false);
-                    subACTxtView.setEnabled(true);
-                } else {
-                    userInputBreed = breedACTxtView.getText().toString().trim();
-
-                    if (userInputBreed.length() > 2 && breedsMap.containsKey(userInputBreed)) {
-                        getUserSubBreedInfo();
-                    } else if (userInputBreed.length() > 2) {
-                        breedACTxtView.setError(getResources().getString(R.string.error_message));
-                    }
+                if (selection != null) {
+                    startImageScreen(selection);
+                } else if (!input.isEmpty()) {
+                    searchACTxtView.setError(getSpellingError(input));
                 }
             }
         });
-
     }
 
     /**
-     * Populate the Sub-Breed AutoCompleteTextView, if applicable, set the sub-breed selection to
-     * none if no sub-breeds available.
+     * Populate the search AutoCompleteTextView with every breed and "sub-breed breed" combination
+     * retrieved from the Api call earlier. Picking one starts the search right away.
      */
-    private void getUserSubBreedInfo() {
-        subBreeds = breedsSubBreedsInfoVM.getBreedInfoMap().get(userInputBreed);
-        String none = getResources().getString(R.string.no_sub_breed);
+    private void getUserBreedInfo() {
+        catalogSearch = breedsSubBreedsInfoVM.getCatalogSearch();
+        searchACTxtView.setAdapter(new BreedSearchAdapter(this, catalogSearch.getIndex(),
+                catalogSearch.getNames()));
 
-        // Show dropdown of the sub-breeds selection
-        subACTxtView.setOnClickListener(new View.OnClickListener() {
+        searchACTxtView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
-            public void onClick(View v) {
-                subACTxtView.showDropDown();
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                BreedCatalogSearch.Selection selection =
+                        catalogSearch.get((String) parent.getItemAtPosition(position));
+
+                if (selection != null) {
+                    startImageScreen(selection);
+                }
             }
         });
+    }
 
-        // For no available sub-breeds
-        if (subBreeds != null && subBreeds.isEmpty()) {
-            subACTxtView.setText(none);
-            userInputSubBreed = none;
-            searchButton.setEnabled(true);
-            subACTxtView.setEnabled(false);
-            return;
+    /**
+     * Start ImageScreenActivity with the pictures of a breed, or of one of its sub-breeds. Without
+     * a connection only the pictures saved for offline browsing are shown.
+     */
+    private void startImageScreen(BreedCatalogSearch.Selection selection) {
+        if (!isConnected) {
+            Toast.makeText(getApplicationContext(), R.string.offline_mode, Toast.LENGTH_LONG)
+                    .show();
         }
 
-        if (subBreeds != null) {
-            // Add the none option to list suggestion list only once
-            if (!subBreeds.contains(none)) {
-                subBreeds.add(none);
-            }
+        String subBreed = selection.getSubBreed() != null
+                ? selection.getSubBreed()
+                : getResources().getString(R.string.no_sub_breed);
+
+        Log.d(TAG, selection.getBreed() + "   " + subBreed);
+        intent.putExtra("OFFLINE", !isConnected);
+        intent.putExtra("RANDOM", false);
+        intent.putExtra("BREED", selection.getBreed());
+        intent.putExtra("SUB_BREED", subBreed);
+        startActivity(intent);
+    }
 
-            ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
-                    android.R.layout.simple_list_item_1,
-                    subBreeds);
+    /**
+     * @return "Did you mean ...?" with the closest entry if there is one, otherwise the plain
+     * spelling error
+     */
+    private String getSpellingError(String input) {
+        List<String> suggestions = catalogSearch.getIndex().suggest(input, 1);
 
-            subACTxtView.setAdapter(adapter);
-            searchButton.setEnabled(true);
-            subACTxtView.showDropDown();
+        return suggestions.isEmpty()
+                ? getResources().getString(R.string.error_message)
+                : getResources().getString(R.string.did_you_mean, suggestions.get(0));
+    }
 
-            Log.d(TAG, "Sub: " + subBreeds);
+    /**
+     * Builds the search index off the main thread, it goes through every breed name.
+     */
+    private static class BuildSearch
+            implements ResponseProcessor.Stage<Map<String, List<String>>, BreedCatalogSearch> {
+        @Override
+        public BreedCatalogSearch process(Map<String, List<String>> catalog) {
+            return new BreedCatalogSearch(catalog);
         }
     }
-}
\ No newline at end of file
+}
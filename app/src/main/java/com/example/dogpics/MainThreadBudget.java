@@ -0,0 +1,111 @@
+package com.example.dogpics;
+
+import android.os.StrictMode;
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Times the work done on the main thread when a result reaches the UI and reports the sections
+ * that go over budget. Normally they are only logged; in the main thread budget test mode they
+ * are reported to StrictMode as custom slow calls with penaltyDeath(), so any test driving the
+ * app fails on the spot.
+ */
+public class MainThreadBudget {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = MainThreadBudget.class.getName();
+
+    // A frame at 60 fps is 16ms, handing over a result should leave most of it for drawing
+    public static final long DEFAULT_BUDGET_MS = 4;
+
+    /**
+     * Told about every section that went over budget.
+     */
+    public interface Reporter {
+        void onOverBudget(String section, long tookMs, long budgetMs);
+    }
+
+    // Only logs, used outside of the test mode
+    public static final Reporter LOG = new Reporter() {
+        @Override
+        public void onOverBudget(String section, long tookMs, long budgetMs) {
+            Log.d(TAG, section + " took " + tookMs + "ms on the main thread, budget "
+                    + budgetMs + "ms");
+        }
+    };
+
+    // Reports a custom slow call, which the policy set by enableStrictMode() turns into a crash
+    public static final Reporter STRICT_MODE = new Reporter() {
+        @Override
+        public void onOverBudget(String section, long tookMs, long budgetMs) {
+            StrictMode.noteSlowCall(section + " took " + tookMs + "ms on the main thread, budget "
+                    + budgetMs + "ms");
+        }
+    };
+
+    private final long budgetMs;
+    private final Reporter reporter;
+
+    public MainThreadBudget(long budgetMs, Reporter reporter) {
+        this.budgetMs = budgetMs;
+        this.reporter = reporter;
+    }
+
+    /**
+     * Makes the main thread crash on custom slow calls. Call from Application.onCreate() in the
+     * test mode only.
+     */
+    public static void enableStrictMode() {
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectCustomSlowCalls()
+                .penaltyLog()
+                .penaltyDeath()
+                .build());
+    }
+
+    /**
+     * @return The start time to pass to end()
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Reports the section if the time since start went over the budget.
+     *
+     * @param section   Name of the work timed, shown in the report
+     * @param startNano The value start() returned
+     */
+    public void end(String section, long startNano) {
+        long tookMs = (System.nanoTime() - startNano) / 1000000;
+
+        if (tookMs > budgetMs) {
+            reporter.onOverBudget(section, tookMs, budgetMs);
+        }
+    }
+
+    /**
+     * Wraps an executor so every runnable it runs is timed as the given section. Used for
+     * callbacks that reach the main thread without going through a ResponseProcessor.
+     */
+    public Executor timed(final String section, final Executor executor) {
+        return new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        long start = start();
+                        runnable.run();
+                        end(section, start);
+                    }
+                });
+            }
+        };
+    }
+
+    // Getter
+    public long getBudgetMs() {
+        return budgetMs;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.dogpics;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named counters, histograms and gauges the network and image code report to, dumped as JSON for
+ * the debug screen. Names are dot separated, e.g. "api.getAllBreed.ttfb". Recording never takes a
+ * lock: counters are AtomicLongs, histograms are LatencyHistograms, and looking a name up is a
+ * ConcurrentHashMap read once it exists. Owned by DogPicsApp.
+ */
+public class Metrics {
+    /**
+     * A value read when the metrics are dumped, e.g. the state of the circuit breaker.
+     */
+    public interface Gauge {
+        long get();
+    }
+
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * @return The counter with the name, created at 0 the first time
+     */
+    public AtomicLong counter(String name) {
+        AtomicLong counter = counters.get(name);
+
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * @return The histogram with the name, created empty the first time
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(name, created);
+
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    public void increment(String name) {
+        counter(name).incrementAndGet();
+    }
+
+    public void add(String name, long delta) {
+        counter(name).addAndGet(delta);
+    }
+
+    public void record(String name, long ms) {
+        histogram(name).record(ms);
+    }
+
+    /**
+     * Adds a histogram kept by someone else, e.g. the latencies of ResilientApiCalls.
+     */
+    public void register(String name, LatencyHistogram histogram) {
+        histograms.put(name, histogram);
+    }
+
+    public void register(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Zeroes every counter and histogram. Gauges aren't owned here and are left alone.
+     */
+    public void clear() {
+        for (AtomicLong counter : counters.values()) {
+            counter.set(0);
+        }
+
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.clear();
+        }
+    }
+
+    /**
+     * @return Everything recorded so far, names sorted, e.g.
+     * {"counters":{..},"gauges":{..},"histograms":{"api.getAllBreed.ttfb":{"count":3,"p50":..}}}
+     */
+    public String toJson() {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.setIndent("  ");
+
+        try {
+            writer.beginObject();
+
+            writer.name("counters").beginObject();
+            for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()) {
+                writer.name(entry.getKey()).value(entry.getValue().get());
+            }
+            writer.endObject();
+
+            writer.name("gauges").beginObject();
+            for (Map.Entry<String, Gauge> entry : new TreeMap<>(gauges).entrySet()) {
+                writer.name(entry.getKey()).value(entry.getValue().get());
+            }
+            writer.endObject();
+
+            writer.name("histograms").beginObject();
+            for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+
+                writer.name(entry.getKey()).beginObject()
+                        .name("count").value(histogram.getCount())
+                        .name("p50").value(histogram.percentile(0.5))
+                        .name("p90").value(histogram.percentile(0.9))
+                        .name("p99").value(histogram.percentile(0.99))
+                        .name("max").value(histogram.getMaxMs())
+                        .endObject();
+            }
+            writer.endObject();
+
+            writer.endObject();
+            writer.close();
+        } catch (IOException e) {
+            // A StringWriter doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+}
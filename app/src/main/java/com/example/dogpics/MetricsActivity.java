@@ -0,0 +1,82 @@
+package com.example.dogpics;
+
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * Hidden debug screen, opened by long pressing the logo on the Main Screen. Shows everything in
+ * the app's Metrics as JSON and saves the same dump to files/metrics.json, where
+ * "adb shell run-as com.example.dogpics cat files/metrics.json" can read it.
+ */
+public class MetricsActivity extends AppCompatActivity {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = MetricsActivity.class.getName();
+
+    private static final String DUMP_FILE = "metrics.json";
+
+    private TextView jsonTxtView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.metrics_screen);
+
+        jsonTxtView = findViewById(R.id.metrics_json);
+    }
+
+    /**
+     * Dumps again every time the screen comes back, so the numbers are current.
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        DogPicsApp app = (DogPicsApp) getApplication();
+        Metrics metrics = app.getMetrics();
+
+        // ResilientApiCalls makes a histogram per endpoint when it's first called
+        ResilientApiCalls resilientApiCalls = app.getApiClient().getResilientApiCalls();
+
+        for (Map.Entry<String, LatencyHistogram> entry
+                : resilientApiCalls.getCallLatencies().entrySet()) {
+            metrics.register("api." + entry.getKey() + ".call", entry.getValue());
+        }
+
+        for (Map.Entry<String, LatencyHistogram> entry
+                : resilientApiCalls.getAttemptLatencies().entrySet()) {
+            metrics.register("api." + entry.getKey() + ".attempt", entry.getValue());
+        }
+
+        String json = metrics.toJson();
+        jsonTxtView.setText(json);
+        saveDump(json);
+    }
+
+    private void saveDump(String json) {
+        OutputStream out = null;
+
+        try {
+            out = new FileOutputStream(new File(getFilesDir(), DUMP_FILE));
+            out.write(json.getBytes(Charset.forName("UTF-8")));
+        } catch (IOException e) {
+            Log.d(TAG, "saveDump() failed: " + e.getMessage());
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.dogpics;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Invocation;
+
+/**
+ * OkHttp event listener timing the phases of every HTTP call into Metrics, per endpoint: dns,
+ * connect, tls, ttfb (request sent to response headers received), body and total, plus the bytes
+ * received and failed calls. Api calls are named after their ApiCalls method, which Retrofit tags
+ * the request with, other requests can name themselves with a String tag; anything else, i.e. the
+ * pictures, counts as "image". Calls served by the
+ * HTTP cache only get a total. One listener per call, so it needs no locking.
+ */
+public class MetricsEventListener extends EventListener {
+    // Endpoint of requests that aren't ApiCalls
+    static final String IMAGE_ENDPOINT = "image";
+
+    /**
+     * Creates a listener for every call, for OkHttpClient.Builder.eventListenerFactory().
+     */
+    public static class Factory implements EventListener.Factory {
+        private final Metrics metrics;
+
+        public Factory(Metrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @NonNull
+        @Override
+        public EventListener create(@NonNull Call call) {
+            return new MetricsEventListener(metrics, endpointOf(call.request()));
+        }
+    }
+
+    private final Metrics metrics;
+    private final String prefix;
+
+    // Start times in nanoseconds, 0 until the phase starts
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestEnd;
+    private long bodyStart;
+
+    MetricsEventListener(Metrics metrics, String endpoint) {
+        this.metrics = metrics;
+        this.prefix = "http." + endpoint + ".";
+    }
+
+    /**
+     * @return The ApiCalls method the request was made by, its String tag, or "image"
+     */
+    static String endpointOf(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+
+        if (invocation != null) {
+            return invocation.method().getName();
+        }
+
+        String name = request.tag(String.class);
+        return name != null ? name : IMAGE_ENDPOINT;
+    }
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName,
+                       @NonNull List<InetAddress> inetAddressList) {
+        recordSince("dns", dnsStart);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                             @NonNull Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+        recordSince("tls", secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, Protocol protocol) {
+        recordSince("connect", connectStart);
+    }
+
+    @Override
+    public void connectFailed(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                              @NonNull Proxy proxy, Protocol protocol, @NonNull IOException ioe) {
+        metrics.increment(prefix + "connect_failed");
+    }
+
+    @Override
+    public void requestHeadersEnd(@NonNull Call call, @NonNull Request request) {
+        requestEnd = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyEnd(@NonNull Call call, long byteCount) {
+        requestEnd = System.nanoTime();
+        metrics.add(prefix + "bytes_sent", byteCount);
+    }
+
+    // responseHeadersStart() comes before the wait for the response, not after it
+    @Override
+    public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+        recordSince("ttfb", requestEnd);
+    }
+
+    @Override
+    public void responseBodyStart(@NonNull Call call) {
+        bodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        recordSince("body", bodyStart);
+        metrics.add(prefix + "bytes_received", byteCount);
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        recordSince("total", callStart);
+        metrics.increment(prefix + "calls");
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        metrics.increment(prefix + "failed");
+    }
+
+    private void recordSince(String phase, long start) {
+        if (start != 0) {
+            metrics.record(prefix + phase, (System.nanoTime() - start) / 1000000);
+        }
+    }
+}
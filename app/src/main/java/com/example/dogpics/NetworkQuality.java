@@ -0,0 +1,66 @@
+package com.example.dogpics;
+
+/**
+ * What is known about the network at one point in time. Never changes once made.
+ */
+public class NetworkQuality {
+    // Speeds in kbps when not known
+    public static final long UNKNOWN = -1;
+
+    public static final NetworkQuality OFFLINE = new NetworkQuality(false, false, UNKNOWN, UNKNOWN);
+
+    private final boolean connected;
+    private final boolean metered;
+    private final long linkKbps;
+    private final long measuredKbps;
+
+    /**
+     * @param connected    Whether there is a network with internet access
+     * @param metered      Whether the user may pay for the data, e.g. mobile data
+     * @param linkKbps     The downstream bandwidth the network claims, or UNKNOWN
+     * @param measuredKbps The speed recent images downloaded at, or UNKNOWN
+     */
+    public NetworkQuality(boolean connected, boolean metered, long linkKbps, long measuredKbps) {
+        this.connected = connected;
+        this.metered = metered;
+        this.linkKbps = linkKbps;
+        this.measuredKbps = measuredKbps;
+    }
+
+    /**
+     * @return The same network with a new measured speed
+     */
+    public NetworkQuality withMeasuredKbps(long kbps) {
+        return new NetworkQuality(connected, metered, linkKbps, kbps);
+    }
+
+    /**
+     * @return The measured speed if there is one, otherwise the claimed one, or UNKNOWN
+     */
+    public long getBestKbps() {
+        return measuredKbps != UNKNOWN ? measuredKbps : linkKbps;
+    }
+
+    // Getters
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public boolean isMetered() {
+        return metered;
+    }
+
+    public long getLinkKbps() {
+        return linkKbps;
+    }
+
+    public long getMeasuredKbps() {
+        return measuredKbps;
+    }
+
+    @Override
+    public String toString() {
+        return "connected=" + connected + " metered=" + metered + " link=" + linkKbps
+                + "kbps measured=" + measuredKbps + "kbps";
+    }
+}
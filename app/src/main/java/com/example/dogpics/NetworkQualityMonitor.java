@@ -0,0 +1,219 @@
+package com.example.dogpics;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps track of the network the app is on: whether there is one, whether it's metered, the
+ * bandwidth it claims and the speed images actually download at, measured by the
+ * ThroughputEstimator. Uses network callbacks from Android 5.0, the default network callback from
+ * 7.0, and the CONNECTIVITY_ACTION broadcast on older versions. Owned by DogPicsApp so every
+ * screen sees the same state.
+ */
+public class NetworkQualityMonitor {
+    /**
+     * Told about every change of the network or of the measured speed, on the callback executor.
+     */
+    public interface Listener {
+        void onQualityChanged(NetworkQuality quality);
+    }
+
+    private final Context context;
+    private final ConnectivityManager connectivityManager;
+    private final ThroughputEstimator throughput;
+    private final Executor callbackExecutor;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Written under this, so a measured speed and a network change never undo each other
+    private volatile NetworkQuality quality = NetworkQuality.OFFLINE;
+
+    /**
+     * @param context          The application context
+     * @param throughput       Measures the image downloads
+     * @param callbackExecutor Executor the listeners get called on, usually the main thread
+     */
+    public NetworkQualityMonitor(Context context, ThroughputEstimator throughput,
+                                 Executor callbackExecutor) {
+        this.context = context.getApplicationContext();
+        this.connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.throughput = throughput;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Reads the current network and starts following changes. Call once.
+     */
+    public void start() {
+        quality = readActiveNetwork();
+
+        throughput.setListener(new ThroughputEstimator.Listener() {
+            @Override
+            public void onEstimateChanged(long kbps) {
+                updateMeasuredKbps(kbps);
+            }
+        });
+
+        if (connectivityManager == null) {
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            connectivityManager.registerDefaultNetworkCallback(new DefaultNetworkCallback());
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            // Any network with internet, the active one is read again on each change
+            NetworkRequest request = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+            connectivityManager.registerNetworkCallback(request, new AnyNetworkCallback());
+        } else {
+            registerConnectivityReceiver();
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Getters
+    public NetworkQuality getQuality() {
+        return quality;
+    }
+
+    public boolean isConnected() {
+        return quality.isConnected();
+    }
+
+    /**
+     * Follows the active network through the CONNECTIVITY_ACTION broadcast, before Android 5.0.
+     */
+    @SuppressWarnings("deprecation")
+    private void registerConnectivityReceiver() {
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                update(readActiveNetwork());
+            }
+        }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    /**
+     * Keeps the speed measured so far, a new network starts from what the last one measured
+     * until its own downloads come in. NetworkInfo is deprecated from Android 10, but the
+     * callbacks replacing it need 5.0.
+     */
+    @SuppressWarnings("deprecation")
+    private NetworkQuality readActiveNetwork() {
+        NetworkInfo info = connectivityManager != null
+                ? connectivityManager.getActiveNetworkInfo()
+                : null;
+
+        if (info == null || !info.isConnected()) {
+            return NetworkQuality.OFFLINE;
+        }
+
+        return new NetworkQuality(true, connectivityManager.isActiveNetworkMetered(),
+                NetworkQuality.UNKNOWN, throughput.getKbps());
+    }
+
+    private void update(NetworkQuality next) {
+        synchronized (this) {
+            // The speed may have been measured again since next was read
+            quality = next.isConnected() ? next.withMeasuredKbps(throughput.getKbps()) : next;
+        }
+        notifyListeners();
+    }
+
+    /**
+     * Applies a new speed to the network as it is now, whichever thread changed it last.
+     */
+    private void updateMeasuredKbps(long kbps) {
+        synchronized (this) {
+            quality = quality.withMeasuredKbps(kbps);
+        }
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                NetworkQuality current = quality;
+
+                for (Listener listener : listeners) {
+                    listener.onQualityChanged(current);
+                }
+            }
+        });
+    }
+
+    /**
+     * Follows the network the app's requests go over, with its capabilities. Called on a
+     * ConnectivityManager thread.
+     */
+    @RequiresApi(Build.VERSION_CODES.N)
+    private class DefaultNetworkCallback extends ConnectivityManager.NetworkCallback {
+        // Before Android 8.0 onCapabilitiesChanged() doesn't always follow
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(network);
+
+            if (capabilities != null) {
+                onCapabilitiesChanged(network, capabilities);
+            } else {
+                update(readActiveNetwork());
+            }
+        }
+
+        @Override
+        public void onCapabilitiesChanged(@NonNull Network network,
+                                          @NonNull NetworkCapabilities capabilities) {
+            boolean metered = !capabilities.hasCapability(
+                    NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+            int linkKbps = capabilities.getLinkDownstreamBandwidthKbps();
+
+            update(new NetworkQuality(true, metered,
+                    linkKbps > 0 ? linkKbps : NetworkQuality.UNKNOWN, throughput.getKbps()));
+        }
+
+        @Override
+        public void onLost(@NonNull Network network) {
+            update(NetworkQuality.OFFLINE);
+        }
+    }
+
+    /**
+     * Any network coming or going may change the active one.
+     */
+    @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+    private class AnyNetworkCallback extends ConnectivityManager.NetworkCallback {
+        @Override
+        public void onAvailable(@NonNull Network network) {
+            update(readActiveNetwork());
+        }
+
+        @Override
+        public void onLost(@NonNull Network network) {
+            update(readActiveNetwork());
+        }
+    }
+}
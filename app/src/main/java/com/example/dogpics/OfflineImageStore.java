@@ -0,0 +1,338 @@
+package com.example.dogpics;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Keeps the pictures the user looked at in a DiskLruStore so they can be browsed without a
+ * connection. A viewed picture is copied out of the image HTTP cache, never downloaded again.
+ * Stored pictures are loaded from their file, online or not, so a hit never costs an HTTP
+ * revalidation. Per breed the URLs of the pictures go to an index file outside the store, where
+ * they can't be evicted, written a few seconds after a view so a swipe through many pictures
+ * writes it once.
+ */
+public class OfflineImageStore {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = OfflineImageStore.class.getName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Most recent URLs kept per breed, older ones are usually evicted anyway
+    private static final int MAX_URLS_PER_BREED = 500;
+
+    // Views coming in this soon after one go into the same write of the index
+    private static final long INDEX_WRITE_DELAY_MS = 5000;
+
+    /**
+     * Receives the stored URLs, most recently viewed first. Called on the callback executor.
+     */
+    public interface UrlsCallback {
+        void onUrls(List<String> urls);
+    }
+
+    private final DiskLruStore store;
+    private final File indexFile;
+    private final Call.Factory imageClient;
+    private final Executor callbackExecutor;
+    private final ScheduledExecutorService ioExecutor =
+            Executors.newSingleThreadScheduledExecutor();
+
+    // Breed path, e.g. "hound-afghan", to its viewed URLs. Only touched on the io thread
+    private final Map<String, LinkedHashSet<String>> urlsByBreed = new LinkedHashMap<>();
+    private boolean indexWriteScheduled;
+
+    /**
+     * @param store            Where the pictures go, opened in the background
+     * @param indexFile        Where the URL lists go, outside the store's directory
+     * @param imageClient      A client on the cache Picasso downloads into, only the cache is read
+     * @param callbackExecutor Executor the callbacks get called on, usually the main thread
+     */
+    public OfflineImageStore(DiskLruStore store, File indexFile, Call.Factory imageClient,
+                             Executor callbackExecutor) {
+        this.store = store;
+        this.indexFile = indexFile;
+        this.imageClient = imageClient;
+        this.callbackExecutor = callbackExecutor;
+
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                OfflineImageStore.this.store.open();
+                readIndex();
+            }
+        });
+    }
+
+    /**
+     * Keeps the picture for offline use. Call once it's loaded, so it's in the HTTP cache.
+     *
+     * @param url The picture's URL
+     */
+    public void onImageViewed(final String url) {
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (store.get(url) == null && !copyFromCache(url)) {
+                    return;
+                }
+                addToList(url);
+            }
+        });
+    }
+
+    /**
+     * Cheap enough for the main thread, doesn't touch the disk.
+     *
+     * @return The stored picture, or null if it isn't stored
+     */
+    public File getImageFile(String url) {
+        return store.peek(url);
+    }
+
+    /**
+     * Looks up the stored pictures of a breed.
+     *
+     * @param breed    The breed, or null for every stored picture
+     * @param subBreed The sub-breed, or null for every picture of the breed
+     * @param callback Receives the URLs, an empty list if nothing is stored
+     */
+    public void loadUrls(final String breed, final String subBreed, final UrlsCallback callback) {
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<String> urls = new ImageRefList();
+
+                for (Map.Entry<String, LinkedHashSet<String>> entry : urlsByBreed.entrySet()) {
+                    if (!matches(entry.getKey(), breed, subBreed)) {
+                        continue;
+                    }
+
+                    for (String url : entry.getValue()) {
+                        // The picture may have been evicted since
+                        if (store.contains(url)) {
+                            urls.add(url);
+                        }
+                    }
+                }
+
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onUrls(urls);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Writes the index now if views are waiting for it, e.g. when the image screen stops.
+     */
+    public void flush() {
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (indexWriteScheduled) {
+                    writeIndex();
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops the background thread. The store can't be used after this.
+     */
+    public void close() {
+        ioExecutor.shutdownNow();
+    }
+
+    /**
+     * @param path The breed path of a list, e.g. "hound-afghan" or "pug"
+     */
+    static boolean matches(String path, String breed, String subBreed) {
+        if (breed == null) {
+            return true;
+        }
+
+        if (subBreed != null) {
+            return path.equals(breed + "-" + subBreed);
+        }
+        return path.equals(breed) || path.startsWith(breed + "-");
+    }
+
+    /**
+     * Copies the picture out of the HTTP cache, without asking the network. Runs on the io thread.
+     */
+    private boolean copyFromCache(String url) {
+        Request request = new Request.Builder()
+                .url(url)
+                .cacheControl(CacheControl.FORCE_CACHE)
+                .build();
+        Response response = null;
+
+        try {
+            response = imageClient.newCall(request).execute();
+            ResponseBody body = response.body();
+
+            // 504 when the picture isn't cached
+            if (!response.isSuccessful() || body == null) {
+                return false;
+            }
+            return store.put(url, body.byteStream());
+        } catch (IOException e) {
+            Log.d(TAG, "copyFromCache() failed: " + e.getMessage());
+            return false;
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
+    /**
+     * Moves the URL to the front of its breed's list and schedules writing the index. Runs on the
+     * io thread.
+     */
+    private void addToList(String url) {
+        ImageRef ref = ImageRef.parse(url);
+
+        if (ref.getBreedId() == ImageRef.NO_BREED) {
+            return;
+        }
+
+        String path = BreedDictionary.getInstance().getPath(ref.getBreedId());
+        LinkedHashSet<String> urls = urlsByBreed.get(path);
+
+        if (urls == null) {
+            urls = new LinkedHashSet<>();
+        }
+
+        // Rebuilt with the URL first, the lists are short
+        LinkedHashSet<String> reordered = new LinkedHashSet<>();
+        reordered.add(url);
+
+        for (String other : urls) {
+            if (reordered.size() >= MAX_URLS_PER_BREED) {
+                break;
+            }
+            reordered.add(other);
+        }
+
+        urlsByBreed.put(path, reordered);
+
+        if (!indexWriteScheduled) {
+            indexWriteScheduled = true;
+            ioExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (indexWriteScheduled) {
+                        writeIndex();
+                    }
+                }
+            }, INDEX_WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes every list as "path\turl" lines, most recently viewed first, to a temporary file
+     * renamed over the index. Runs on the io thread.
+     */
+    private void writeIndex() {
+        indexWriteScheduled = false;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        for (Map.Entry<String, LinkedHashSet<String>> entry : urlsByBreed.entrySet()) {
+            for (String url : entry.getValue()) {
+                byte[] line = (entry.getKey() + "\t" + url + "\n").getBytes(UTF_8);
+                bytes.write(line, 0, line.length);
+            }
+        }
+
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        FileOutputStream out = null;
+
+        try {
+            out = new FileOutputStream(tmp);
+            out.write(bytes.toByteArray());
+            out.close();
+            out = null;
+
+            if (!tmp.renameTo(indexFile)) {
+                Log.d(TAG, "writeIndex() could not rename " + tmp);
+            }
+        } catch (IOException e) {
+            Log.d(TAG, "writeIndex() failed: " + e.getMessage());
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the lists saved by an earlier run. Runs on the io thread.
+     */
+    private void readIndex() {
+        if (!indexFile.exists()) {
+            return;
+        }
+
+        BufferedReader reader = null;
+
+        try {
+            reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(indexFile), UTF_8));
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+
+                if (tab <= 0) {
+                    continue;
+                }
+
+                String path = line.substring(0, tab);
+                LinkedHashSet<String> urls = urlsByBreed.get(path);
+
+                if (urls == null) {
+                    urls = new LinkedHashSet<>();
+                    urlsByBreed.put(path, urls);
+                }
+                urls.add(line.substring(tab + 1));
+            }
+        } catch (IOException e) {
+            Log.d(TAG, "readIndex() failed: " + e.getMessage());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.dogpics;
+
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.Picasso;
+
+/**
+ * Prefetches images through Picasso at low priority, with the same size options as the visible
+ * page so the result lands in the memory cache under the key the page later asks for. Each
+ * position gets its own tag from the ImageScheduler so it can be cancelled on its own, and paused
+ * along with the other requests outside the window during a fling.
+ */
+public class PicassoPrefetchFetcher implements ImagePrefetcher.Fetcher {
+    private final ViewPagerAdapter adapter;
+    private final ImageScheduler scheduler;
+
+    /**
+     * @param adapter   Builds the requests, so prefetches get the same size as the pages
+     * @param scheduler Tags the requests of the screen
+     */
+    public PicassoPrefetchFetcher(ViewPagerAdapter adapter, ImageScheduler scheduler) {
+        this.adapter = adapter;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void fetch(final int position, String url, final ImagePrefetcher.FetchListener listener) {
+        final Object tag = scheduler.start(position, url, true);
+
+        adapter.createRequest(url)
+                .priority(Picasso.Priority.LOW)
+                .tag(tag)
+                .fetch(new Callback() {
+                    @Override
+                    public void onSuccess() {
+                        scheduler.finish(tag);
+                        adapter.onPrefetched(position);
+                        listener.onFetched(position, true);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        scheduler.finish(tag);
+                        listener.onFetched(position, false);
+                    }
+                });
+    }
+
+    @Override
+    public void cancel(int position) {
+        scheduler.cancel(position, true);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.dogpics;
+
+/**
+ * The steps of loading one page's picture in ViewPagerAdapter. A progressive page first shows a
+ * small preview, then the full picture read from the HTTP cache the preview filled, then, should
+ * it not be there, the full picture downloaded again with the preview still up. Other pages go
+ * straight to the download. Knows nothing of Picasso, the adapter runs each step.
+ */
+class ProgressiveLoad {
+    enum Step {
+        PREVIEW,
+        FULL_FROM_CACHE,
+        FULL,
+        DONE
+    }
+
+    // Previews are decoded at this fraction of the page's size
+    static final int PREVIEW_SCALE = 8;
+
+    private Step step;
+    private boolean previewShown;
+    private boolean firstPixelShown;
+
+    /**
+     * @param withPreview Whether to start with a preview, see previewSize()
+     */
+    ProgressiveLoad(boolean withPreview) {
+        step = withPreview ? Step.PREVIEW : Step.FULL;
+    }
+
+    /**
+     * @param targetSize The width or height the full picture is decoded to, 0 when unknown
+     * @return The preview's width or height, 0 when the page is too small or not measured yet to
+     * have one
+     */
+    static int previewSize(int targetSize) {
+        return targetSize / PREVIEW_SCALE;
+    }
+
+    // Getters
+    Step getStep() {
+        return step;
+    }
+
+    /**
+     * @return Whether the preview is on the page and stays there as the placeholder
+     */
+    boolean isPreviewShown() {
+        return previewShown;
+    }
+
+    /**
+     * @return Whether a failure of this step is the last one, so the error picture goes up
+     */
+    boolean showsError() {
+        return step == Step.FULL;
+    }
+
+    /**
+     * Moves on once the current step's picture is on the page.
+     *
+     * @return Whether it's the first picture on the page, which is when time to first pixel
+     * gets recorded
+     */
+    boolean onLoaded() {
+        boolean first = !firstPixelShown;
+        firstPixelShown = true;
+
+        if (step == Step.PREVIEW) {
+            previewShown = true;
+            step = Step.FULL_FROM_CACHE;
+        } else {
+            step = Step.DONE;
+        }
+        return first;
+    }
+
+    /**
+     * Moves on after the current step failed.
+     */
+    void onFailed() {
+        step = step == Step.FULL ? Step.DONE : Step.FULL;
+    }
+}
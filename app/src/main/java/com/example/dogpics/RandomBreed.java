@@ -12,6 +12,14 @@ public class RandomBreed {
     @SerializedName("message")
     private List<String> breedList;
 
+    // Used by Gson when ApiJsonAdapters isn't registered
+    RandomBreed() {
+    }
+
+    RandomBreed(List<String> breedList) {
+        this.breedList = breedList;
+    }
+
     // Getter
     public List<String> getBreedList() {
         return breedList;
@@ -12,6 +12,14 @@ public class RandomImage {
     @SerializedName("message")
     private List<String> randomList;
 
+    // Used by Gson when ApiJsonAdapters isn't registered
+    RandomImage() {
+    }
+
+    RandomImage(List<String> randomList) {
+        this.randomList = randomList;
+    }
+
     // Getter
     public List<String> getRandomList() {
         return randomList;
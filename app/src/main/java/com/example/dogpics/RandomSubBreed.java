@@ -12,6 +12,14 @@ public class RandomSubBreed {
     @SerializedName("message")
     private List<String> subBreed;
 
+    // Used by Gson when ApiJsonAdapters isn't registered
+    RandomSubBreed() {
+    }
+
+    RandomSubBreed(List<String> subBreed) {
+        this.subBreed = subBreed;
+    }
+
     /** Getter */
     public List<String> getSubBreed() {
         return subBreed;
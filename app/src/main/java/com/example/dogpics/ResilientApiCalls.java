@@ -0,0 +1,505 @@
+package com.example.dogpics;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Wraps the Retrofit generated ApiCalls so a slow or failing request doesn't leave a screen
+ * empty. Every call is timed per endpoint, and a call still running past the endpoint's 95th
+ * percentile gets a hedge: a second identical request, the first response wins and the other is
+ * canceled. Connection errors, 408, 429 and 5xx responses are retried up to twice after a jittered
+ * exponential backoff. While the CircuitBreaker is open nothing is hedged or retried, the breaker
+ * answers from the cache.
+ *
+ * The delegate's callbacks are expected on any thread, results are handed over on the callback
+ * executor for enqueue() and on the calling thread for execute().
+ */
+public class ResilientApiCalls implements ApiCalls {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = ResilientApiCalls.class.getName();
+
+    // Hedge past this percentile of the endpoint's latency, once enough calls were timed
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final int HEDGE_MIN_SAMPLES = 20;
+    // Hedge delay until then, and the shortest one ever used
+    private static final long DEFAULT_HEDGE_MS = 1000;
+    private static final long MIN_HEDGE_MS = 50;
+
+    private static final int MAX_RETRIES = 2;
+    private static final long BACKOFF_BASE_MS = 250;
+    private static final long BACKOFF_CAP_MS = 4000;
+
+    private final ApiCalls delegate;
+    private final CircuitBreaker breaker;
+    private final Executor callbackExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final Random random;
+    private final boolean hedging;
+
+    // Guarded by themselves
+    private final Map<String, LatencyHistogram> attemptLatencies = new HashMap<>();
+    private final Map<String, LatencyHistogram> callLatencies = new HashMap<>();
+
+    /**
+     * @param delegate         The ApiCalls making the actual requests
+     * @param breaker          The breaker the delegate's client goes through
+     * @param callbackExecutor Executor the enqueue() callbacks are called on, usually the main
+     *                         thread
+     */
+    public ResilientApiCalls(ApiCalls delegate, CircuitBreaker breaker, Executor callbackExecutor) {
+        this(delegate, breaker, callbackExecutor, new Random(), true);
+    }
+
+    // Lets tests turn hedging off and fix the backoff jitter
+    ResilientApiCalls(ApiCalls delegate, CircuitBreaker breaker, Executor callbackExecutor,
+                      Random random, boolean hedging) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+        this.callbackExecutor = callbackExecutor;
+        this.random = random;
+        this.hedging = hedging;
+
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        Thread thread = new Thread(runnable, "api-hedge-retry");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Call<BreedInfo> getAllBreed() {
+        return wrap("getAllBreed", delegate.getAllBreed());
+    }
+
+    @Override
+    public Call<BreedInfo> getAllBreedIfChanged(String eTag, String lastModified) {
+        return wrap("getAllBreedIfChanged", delegate.getAllBreedIfChanged(eTag, lastModified));
+    }
+
+    @Override
+    public Call<RandomBreed> getAllByBreed(String breed) {
+        return wrap("getAllByBreed", delegate.getAllByBreed(breed));
+    }
+
+    @Override
+    public Call<RandomSubBreed> getAllBySubBreed(String breed, String sBreed) {
+        return wrap("getAllBySubBreed", delegate.getAllBySubBreed(breed, sBreed));
+    }
+
+    @Override
+    public Call<RandomImage> getRandomPage(int count) {
+        return wrap("getRandomPage", delegate.getRandomPage(count));
+    }
+
+    @Override
+    public Call<RandomBreed> getByBreedPage(String breed, int count) {
+        return wrap("getByBreedPage", delegate.getByBreedPage(breed, count));
+    }
+
+    @Override
+    public Call<RandomSubBreed> getBySubBreedPage(String breed, String sBreed, int count) {
+        return wrap("getBySubBreedPage", delegate.getBySubBreedPage(breed, sBreed, count));
+    }
+
+    /**
+     * @return The time from making each call to its result, including hedges and retries, by
+     * endpoint name
+     */
+    public Map<String, LatencyHistogram> getCallLatencies() {
+        synchronized (callLatencies) {
+            return new HashMap<>(callLatencies);
+        }
+    }
+
+    /**
+     * @return The time each single request took, by endpoint name
+     */
+    public Map<String, LatencyHistogram> getAttemptLatencies() {
+        synchronized (attemptLatencies) {
+            return new HashMap<>(attemptLatencies);
+        }
+    }
+
+    private <T> Call<T> wrap(String endpoint, Call<T> call) {
+        return new ResilientCall<>(endpoint, call);
+    }
+
+    private static LatencyHistogram histogramOf(Map<String, LatencyHistogram> histograms,
+                                                String endpoint) {
+        synchronized (histograms) {
+            LatencyHistogram histogram = histograms.get(endpoint);
+
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                histograms.put(endpoint, histogram);
+            }
+            return histogram;
+        }
+    }
+
+    /**
+     * @return How long to wait before hedging a request to the endpoint
+     */
+    long hedgeDelayMs(String endpoint) {
+        LatencyHistogram histogram = histogramOf(attemptLatencies, endpoint);
+
+        if (histogram.getCount() < HEDGE_MIN_SAMPLES) {
+            return DEFAULT_HEDGE_MS;
+        }
+        return Math.max(MIN_HEDGE_MS, histogram.percentile(HEDGE_PERCENTILE));
+    }
+
+    /**
+     * Full jitter: a random wait between 0 and the exponential backoff for the retry.
+     *
+     * @param retry 0 for the first retry
+     */
+    long backoffMs(int retry) {
+        long ceiling = Math.min(BACKOFF_CAP_MS, BACKOFF_BASE_MS << retry);
+
+        synchronized (random) {
+            return (long) (random.nextDouble() * ceiling);
+        }
+    }
+
+    /**
+     * Whether a response is worth another try.
+     */
+    static boolean isTransient(Response<?> response) {
+        int code = response.code();
+
+        // Answered from the cache while the breaker is open, the network wasn't asked
+        if (response.raw().networkResponse() == null && code == 504) {
+            return false;
+        }
+        return code == 408 || code == 429 || code >= 500;
+    }
+
+    /**
+     * The Call handed out. Runs one or two attempts at a time, each a clone of the original call.
+     */
+    private class ResilientCall<T> implements Call<T> {
+        private final String endpoint;
+        private final Call<T> call;
+
+        // Guarded by this
+        private final List<Call<T>> running = new ArrayList<>();
+        private final List<ScheduledFuture<?>> timers = new ArrayList<>();
+        private boolean executed;
+        private boolean canceled;
+        private boolean done;
+        private boolean originalUsed;
+        private boolean hedged;
+        private int retries;
+        private long startNanos;
+
+        // The result, handed over once done
+        private Callback<T> callback;
+        private Executor deliverOn;
+        private Response<T> lastResponse;
+
+        ResilientCall(String endpoint, Call<T> call) {
+            this.endpoint = endpoint;
+            this.call = call;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            start(callback, callbackExecutor);
+        }
+
+        @NonNull
+        @Override
+        public Response<T> execute() throws IOException {
+            final CountDownLatch finished = new CountDownLatch(1);
+            final Object[] result = new Object[1];
+
+            start(new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                    result[0] = response;
+                    finished.countDown();
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    result[0] = t;
+                    finished.countDown();
+                }
+            }, new Executor() {
+                @Override
+                public void execute(@NonNull Runnable command) {
+                    command.run();
+                }
+            });
+
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+
+            if (result[0] instanceof IOException) {
+                throw (IOException) result[0];
+            } else if (result[0] instanceof Throwable) {
+                throw new IOException((Throwable) result[0]);
+            }
+
+            @SuppressWarnings("unchecked")
+            Response<T> response = (Response<T>) result[0];
+            return response;
+        }
+
+        private void start(Callback<T> callback, Executor deliverOn) {
+            synchronized (this) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed.");
+                }
+                executed = true;
+                this.callback = callback;
+                this.deliverOn = deliverOn;
+                startNanos = System.nanoTime();
+            }
+            startAttempt();
+        }
+
+        /**
+         * Starts a request and, unless the breaker is open, the timer for its hedge.
+         */
+        private void startAttempt() {
+            Call<T> attempt;
+
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                attempt = originalUsed ? call.clone() : call;
+                originalUsed = true;
+                running.add(attempt);
+                hedged = false;
+
+                if (hedging && !breaker.isOpen()) {
+                    timers.add(scheduler.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            hedge();
+                        }
+                    }, hedgeDelayMs(endpoint), TimeUnit.MILLISECONDS));
+                }
+            }
+
+            send(attempt);
+        }
+
+        /**
+         * Sends a second request if the first one is still the only one running.
+         */
+        private void hedge() {
+            Call<T> attempt;
+
+            synchronized (this) {
+                if (done || hedged || running.size() != 1 || breaker.isOpen()) {
+                    return;
+                }
+                hedged = true;
+                attempt = call.clone();
+                running.add(attempt);
+            }
+
+            Log.d(TAG, endpoint + " is slow, hedging");
+            send(attempt);
+        }
+
+        private void send(final Call<T> attempt) {
+            final long attemptStart = System.nanoTime();
+
+            attempt.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                    // Cache hits would drag the hedge delay down
+                    if (response.raw().networkResponse() != null) {
+                        histogramOf(attemptLatencies, endpoint).record(
+                                (System.nanoTime() - attemptStart) / 1000000);
+                    }
+                    onAttemptResponse(attempt, response);
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    onAttemptFailure(attempt, t);
+                }
+            });
+        }
+
+        private void onAttemptResponse(Call<T> attempt, Response<T> response) {
+            if (isTransient(response)) {
+                synchronized (this) {
+                    lastResponse = response;
+                }
+                onAttemptFailure(attempt, new IOException("HTTP " + response.code()));
+                return;
+            }
+
+            List<Call<T>> losers;
+
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                running.remove(attempt);
+                losers = new ArrayList<>(running);
+                running.clear();
+                cancelTimers();
+            }
+
+            for (Call<T> loser : losers) {
+                loser.cancel();
+            }
+            deliver(response, null);
+        }
+
+        /**
+         * Waits for the other attempt if there is one, otherwise retries or gives up.
+         */
+        private void onAttemptFailure(Call<T> attempt, Throwable t) {
+            Response<T> response;
+
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                running.remove(attempt);
+
+                if (!running.isEmpty()) {
+                    return;
+                }
+                cancelTimers();
+
+                if (!canceled && retries < MAX_RETRIES && !breaker.isOpen()) {
+                    long delayMs = backoffMs(retries++);
+                    Log.d(TAG, endpoint + " failed: " + t.getMessage() + ", retrying in "
+                            + delayMs + "ms");
+
+                    timers.add(scheduler.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            startAttempt();
+                        }
+                    }, delayMs, TimeUnit.MILLISECONDS));
+                    return;
+                }
+
+                done = true;
+                response = lastResponse;
+            }
+
+            // A retried error response is still a response, only connection errors are failures
+            if (response != null && !canceled) {
+                deliver(response, null);
+            } else {
+                deliver(null, t);
+            }
+        }
+
+        private void deliver(final Response<T> response, final Throwable t) {
+            histogramOf(callLatencies, endpoint).record((System.nanoTime() - startNanos) / 1000000);
+
+            deliverOn.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (response != null) {
+                        callback.onResponse(ResilientCall.this, response);
+                    } else {
+                        callback.onFailure(ResilientCall.this, t);
+                    }
+                }
+            });
+        }
+
+        // Called with the lock held
+        private void cancelTimers() {
+            for (ScheduledFuture<?> timer : timers) {
+                timer.cancel(false);
+            }
+            timers.clear();
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public void cancel() {
+            List<Call<T>> attempts;
+            boolean report = false;
+
+            synchronized (this) {
+                canceled = true;
+                cancelTimers();
+                attempts = new ArrayList<>(running);
+
+                // Nothing running to report the cancel, e.g. while waiting to retry
+                if (attempts.isEmpty() && executed && !done) {
+                    done = true;
+                    report = true;
+                }
+            }
+
+            for (Call<T> attempt : attempts) {
+                attempt.cancel();
+            }
+
+            if (report) {
+                deliver(null, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public synchronized boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @SuppressWarnings("CloneDoesntCallSuperClone")
+        @Override
+        public Call<T> clone() {
+            return new ResilientCall<>(endpoint, call.clone());
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return call.request();
+        }
+    }
+}
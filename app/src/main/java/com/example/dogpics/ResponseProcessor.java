@@ -0,0 +1,139 @@
+package com.example.dogpics;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns Api responses into what the screens show on a small background pool, e.g. parsing image
+ * URLs or building the breed search index, and only hands the finished result to the main thread.
+ * The time the main thread then spends on it is checked against a MainThreadBudget. The pool and
+ * its queue are bounded, so a burst of responses can't pile up threads.
+ */
+public class ResponseProcessor {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = ResponseProcessor.class.getName();
+
+    // A page of images and the breed list can be worked on at the same time
+    private static final int THREADS = 2;
+    private static final int QUEUE_SIZE = 16;
+
+    /**
+     * The work done in the background. The input must not be touched by anyone else meanwhile, and
+     * the output should not be changed after it's returned.
+     */
+    public interface Stage<I, O> {
+        O process(I input);
+    }
+
+    /**
+     * Receives the output on the result executor, or an error if the stage threw or the queue
+     * was full.
+     */
+    public interface Consumer<O> {
+        void onResult(O result);
+
+        void onError();
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Executor resultExecutor;
+    private final MainThreadBudget budget;
+
+    /**
+     * @param resultExecutor Executor the consumers get called on, usually the main thread
+     * @param budget         Budget for the time the consumers take
+     */
+    public ResponseProcessor(Executor resultExecutor, MainThreadBudget budget) {
+        this.resultExecutor = resultExecutor;
+        this.budget = budget;
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new BackgroundThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs the stage in the background and hands its output to the consumer.
+     *
+     * @param section  Name of the work, used in logs and budget reports
+     * @param input    The input of the stage
+     * @param stage    The work to do in the background
+     * @param consumer Receives the output
+     */
+    public <I, O> void process(final String section, final I input, final Stage<I, O> stage,
+                               final Consumer<O> consumer) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    O output;
+
+                    try {
+                        output = stage.process(input);
+                    } catch (RuntimeException e) {
+                        Log.d(TAG, section + " failed: " + e.getMessage());
+                        deliverError(section, consumer);
+                        return;
+                    }
+
+                    deliver(section, output, consumer);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, section + " rejected, queue full");
+            deliverError(section, consumer);
+        }
+    }
+
+    private <O> void deliver(final String section, final O output, final Consumer<O> consumer) {
+        resultExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = budget.start();
+                consumer.onResult(output);
+                budget.end(section, start);
+            }
+        });
+    }
+
+    private <O> void deliverError(final String section, final Consumer<O> consumer) {
+        resultExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = budget.start();
+                consumer.onError();
+                budget.end(section, start);
+            }
+        });
+    }
+
+    // Getter
+    public MainThreadBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Names the threads and runs them at background priority so they don't compete with drawing.
+     */
+    private static class BackgroundThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "response-processor-" + count.incrementAndGet());
+        }
+    }
+}
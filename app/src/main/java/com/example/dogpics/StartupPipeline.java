@@ -0,0 +1,98 @@
+package com.example.dogpics;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the work a cold start would otherwise wait for, like reading the breed list and connecting
+ * to the Api, on a background thread as soon as the process starts, one step after the other.
+ * Each step is timed into Metrics as "startup.{step}", and the time from the process start to the
+ * first screen being usable as "startup.cold_to_interactive", so regressions show up.
+ */
+public class StartupPipeline {
+    // Tag used for logging messages to Logcat
+    private static final String TAG = StartupPipeline.class.getName();
+
+    // Stands in for the process start before Android N, close enough as it's loaded first
+    private static final long CLASS_LOADED_MS = SystemClock.elapsedRealtime();
+
+    private final Metrics metrics;
+    private final long processStartMs;
+    private final AtomicBoolean interactive = new AtomicBoolean();
+
+    // One thread that goes away once the steps are done
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>());
+
+    public StartupPipeline(Metrics metrics) {
+        this.metrics = metrics;
+        this.processStartMs = processStartMs();
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return When the process started, in SystemClock.elapsedRealtime() time
+     */
+    private static long processStartMs() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return Process.getStartElapsedRealtime();
+        }
+        return CLASS_LOADED_MS;
+    }
+
+    /**
+     * Queues a step, it runs after the steps added before it.
+     *
+     * @param name Name the step is timed under, e.g. "catalog"
+     * @param step The work, run on the pipeline's thread
+     */
+    public void add(final String name, final Runnable step) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.elapsedRealtime();
+
+                try {
+                    step.run();
+                } catch (RuntimeException e) {
+                    Log.d(TAG, "Step " + name + " failed: " + e.getMessage());
+                }
+
+                long end = SystemClock.elapsedRealtime();
+                metrics.record("startup." + name, end - start);
+                Log.d(TAG, "Step " + name + " took " + (end - start) + "ms, done "
+                        + (end - processStartMs) + "ms after the process started");
+            }
+        });
+    }
+
+    /**
+     * Records the time to interactive the first time it's called in the process, i.e. the cold
+     * start, and tells the system the activity is fully drawn. Later calls do nothing.
+     *
+     * @param activity The activity that just became usable
+     * @return Whether this was the first call
+     */
+    public boolean onInteractive(Activity activity) {
+        if (!interactive.compareAndSet(false, true)) {
+            return false;
+        }
+
+        long ms = SystemClock.elapsedRealtime() - processStartMs;
+        metrics.record("startup.cold_to_interactive", ms);
+        Log.d(TAG, "Cold start to interactive: " + ms + "ms");
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            activity.reportFullyDrawn();
+        }
+        return true;
+    }
+}
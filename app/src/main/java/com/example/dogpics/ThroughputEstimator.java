@@ -0,0 +1,137 @@
+package com.example.dogpics;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * OkHttp network interceptor measuring how fast the recent image downloads came in. The estimate
+ * is the total bytes over the total time of the last few downloads, so a big picture counts for
+ * more than a small one, and it follows a change of network within a handful of pictures. Small
+ * responses are left out, their time is mostly the round trip rather than the bandwidth.
+ *
+ * <p>Picasso downloads a few pictures at once, each gets a share of the link, so the estimate is
+ * the speed one picture loads at rather than the speed of the whole link. That is what the image
+ * policy needs to know anyway.
+ */
+public class ThroughputEstimator implements Interceptor {
+    // Downloads the estimate is made of
+    private static final int WINDOW = 8;
+
+    // Smaller downloads are mostly latency
+    static final long MIN_SAMPLE_BYTES = 8 * 1024;
+
+    /**
+     * Told after each download that changed the estimate, on the thread that did the download.
+     */
+    public interface Listener {
+        void onEstimateChanged(long kbps);
+    }
+
+    // Ring buffers of the last downloads. Guarded by this
+    private final long[] sampleBytes = new long[WINDOW];
+    private final long[] sampleMs = new long[WINDOW];
+    private int samples;
+    private int next;
+
+    private volatile Listener listener;
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        final long start = System.nanoTime();
+        Response response = chain.proceed(chain.request());
+        final ResponseBody body = response.body();
+
+        if (body == null) {
+            return response;
+        }
+
+        // Times the body until it was read to the end, a cancelled download says nothing
+        BufferedSource timed = Okio.buffer(new ForwardingSource(body.source()) {
+            private long bytes;
+            private boolean done;
+
+            @Override
+            public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+                long read = super.read(sink, byteCount);
+
+                if (read == -1 && !done) {
+                    done = true;
+                    record(bytes, (System.nanoTime() - start) / 1000000);
+                } else if (read > 0) {
+                    bytes += read;
+                }
+                return read;
+            }
+        });
+
+        return response.newBuilder()
+                .body(ResponseBody.create(body.contentType(), body.contentLength(), timed))
+                .build();
+    }
+
+    /**
+     * Adds a finished download to the estimate.
+     *
+     * @param bytes     The size of the body
+     * @param elapsedMs From sending the request to the end of the body
+     */
+    public void record(long bytes, long elapsedMs) {
+        if (bytes < MIN_SAMPLE_BYTES) {
+            return;
+        }
+
+        long kbps;
+
+        synchronized (this) {
+            sampleBytes[next] = bytes;
+            sampleMs[next] = Math.max(1, elapsedMs);
+            next = (next + 1) % WINDOW;
+            samples = Math.min(WINDOW, samples + 1);
+            kbps = getKbps();
+        }
+
+        Listener current = listener;
+
+        if (current != null) {
+            current.onEstimateChanged(kbps);
+        }
+    }
+
+    /**
+     * @return The estimated download speed in kilobits per second, -1 before the first download
+     */
+    public synchronized long getKbps() {
+        if (samples == 0) {
+            return -1;
+        }
+
+        long bytes = 0;
+        long ms = 0;
+
+        for (int i = 0; i < samples; i++) {
+            bytes += sampleBytes[i];
+            ms += sampleMs[i];
+        }
+
+        // Bytes per millisecond times 8 is kilobits per second
+        return bytes * 8 / ms;
+    }
+
+    public synchronized int getSampleCount() {
+        return samples;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.dogpics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A list of image URLs stored as a BinarySnapshot and read as a List. Each URL is split after its
+ * last '/', so the prefix every picture of a breed shares, e.g.
+ * "https://images.dog.ceo/breeds/hound-afghan/", is stored once. List 0 holds the prefix of every
+ * URL, list 1 its file name. A URL is only decoded when get() is called, so drawing a page of 50
+ * from a breed's thousand pictures reads 50 of them. Read only.
+ */
+public final class UrlListSnapshot extends AbstractList<String> implements RandomAccess {
+    private static final int PREFIXES = 0;
+    private static final int FILE_NAMES = 1;
+
+    private final BinarySnapshot snapshot;
+    private final int size;
+
+    private UrlListSnapshot(BinarySnapshot snapshot) throws IOException {
+        if (snapshot.getListCount() != 2
+                || snapshot.getListSize(PREFIXES) != snapshot.getListSize(FILE_NAMES)) {
+            throw new IOException("Not a URL list snapshot");
+        }
+
+        this.snapshot = snapshot;
+        this.size = snapshot.getListSize(PREFIXES);
+    }
+
+    /**
+     * @throws IOException If the file can't be read or isn't a valid URL list snapshot
+     */
+    public static UrlListSnapshot open(File file) throws IOException {
+        return new UrlListSnapshot(BinarySnapshot.open(file));
+    }
+
+    /**
+     * @param properties Saved along with the URLs, e.g. when they were fetched
+     */
+    public static void write(File file, List<String> urls, Map<String, String> properties)
+            throws IOException {
+        toBuilder(urls, properties).writeTo(file);
+    }
+
+    // Lets tests read a snapshot without a file
+    static BinarySnapshot.Builder toBuilder(List<String> urls, Map<String, String> properties) {
+        BinarySnapshot.Builder builder = new BinarySnapshot.Builder();
+        int[] prefixes = new int[urls.size()];
+        int[] fileNames = new int[urls.size()];
+
+        for (int i = 0; i < prefixes.length; i++) {
+            String url = urls.get(i);
+            int split = url.lastIndexOf('/') + 1;
+            prefixes[i] = builder.addString(url.substring(0, split));
+            fileNames[i] = builder.addString(url.substring(split));
+        }
+
+        builder.addList(prefixes);
+        builder.addList(fileNames);
+
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            builder.putProperty(property.getKey(), property.getValue());
+        }
+        return builder;
+    }
+
+    // Lets tests read a snapshot without a file
+    static UrlListSnapshot of(BinarySnapshot snapshot) throws IOException {
+        return new UrlListSnapshot(snapshot);
+    }
+
+    /**
+     * @return The value saved for the key, or null
+     */
+    public String getProperty(String key) {
+        return snapshot.getProperty(key);
+    }
+
+    @Override
+    public String get(int index) {
+        return snapshot.getString(snapshot.getListEntry(PREFIXES, index))
+                + snapshot.getString(snapshot.getListEntry(FILE_NAMES, index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
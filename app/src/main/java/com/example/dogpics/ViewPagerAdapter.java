@@ -1,26 +1,72 @@
 package com.example.dogpics;
 
+import android.app.ActivityManager;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
-import android.widget.RelativeLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.viewpager.widget.PagerAdapter;
+import androidx.viewpager.widget.ViewPager;
 
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.NetworkPolicy;
 import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
 
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * Use a ViewPager to display the 50 random or specific breedList/sub-breedList pictures onto the screen.
+ * Use a ViewPager to display the random or specific breedList/sub-breedList pictures onto the screen.
+ * More pictures are appended with addImages() as the feed loads them.
+ * Pages removed by the ViewPager are kept in a small pool and reused for the next page instead of
+ * inflating viewpager_custom again, so swiping through all the pictures only inflates a handful
+ * of views.
+ * With an ImageScheduler set, every page's request is tagged and prioritized by it. In progressive
+ * mode a page first shows a small preview of its picture, then the full one.
  */
 public class ViewPagerAdapter extends PagerAdapter {
-    private Context context;
-    private List<String> imageUrls;
+    /**
+     * Told when a page's picture is on screen.
+     */
+    public interface ImageListener {
+        void onImageShown(int position);
+    }
+
+    // Removed pages kept for reuse. The ViewPager holds at most 1 + 2 * offscreen limit pages, so
+    // a couple spare covers a swipe in either direction
+    static final int MAX_POOLED_PAGES = 3;
+
+    private final LayoutInflater inflater;
+    private final DecodeReport decodeReport = new DecodeReport();
+    private ImageSizePolicy sizePolicy;
+    private OfflineImageStore offlineStore;
+    private ImagePipelineMetrics imageMetrics;
+    private ImageScheduler scheduler;
+    private ImageListener imageListener;
+    private final Deque<View> pagePool = new ArrayDeque<>();
+    // Pages created whose picture is on them, and pages whose picture was decoded at some point
+    private final Set<Integer> shownPositions = new HashSet<>();
+    private final Set<Integer> decodedPositions = new HashSet<>();
+    private boolean progressive;
+    private boolean recyclingEnabled = true;
+    private int inflatedPages;
+
+    private final ImageRefList imageUrls;
     private List<String> breedList;
     private String breed;
 
@@ -32,9 +78,10 @@ public class ViewPagerAdapter extends PagerAdapter {
      * @param breedList The list of all the breeds
      */
     public ViewPagerAdapter(Context context, List<String> imageUrls, List<String> breedList) {
-        this.context = context;
-        this.imageUrls = imageUrls;
-        this.breedList = breedList;
+        this.inflater = LayoutInflater.from(context);
+        this.imageUrls = new ImageRefList(imageUrls);
+        this.breedList = new ArrayList<>(breedList);
+        this.sizePolicy = defaultSizePolicy(context);
     }
 
     /**
@@ -45,9 +92,10 @@ public class ViewPagerAdapter extends PagerAdapter {
      * @param breed     The breed and sub-breed, if applicable
      */
     public ViewPagerAdapter(Context context, List<String> imageUrls, String breed) {
-        this.context = context;
-        this.imageUrls = imageUrls;
+        this.inflater = LayoutInflater.from(context);
+        this.imageUrls = new ImageRefList(imageUrls);
         this.breed = breed;
+        this.sizePolicy = defaultSizePolicy(context);
     }
 
     /**
@@ -58,6 +106,30 @@ public class ViewPagerAdapter extends PagerAdapter {
         return imageUrls.size();
     }
 
+    /**
+     * Appends the pictures of a newly loaded page. Pages already created keep their position, so
+     * the ViewPager only picks up the new count instead of rebuilding what is on screen.
+     *
+     * @param urls       The new URLs
+     * @param breedNames The names to show under them, or null when every page shows the same breed
+     */
+    public void addImages(List<String> urls, List<String> breedNames) {
+        imageUrls.addAll(urls);
+
+        if (breedList != null && breedNames != null) {
+            breedList.addAll(breedNames);
+        }
+
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @return The URLs of every page, growing as pages are added
+     */
+    public List<String> getImageUrls() {
+        return Collections.unmodifiableList(imageUrls);
+    }
+
     /**
      * Helps ViewPager identify which item belongs to which page.
      *
@@ -71,63 +143,418 @@ public class ViewPagerAdapter extends PagerAdapter {
     }
 
     /**
-     * Create ImageView dynamically and use the Picasso library to load each image from the List of
-     * Urls into the ImageView and add that to the ViewPager.
+     * The ViewPager has moved to its new current page by the time it starts an update, before it
+     * creates the pages around it, so the scheduler learns about the page here.
+     */
+    @Override
+    public void startUpdate(@NonNull ViewGroup container) {
+        if (scheduler != null && container instanceof ViewPager) {
+            scheduler.setCurrentPage(((ViewPager) container).getCurrentItem());
+        }
+    }
+
+    /**
+     * Take a page from the pool (or inflate one if the pool is empty) and use the Picasso library
+     * to load the image from the List of Urls into its ImageView, then add it to the ViewPager.
      *
      * @param container The ViewPager
      * @param position  The URL string in the list
-     * @return The ImageView with the picture retrieved from the URL.
+     * @return The page with the picture retrieved from the URL.
      */
     @NonNull
     @Override
-    public Object instantiateItem(@NonNull final ViewGroup container, int position) {
-        final ImageView imageView;
-        TextView textView;
-
-        final LayoutInflater inflater = (LayoutInflater) context.
-                getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+    public Object instantiateItem(@NonNull final ViewGroup container, final int position) {
+        View page = pagePool.poll();
 
-        assert inflater != null;
+        if (page == null) {
+            page = inflater.inflate(R.layout.viewpager_custom, container, false);
+            page.setTag(new PageHolder(page));
+            inflatedPages++;
+        }
 
-        final View customerViewPager = inflater.
-                inflate(R.layout.viewpager_custom, container, false);
+        final PageHolder holder = (PageHolder) page.getTag();
 
+        // Capture positions and set to the views
         if (breedList != null && !breedList.isEmpty()) {
-            textView = customerViewPager.findViewById(R.id.vp_breed_tv);
-            // Capture positions and set to the views
-            textView.setText(breedList.get(position));
+            holder.breedText.setText(breedList.get(position));
         } else if (breed != null) {
-            textView = customerViewPager.findViewById(R.id.vp_breed_tv);
-            // Capture positions and set to the views
-            textView.setText(breed);
+            holder.breedText.setText(breed);
         }
 
-        // Locate the Views in viewpager_custom layout
-        imageView = customerViewPager.findViewById(R.id.vp_image);
-        Picasso
-                .get()
-                .load(imageUrls.get(position))
-                .resize(0, 500)
-                .error(R.drawable.ic_error_black_24dp)
-                .into(imageView);
+        final String url = imageUrls.get(position);
+        final long createdAt = SystemClock.uptimeMillis();
+        holder.tag = scheduler != null ? scheduler.start(position, url, false) : null;
+
+        // Pictures decoded before are likely still in the memory cache, a preview would only
+        // hold them back
+        ProgressiveLoad load = new ProgressiveLoad(progressive
+                && !decodedPositions.contains(position) && hasPreviewSize(url));
+
+        if (load.getStep() == ProgressiveLoad.Step.PREVIEW) {
+            loadPreview(holder, position, url, createdAt, load);
+        } else {
+            loadFull(holder, position, url, createdAt, load);
+        }
 
         // Add viewpager_custom to ViewPager
-        container.addView(customerViewPager);
+        container.addView(page);
+
+        return page;
+    }
+
+    /**
+     * First stage of a progressive page: decodes the picture at a fraction of the page's size,
+     * which BitmapFactory does with a large sample size, then loads the full picture over it.
+     */
+    private void loadPreview(final PageHolder holder, final int position, final String url,
+                             final long createdAt, final ProgressiveLoad load) {
+        createPreviewRequest(url, holder.tag, position)
+                .into(holder.image, new Callback() {
+                    @Override
+                    public void onSuccess() {
+                        if (load.onLoaded() && imageMetrics != null) {
+                            imageMetrics.onFirstPixel(SystemClock.uptimeMillis() - createdAt);
+                        }
+                        loadFull(holder, position, url, createdAt, load);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        load.onFailed();
+                        loadFull(holder, position, url, createdAt, load);
+                    }
+                });
+    }
+
+    /**
+     * Loads the picture at the page's size. Over a preview, the preview stays up as the
+     * placeholder and the picture replaces it without fading. The bytes the preview downloaded
+     * are read back from the HTTP cache first, should they not be there the picture is downloaded
+     * after all. Only a failed download puts the error picture up.
+     */
+    private void loadFull(final PageHolder holder, final int position, final String url,
+                          final long createdAt, final ProgressiveLoad load) {
+        final Object tag = holder.tag;
+        RequestCreator request = createRequest(url);
+
+        if (tag != null) {
+            request.tag(tag).priority(priorityOf(scheduler.priorityOf(position)));
+        }
+
+        Drawable preview = load.isPreviewShown() ? holder.image.getDrawable() : null;
+
+        if (preview != null) {
+            request.placeholder(preview).noFade();
+        }
+
+        if (load.getStep() == ProgressiveLoad.Step.FULL_FROM_CACHE) {
+            request.networkPolicy(NetworkPolicy.OFFLINE);
+        }
+
+        if (load.showsError()) {
+            request.error(R.drawable.ic_error_black_24dp);
+        }
+
+        // Picasso calls back from inside into() when the bitmap is in its memory cache
+        final boolean[] inInto = {true};
+        request.into(holder.image, new Callback() {
+            @Override
+            public void onSuccess() {
+                finish(tag);
+                shownPositions.add(position);
+                decodedPositions.add(position);
+                recordDecodedSize(url, holder.image);
+
+                if (inInto[0] && imageMetrics != null) {
+                    imageMetrics.onMemoryHit();
+                }
+
+                if (load.onLoaded() && imageMetrics != null) {
+                    imageMetrics.onFirstPixel(SystemClock.uptimeMillis() - createdAt);
+                }
+
+                if (imageListener != null) {
+                    imageListener.onImageShown(position);
+                }
+
+                // Shown, so it's in the HTTP cache to be copied from
+                if (offlineStore != null) {
+                    offlineStore.onImageViewed(url);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                load.onFailed();
+
+                if (load.getStep() == ProgressiveLoad.Step.FULL) {
+                    // Not in the HTTP cache, e.g. the server said not to store it
+                    loadFull(holder, position, url, createdAt, load);
+                } else {
+                    finish(tag);
+                }
+            }
+        });
+        inInto[0] = false;
+    }
+
+    /**
+     * Creates the Picasso request for an image with the size options every page uses. Prefetches
+     * go through here too so they hit the same memory cache entry as the page. Pictures kept in
+     * the OfflineImageStore are read from their file, no HTTP request at all.
+     *
+     * @param url The image URL
+     * @return The request, ready for a target
+     */
+    RequestCreator createRequest(String url) {
+        boolean opaque = ImageSizePolicy.isOpaque(url);
+        File stored = offlineStore != null ? offlineStore.getImageFile(url) : null;
+        RequestCreator request = stored != null
+                ? Picasso.get().load(stored)
+                : Picasso.get().load(url);
+        request.resize(sizePolicy.getTargetWidth(opaque), sizePolicy.getTargetHeight(opaque))
+                .onlyScaleDown();
+
+        if (sizePolicy.hasAvailableArea()) {
+            request.centerInside();
+        }
+
+        if (opaque) {
+            request.config(Bitmap.Config.RGB_565);
+        }
+
+        if (imageMetrics != null) {
+            request.transform(imageMetrics.getDecodeTimer());
+        }
+
+        return request;
+    }
+
+    /**
+     * @return Whether the page is measured and big enough for a preview of the picture
+     */
+    private boolean hasPreviewSize(String url) {
+        boolean opaque = ImageSizePolicy.isOpaque(url);
+
+        return sizePolicy.hasAvailableArea()
+                && ProgressiveLoad.previewSize(sizePolicy.getTargetWidth(opaque)) > 0
+                && ProgressiveLoad.previewSize(sizePolicy.getTargetHeight(opaque)) > 0;
+    }
+
+    /**
+     * Creates the request for a page's preview: the same source as createRequest(), decoded at
+     * 1/PREVIEW_SCALE of the size. Only for pages that pass hasPreviewSize().
+     */
+    private RequestCreator createPreviewRequest(String url, Object tag, int position) {
+        boolean opaque = ImageSizePolicy.isOpaque(url);
+        File stored = offlineStore != null ? offlineStore.getImageFile(url) : null;
+        RequestCreator request = stored != null
+                ? Picasso.get().load(stored)
+                : Picasso.get().load(url);
+        request.resize(ProgressiveLoad.previewSize(sizePolicy.getTargetWidth(opaque)),
+                ProgressiveLoad.previewSize(sizePolicy.getTargetHeight(opaque)))
+                .onlyScaleDown()
+                .centerInside();
+
+        if (opaque) {
+            request.config(Bitmap.Config.RGB_565);
+        }
+
+        if (imageMetrics != null) {
+            request.transform(imageMetrics.getPreviewDecodeTimer());
+        }
+
+        if (tag != null) {
+            request.tag(tag).priority(priorityOf(scheduler.priorityOf(position)));
+        }
+
+        return request;
+    }
+
+    /**
+     * Sets where the memory cache hits and decode times of the pictures get recorded.
+     */
+    public void setImageMetrics(ImagePipelineMetrics imageMetrics) {
+        this.imageMetrics = imageMetrics;
+    }
+
+    /**
+     * @return Whether the page at the position exists and its picture is on it
+     */
+    public boolean isImageShown(int position) {
+        return shownPositions.contains(position);
+    }
+
+    /**
+     * Shows a small preview on each page until its full picture is decoded.
+     */
+    public void setProgressive(boolean progressive) {
+        this.progressive = progressive;
+    }
+
+    /**
+     * Called when a prefetch decoded a page's picture, which then needs no preview.
+     */
+    void onPrefetched(int position) {
+        decodedPositions.add(position);
+    }
+
+    /**
+     * Sets the scheduler tagging and prioritizing the page requests. Call before the ViewPager
+     * creates any page.
+     */
+    public void setScheduler(ImageScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
 
-//        container.addView(imageView);
+    public void setImageListener(ImageListener imageListener) {
+        this.imageListener = imageListener;
+    }
+
+    /**
+     * Sets the store that keeps the shown pictures for offline browsing and serves them back.
+     */
+    public void setOfflineStore(OfflineImageStore offlineStore) {
+        this.offlineStore = offlineStore;
+    }
 
-        return customerViewPager;
+    /**
+     * Replaces the policy deciding the decode size. Call before the ViewPager creates any page.
+     */
+    public void setSizePolicy(ImageSizePolicy sizePolicy) {
+        this.sizePolicy = sizePolicy;
     }
 
     /**
-     * Remove image from the current view.
+     * Lays out a page at the given size to find the area vp_image can take up between the logo
+     * and the breed name, and hands that to the size policy. The page goes into the pool after.
+     *
+     * @param container The ViewPager
+     * @param width     Width of the ViewPager, or the screen if it isn't laid out yet
+     * @param height    Height of the ViewPager, or the screen if it isn't laid out yet
+     */
+    public void measureImageArea(ViewGroup container, int width, int height) {
+        View page = inflater.inflate(R.layout.viewpager_custom, container, false);
+        page.setTag(new PageHolder(page));
+        inflatedPages++;
+
+        PageHolder holder = (PageHolder) page.getTag();
+        holder.breedText.setText(breed != null ? breed : "A");
+        page.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        page.layout(0, 0, width, height);
+
+        ViewGroup.MarginLayoutParams textParams =
+                (ViewGroup.MarginLayoutParams) holder.breedText.getLayoutParams();
+        int textSpace = textParams.topMargin + holder.breedText.getMeasuredHeight();
+
+        sizePolicy.setAvailableArea(width - page.getPaddingLeft() - page.getPaddingRight(),
+                Math.max(0, height - page.getPaddingBottom() - holder.image.getTop() - textSpace));
+
+        if (recyclingEnabled) {
+            pagePool.push(page);
+        }
+    }
+
+    /**
+     * @return The decoded size of every picture shown so far, each counted once
+     */
+    public DecodeReport getDecodeReport() {
+        return decodeReport;
+    }
+
+    /**
+     * Remove the page from the ViewPager, cancel its image request if it is still loading so it
+     * can't land in the page once it's reused, and put the page back in the pool.
      *
      * @param container The ViewPager
      * @param position  The URL string in the list
-     * @param object    The ImageView
+     * @param object    The page
      */
     @Override
     public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object) {
-        container.removeView((RelativeLayout) object);
+        View page = (View) object;
+        PageHolder holder = (PageHolder) page.getTag();
+
+        Picasso.get().cancelRequest(holder.image);
+        finish(holder.tag);
+        holder.tag = null;
+        shownPositions.remove(position);
+        holder.image.setImageDrawable(null);
+        container.removeView(page);
+
+        if (recyclingEnabled && pagePool.size() < MAX_POOLED_PAGES) {
+            pagePool.push(page);
+        }
+    }
+
+    /**
+     * @return How many pages were inflated so far
+     */
+    int getInflatedPages() {
+        return inflatedPages;
+    }
+
+    /**
+     * Turns the page pool off, only used to compare against the old behaviour.
+     */
+    void setRecyclingEnabled(boolean recyclingEnabled) {
+        this.recyclingEnabled = recyclingEnabled;
+        pagePool.clear();
+    }
+
+    private void finish(Object tag) {
+        if (scheduler != null && tag != null) {
+            scheduler.finish(tag);
+        }
+    }
+
+    private static Picasso.Priority priorityOf(int schedulerPriority) {
+        switch (schedulerPriority) {
+            case ImageScheduler.PRIORITY_HIGH:
+                return Picasso.Priority.HIGH;
+            case ImageScheduler.PRIORITY_NORMAL:
+                return Picasso.Priority.NORMAL;
+            default:
+                return Picasso.Priority.LOW;
+        }
+    }
+
+    private void recordDecodedSize(String url, ImageView image) {
+        Drawable drawable = image.getDrawable();
+
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            decodeReport.record(url, bitmap.getWidth(), bitmap.getHeight(),
+                    bitmap.getByteCount());
+        }
+    }
+
+    /**
+     * Until the activity sets its own policy, decode for the screen with only the current page
+     * counted against the memory budget.
+     */
+    private static ImageSizePolicy defaultSizePolicy(Context context) {
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClass = activityManager != null ? activityManager.getMemoryClass() : 16;
+
+        return new ImageSizePolicy(context.getResources().getDisplayMetrics().density,
+                ImageSizePolicy.memoryBudgetFor(memoryClass), 1);
+    }
+
+    /**
+     * Keeps the views of a page so findViewById() runs once per inflated page.
+     */
+    private static class PageHolder {
+        final ImageView image;
+        final TextView breedText;
+        // The scheduler's tag of the request loading into the page
+        Object tag;
+
+        PageHolder(View page) {
+            image = page.findViewById(R.id.vp_image);
+            breedText = page.findViewById(R.id.vp_breed_tv);
+        }
     }
 }
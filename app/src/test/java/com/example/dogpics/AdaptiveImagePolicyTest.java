@@ -0,0 +1,137 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plays simulated bandwidth traces through ThroughputEstimator into AdaptiveImagePolicy, one
+ * 100KB picture per entry, and checks which settings come out.
+ */
+public class AdaptiveImagePolicyTest {
+    private static final long PICTURE_BYTES = 100 * 1024;
+    private static final NetworkQuality WIFI =
+            new NetworkQuality(true, false, NetworkQuality.UNKNOWN, NetworkQuality.UNKNOWN);
+
+    private final ThroughputEstimator estimator = new ThroughputEstimator();
+    private final AdaptiveImagePolicy policy = new AdaptiveImagePolicy();
+
+    @Test
+    public void congestedLink_dropsToPoorWithinAWindow() {
+        List<AdaptiveImagePolicy.Tier> tiers = play(WIFI, repeat(6000, 20));
+        assertEquals(AdaptiveImagePolicy.Tier.GOOD, last(tiers));
+        assertEquals(3, policy.getPrefetchAhead());
+
+        tiers = play(WIFI, repeat(200, 20));
+
+        assertEquals(AdaptiveImagePolicy.Tier.POOR, tiers.get(8));
+        assertEquals(AdaptiveImagePolicy.Tier.POOR, last(tiers));
+        assertEquals(0.5f, policy.getDecodeScale(), 0f);
+        assertEquals(1, policy.getPrefetchAhead());
+        assertEquals(0, policy.getPrefetchBehind());
+        assertTrue(policy.getMinPageSize() > ImageFeed.MIN_PAGE_SIZE);
+    }
+
+    @Test
+    public void speedAroundAThreshold_doesNotFlap() {
+        play(WIFI, repeat(800, 10));
+        assertEquals(AdaptiveImagePolicy.Tier.MODERATE, policy.getTier());
+
+        // Swings around the 1500kbps threshold of GOOD, never clearing it by the margin
+        long[] hovering = new long[40];
+
+        for (int i = 0; i < hovering.length; i++) {
+            hovering[i] = i % 2 == 0 ? 1300 : 1800;
+        }
+
+        assertEquals(0, changes(WIFI, hovering));
+        assertEquals(AdaptiveImagePolicy.Tier.MODERATE, policy.getTier());
+
+        // A real improvement still moves up
+        play(WIFI, repeat(4000, 10));
+        assertEquals(AdaptiveImagePolicy.Tier.GOOD, policy.getTier());
+    }
+
+    @Test
+    public void meteredNetwork_prefetchesLikeTheSlowerTier() {
+        NetworkQuality mobile =
+                new NetworkQuality(true, true, NetworkQuality.UNKNOWN, NetworkQuality.UNKNOWN);
+
+        // Nothing measured yet
+        assertTrue(policy.update(mobile));
+        assertEquals(AdaptiveImagePolicy.Tier.MODERATE, policy.getTier());
+        assertEquals(1, policy.getPrefetchAhead());
+
+        play(mobile, repeat(6000, 10));
+        assertEquals(AdaptiveImagePolicy.Tier.GOOD, policy.getTier());
+        assertEquals(1f, policy.getDecodeScale(), 0f);
+        assertEquals(2, policy.getPrefetchAhead());
+        assertEquals(0, policy.getPrefetchBehind());
+    }
+
+    @Test
+    public void offline_prefetchesNothing_andReconnectsAtTheMeasuredTier() {
+        play(WIFI, repeat(6000, 10));
+
+        assertTrue(policy.update(NetworkQuality.OFFLINE));
+        assertEquals(0, policy.getPrefetchAhead());
+        assertEquals(0, policy.getPrefetchBehind());
+
+        assertTrue(policy.update(WIFI.withMeasuredKbps(1600)));
+        assertEquals(AdaptiveImagePolicy.Tier.GOOD, policy.getTier());
+    }
+
+    @Test
+    public void claimedBandwidth_isUsedUntilSomethingIsMeasured() {
+        policy.update(new NetworkQuality(true, false, 300, NetworkQuality.UNKNOWN));
+        assertEquals(AdaptiveImagePolicy.Tier.POOR, policy.getTier());
+
+        policy.update(new NetworkQuality(true, false, 300, 900));
+        assertEquals(AdaptiveImagePolicy.Tier.MODERATE, policy.getTier());
+    }
+
+    /**
+     * Downloads one picture per entry at that speed in kbps.
+     *
+     * @return The tier after each picture
+     */
+    private List<AdaptiveImagePolicy.Tier> play(NetworkQuality network, long[] trace) {
+        List<AdaptiveImagePolicy.Tier> tiers = new ArrayList<>();
+
+        for (long kbps : trace) {
+            estimator.record(PICTURE_BYTES, PICTURE_BYTES * 8 / kbps);
+            policy.update(network.withMeasuredKbps(estimator.getKbps()));
+            tiers.add(policy.getTier());
+        }
+        return tiers;
+    }
+
+    private int changes(NetworkQuality network, long[] trace) {
+        int changes = 0;
+
+        for (long kbps : trace) {
+            estimator.record(PICTURE_BYTES, PICTURE_BYTES * 8 / kbps);
+
+            if (policy.update(network.withMeasuredKbps(estimator.getKbps()))) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    private static long[] repeat(long kbps, int count) {
+        long[] trace = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            trace[i] = kbps;
+        }
+        return trace;
+    }
+
+    private static AdaptiveImagePolicy.Tier last(List<AdaptiveImagePolicy.Tier> tiers) {
+        return tiers.get(tiers.size() - 1);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.dogpics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that requests through one shared ApiClient reuse its connection, while building a new
+ * ApiClient for every request, which is what each activity used to do in onCreate, opens a new
+ * connection and TLS handshake every time. Runs over TLS against a local MockWebServer.
+ * ApiClientBenchmark in the benchmarks module measures what that costs.
+ */
+public class ApiClientConnectionReuseTest {
+    private static final String RANDOM_BODY =
+            "{\"message\":[\"https://images.dog.ceo/breeds/pug/a.jpg\"],\"status\":\"success\"}";
+    private static final int WARM_UP = 5;
+    private static final int REQUESTS = 40;
+
+    private MockWebServer server;
+    private OkHttpClient trustingClient;
+
+    @Before
+    public void setUp() throws Exception {
+        HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName("localhost")
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build();
+        HandshakeCertificates clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+
+        server = new MockWebServer();
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(RANDOM_BODY);
+            }
+        });
+        server.start();
+
+        trustingClient = new OkHttpClient.Builder()
+                .sslSocketFactory(clientCertificates.sslSocketFactory(),
+                        clientCertificates.trustManager())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void sharedClient_reusesConnection() throws Exception {
+        ApiClient shared = newApiClient();
+
+        for (int i = 0; i < WARM_UP; i++) {
+            shared.getApiCalls().getRandomPage(1).execute();
+            newApiClient().getApiCalls().getRandomPage(1).execute();
+        }
+
+        int firstSequence = WARM_UP * 2;
+
+        for (int i = 0; i < REQUESTS; i++) {
+            assertTrue(shared.getApiCalls().getRandomPage(1).execute().isSuccessful());
+            assertTrue(newApiClient().getApiCalls().getRandomPage(1).execute().isSuccessful());
+        }
+
+        // The shared client's requests keep arriving on its one connection, the fresh clients'
+        // requests each arrive as the first request of a brand new connection
+        int sharedReused = 0;
+        int freshReused = 0;
+
+        for (int i = 0; i < firstSequence + REQUESTS * 2; i++) {
+            RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+
+            if (i < firstSequence) {
+                continue;
+            }
+
+            if ((i - firstSequence) % 2 == 0) {
+                sharedReused += request.getSequenceNumber() > 0 ? 1 : 0;
+            } else {
+                freshReused += request.getSequenceNumber() > 0 ? 1 : 0;
+            }
+        }
+
+        assertEquals(REQUESTS, sharedReused);
+        assertEquals(0, freshReused);
+    }
+
+    private ApiClient newApiClient() {
+        return new ApiClient.Builder(server.url("/api/").toString())
+                .baseClient(trustingClient)
+                .build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.dogpics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ApiJsonAdaptersTest {
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapterFactory(new ApiJsonAdapters())
+            .create();
+
+    @Test
+    public void urlList_decodesIntoFrozenImageRefList() {
+        String json = "{\"status\":\"success\",\"message\":["
+                + "\"https://images.dog.ceo/breeds/hound-afghan/n02088094_1003.jpg\","
+                + "\"https://example.com/elsewhere.jpg\"]}";
+
+        List<String> urls = gson.fromJson(json, RandomSubBreed.class).getSubBreed();
+
+        assertTrue(urls instanceof ImageRefList);
+        assertTrue(((ImageRefList) urls).isFrozen());
+        assertEquals(2, urls.size());
+        assertEquals("https://images.dog.ceo/breeds/hound-afghan/n02088094_1003.jpg",
+                urls.get(0));
+        assertEquals("https://example.com/elsewhere.jpg", urls.get(1));
+    }
+
+    @Test
+    public void urlList_withoutAList_isNull() {
+        String json = "{\"status\":\"error\",\"message\":\"Breed not found\",\"code\":404}";
+
+        assertNull(gson.fromJson(json, RandomBreed.class).getBreedList());
+        assertNull(gson.fromJson("null", RandomImage.class));
+    }
+
+    @Test
+    public void catalog_decodesIntoReadOnlyMap() {
+        String json = "{\"message\":{\"hound\":[\"afghan\",\"basset\"],\"pug\":[]},"
+                + "\"extra\":{\"nested\":[1,2]},\"status\":\"success\"}";
+
+        Map<String, List<String>> catalog = gson.fromJson(json, BreedInfo.class).getBreedInfo();
+
+        assertEquals(2, catalog.size());
+        assertEquals(Arrays.asList("afghan", "basset"), catalog.get("hound"));
+        assertSame(Collections.emptyList(), catalog.get("pug"));
+
+        try {
+            catalog.put("akita", Collections.<String>emptyList());
+            fail("The catalog should be read only");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void writtenResponses_readBackTheSame() {
+        String catalogJson = "{\"message\":{\"hound\":[\"afghan\"],\"pug\":[]}}";
+        BreedInfo info = gson.fromJson(catalogJson, BreedInfo.class);
+        assertEquals(info.getBreedInfo(),
+                gson.fromJson(gson.toJson(info), BreedInfo.class).getBreedInfo());
+
+        String urlsJson = "{\"message\":[\"https://images.dog.ceo/breeds/pug/a.jpg\"]}";
+        RandomImage page = gson.fromJson(urlsJson, RandomImage.class);
+        assertEquals(urlsJson, gson.toJson(page));
+    }
+}
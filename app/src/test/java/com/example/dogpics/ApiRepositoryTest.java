@@ -0,0 +1,183 @@
+package com.example.dogpics;
+
+import androidx.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Makes many identical calls through an ApiRepository against a local MockWebServer and counts the
+ * requests that actually reach it.
+ */
+public class ApiRepositoryTest {
+    private static final String CATALOG =
+            "{\"message\":{\"hound\":[\"afghan\",\"basset\"],\"pug\":[]},\"status\":\"success\"}";
+    private static final String RANDOM_PAGE =
+            "{\"message\":[\"https://images.dog.ceo/breeds/pug/1.jpg\"],\"status\":\"success\"}";
+
+    private static final int CALLERS = 10;
+
+    // Runs the callbacks on whichever thread delivers
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private MockWebServer server;
+    private ApiRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        ApiCalls apiCalls = new Retrofit.Builder()
+                .baseUrl(server.url("/api/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiCalls.class);
+        repository = new ApiRepository(apiCalls, DIRECT, 60 * 1000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void concurrentCalls_reachServerOnce() throws Exception {
+        // The delay keeps the first request in flight while the other callers join it
+        server.enqueue(new MockResponse().setBody(CATALOG).setBodyDelay(300, TimeUnit.MILLISECONDS));
+        BlockingQueue<Response<BreedInfo>> responses = new LinkedBlockingQueue<>();
+
+        for (int i = 0; i < CALLERS; i++) {
+            repository.getAllBreed().enqueue(new Recorder<>(responses));
+        }
+
+        for (int i = 0; i < CALLERS; i++) {
+            Response<BreedInfo> response = responses.poll(5, TimeUnit.SECONDS);
+            assertNotNull(response);
+            assertEquals(2, response.body().getBreedInfo().get("hound").size());
+        }
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, repository.inFlightCount());
+
+        // Kept for a while after it arrived
+        assertTrue(repository.getAllBreed().execute().isSuccessful());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void concurrentSynchronousCalls_reachServerOnce() throws Exception {
+        server.enqueue(new MockResponse().setBody(CATALOG).setBodyDelay(300, TimeUnit.MILLISECONDS));
+        final BlockingQueue<Response<BreedInfo>> responses = new LinkedBlockingQueue<>();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for (int i = 0; i < CALLERS; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        responses.add(repository.getAllBreed().execute());
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+
+        for (int i = 0; i < CALLERS; i++) {
+            assertNotNull(responses.poll(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void randomPages_mergedOnlyWhileInFlight() throws Exception {
+        server.enqueue(new MockResponse().setBody(RANDOM_PAGE)
+                .setBodyDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody(RANDOM_PAGE));
+        BlockingQueue<Response<RandomImage>> responses = new LinkedBlockingQueue<>();
+
+        for (int i = 0; i < CALLERS; i++) {
+            repository.getRandomPage(50).enqueue(new Recorder<>(responses));
+        }
+
+        for (int i = 0; i < CALLERS; i++) {
+            assertNotNull(responses.poll(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, server.getRequestCount());
+
+        // The next page is a new request, random pages are never kept
+        List<String> next = repository.getRandomPage(50).execute().body().getRandomList();
+        assertEquals(1, next.size());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void canceledCaller_isSkippedAndLastCancelStopsRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody(CATALOG).setBodyDelay(300, TimeUnit.MILLISECONDS));
+        BlockingQueue<Response<BreedInfo>> canceledResponses = new LinkedBlockingQueue<>();
+        BlockingQueue<Response<BreedInfo>> responses = new LinkedBlockingQueue<>();
+
+        Call<BreedInfo> canceled = repository.getAllBreed();
+        canceled.enqueue(new Recorder<>(canceledResponses));
+        repository.getAllBreed().enqueue(new Recorder<>(responses));
+        canceled.cancel();
+
+        assertNotNull(responses.poll(5, TimeUnit.SECONDS));
+        assertTrue(canceledResponses.isEmpty());
+
+        // Nobody left waiting for the second flight, so its request is canceled
+        Call<BreedInfo> revalidation = repository.getAllBreedIfChanged("\"v1\"", null);
+        revalidation.enqueue(new Recorder<>(canceledResponses));
+        revalidation.cancel();
+
+        assertEquals(0, repository.inFlightCount());
+        assertTrue(canceledResponses.isEmpty());
+    }
+
+    /**
+     * Adds every response to a queue, failures fail the test.
+     */
+    private static class Recorder<T> implements Callback<T> {
+        private final BlockingQueue<Response<T>> responses;
+
+        Recorder(BlockingQueue<Response<T>> responses) {
+            this.responses = responses;
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            responses.add(response);
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            if (!call.isCanceled()) {
+                throw new AssertionError(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.dogpics;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BinarySnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void catalog_readsBackTheSame() throws IOException {
+        Map<String, List<String>> catalog = new HashMap<>();
+        catalog.put("hound", Arrays.asList("afghan", "basset", "blood"));
+        catalog.put("pug", Collections.<String>emptyList());
+        catalog.put("bulldog", Arrays.asList("boston", "french"));
+        catalog.put("schnauzer", Arrays.asList("giant", "miniature"));
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put("etag", "\"v1\"");
+        properties.put("checked_at", "1234");
+
+        File file = folder.newFile("catalog.snap");
+        CatalogSnapshot.write(file, catalog, properties);
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+
+        assertEquals(catalog, snapshot);
+        assertEquals(Arrays.asList("afghan", "basset", "blood"), snapshot.get("hound"));
+        assertTrue(snapshot.get("pug").isEmpty());
+        assertNull(snapshot.get("akita"));
+        assertFalse(snapshot.containsKey("aaa"));
+        assertTrue(snapshot.containsKey("schnauzer"));
+        assertEquals("\"v1\"", snapshot.getProperty("etag"));
+        assertEquals("1234", snapshot.getProperty("checked_at"));
+        assertNull(snapshot.getProperty("last_modified"));
+    }
+
+    @Test
+    public void urlList_sharesPrefixesAndReadsBackTheSame() throws IOException {
+        List<String> urls = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            urls.add("https://images.dog.ceo/breeds/hound-afghan/n02088094_" + i + ".jpg");
+        }
+        urls.add("https://example.com/\u00e9lan.jpg");
+        urls.add("no-slash");
+
+        BinarySnapshot.Builder builder = UrlListSnapshot.toBuilder(urls,
+                Collections.singletonMap("fetched_at", "42"));
+        BinarySnapshot binary = BinarySnapshot.wrap(ByteBuffer.wrap(builder.toByteArray()));
+        UrlListSnapshot snapshot = UrlListSnapshot.of(binary);
+
+        assertEquals(urls, snapshot);
+        assertEquals("42", snapshot.getProperty("fetched_at"));
+
+        // 3 prefixes, 202 file names and the property
+        assertEquals(3 + 202 + 2, binary.getStringCount());
+    }
+
+    @Test
+    public void varint_roundTrips() throws IOException {
+        int[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        for (int value : values) {
+            BinarySnapshot.writeVarint(out, value);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        int[] position = {0};
+
+        for (int value : values) {
+            assertEquals(value, BinarySnapshot.readVarint(buffer, position));
+        }
+        assertEquals(buffer.capacity(), position[0]);
+    }
+
+    @Test
+    public void damagedFile_failsToOpen() throws IOException {
+        File file = writeCatalog("catalog.snap");
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(raf.length() - 3);
+        int b = raf.read();
+        raf.seek(raf.length() - 3);
+        raf.write(b ^ 0x01);
+        raf.close();
+
+        assertOpenFails(file, "checksum");
+    }
+
+    @Test
+    public void truncatedFile_failsToOpen() throws IOException {
+        File file = writeCatalog("catalog.snap");
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 10);
+        raf.close();
+
+        assertOpenFails(file, "truncated");
+
+        raf = new RandomAccessFile(file, "rw");
+        raf.setLength(5);
+        raf.close();
+
+        assertOpenFails(file, "size");
+    }
+
+    @Test
+    public void otherVersion_failsToOpen() throws IOException {
+        File file = writeCatalog("catalog.snap");
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(4);
+        raf.writeShort(BinarySnapshot.VERSION + 1);
+        raf.close();
+
+        assertOpenFails(file, "version");
+    }
+
+    @Test
+    public void write_replacesTheOldFileAndLeavesNoTemporaryFile() throws IOException {
+        File file = writeCatalog("catalog.snap");
+
+        CatalogSnapshot.write(file,
+                Collections.singletonMap("pug", Collections.<String>emptyList()),
+                Collections.<String, String>emptyMap());
+
+        assertEquals(Collections.singleton("pug"), CatalogSnapshot.open(file).keySet());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    private File writeCatalog(String name) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        CatalogSnapshot.write(file,
+                Collections.singletonMap("hound", Arrays.asList("afghan", "basset")),
+                Collections.singletonMap("checked_at", "1"));
+        return file;
+    }
+
+    private static void assertOpenFails(File file, String reason) {
+        try {
+            CatalogSnapshot.open(file);
+            fail("Opening should fail because of the " + reason);
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains(reason));
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.dogpics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs BreedCatalogRepository against a local MockWebServer standing in for https://dog.ceo/api/.
+ */
+public class BreedCatalogRepositoryTest {
+    private static final String CATALOG_V1 =
+            "{\"message\":{\"hound\":[\"afghan\",\"basset\"],\"pug\":[]},\"status\":\"success\"}";
+    private static final String CATALOG_V2 =
+            "{\"message\":{\"hound\":[\"afghan\"],\"pug\":[],\"akita\":[]},\"status\":\"success\"}";
+    private static final String SNAPSHOT = "{\"hound\":[\"afghan\",\"basset\"],\"pug\":[]}";
+
+    // Runs the listener on whichever thread delivers
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private ApiCalls apiCalls;
+    private File cacheFile;
+    private final BlockingQueue<Map<String, List<String>>> delivered = new LinkedBlockingQueue<>();
+
+    private final BreedCatalogRepository.Listener listener = new BreedCatalogRepository.Listener() {
+        @Override
+        public void onCatalogLoaded(Map<String, List<String>> catalog) {
+            delivered.add(catalog);
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        apiCalls = new Retrofit.Builder()
+                .baseUrl(server.url("/api/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiCalls.class);
+        cacheFile = new File(folder.getRoot(), "breed_catalog.snap");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void coldStart_fetchesAndSavesCatalog() throws Exception {
+        server.enqueue(new MockResponse().setBody(CATALOG_V1).setHeader("ETag", "\"v1\""));
+
+        BreedCatalogRepository repository =
+                new BreedCatalogRepository(apiCalls, cacheFile, null, DIRECT);
+        repository.load(listener);
+
+        Map<String, List<String>> catalog = delivered.poll(5, TimeUnit.SECONDS);
+        assertNotNull(catalog);
+        assertEquals(2, catalog.get("hound").size());
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+
+        repository.close();
+        assertTrue(cacheFile.exists());
+    }
+
+    @Test
+    public void warmStart_deliversSavedCatalogBeforeRevalidating() throws Exception {
+        primeCache();
+
+        // Revalidation answers slowly; the saved copy must not wait for it
+        server.enqueue(new MockResponse()
+                .setResponseCode(304)
+                .setHeadersDelay(2, TimeUnit.SECONDS));
+
+        BreedCatalogRepository repository =
+                new BreedCatalogRepository(apiCalls, cacheFile, null, DIRECT, 0);
+        long start = System.nanoTime();
+        repository.load(listener);
+
+        Map<String, List<String>> catalog = delivered.poll(5, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertNotNull(catalog);
+        assertTrue("Warm start took " + elapsedMs + "ms", elapsedMs < 1000);
+
+        server.takeRequest();
+        RecordedRequest revalidation = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("\"v1\"", revalidation.getHeader("If-None-Match"));
+
+        // A 304 keeps the saved copy and does not call the listener again
+        assertNull(delivered.poll(3, TimeUnit.SECONDS));
+        repository.close();
+    }
+
+    @Test
+    public void warmStart_skipsRevalidationWhenRecentlyChecked() throws Exception {
+        primeCache();
+
+        BreedCatalogRepository repository =
+                new BreedCatalogRepository(apiCalls, cacheFile, null, DIRECT);
+        repository.load(listener);
+
+        assertNotNull(delivered.poll(5, TimeUnit.SECONDS));
+        repository.close();
+
+        // Only the request made by primeCache()
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void revalidation_deliversChangedCatalog() throws Exception {
+        primeCache();
+        server.enqueue(new MockResponse().setBody(CATALOG_V2).setHeader("ETag", "\"v2\""));
+
+        BreedCatalogRepository repository =
+                new BreedCatalogRepository(apiCalls, cacheFile, null, DIRECT, 0);
+        repository.load(listener);
+
+        Map<String, List<String>> saved = delivered.poll(5, TimeUnit.SECONDS);
+        Map<String, List<String>> fresh = delivered.poll(5, TimeUnit.SECONDS);
+        repository.close();
+
+        assertFalse(saved.containsKey("akita"));
+        assertTrue(fresh.containsKey("akita"));
+
+        // The new copy and its validator replace the old ones on disk
+        server.enqueue(new MockResponse().setResponseCode(304));
+        repository = new BreedCatalogRepository(apiCalls, cacheFile, null, DIRECT, 0);
+        repository.load(listener);
+
+        assertTrue(delivered.poll(5, TimeUnit.SECONDS).containsKey("akita"));
+        server.takeRequest();
+        server.takeRequest();
+        assertEquals("\"v2\"", server.takeRequest(5, TimeUnit.SECONDS).getHeader("If-None-Match"));
+        repository.close();
+    }
+
+    @Test
+    public void repeatedLoads_whileLoading_makeOneRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody(CATALOG_V1)
+                .setBodyDelay(300, TimeUnit.MILLISECONDS));
+
+        BreedCatalogRepository repository =
+                new BreedCatalogRepository(apiCalls, cacheFile, null, DIRECT);
+
+        // Like several connectivity broadcasts arriving before the list does
+        for (int i = 0; i < 5; i++) {
+            repository.load(listener);
+        }
+
+        assertNotNull(delivered.poll(5, TimeUnit.SECONDS));
+        assertNull(delivered.poll(1, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        repository.close();
+    }
+
+    @Test
+    public void firstLaunch_deliversSnapshotThenFetchedCatalog() throws Exception {
+        server.enqueue(new MockResponse().setBody(CATALOG_V2).setHeader("ETag", "\"v2\""));
+
+        BreedCatalogRepository repository = new BreedCatalogRepository(apiCalls, cacheFile,
+                new BreedCatalogRepository.Snapshot() {
+                    @Override
+                    public InputStream open() {
+                        return new ByteArrayInputStream(SNAPSHOT.getBytes());
+                    }
+                }, DIRECT);
+        repository.load(listener);
+
+        Map<String, List<String>> bundled = delivered.poll(5, TimeUnit.SECONDS);
+        Map<String, List<String>> fresh = delivered.poll(5, TimeUnit.SECONDS);
+        repository.close();
+
+        assertEquals(2, bundled.get("hound").size());
+        assertFalse(bundled.containsKey("akita"));
+        assertTrue(fresh.containsKey("akita"));
+
+        // The snapshot has no validators to send
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void preload_deliversToTheFirstListenerRightAway() throws Exception {
+        primeCache();
+        server.enqueue(new MockResponse()
+                .setResponseCode(304)
+                .setHeadersDelay(2, TimeUnit.SECONDS));
+
+        BreedCatalogRepository repository =
+                new BreedCatalogRepository(apiCalls, cacheFile, null, DIRECT, 0);
+        assertTrue(repository.preload());
+
+        // Delivered on the calling thread, without waiting for the revalidation
+        repository.load(listener);
+        assertNotNull(delivered.poll());
+
+        // The 304 doesn't deliver the same list again
+        assertNull(delivered.poll(3, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount());
+        repository.close();
+    }
+
+    /**
+     * Fills the cache file through a first, cold launch.
+     */
+    private void primeCache() throws Exception {
+        server.enqueue(new MockResponse().setBody(CATALOG_V1).setHeader("ETag", "\"v1\""));
+
+        BreedCatalogRepository repository =
+                new BreedCatalogRepository(apiCalls, cacheFile, null, DIRECT);
+        repository.load(listener);
+        assertNotNull(delivered.poll(5, TimeUnit.SECONDS));
+        repository.close();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the entries of the single search box and what each one searches for.
+ */
+public class BreedCatalogSearchTest {
+    private final BreedCatalogSearch search = new BreedCatalogSearch(catalog());
+
+    @Test
+    public void indexesBreedsAndSubBreedCombinations() {
+        assertEquals(Arrays.asList("hound", "afghan hound", "basset hound", "pug"),
+                search.getNames());
+
+        BreedCatalogSearch.Selection afghan = search.get("Afghan Hound");
+        assertEquals("hound", afghan.getBreed());
+        assertEquals("afghan", afghan.getSubBreed());
+        assertNull(search.get("pug").getSubBreed());
+        assertNull(search.get("afghan"));
+    }
+
+    @Test
+    public void matchesWordsInAnyOrderAndPartially() {
+        BreedSearchIndex index = search.getIndex();
+
+        assertEquals(Arrays.asList("afghan hound"), index.complete("hound af", 10));
+        assertEquals(Arrays.asList("afghan hound"), index.complete("afg h", 10));
+
+        // The plain breed ranks ahead of its sub-breeds
+        assertEquals(Arrays.asList("hound", "afghan hound", "basset hound"),
+                index.complete("hou", 10));
+    }
+
+    @Test
+    public void suggestsForAMisspelledWord() {
+        assertEquals("afghan hound", search.getIndex().suggest("afgan hound", 1).get(0));
+    }
+
+    private static Map<String, List<String>> catalog() {
+        Map<String, List<String>> catalog = new HashMap<>();
+        catalog.put("hound", Arrays.asList("afghan", "basset"));
+        catalog.put("pug", Collections.<String>emptyList());
+        return catalog;
+    }
+}
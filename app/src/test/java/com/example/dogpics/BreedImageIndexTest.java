@@ -0,0 +1,153 @@
+package com.example.dogpics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs BreedImageIndex against a local MockWebServer standing in for https://dog.ceo/api/.
+ */
+public class BreedImageIndexTest {
+    private static final long DAY_MS = 24 * 60 * 60 * 1000;
+
+    // Runs the callbacks on whichever thread delivers
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private ApiCalls apiCalls;
+    private File cacheDir;
+    private final BlockingQueue<List<String>> pages = new LinkedBlockingQueue<>();
+
+    private final BreedImageIndex.SampleCallback callback = new BreedImageIndex.SampleCallback() {
+        @Override
+        public void onSample(List<String> urls) {
+            pages.add(urls);
+        }
+
+        @Override
+        public void onError() {
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        apiCalls = new Retrofit.Builder()
+                .baseUrl(server.url("/api/"))
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiCalls.class);
+        cacheDir = new File(folder.getRoot(), "breed_images");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void fetchesListOnceAndSamplesWithoutReplacement() throws Exception {
+        server.enqueue(new MockResponse().setBody(imageList("pug", 30)));
+        BreedImageIndex index = newIndex(DAY_MS);
+
+        Set<String> drawn = new HashSet<>();
+
+        for (int i = 0; i < 3; i++) {
+            index.sample("pug", null, 10, callback);
+            drawn.addAll(nextPage());
+        }
+
+        // Three pages of ten cover all thirty pictures, no repeats, one request
+        assertEquals(30, drawn.size());
+        assertEquals(1, server.getRequestCount());
+        assertEquals("/api/breed/pug/images", server.takeRequest().getPath());
+        index.close();
+    }
+
+    @Test
+    public void warmStart_readsListFromDisk() throws Exception {
+        server.enqueue(new MockResponse().setBody(imageList("hound-afghan", 5)));
+        BreedImageIndex first = newIndex(DAY_MS);
+        first.sample("hound", "afghan", 3, callback);
+        assertEquals(3, nextPage().size());
+        first.close();
+
+        BreedImageIndex second = newIndex(DAY_MS);
+        second.sample("hound", "afghan", 10, callback);
+
+        // Only five pictures exist, and none of them needed a request
+        assertEquals(5, nextPage().size());
+        assertEquals(1, server.getRequestCount());
+        assertEquals("/api/breed/hound/afghan/images", server.takeRequest().getPath());
+        second.close();
+    }
+
+    @Test
+    public void expiredList_isFetchedAgainAndKeptIfThatFails() throws Exception {
+        server.enqueue(new MockResponse().setBody(imageList("pug", 4)));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        BreedImageIndex index = newIndex(0);
+
+        index.sample("pug", null, 2, callback);
+        assertEquals(2, nextPage().size());
+
+        // Past the TTL, the failed refresh still serves the old list
+        index.sample("pug", null, 2, callback);
+        assertEquals(2, nextPage().size());
+        assertEquals(2, server.getRequestCount());
+        index.close();
+    }
+
+    private BreedImageIndex newIndex(long ttlMs) {
+        return new BreedImageIndex(apiCalls, cacheDir, DIRECT, ttlMs, new Random(42));
+    }
+
+    private List<String> nextPage() throws InterruptedException {
+        List<String> page = pages.poll(5, TimeUnit.SECONDS);
+        assertNotNull("no page delivered", page);
+        return page;
+    }
+
+    private static String imageList(String breed, int count) {
+        StringBuilder json = new StringBuilder("{\"message\":[");
+
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+
+            json.append("\"https://images.dog.ceo/breeds/").append(breed).append('/')
+                    .append(i).append(".jpg\"");
+        }
+
+        return json.append("],\"status\":\"success\"}").toString();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the names BreedNameParser works out and that a breed is only ever added to its table once.
+ */
+public class BreedNameParserTest {
+    @Test
+    public void parsesBreedAndSubBreed() {
+        BreedNameParser parser = new BreedNameParser();
+
+        assertEquals("Afghan Hound",
+                parser.parse("https://images.dog.ceo/breeds/hound-afghan/n02088094_1003.jpg"));
+        assertEquals("Pug", parser.parse("https://images.dog.ceo/breeds/pug/n02110958_15626.jpg"));
+        assertEquals("", parser.parse("https://example.com/pug.jpg"));
+    }
+
+    @Test
+    public void sameBreedReturnsSameName() {
+        BreedNameParser parser = new BreedNameParser(Arrays.asList("pug", "hound-afghan"));
+        String first = parser.parse("https://images.dog.ceo/breeds/hound-afghan/a.jpg");
+        String second = parser.parse("https://images.dog.ceo/breeds/hound-afghan/b.jpg");
+
+        assertSame(first, second);
+        assertEquals(2, parser.size());
+    }
+
+    @Test
+    public void tableGrowsPastInitialCapacity() {
+        BreedNameParser parser = new BreedNameParser();
+
+        for (int i = 0; i < 1000; i++) {
+            parser.parse("https://images.dog.ceo/breeds/breed" + i + "-sub/x.jpg");
+        }
+
+        assertEquals(1000, parser.size());
+        assertEquals("Sub Breed999", parser.parse("https://images.dog.ceo/breeds/breed999-sub/y.jpg"));
+        assertEquals(1000, parser.size());
+    }
+}
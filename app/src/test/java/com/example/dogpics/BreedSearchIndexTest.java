@@ -0,0 +1,100 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the completions, ranking and typo suggestions of BreedSearchIndex.
+ */
+public class BreedSearchIndexTest {
+    private final BreedSearchIndex index = new BreedSearchIndex.Builder()
+            .addAll(Arrays.asList("hound", "husky", "houndhund", "pug", "puggle", "pointer",
+                    "german shepherd", "shiba", "shihtzu"))
+            .build();
+
+    @Test
+    public void completesPrefixesShortestFirst() {
+        assertEquals(Arrays.asList("hound", "houndhund"), index.complete("hou", 10));
+        assertEquals(Arrays.asList("pug", "puggle"), index.complete("PUG", 10));
+        assertEquals(Arrays.asList("pug"), index.complete("p", 1));
+        assertTrue(index.complete("zz", 10).isEmpty());
+    }
+
+    @Test
+    public void matchesLaterWordsAfterFirstWords() {
+        BreedSearchIndex named = new BreedSearchIndex.Builder()
+                .addAll(Arrays.asList("german shepherd", "shetland sheepdog", "sheltie"))
+                .build();
+
+        // Names starting with the word rank ahead of names where a later word matches
+        assertEquals(Arrays.asList("sheltie", "shetland sheepdog", "german shepherd"),
+                named.complete("she", 10));
+    }
+
+    @Test
+    public void weightRanksAheadOfLength() {
+        BreedSearchIndex weighted = new BreedSearchIndex.Builder()
+                .add("pug")
+                .add("puggle", 5)
+                .build();
+
+        assertEquals(Arrays.asList("puggle", "pug"), weighted.complete("pu", 10));
+
+        // An exact match still comes first
+        assertEquals(Arrays.asList("pug", "puggle"), weighted.complete("pug", 10));
+    }
+
+    @Test
+    public void completesSeveralWords_pastTheBestOfTheLongestWord() {
+        BreedSearchIndex.Builder builder = new BreedSearchIndex.Builder();
+
+        // More terriers ahead of the only "bull" one than a trie node keeps
+        for (int i = 0; i < BreedSearchIndex.MAX_RESULTS + 5; i++) {
+            builder.add("terrier " + (char) ('a' + i), 10);
+        }
+        BreedSearchIndex terriers = builder.add("staffordshire bull terrier")
+                .add("terrier bullmastiff", 5)
+                .build();
+
+        assertEquals(Arrays.asList("terrier bullmastiff", "staffordshire bull terrier"),
+                terriers.complete("terrier bul", 10));
+        assertEquals(Arrays.asList("terrier bullmastiff"), terriers.complete("bul terrier", 1));
+        assertEquals(Arrays.asList("terrier a", "terrier b"), terriers.complete("terr ter", 2));
+    }
+
+    @Test
+    public void completesWithTrailingSeparators() {
+        BreedSearchIndex named = new BreedSearchIndex.Builder()
+                .addAll(Arrays.asList("afghan hound", "bull-terrier", "bullmastiff"))
+                .build();
+
+        assertEquals(Arrays.asList("afghan hound"), named.complete("afghan-", 10));
+        assertEquals(Arrays.asList("afghan hound"), named.complete("afghan ", 10));
+        assertEquals(Arrays.asList("bullmastiff", "bull-terrier"), named.complete("bull -", 10));
+        assertEquals(Arrays.asList("afghan hound"), named.complete("hound af-", 10));
+        assertTrue(named.complete("-", 10).isEmpty());
+        assertEquals("afghan hound", named.suggest("afgan-", 1).get(0));
+    }
+
+    @Test
+    public void suggestsCloseNamesForTypos() {
+        assertEquals("hound", index.suggest("hund", 1).get(0));
+        assertEquals("pointer", index.suggest("pionter", 1).get(0));
+        assertTrue(index.suggest("xyzzy", 5).isEmpty());
+
+        // search() falls back to suggestions when nothing completes
+        List<String> results = index.search("huskey", 5);
+        assertEquals("husky", results.get(0));
+    }
+
+    @Test
+    public void findsNamesInAnyCase() {
+        assertTrue(index.contains(" Shiba "));
+        assertEquals("german shepherd", index.find("German Shepherd"));
+        assertNull(index.find("shib"));
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.dogpics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs CircuitBreaker in front of a MockWebServer: failures open it, canceled calls don't, and a
+ * check that ends without an answer leaves it ready to check again.
+ */
+public class CircuitBreakerTest {
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void serverErrors_openTheBreaker() throws IOException {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60 * 1000);
+        OkHttpClient client = clientWith(breaker);
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        client.newCall(request()).execute().close();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        client.newCall(request()).execute().close();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Answered from the cache, which there is none of
+        Response response = client.newCall(request()).execute();
+        assertEquals(504, response.code());
+        response.close();
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void canceledCalls_areNotFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60 * 1000);
+        OkHttpClient client = cancelingClientWith(breaker);
+
+        for (int i = 0; i < 3; i++) {
+            executeCanceled(client);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    public void canceledCheck_letsTheNextRequestCheck() throws IOException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // The check gets canceled, the breaker doesn't count it and stays ready to check
+        executeCanceled(cancelingClientWith(breaker));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        server.enqueue(new MockResponse().setBody("ok"));
+        Response response = clientWith(breaker).newCall(request()).execute();
+        assertEquals("ok", response.body().string());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void crashingCheck_doesNotStayHalfOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure();
+
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(breaker)
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain chain) {
+                        throw new IllegalStateException("Broken interceptor");
+                    }
+                })
+                .build();
+
+        try {
+            client.newCall(request()).execute();
+            fail("The exception should reach the caller");
+        } catch (IllegalStateException | IOException expected) {
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    private void executeCanceled(OkHttpClient client) {
+        try {
+            client.newCall(request()).execute();
+            fail("The call should be canceled");
+        } catch (IOException expected) {
+        }
+    }
+
+    /**
+     * Cancels every call behind the breaker, like ResilientApiCalls does to the losing hedge.
+     */
+    private static OkHttpClient cancelingClientWith(CircuitBreaker breaker) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(breaker)
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        chain.call().cancel();
+                        throw new IOException("Canceled");
+                    }
+                })
+                .build();
+    }
+
+    private static OkHttpClient clientWith(CircuitBreaker breaker) {
+        return new OkHttpClient.Builder().addInterceptor(breaker).build();
+    }
+
+    private Request request() {
+        return new Request.Builder().url(server.url("/api/breeds/list/all")).build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks each picture is counted once and the bytes saved are kept per page.
+ */
+public class DecodeReportTest {
+    @Test
+    public void reshownPage_isCountedOnce() {
+        DecodeReport report = new DecodeReport();
+        report.record("a.jpg", 250, 500, 250 * 500 * 2);
+        report.record("a.jpg", 250, 500, 250 * 500 * 2);
+
+        assertEquals(1, report.getPages());
+        assertEquals(250 * 500 * 2, report.getDecodedBytes());
+        assertEquals(Long.valueOf(250 * 500 * 2), report.getSavedBytes("a.jpg"));
+        assertNull(report.getSavedBytes("b.jpg"));
+    }
+
+    @Test
+    public void savedBytes_areSpreadOverThePages() {
+        DecodeReport report = new DecodeReport();
+
+        // The old decode of a 1000x500 picture took 2,000,000 bytes
+        for (int i = 1; i <= 10; i++) {
+            report.record(i + ".jpg", 1000, 500, 2000000 - i * 1000);
+        }
+        report.record("big.jpg", 1000, 500, 2500000);
+
+        assertEquals(11, report.getPages());
+        assertEquals(-500000, report.savedBytesPercentile(0));
+        assertEquals(5000, report.savedBytesPercentile(0.5));
+        assertEquals(10000, report.savedBytesPercentile(1.0));
+        assertEquals(0, new DecodeReport().savedBytesPercentile(0.5));
+    }
+}
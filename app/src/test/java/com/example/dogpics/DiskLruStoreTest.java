@@ -0,0 +1,103 @@
+package com.example.dogpics;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the size accounting and the eviction order of DiskLruStore in a temporary folder.
+ */
+public class DiskLruStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void leastRecentlyUsed_isEvictedPastTheCap() {
+        DiskLruStore store = new DiskLruStore(folder.getRoot(), 300);
+
+        assertTrue(store.put("a", new byte[100]));
+        assertTrue(store.put("b", new byte[100]));
+        assertTrue(store.put("c", new byte[100]));
+        assertEquals(300, store.getSize());
+
+        assertTrue(store.put("d", new byte[100]));
+
+        assertFalse(store.contains("a"));
+        assertTrue(store.contains("b"));
+        assertTrue(store.contains("d"));
+        assertEquals(300, store.getSize());
+        assertEquals(3, store.getEntryCount());
+        assertFalse(new File(folder.getRoot(), DiskLruStore.fileNameOf("a")).exists());
+    }
+
+    @Test
+    public void get_protectsFromEviction_peekDoesNot() {
+        DiskLruStore store = new DiskLruStore(folder.getRoot(), 300);
+        store.put("a", new byte[100]);
+        store.put("b", new byte[100]);
+        store.put("c", new byte[100]);
+
+        assertNotNull(store.get("a"));
+        assertNotNull(store.peek("b"));
+        store.put("d", new byte[100]);
+
+        assertTrue(store.contains("a"));
+        assertFalse(store.contains("b"));
+        assertNull(store.get("b"));
+    }
+
+    @Test
+    public void sizeFollowsReplacesAndRemoves() {
+        DiskLruStore store = new DiskLruStore(folder.getRoot(), 1000);
+        store.put("a", new byte[100]);
+        store.put("b", new byte[200]);
+
+        store.put("a", new byte[50]);
+        assertEquals(250, store.getSize());
+        assertEquals(50, store.get("a").length());
+
+        assertTrue(store.remove("b"));
+        assertFalse(store.remove("b"));
+        assertEquals(50, store.getSize());
+        assertEquals(1, store.getEntryCount());
+    }
+
+    @Test
+    public void entryLargerThanTheCap_isRejected() {
+        DiskLruStore store = new DiskLruStore(folder.getRoot(), 100);
+        store.put("a", new byte[60]);
+
+        assertFalse(store.put("big", new byte[101]));
+
+        // Nothing evicted for it and no file left behind
+        assertTrue(store.contains("a"));
+        assertEquals(60, store.getSize());
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void reopen_restoresSize_andTrimsToASmallerCap() throws Exception {
+        DiskLruStore store = new DiskLruStore(folder.getRoot(), 1000);
+        store.put("a", new byte[100]);
+        store.put("b", new byte[200]);
+        assertTrue(new File(folder.getRoot(), "half-written.0.tmp").createNewFile());
+
+        DiskLruStore reopened = new DiskLruStore(folder.getRoot(), 1000);
+        reopened.open();
+
+        assertEquals(300, reopened.getSize());
+        assertEquals(2, reopened.getEntryCount());
+        assertTrue(reopened.contains("a"));
+        assertFalse(new File(folder.getRoot(), "half-written.0.tmp").exists());
+
+        DiskLruStore smaller = new DiskLruStore(folder.getRoot(), 250);
+        smaller.open();
+
+        assertTrue(smaller.getSize() <= 250);
+        assertEquals(1, folder.getRoot().list().length);
+    }
+}
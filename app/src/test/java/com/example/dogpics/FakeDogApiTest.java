@@ -0,0 +1,118 @@
+package com.example.dogpics;
+
+import com.example.dogpics.fixtures.FakeCatalog;
+import com.example.dogpics.fixtures.FakeDogApi;
+
+import org.junit.After;
+import org.junit.Test;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the app's ApiClient and image client against a local FakeDogApi and checks it serves what
+ * it was told to. FakeDogApiLoadBenchmark in the benchmarks module measures latency and
+ * throughput against it.
+ */
+public class FakeDogApiTest {
+    private FakeDogApi api;
+
+    @After
+    public void tearDown() throws Exception {
+        if (api != null) {
+            api.shutdown();
+        }
+    }
+
+    @Test
+    public void everyEndpoint_answersLikeTheDogApi() throws Exception {
+        api = new FakeDogApi.Builder().catalog(FakeCatalog.generate(30, 20)).build();
+        api.start();
+        ApiCalls calls = new ApiClient.Builder(api.getApiBaseUrl()).build().getApiCalls();
+
+        assertEquals(30, calls.getAllBreed().execute().body().getBreedInfo().size());
+        assertEquals(7, calls.getRandomPage(7).execute().body().getRandomList().size());
+        assertEquals(5, calls.getByBreedPage("hound", 5).execute().body().getBreedList().size());
+        assertEquals(20, calls.getAllByBreed("pug").execute().body().getBreedList().size());
+        // Every sub-breed of the hound
+        assertEquals(7 * 20, calls.getAllByBreed("hound").execute().body().getBreedList().size());
+        assertEquals(20,
+                calls.getAllBySubBreed("hound", "afghan").execute().body().getSubBreed().size());
+        assertEquals(3, calls.getBySubBreedPage("hound", "afghan", 3).execute().body()
+                .getSubBreed().size());
+        assertEquals(404, calls.getByBreedPage("unicorn", 5).execute().code());
+        assertEquals(404, calls.getAllBySubBreed("pug", "tiny").execute().code());
+
+        // Picture URLs parse like the real ones
+        String url = calls.getByBreedPage("pug", 1).execute().body().getBreedList().get(0);
+        assertTrue(url.startsWith(ImageRef.URL_PREFIX + "pug/pug_"));
+        assertEquals(url, ImageRef.parse(url).toUrl());
+    }
+
+    @Test
+    public void imageHost_servesThePictures() throws Exception {
+        api = new FakeDogApi.Builder().imageBytes(20000).build();
+        api.start();
+        ImageByteCounter byteCounter = new ImageByteCounter();
+        OkHttpClient imageClient = new OkHttpClient.Builder()
+                .addInterceptor(new ImageHostInterceptor(api.getImageBaseUrl()))
+                .addNetworkInterceptor(byteCounter)
+                .build();
+
+        Response response = imageClient.newCall(new Request.Builder()
+                .url(ImageRef.URL_PREFIX + "pug/pug_3.jpg")
+                .build()).execute();
+
+        assertEquals(200, response.code());
+        assertEquals("image/jpeg", response.header("Content-Type"));
+        assertEquals(20000, response.body().bytes().length);
+        assertEquals(1, api.getRequestCount());
+        // Counted under the URL the app knows, not the one on the fake server
+        assertEquals(20000, byteCounter.bytesFor(ImageRef.URL_PREFIX + "pug/pug_3.jpg"));
+    }
+
+    @Test
+    public void throttledPicture_arrivesWhole() throws Exception {
+        api = new FakeDogApi.Builder().imageBytes(30000).bandwidth(250000).build();
+        api.start();
+        OkHttpClient imageClient = new OkHttpClient.Builder()
+                .addInterceptor(new ImageHostInterceptor(api.getImageBaseUrl()))
+                .build();
+
+        Response response = imageClient.newCall(new Request.Builder()
+                .url(ImageRef.URL_PREFIX + "pug/pug_1.jpg")
+                .build()).execute();
+
+        assertEquals(200, response.code());
+        assertEquals(30000, response.body().bytes().length);
+    }
+
+    @Test
+    public void errorRate_failsThatShareOfCalls() throws Exception {
+        api = new FakeDogApi.Builder().errorRate(0.25).seed(7).build();
+        api.start();
+        // Without the circuit breaker, which would stop calling after a few 503s in a row
+        OkHttpClient client = new ApiClient.Builder(api.getApiBaseUrl()).build().getHttpClient();
+        Request request = new Request.Builder()
+                .url(api.getApiBaseUrl() + "breeds/image/random/1")
+                .build();
+        int failed = 0;
+
+        for (int i = 0; i < 200; i++) {
+            Response response = client.newCall(request).execute();
+            int code = response.code();
+            response.close();
+
+            if (code == 503) {
+                failed++;
+            } else {
+                assertEquals(200, code);
+            }
+        }
+
+        assertTrue("Failed " + failed, failed > 25 && failed < 75);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds FrameStats made up frame times at 60Hz and checks the jank it reports.
+ */
+public class FrameStatsTest {
+    private static final long INTERVAL = 16_666_667;
+
+    @Test
+    public void smoothScroll_hasNoJank() {
+        FrameStats stats = new FrameStats(INTERVAL);
+        long time = 1_000_000_000L;
+
+        for (int i = 0; i < 61; i++) {
+            stats.onFrame(time, i / 20);
+            time += INTERVAL;
+        }
+
+        FrameStats.Report report = stats.getReport();
+        assertEquals(60, report.frames);
+        assertEquals(0, report.jankyFrames);
+        assertEquals(0, report.droppedFrames);
+        assertTrue(report.passes(0f, 1));
+    }
+
+    @Test
+    public void stalls_areCountedWithTheirPage() {
+        FrameStats stats = new FrameStats(INTERVAL);
+        long time = 1_000_000_000L;
+        stats.onFrame(time, 0);
+
+        for (int i = 1; i <= 20; i++) {
+            // Page 3 stalls for 4 refreshes, page 6 for 2
+            int position = i / 3;
+            time += position == 3 && i % 3 == 0 ? 4 * INTERVAL
+                    : position == 6 && i % 3 == 0 ? 2 * INTERVAL
+                    : INTERVAL;
+            stats.onFrame(time, position);
+        }
+
+        FrameStats.Report report = stats.getReport();
+        assertEquals(2, report.jankyFrames);
+        assertEquals(3 + 1, report.droppedFrames);
+        assertEquals(3, report.slowest.get(0).position);
+        assertEquals(6, report.slowest.get(1).position);
+        assertEquals(FrameStats.SLOWEST_KEPT, report.slowest.size());
+        assertTrue(report.passes(0.1f, 4));
+        assertFalse(report.passes(0.05f, 4));
+        assertFalse(report.passes(0.1f, 3));
+    }
+
+    @Test
+    public void timeBetweenScrolls_isNotAFrame() {
+        FrameStats stats = new FrameStats(INTERVAL);
+        stats.onFrame(1_000_000_000L, 0);
+        stats.onFrame(1_000_000_000L + INTERVAL, 0);
+        stats.pause();
+
+        // A second scroll ten seconds later
+        stats.onFrame(11_000_000_000L, 1);
+        stats.onFrame(11_000_000_000L + INTERVAL, 1);
+
+        assertEquals(2, stats.getReport().frames);
+        assertEquals(0, stats.getReport().jankyFrames);
+    }
+}
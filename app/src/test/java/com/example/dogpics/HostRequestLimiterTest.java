@@ -0,0 +1,151 @@
+package com.example.dogpics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs HostRequestLimiter in front of a MockWebServer: requests to one host never exceed the
+ * limit, and a freed slot goes to the waiting request with the highest priority.
+ */
+public class HostRequestLimiterTest {
+    private final MockWebServer server = new MockWebServer();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger mostRunning = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                int now = running.incrementAndGet();
+
+                while (true) {
+                    int most = mostRunning.get();
+
+                    if (now <= most || mostRunning.compareAndSet(most, now)) {
+                        break;
+                    }
+                }
+
+                Thread.sleep(50);
+                running.decrementAndGet();
+                return new MockResponse().setBody("picture");
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void neverRunsMoreThanTheLimitPerHost() throws Exception {
+        final OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new HostRequestLimiter(2))
+                .build();
+        List<Thread> threads = new ArrayList<>();
+        final List<String> bodies = Collections.synchronizedList(new ArrayList<String>());
+
+        for (int i = 0; i < 8; i++) {
+            final String path = "/breeds/pug/" + i + ".jpg";
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Response response = client.newCall(request(path)).execute();
+                        bodies.add(response.body().string());
+                    } catch (IOException e) {
+                        fail(e.getMessage());
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        assertEquals(8, bodies.size());
+        assertEquals(2, mostRunning.get());
+    }
+
+    @Test
+    public void freedSlotGoesToHighestPriority() throws Exception {
+        final HostRequestLimiter limiter = new HostRequestLimiter(1);
+        limiter.setPriorities(new HostRequestLimiter.Priorities() {
+            @Override
+            public int priorityOf(String url) {
+                return url.contains("shown") ? ImageScheduler.PRIORITY_HIGH
+                        : ImageScheduler.PRIORITY_LOW;
+            }
+        });
+        final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(limiter).build();
+
+        // Holds the only slot until its body is closed
+        Response first = client.newCall(request("/first.jpg")).execute();
+        server.takeRequest();
+
+        final CountDownLatch done = new CountDownLatch(2);
+        startCall(client, "/prefetch.jpg", done);
+        awaitWaiting(limiter, 1);
+        startCall(client, "/shown.jpg", done);
+        awaitWaiting(limiter, 2);
+
+        first.close();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals("/shown.jpg", server.takeRequest().getPath());
+        assertEquals("/prefetch.jpg", server.takeRequest().getPath());
+    }
+
+    private void startCall(final OkHttpClient client, final String path,
+                           final CountDownLatch done) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    client.newCall(request(path)).execute().close();
+                } catch (IOException ignored) {
+                }
+                done.countDown();
+            }
+        }).start();
+    }
+
+    private static void awaitWaiting(HostRequestLimiter limiter, int count)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (limiter.getWaitingCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, limiter.getWaitingCount());
+    }
+
+    private Request request(String path) {
+        return new Request.Builder().url(server.url(path)).build();
+    }
+}
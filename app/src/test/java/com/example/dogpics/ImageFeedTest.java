@@ -0,0 +1,177 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks paging, swipe speed adaption and de-duplication of ImageFeed with a fake page loader.
+ */
+public class ImageFeedTest {
+    private final FakeLoader loader = new FakeLoader();
+    private final List<Integer> added = new ArrayList<>();
+    private int failed;
+    private final ImageFeed feed = new ImageFeed(loader, new ImageFeed.Listener() {
+        @Override
+        public void onImagesAdded(ImageRefList urls) {
+            added.add(urls.size());
+        }
+
+        @Override
+        public void onLoadFailed() {
+            failed++;
+        }
+    });
+
+    @Test
+    public void firstPageIsSmall() {
+        feed.start();
+
+        assertEquals(ImageFeed.FIRST_PAGE_SIZE, loader.lastCount);
+    }
+
+    @Test
+    public void loadsNextPageNearTheEndOnly() {
+        feed.start();
+        loader.answer(0, ImageFeed.FIRST_PAGE_SIZE);
+
+        feed.onPageSelected(0, 0);
+        assertEquals(1, loader.requests);
+
+        feed.onPageSelected(3, 10_000);
+        assertEquals(2, loader.requests);
+
+        // Only one page at a time
+        feed.onPageSelected(4, 20_000);
+        assertEquals(2, loader.requests);
+    }
+
+    @Test
+    public void fastSwipingGrowsPages() {
+        int slow = sizeAfterSwipingEvery(4000);
+        int fast = sizeAfterSwipingEvery(250);
+
+        assertTrue(slow < ImageFeed.MIN_PAGE_SIZE + 5);
+        assertTrue(fast > slow + 10);
+        assertTrue(fast <= ImageFeed.MAX_PAGE_SIZE);
+    }
+
+    @Test
+    public void dropsDuplicatesAndStopsWhenNothingNew() {
+        feed.start();
+        loader.answer(0, 8);
+
+        feed.onPageSelected(7, 0);
+        loader.answer(4, 10);
+        assertEquals(14, feed.getCount());
+        assertEquals(Integer.valueOf(6), added.get(1));
+
+        // Pages with nothing new end the feed after a few tries
+        for (int i = 0; i < 3; i++) {
+            feed.onPageSelected(13, 0);
+            loader.answer(0, 10);
+        }
+
+        assertTrue(feed.isEndReached());
+        assertEquals(14, feed.getCount());
+    }
+
+    @Test
+    public void failedFirstPage_isReportedAndRetried() {
+        feed.start();
+        loader.fail();
+
+        assertEquals(1, failed);
+        assertEquals(0, feed.getCount());
+
+        feed.retry(10);
+        assertEquals(2, loader.requests);
+        assertEquals(ImageFeed.FIRST_PAGE_SIZE, loader.lastCount);
+
+        loader.answer(0, ImageFeed.FIRST_PAGE_SIZE);
+        assertEquals(ImageFeed.FIRST_PAGE_SIZE, feed.getCount());
+    }
+
+    @Test
+    public void failedPage_isAskedForAgainAfterBackoff() {
+        feed.start();
+        loader.answer(0, 8);
+
+        feed.onPageSelected(7, 10_000);
+        loader.fail();
+        assertEquals(2, loader.requests);
+
+        feed.onPageSelected(7, 10_000 + ImageFeed.FIRST_BACKOFF_MS - 1);
+        assertEquals(2, loader.requests);
+
+        feed.onPageSelected(7, 10_000 + ImageFeed.FIRST_BACKOFF_MS);
+        assertEquals(3, loader.requests);
+
+        // The wait doubles with every failure in a row
+        loader.fail();
+        long failedAt = 10_000 + ImageFeed.FIRST_BACKOFF_MS;
+        feed.onPageSelected(7, failedAt + ImageFeed.FIRST_BACKOFF_MS);
+        assertEquals(3, loader.requests);
+        feed.onPageSelected(7, failedAt + 2 * ImageFeed.FIRST_BACKOFF_MS);
+        assertEquals(4, loader.requests);
+        assertEquals(2, failed);
+    }
+
+    private int sizeAfterSwipingEvery(long intervalMs) {
+        FakeLoader fresh = new FakeLoader();
+        ImageFeed swiped = new ImageFeed(fresh, new ImageFeed.Listener() {
+            @Override
+            public void onImagesAdded(ImageRefList urls) {
+            }
+
+            @Override
+            public void onLoadFailed() {
+            }
+        });
+        swiped.start();
+        fresh.answer(0, 50);
+
+        for (int i = 0; i < 10; i++) {
+            swiped.onPageSelected(i, i * intervalMs);
+        }
+
+        return swiped.getNextPageSize();
+    }
+
+    private static class FakeLoader implements ImageFeed.PageLoader {
+        int requests;
+        int lastCount;
+        ImageFeed.PageCallback pending;
+
+        @Override
+        public void loadPage(int count, ImageFeed.PageCallback callback) {
+            requests++;
+            lastCount = count;
+            pending = callback;
+        }
+
+        /**
+         * Answers the pending request with URLs numbered from first on.
+         */
+        void answer(int first, int count) {
+            List<String> urls = new ArrayList<>();
+
+            for (int i = first; i < first + count; i++) {
+                urls.add("https://images.dog.ceo/breeds/pug/" + i + ".jpg");
+            }
+
+            ImageFeed.PageCallback callback = pending;
+            pending = null;
+            callback.onPage(urls);
+        }
+
+        void fail() {
+            ImageFeed.PageCallback callback = pending;
+            pending = null;
+            callback.onError();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.dogpics;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.SavedStateHandle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Loads random pages into ImageListVM from a local MockWebServer, then builds a new ImageListVM
+ * from what its SavedStateHandle kept, the way the app comes back after process death.
+ */
+public class ImageListVMTest {
+    // Runs the callbacks on whichever thread delivers
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutor = new InstantTaskExecutorRule();
+
+    // Runnables posted to the "main thread", run by the test itself
+    private final BlockingQueue<Runnable> mainQueue = new LinkedBlockingQueue<>();
+    private final Executor mainThread = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mainQueue.add(command);
+        }
+    };
+
+    // Answers the next page with a 503
+    private final AtomicBoolean failNext = new AtomicBoolean();
+
+    private MockWebServer server;
+    private ApiCalls apiCalls;
+    private ResponseProcessor processor;
+
+    @Before
+    public void setUp() throws Exception {
+        // Every page brings new pictures
+        final AtomicInteger served = new AtomicInteger();
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (failNext.getAndSet(false)) {
+                    return new MockResponse().setResponseCode(503);
+                }
+
+                String path = request.getPath();
+                int count = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+                StringBuilder body = new StringBuilder("{\"message\":[");
+
+                for (int i = 0; i < count; i++) {
+                    body.append(i > 0 ? "," : "").append('"').append(ImageRef.URL_PREFIX)
+                            .append("breeds/pug/").append(served.incrementAndGet())
+                            .append(".jpg\"");
+                }
+                return new MockResponse().setBody(body.append("],\"status\":\"success\"}")
+                        .toString());
+            }
+        });
+        server.start();
+
+        apiCalls = new Retrofit.Builder()
+                .baseUrl(server.url("/api/"))
+                .callbackExecutor(DIRECT)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiCalls.class);
+        processor = new ResponseProcessor(mainThread,
+                new MainThreadBudget(100, MainThreadBudget.LOG));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void restoresUrlsAndPage_afterProcessDeath() throws Exception {
+        SavedStateHandle handle = new SavedStateHandle();
+        ImageListVM vm = newVM(handle);
+        vm.loadRandom(apiCalls);
+        runNextOnMainThread();
+        vm.onPageSelected(3);
+        vm.setDialogShown();
+
+        List<String> urls = new ArrayList<>(vm.getUrls());
+        assertEquals(ImageFeed.FIRST_PAGE_SIZE, urls.size());
+
+        ImageListVM restored = newVM(afterProcessDeath(handle));
+
+        assertEquals(urls, new ArrayList<>(restored.getUrls()));
+        assertEquals(3, restored.getCurrentPage());
+        assertTrue(restored.isDialogShown());
+    }
+
+    @Test
+    public void restoredFeed_continuesAfterTheSavedUrls() throws Exception {
+        SavedStateHandle handle = new SavedStateHandle();
+        ImageListVM vm = newVM(handle);
+        vm.loadRandom(apiCalls);
+        runNextOnMainThread();
+        List<String> urls = new ArrayList<>(vm.getUrls());
+
+        ImageListVM restored = newVM(afterProcessDeath(handle));
+        restored.loadRandom(apiCalls);
+
+        // Nothing is asked for until the user nears the end
+        assertEquals(1, server.getRequestCount());
+
+        restored.onPageSelected(urls.size() - 1);
+        runNextOnMainThread();
+        List<String> continued = restored.getUrls();
+        ImageListVM.ImageList page = restored.getImages().getValue();
+
+        // Only the new page is posted
+        assertEquals(urls.size(), page.getStart());
+        assertEquals(continued.subList(urls.size(), continued.size()), page.getUrls());
+        assertEquals(2, server.getRequestCount());
+        assertEquals(urls, new ArrayList<>(continued.subList(0, urls.size())));
+        assertTrue(continued.size() > urls.size());
+    }
+
+    @Test
+    public void longSession_savesTheUrlsAroundThePage() throws Exception {
+        SavedStateHandle handle = new SavedStateHandle();
+        ImageListVM vm = newVM(handle);
+        vm.loadRandom(apiCalls);
+        runNextOnMainThread();
+
+        // Swipe until the list is well past what gets saved
+        int page = 0;
+
+        while (vm.getUrls().size() < 2 * ImageListVM.MAX_SAVED_URLS) {
+            vm.onPageSelected(++page);
+
+            // The feed asks for more well before the last few pages
+            while (vm.getUrls().size() - 1 - page < 5) {
+                runNextOnMainThread();
+            }
+        }
+
+        List<String> urls = vm.getUrls();
+        String shown = urls.get(page);
+
+        ImageListVM restored = newVM(afterProcessDeath(handle));
+        List<String> restoredUrls = restored.getUrls();
+
+        assertEquals(ImageListVM.MAX_SAVED_URLS, restoredUrls.size());
+        assertEquals(shown, restoredUrls.get(restored.getCurrentPage()));
+        assertTrue(urls.containsAll(restoredUrls));
+    }
+
+    @Test
+    public void failedFirstPage_isReportedUntilRetried() throws Exception {
+        failNext.set(true);
+        ImageListVM vm = newVM(new SavedStateHandle());
+        vm.loadRandom(apiCalls);
+
+        // The failure comes straight from the Api call, without going through the main queue
+        assertEquals(Boolean.TRUE, awaitLoadFailed(vm));
+        assertTrue(vm.getUrls().isEmpty());
+
+        vm.retry();
+        assertEquals(Boolean.FALSE, vm.getLoadFailed().getValue());
+        runNextOnMainThread();
+
+        assertEquals(ImageFeed.FIRST_PAGE_SIZE, vm.getUrls().size());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private ImageListVM newVM(SavedStateHandle handle) {
+        ImageListVM vm = new ImageListVM(handle);
+        vm.setResponseProcessor(processor);
+        return vm;
+    }
+
+    /**
+     * @return A handle holding only what the first one saved, like one rebuilt from the Bundle
+     */
+    private static SavedStateHandle afterProcessDeath(SavedStateHandle handle) {
+        Map<String, Object> saved = new HashMap<>();
+
+        for (String key : handle.keys()) {
+            saved.put(key, handle.get(key));
+        }
+        return new SavedStateHandle(saved);
+    }
+
+    private static Boolean awaitLoadFailed(ImageListVM vm) throws InterruptedException {
+        for (int i = 0; i < 500 && vm.getLoadFailed().getValue() == null; i++) {
+            Thread.sleep(10);
+        }
+        return vm.getLoadFailed().getValue();
+    }
+
+    private void runNextOnMainThread() throws InterruptedException {
+        Runnable next = mainQueue.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Nothing was posted to the main thread", next);
+        next.run();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.dogpics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the prefetch window, fling cancellation and the hit/waste counters of ImagePrefetcher
+ * with a fake fetcher standing in for Picasso.
+ */
+public class ImagePrefetcherTest {
+    private final List<String> urls = new ArrayList<>();
+    private final FakeFetcher fetcher = new FakeFetcher();
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < 70; i++) {
+            urls.add("https://images.dog.ceo/breeds/pug/" + i + ".jpg");
+        }
+    }
+
+    @Test
+    public void prefetchesAheadInSwipeDirection() {
+        ImagePrefetcher prefetcher = new ImagePrefetcher(fetcher, null, urls, 3, 1, 1);
+
+        prefetcher.onPageSelected(10);
+        prefetcher.onPageSelected(11);
+
+        // Neighbours are left to the ViewPager, the rest of the window leans forward
+        assertEquals(setOf(12, 13, 14), fetcher.active);
+
+        // Swiping back turns the window around
+        prefetcher.onPageSelected(10);
+        assertEquals(setOf(7, 8), fetcher.active);
+    }
+
+    @Test
+    public void flingCancelsPrefetchesOutsideWindow() {
+        ImagePrefetcher prefetcher = new ImagePrefetcher(fetcher, null, urls, 3, 1, 1);
+
+        prefetcher.onPageSelected(0);
+        prefetcher.onPageSelected(30);
+
+        assertTrue(fetcher.cancelled.containsAll(setOf(2, 3)));
+        assertEquals(setOf(32, 33), fetcher.active);
+        assertEquals(2, prefetcher.getStats().cancelled);
+    }
+
+    @Test
+    public void countsHitsAndWastedBytes() {
+        final Map<String, Long> sizes = new HashMap<>();
+        ImageByteCounter byteCounter = new ImageByteCounter() {
+            @Override
+            public long bytesFor(String url) {
+                Long size = sizes.get(url);
+                return size != null ? size : 0;
+            }
+        };
+        ImagePrefetcher prefetcher = new ImagePrefetcher(fetcher, byteCounter, urls, 3, 1, 1);
+
+        prefetcher.onPageSelected(0);
+        sizes.put(urls.get(2), 1000L);
+        sizes.put(urls.get(3), 2000L);
+        fetcher.completeAll();
+
+        // Page 2 was prefetched and gets looked at, page 3 is skipped by the jump
+        prefetcher.onPageSelected(1);
+        prefetcher.onPageSelected(2);
+        prefetcher.onPageSelected(40);
+
+        ImagePrefetcher.Stats stats = prefetcher.getStats();
+        assertEquals(1, stats.hits);
+        assertEquals(4, stats.pagesSelected);
+        assertEquals(1, stats.wasted);
+        assertEquals(2000L, stats.wastedBytes);
+    }
+
+    @Test
+    public void failedPrefetch_isCountedOnItsOwn() {
+        ImagePrefetcher prefetcher = new ImagePrefetcher(fetcher, null, urls, 3, 1, 1);
+
+        prefetcher.onPageSelected(0);
+        fetcher.fail(2);
+        prefetcher.onPageSelected(1);
+        prefetcher.onPageSelected(2);
+        prefetcher.onPageSelected(40);
+
+        // Page 2 was selected but never prefetched, the finished request isn't cancelled
+        ImagePrefetcher.Stats stats = prefetcher.getStats();
+        assertEquals(0, stats.hits);
+        assertEquals(1, stats.failed);
+        assertFalse(fetcher.cancelled.contains(2));
+        assertEquals(0, stats.wasted);
+    }
+
+    private static Set<Integer> setOf(Integer... values) {
+        Set<Integer> set = new LinkedHashSet<>();
+
+        for (Integer value : values) {
+            set.add(value);
+        }
+
+        return set;
+    }
+
+    private static class FakeFetcher implements ImagePrefetcher.Fetcher {
+        final Set<Integer> active = new TreeSet<>();
+        final Set<Integer> cancelled = new LinkedHashSet<>();
+        final Map<Integer, ImagePrefetcher.FetchListener> listeners = new HashMap<>();
+
+        @Override
+        public void fetch(int position, String url, ImagePrefetcher.FetchListener listener) {
+            active.add(position);
+            listeners.put(position, listener);
+        }
+
+        @Override
+        public void cancel(int position) {
+            active.remove(position);
+            cancelled.add(position);
+        }
+
+        void fail(int position) {
+            active.remove(position);
+            listeners.get(position).onFetched(position, false);
+        }
+
+        void completeAll() {
+            for (Integer position : active) {
+                listeners.get(position).onFetched(position, true);
+            }
+
+            active.clear();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that ImageRefList hands back the URLs it was given, keeping a breed id and a file name
+ * per URL. ImageRefListBenchmark in the benchmarks module measures its heap use.
+ */
+public class ImageRefListTest {
+    private static final int URLS = 1000;
+    private static final int BREEDS = 120;
+
+    @Test
+    public void roundTripsUrls() {
+        List<String> urls = Arrays.asList(
+                "https://images.dog.ceo/breeds/hound-afghan/n02088094_1003.jpg",
+                "https://images.dog.ceo/breeds/pug/n02110958_15626.jpg",
+                "https://example.com/not/a/dog/ceo/url.png");
+        ImageRefList refs = new ImageRefList(urls);
+
+        assertEquals(urls, refs);
+        assertEquals(urls, new ImageRefList(refs));
+        assertEquals("Afghan Hound", refs.getDisplayName(0));
+        assertEquals("Pug", refs.getDisplayName(1));
+        assertEquals("", refs.getDisplayName(2));
+        assertEquals(ImageRef.parse(urls.get(1)), refs.getRef(1));
+
+        // The breed segment is stored once however many URLs share it
+        assertEquals(refs.getBreedId(0),
+                ImageRef.parse("https://images.dog.ceo/breeds/hound-afghan/x.jpg").getBreedId());
+    }
+
+    @Test
+    public void breedIds_surviveTheDictionaryGrowing() {
+        BreedDictionary dictionary = BreedDictionary.getInstance();
+        int[] ids = new int[1000];
+
+        // More segments than the dictionary's table starts with
+        for (int i = 0; i < ids.length; i++) {
+            String url = "https://images.dog.ceo/breeds/grow" + i + "-test/x.jpg";
+            ids[i] = dictionary.idOf(url, 30, url.indexOf('/', 30));
+        }
+
+        for (int i = 0; i < ids.length; i++) {
+            String url = "https://images.dog.ceo/breeds/grow" + i + "-test/y.jpg";
+            assertEquals(ids[i], dictionary.idOf(url, 30, url.indexOf('/', 30)));
+            assertEquals("grow" + i + "-test", dictionary.getPath(ids[i]));
+        }
+    }
+
+    @Test
+    public void storesABreedIdAndFileNamePerUrl() {
+        ImageRefList refs = new ImageRefList();
+        Set<Integer> breedIds = new HashSet<>();
+
+        for (int i = 0; i < URLS; i++) {
+            refs.add(url(i));
+        }
+
+        for (int i = 0; i < URLS; i++) {
+            String url = url(i);
+            assertEquals(url, refs.get(i));
+            assertEquals(url.substring(url.lastIndexOf('/') + 1), refs.getRef(i).getFileName());
+            breedIds.add(refs.getBreedId(i));
+        }
+
+        // One copy of each breed segment, however many URLs
+        assertEquals(BREEDS, breedIds.size());
+        assertEquals(refs.getBreedId(0), refs.getBreedId(BREEDS));
+    }
+
+    private static String url(int i) {
+        // Same shape as the Api's URLs: a shared prefix, the breed, then the file name
+        return new StringBuilder("https://images.dog.ceo/breeds/")
+                .append("breed").append(i % BREEDS).append("-sub")
+                .append("/n0").append(2085000 + i % BREEDS).append('_').append(i).append(".jpg")
+                .toString();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the priorities, fling pausing and cancelling of ImageScheduler with a fake standing in
+ * for Picasso.
+ */
+public class ImageSchedulerTest {
+    private final FakeRequests requests = new FakeRequests();
+    private final ImageScheduler scheduler = new ImageScheduler(requests, 1);
+
+    @Test
+    public void currentPageGoesFirst() {
+        scheduler.setCurrentPage(10);
+
+        assertEquals(ImageScheduler.PRIORITY_HIGH, scheduler.priorityOf(10));
+        assertEquals(ImageScheduler.PRIORITY_NORMAL, scheduler.priorityOf(9));
+        assertEquals(ImageScheduler.PRIORITY_NORMAL, scheduler.priorityOf(11));
+        assertEquals(ImageScheduler.PRIORITY_LOW, scheduler.priorityOf(12));
+
+        scheduler.start(10, url(10), false);
+        scheduler.start(13, url(13), true);
+
+        assertEquals(ImageScheduler.PRIORITY_HIGH, scheduler.priorityOf(url(10)));
+        assertEquals(ImageScheduler.PRIORITY_LOW, scheduler.priorityOf(url(13)));
+        assertEquals(ImageScheduler.PRIORITY_LOW, scheduler.priorityOf(url(99)));
+    }
+
+    @Test
+    public void settling_pausesRequestsOutsideWindowUntilIdle() {
+        scheduler.setCurrentPage(10);
+        Object left = scheduler.start(9, url(9), false);
+        Object shown = scheduler.start(10, url(10), false);
+        Object prefetch = scheduler.start(12, url(12), true);
+
+        // Fling forward two pages, the prefetched page is now next to the one shown
+        scheduler.setCurrentPage(12);
+        scheduler.setSettling(true);
+
+        assertEquals(setOf(left, shown), new HashSet<>(requests.paused));
+        assertEquals(ImageScheduler.PRIORITY_PAUSED, scheduler.priorityOf(url(9)));
+        assertEquals(ImageScheduler.PRIORITY_HIGH, scheduler.priorityOf(url(12)));
+
+        // Settling again pauses nothing twice
+        scheduler.setSettling(true);
+        assertEquals(2, requests.paused.size());
+
+        scheduler.setSettling(false);
+
+        assertEquals(setOf(left, shown), new HashSet<>(requests.resumed));
+        assertEquals(ImageScheduler.PRIORITY_LOW, scheduler.priorityOf(url(9)));
+        assertTrue(requests.cancelled.isEmpty());
+        assertNotNull(prefetch);
+    }
+
+    @Test
+    public void finishedRequestsAreNotPaused() {
+        scheduler.setCurrentPage(0);
+        Object done = scheduler.start(0, url(0), false);
+        scheduler.finish(done);
+
+        scheduler.setCurrentPage(5);
+        scheduler.setSettling(true);
+
+        assertTrue(requests.paused.isEmpty());
+        assertEquals(0, scheduler.getActiveCount());
+    }
+
+    @Test
+    public void pageAndPrefetchOfAPosition_haveTheirOwnTags() {
+        Object page = scheduler.start(3, url(3), false);
+        Object prefetch = scheduler.start(3, url(3), true);
+
+        assertNotEquals(page, prefetch);
+
+        scheduler.cancel(3, true);
+
+        assertEquals(Arrays.asList(prefetch), requests.cancelled);
+        assertEquals(1, scheduler.getActiveCount());
+
+        // The page still wants the URL
+        scheduler.setCurrentPage(3);
+        assertEquals(ImageScheduler.PRIORITY_HIGH, scheduler.priorityOf(url(3)));
+    }
+
+    @Test
+    public void close_cancelsEverything() {
+        Object page = scheduler.start(0, url(0), false);
+        Object prefetch = scheduler.start(3, url(3), true);
+
+        scheduler.close();
+
+        assertEquals(2, requests.cancelled.size());
+        assertTrue(requests.cancelled.containsAll(Arrays.asList(page, prefetch)));
+        assertEquals(0, scheduler.getActiveCount());
+        assertEquals(ImageScheduler.PRIORITY_LOW, scheduler.priorityOf(url(3)));
+    }
+
+    @Test
+    public void tagsOfDifferentScreensDiffer() {
+        ImageScheduler other = new ImageScheduler(requests, 1);
+
+        assertNotEquals(scheduler.start(0, url(0), false), other.start(0, url(0), false));
+        assertEquals(scheduler.start(0, url(0), false), scheduler.start(0, url(0), false));
+    }
+
+    private static Set<Object> setOf(Object... tags) {
+        return new HashSet<>(Arrays.asList(tags));
+    }
+
+    private static String url(int position) {
+        return "https://images.dog.ceo/breeds/pug/" + position + ".jpg";
+    }
+
+    private static class FakeRequests implements ImageScheduler.Requests {
+        final List<Object> paused = new ArrayList<>();
+        final List<Object> resumed = new ArrayList<>();
+        final List<Object> cancelled = new ArrayList<>();
+
+        @Override
+        public void pause(Object tag) {
+            paused.add(tag);
+        }
+
+        @Override
+        public void resume(Object tag) {
+            resumed.add(tag);
+        }
+
+        @Override
+        public void cancel(Object tag) {
+            cancelled.add(tag);
+        }
+    }
+}
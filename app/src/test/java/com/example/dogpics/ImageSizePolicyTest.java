@@ -0,0 +1,52 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the decode sizes and memory budget of ImageSizePolicy.
+ */
+public class ImageSizePolicyTest {
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void targetsAvailableAreaWhenWithinBudget() {
+        ImageSizePolicy policy = new ImageSizePolicy(2f, 64 * MB, 7);
+        policy.setAvailableArea(700, 600);
+
+        assertEquals(700, policy.getTargetWidth(true));
+        assertEquals(600, policy.getTargetHeight(true));
+    }
+
+    @Test
+    public void fallsBackToDensityBeforeAreaIsKnown() {
+        ImageSizePolicy policy = new ImageSizePolicy(3f, 64 * MB, 7);
+
+        assertEquals(0, policy.getTargetWidth(true));
+        assertEquals(900, policy.getTargetHeight(true));
+    }
+
+    @Test
+    public void scalesDownToFitPagesInBudget() {
+        // A tablet sized area on a small heap: 7 pages of 1600x1200 ARGB would need 53MB
+        ImageSizePolicy policy = new ImageSizePolicy(2f, ImageSizePolicy.memoryBudgetFor(48), 7);
+        policy.setAvailableArea(1600, 1200);
+
+        int width = policy.getTargetWidth(false);
+        int height = policy.getTargetHeight(false);
+
+        assertTrue((long) width * height * 4 <= policy.getPageBudgetBytes());
+        assertEquals(1600f / 1200f, (float) width / height, 0.01f);
+
+        // Without alpha the same budget allows twice the pixels
+        assertTrue(policy.getTargetWidth(true) > width);
+    }
+
+    @Test
+    public void onlyJpegsAreOpaque() {
+        assertTrue(ImageSizePolicy.isOpaque("https://images.dog.ceo/breeds/pug/a.jpg"));
+        assertTrue(ImageSizePolicy.isOpaque("https://images.dog.ceo/breeds/pug/a.JPEG"));
+        assertFalse(ImageSizePolicy.isOpaque("https://images.dog.ceo/breeds/pug/a.png"));
+    }
+}
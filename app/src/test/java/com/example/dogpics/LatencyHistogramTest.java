@@ -0,0 +1,39 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the bucket boundaries and the percentiles read from them.
+ */
+public class LatencyHistogramTest {
+    @Test
+    public void bucketsCoverEveryValueOnce() {
+        int last = -1;
+
+        for (long ms = 0; ms < 70000; ms++) {
+            int bucket = LatencyHistogram.bucketOf(ms);
+
+            assertTrue(bucket == last || bucket == last + 1);
+            assertTrue(ms + " above its bucket", ms <= LatencyHistogram.upperBoundOf(bucket)
+                    || ms >= 65536);
+            last = bucket;
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinABucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int ms = 1; ms <= 1000; ms++) {
+            histogram.record(ms);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.percentile(0.5), 500 / 8);
+        assertEquals(990, histogram.percentile(0.99), 990 / 8);
+        assertEquals(1000, histogram.percentile(1.0));
+        assertEquals(0, new LatencyHistogram().percentile(0.99));
+    }
+}
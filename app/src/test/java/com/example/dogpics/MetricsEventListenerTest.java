@@ -0,0 +1,76 @@
+package com.example.dogpics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Makes real calls to a local MockWebServer and checks what MetricsEventListener records.
+ */
+public class MetricsEventListenerTest {
+    private static final String CATALOG =
+            "{\"message\":{\"hound\":[\"afghan\",\"basset\"],\"pug\":[]},\"status\":\"success\"}";
+
+    private MockWebServer server;
+    private Metrics metrics;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        metrics = new Metrics();
+        client = new OkHttpClient.Builder()
+                .eventListenerFactory(new MetricsEventListener.Factory(metrics))
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void apiCalls_areRecordedUnderTheirMethod() throws Exception {
+        server.enqueue(new MockResponse().setBody(CATALOG)
+                .setHeadersDelay(100, TimeUnit.MILLISECONDS));
+        ApiCalls apiCalls = new Retrofit.Builder()
+                .baseUrl(server.url("/api/"))
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiCalls.class);
+
+        assertTrue(apiCalls.getAllBreed().execute().isSuccessful());
+
+        assertEquals(1, metrics.counter("http.getAllBreed.calls").get());
+        assertEquals(CATALOG.length(), metrics.counter("http.getAllBreed.bytes_received").get());
+        assertEquals(1, metrics.histogram("http.getAllBreed.connect").getCount());
+        assertTrue(metrics.histogram("http.getAllBreed.ttfb").getMaxMs() >= 100);
+        assertTrue(metrics.histogram("http.getAllBreed.total").getMaxMs() >= 100);
+    }
+
+    @Test
+    public void otherRequests_countAsImages() throws Exception {
+        server.enqueue(new MockResponse().setBody("not really a jpeg"));
+
+        client.newCall(new Request.Builder().url(server.url("/breeds/pug/1.jpg")).build())
+                .execute()
+                .body()
+                .string();
+
+        assertEquals(1, metrics.counter("http.image.calls").get());
+        assertEquals(17, metrics.counter("http.image.bytes_received").get());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.dogpics;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the counters, histograms and JSON dump of Metrics.
+ */
+public class MetricsTest {
+    @Test
+    public void concurrentRecording_losesNothing() throws Exception {
+        final Metrics metrics = new Metrics();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        metrics.increment("calls");
+                        metrics.record("latency", i % 100);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, metrics.counter("calls").get());
+        assertEquals(40000, metrics.histogram("latency").getCount());
+        assertEquals(99, metrics.histogram("latency").getMaxMs());
+    }
+
+    @Test
+    public void dump_isJsonWithEverySection() {
+        Metrics metrics = new Metrics();
+        metrics.add("http.image.bytes_received", 2048);
+        metrics.record("http.getAllBreed.ttfb", 40);
+        metrics.register("api.circuit_breaker_open", new Metrics.Gauge() {
+            @Override
+            public long get() {
+                return 1;
+            }
+        });
+
+        JsonObject json = new JsonParser().parse(metrics.toJson()).getAsJsonObject();
+
+        assertEquals(2048, json.getAsJsonObject("counters")
+                .get("http.image.bytes_received").getAsLong());
+        assertEquals(1, json.getAsJsonObject("gauges").get("api.circuit_breaker_open").getAsLong());
+        JsonObject ttfb = json.getAsJsonObject("histograms")
+                .getAsJsonObject("http.getAllBreed.ttfb");
+        assertEquals(1, ttfb.get("count").getAsLong());
+        assertEquals(40, ttfb.get("p99").getAsLong());
+
+        metrics.clear();
+        assertEquals(0, metrics.counter("http.image.bytes_received").get());
+        assertEquals(0, metrics.histogram("http.getAllBreed.ttfb").getCount());
+    }
+}
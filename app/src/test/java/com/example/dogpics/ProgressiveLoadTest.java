@@ -0,0 +1,71 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Walks ProgressiveLoad through the ways a page's picture can load: preview then cached full
+ * picture, a full picture missing from the cache, and failed previews and downloads.
+ */
+public class ProgressiveLoadTest {
+    @Test
+    public void previewThenCachedPicture() {
+        ProgressiveLoad load = new ProgressiveLoad(true);
+        assertEquals(ProgressiveLoad.Step.PREVIEW, load.getStep());
+        assertFalse(load.isPreviewShown());
+
+        // The preview is the first picture on the page
+        assertTrue(load.onLoaded());
+        assertEquals(ProgressiveLoad.Step.FULL_FROM_CACHE, load.getStep());
+        assertTrue(load.isPreviewShown());
+        assertFalse(load.showsError());
+
+        // The full picture isn't counted again
+        assertFalse(load.onLoaded());
+        assertEquals(ProgressiveLoad.Step.DONE, load.getStep());
+    }
+
+    @Test
+    public void pictureNotInCache_isDownloadedOverThePreview() {
+        ProgressiveLoad load = new ProgressiveLoad(true);
+        load.onLoaded();
+
+        load.onFailed();
+        assertEquals(ProgressiveLoad.Step.FULL, load.getStep());
+        assertTrue(load.isPreviewShown());
+        assertTrue(load.showsError());
+
+        assertFalse(load.onLoaded());
+        assertEquals(ProgressiveLoad.Step.DONE, load.getStep());
+    }
+
+    @Test
+    public void failedPreview_goesStraightToTheDownload() {
+        ProgressiveLoad load = new ProgressiveLoad(true);
+
+        load.onFailed();
+        assertEquals(ProgressiveLoad.Step.FULL, load.getStep());
+        assertFalse(load.isPreviewShown());
+
+        // With no preview, the full picture is the first one
+        assertTrue(load.onLoaded());
+    }
+
+    @Test
+    public void failedDownload_isTheLastStep() {
+        ProgressiveLoad load = new ProgressiveLoad(false);
+        assertEquals(ProgressiveLoad.Step.FULL, load.getStep());
+        assertTrue(load.showsError());
+
+        load.onFailed();
+        assertEquals(ProgressiveLoad.Step.DONE, load.getStep());
+    }
+
+    @Test
+    public void unmeasuredOrTinyPages_haveNoPreviewSize() {
+        assertEquals(0, ProgressiveLoad.previewSize(0));
+        assertEquals(0, ProgressiveLoad.previewSize(ProgressiveLoad.PREVIEW_SCALE - 1));
+        assertEquals(135, ProgressiveLoad.previewSize(1080));
+    }
+}
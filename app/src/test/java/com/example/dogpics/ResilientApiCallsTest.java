@@ -0,0 +1,120 @@
+package com.example.dogpics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs ResilientApiCalls against a local MockWebServer that answers slowly or fails on purpose.
+ * HedgingBenchmark in the benchmarks module measures the latency hedging saves.
+ */
+public class ResilientApiCallsTest {
+    private static final String CATALOG =
+            "{\"message\":{\"hound\":[\"afghan\",\"basset\"],\"pug\":[]},\"status\":\"success\"}";
+
+    // Runs the callbacks on whichever thread delivers
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        breaker = new CircuitBreaker(2, 60 * 1000);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void transientErrors_areRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody(CATALOG));
+
+        // A separate breaker, two failures would open the shared one
+        breaker = new CircuitBreaker(5, 60 * 1000);
+        Response<BreedInfo> response = newApiCalls(false).getAllBreed().execute();
+
+        assertTrue(response.isSuccessful());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void slowRequest_isHedged() throws Exception {
+        server.enqueue(new MockResponse().setBody(CATALOG).setBodyDelay(5, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setBody(CATALOG).setHeader("X-Answer", "hedge"));
+
+        Response<BreedInfo> response = newApiCalls(true).getAllBreed().execute();
+
+        // The hedge answers first
+        assertTrue(response.isSuccessful());
+        assertEquals("hedge", response.headers().get("X-Answer"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void openBreaker_answersFromCache() throws Exception {
+        server.enqueue(new MockResponse().setBody(CATALOG).setHeader("Cache-Control", "max-age=0"));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        ApiCalls apiCalls = newApiCalls(false);
+
+        assertTrue(apiCalls.getAllBreed().execute().isSuccessful());
+
+        // The second failure opens the breaker, so the last retry is skipped
+        assertEquals(500, apiCalls.getAllBreed().execute().code());
+        assertEquals(3, server.getRequestCount());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        Response<BreedInfo> cached = apiCalls.getAllBreed().execute();
+        assertTrue(cached.isSuccessful());
+        assertNull(cached.raw().networkResponse());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    private ApiCalls newApiCalls(boolean hedging) {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .cache(new Cache(folder.getRoot(), 1024 * 1024))
+                .addInterceptor(breaker)
+                .build();
+        ApiCalls apiCalls = new Retrofit.Builder()
+                .baseUrl(server.url("/api/"))
+                .client(client)
+                .callbackExecutor(DIRECT)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiCalls.class);
+
+        return new ResilientApiCalls(apiCalls, breaker, DIRECT, new Random(1), hedging);
+    }
+}
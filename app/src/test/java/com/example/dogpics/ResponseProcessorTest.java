@@ -0,0 +1,136 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the stages run in the background and only their results reach the result executor,
+ * which stands in for the main thread here.
+ */
+public class ResponseProcessorTest {
+    // Runnables posted to the "main thread", run by the test itself
+    private final BlockingQueue<Runnable> mainQueue = new LinkedBlockingQueue<>();
+    private final Executor mainThread = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mainQueue.add(command);
+        }
+    };
+
+    private final List<String> overBudget = new ArrayList<>();
+    private final MainThreadBudget.Reporter reporter = new MainThreadBudget.Reporter() {
+        @Override
+        public void onOverBudget(String section, long tookMs, long budgetMs) {
+            overBudget.add(section);
+        }
+    };
+
+    @Test
+    public void runsStageInBackgroundAndResultOnMainThread() throws Exception {
+        ResponseProcessor processor =
+                new ResponseProcessor(mainThread, new MainThreadBudget(100, reporter));
+        final String[] stageThread = new String[1];
+        final List<List<String>> results = new ArrayList<>();
+
+        processor.process("page", Arrays.asList("breeds/pug/1.jpg", "breeds/pug/2.jpg"),
+                new ResponseProcessor.Stage<List<String>, List<String>>() {
+                    @Override
+                    public List<String> process(List<String> suffixes) {
+                        stageThread[0] = Thread.currentThread().getName();
+                        ImageRefList urls = new ImageRefList();
+
+                        for (String suffix : suffixes) {
+                            urls.add(ImageRef.URL_PREFIX + suffix);
+                        }
+                        return urls.freeze();
+                    }
+                }, new RecordingConsumer<List<String>>(results));
+
+        runNextOnMainThread();
+
+        assertTrue(stageThread[0].startsWith("response-processor-"));
+        assertEquals(1, results.size());
+        assertEquals(ImageRef.URL_PREFIX + "breeds/pug/2.jpg", results.get(0).get(1));
+        assertTrue(overBudget.isEmpty());
+    }
+
+    @Test
+    public void failingStageReportsError() throws Exception {
+        ResponseProcessor processor =
+                new ResponseProcessor(mainThread, new MainThreadBudget(100, reporter));
+        List<String> results = new ArrayList<>();
+        RecordingConsumer<String> consumer = new RecordingConsumer<>(results);
+
+        processor.process("broken", "input", new ResponseProcessor.Stage<String, String>() {
+            @Override
+            public String process(String input) {
+                throw new IllegalStateException("bad response");
+            }
+        }, consumer);
+
+        runNextOnMainThread();
+
+        assertTrue(results.isEmpty());
+        assertEquals(1, consumer.errors);
+    }
+
+    @Test
+    public void reportsSlowConsumers() throws Exception {
+        ResponseProcessor processor =
+                new ResponseProcessor(mainThread, new MainThreadBudget(1, reporter));
+
+        processor.process("slow", "input", new ResponseProcessor.Stage<String, String>() {
+            @Override
+            public String process(String input) {
+                return input;
+            }
+        }, new RecordingConsumer<String>(new ArrayList<String>()) {
+            @Override
+            public void onResult(String result) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        runNextOnMainThread();
+
+        assertEquals(Arrays.asList("slow"), overBudget);
+    }
+
+    private void runNextOnMainThread() throws InterruptedException {
+        Runnable runnable = mainQueue.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Nothing was posted to the main thread", runnable);
+        runnable.run();
+    }
+
+    private static class RecordingConsumer<O> implements ResponseProcessor.Consumer<O> {
+        private final List<O> results;
+        int errors;
+
+        RecordingConsumer(List<O> results) {
+            this.results = results;
+        }
+
+        @Override
+        public void onResult(O result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onError() {
+            errors++;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.dogpics;
+
+import org.junit.Test;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which downloads make up the estimate of ThroughputEstimator.
+ */
+public class ThroughputEstimatorTest {
+    @Test
+    public void estimateWeighsByBytes_andIgnoresSmallResponses() {
+        ThroughputEstimator estimator = new ThroughputEstimator();
+        assertEquals(-1, estimator.getKbps());
+
+        estimator.record(1024, 1000);
+        assertEquals(0, estimator.getSampleCount());
+
+        // 800kbps and 3200kbps, twice the bytes at the faster speed
+        estimator.record(100 * 1000, 1000);
+        estimator.record(200 * 1000, 500);
+
+        assertEquals(300 * 8 * 1000 / 1500, estimator.getKbps());
+    }
+
+    @Test
+    public void onlyBodiesReadToTheEnd_areMeasured() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody(new Buffer().write(new byte[64 * 1024])));
+        server.enqueue(new MockResponse().setBody(new Buffer().write(new byte[64 * 1024])));
+        server.start();
+
+        ThroughputEstimator estimator = new ThroughputEstimator();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addNetworkInterceptor(estimator)
+                .build();
+
+        try {
+            Response read = client.newCall(new Request.Builder().url(server.url("/a.jpg")).build())
+                    .execute();
+            assertEquals(64 * 1024, read.body().bytes().length);
+
+            Response abandoned = client
+                    .newCall(new Request.Builder().url(server.url("/b.jpg")).build())
+                    .execute();
+            abandoned.close();
+
+            assertEquals(1, estimator.getSampleCount());
+            assertTrue(estimator.getKbps() > 0);
+        } finally {
+            server.shutdown();
+        }
+    }
+}
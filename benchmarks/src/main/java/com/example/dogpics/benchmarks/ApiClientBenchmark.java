@@ -0,0 +1,93 @@
+package com.example.dogpics.benchmarks;
+
+import com.example.dogpics.ApiClient;
+import com.example.dogpics.RandomImage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+import retrofit2.Response;
+
+/**
+ * Request latency through one shared ApiClient against building a new ApiClient for every
+ * request, which is what each activity used to do in onCreate. Runs over TLS against a local
+ * MockWebServer so the fresh client pays for a new connection and handshake every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ApiClientBenchmark {
+    private static final String RANDOM_BODY =
+            "{\"message\":[\"https://images.dog.ceo/breeds/pug/a.jpg\"],\"status\":\"success\"}";
+
+    private MockWebServer server;
+    private OkHttpClient trustingClient;
+    private ApiClient shared;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName("localhost")
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build();
+        HandshakeCertificates clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+
+        server = new MockWebServer();
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(RANDOM_BODY);
+            }
+        });
+        server.start();
+
+        trustingClient = new OkHttpClient.Builder()
+                .sslSocketFactory(clientCertificates.sslSocketFactory(),
+                        clientCertificates.trustManager())
+                .build();
+        shared = newApiClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public Response<RandomImage> sharedClient() throws IOException {
+        return shared.getApiCalls().getRandomPage(1).execute();
+    }
+
+    @Benchmark
+    public Response<RandomImage> freshClient() throws IOException {
+        return newApiClient().getApiCalls().getRandomPage(1).execute();
+    }
+
+    private ApiClient newApiClient() {
+        return new ApiClient.Builder(server.url("/api/").toString())
+                .baseClient(trustingClient)
+                .build();
+    }
+}
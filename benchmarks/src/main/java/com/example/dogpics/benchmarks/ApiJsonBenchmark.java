@@ -0,0 +1,106 @@
+package com.example.dogpics.benchmarks;
+
+import com.example.dogpics.ApiJsonAdapters;
+import com.example.dogpics.BreedInfo;
+import com.example.dogpics.ImageRefList;
+import com.example.dogpics.RandomImage;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode time of the breed list and of a page of picture URLs, through Gson's reflection plus the
+ * copies the app used to make of the result, next to ApiJsonAdapters. Run with the gc profiler
+ * (the default of the jmh task) for the bytes allocated per decode. Scale 1 is the real size,
+ * about 100 breeds and a 50 URL page, scale 100 is a hundred times that.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ApiJsonBenchmark {
+    private static final int BREEDS = 100;
+    private static final int URLS = 50;
+
+    @Param({"1", "100"})
+    public int scale;
+
+    private final Gson reflective = new Gson();
+    private final Gson streaming = new GsonBuilder()
+            .registerTypeAdapterFactory(new ApiJsonAdapters())
+            .create();
+    private String catalogJson;
+    private String urlsJson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder catalog = new StringBuilder("{\"message\":{");
+
+        for (int i = 0; i < BREEDS * scale; i++) {
+            catalog.append(i > 0 ? "," : "").append("\"breed").append(i).append("\":[");
+
+            // A quarter of the breeds have sub-breeds, like the real list
+            if (i % 4 == 0) {
+                catalog.append("\"alpine\",\"coastal\",\"royal\"");
+            }
+            catalog.append(']');
+        }
+        catalogJson = catalog.append("},\"status\":\"success\"}").toString();
+
+        StringBuilder urls = new StringBuilder("{\"message\":[");
+
+        for (int i = 0; i < URLS * scale; i++) {
+            urls.append(i > 0 ? "," : "")
+                    .append("\"https://images.dog.ceo/breeds/breed").append(i % 120)
+                    .append("/n02085620_").append(1000 + i).append(".jpg\"");
+        }
+        urlsJson = urls.append("],\"status\":\"success\"}").toString();
+    }
+
+    @Benchmark
+    public Map<String, List<String>> catalogReflective() {
+        BreedInfo info = reflective.fromJson(new StringReader(catalogJson), BreedInfo.class);
+
+        // The copy BreedCatalogRepository kept, then the copy it handed to MainActivity
+        Map<String, List<String>> kept = new HashMap<>(info.getBreedInfo());
+        Map<String, List<String>> delivered = new HashMap<>();
+
+        for (Map.Entry<String, List<String>> entry : kept.entrySet()) {
+            delivered.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return delivered;
+    }
+
+    @Benchmark
+    public Map<String, List<String>> catalogStreaming() {
+        return streaming.fromJson(new StringReader(catalogJson), BreedInfo.class).getBreedInfo();
+    }
+
+    @Benchmark
+    public List<String> urlsReflective() {
+        RandomImage page = reflective.fromJson(new StringReader(urlsJson), RandomImage.class);
+
+        // The copy ImageListVM made of every page
+        return new ImageRefList(page.getRandomList()).freeze();
+    }
+
+    @Benchmark
+    public List<String> urlsStreaming() {
+        return streaming.fromJson(new StringReader(urlsJson), RandomImage.class).getRandomList();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.dogpics.benchmarks;
+
+import com.example.dogpics.BreedNameParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares BreedNameParser against the substring based parsing ImageScreenActivity.parseUrl() used
+ * to do, for a page of 70 URLs as the old calls returned, 1,000 and 100,000 URLs. Run with the gc
+ * profiler (the jmh task does) to see the bytes allocated per batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BreedNameParserBenchmark {
+    // Roughly the number of breeds and sub-breeds the Api knows
+    private static final int BREEDS = 150;
+
+    @Param({"70", "1000", "100000"})
+    public int batchSize;
+
+    private List<String> urls;
+    private BreedNameParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        urls = new ArrayList<>(batchSize);
+
+        for (int i = 0; i < batchSize; i++) {
+            int breed = random.nextInt(BREEDS);
+            String segment = breed % 3 == 0 ? "breed" + breed + "-sub" + breed : "breed" + breed;
+            urls.add("https://images.dog.ceo/breeds/" + segment + "/n0" + (2085000 + breed)
+                    + "_" + i + ".jpg");
+        }
+
+        // Warm the table like a running app would have it after the first page
+        parser = new BreedNameParser();
+
+        for (String url : urls) {
+            parser.parse(url);
+        }
+    }
+
+    @Benchmark
+    public void cachedParser(Blackhole blackhole) {
+        for (int i = 0; i < urls.size(); i++) {
+            blackhole.consume(parser.parse(urls.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void substringParse(Blackhole blackhole) {
+        for (int i = 0; i < urls.size(); i++) {
+            blackhole.consume(parseUrl(urls.get(i)));
+        }
+    }
+
+    /**
+     * The parsing ImageScreenActivity.parseUrl() did for each URL, minus the logging.
+     */
+    private static String parseUrl(String url) {
+        int indexBegin = url.lastIndexOf("breeds/") + "breeds/".length();
+        int indexEnd = url.indexOf("/", indexBegin);
+        String dogBreed = url.substring(indexBegin, indexEnd);
+
+        if (dogBreed.contains("-")) {
+            int splitIndex = dogBreed.indexOf('-');
+            String parsedBreed = dogBreed
+                    .substring(0, 1)
+                    .toUpperCase() + dogBreed.substring(1, splitIndex);
+            String parsedSubBreed = dogBreed
+                    .substring(splitIndex + 1, splitIndex + 2)
+                    .toUpperCase() + dogBreed.substring(splitIndex + 2);
+
+            return parsedSubBreed + " " + parsedBreed;
+        }
+
+        return dogBreed.substring(0, 1).toUpperCase() + dogBreed.substring(1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.dogpics.benchmarks;
+
+import com.example.dogpics.ApiCalls;
+import com.example.dogpics.ApiClient;
+import com.example.dogpics.ImageHostInterceptor;
+import com.example.dogpics.ImageRef;
+import com.example.dogpics.RandomImage;
+import com.example.dogpics.fixtures.FakeDogApi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Call;
+
+/**
+ * Latency and throughput of the app's ApiClient and image client under concurrent load from 8
+ * threads, against a local FakeDogApi answering in 40ms and sending pictures at 250KB/s. With the
+ * calls overlapping, a page should take about the server latency and a 100KB picture about 400ms;
+ * a serial client would need 8 times as long.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class FakeDogApiLoadBenchmark {
+    private static final long LATENCY_MS = 40;
+
+    private FakeDogApi api;
+    private FakeDogApi imageHost;
+    private ApiCalls apiCalls;
+    private OkHttpClient imageClient;
+    private Request imageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        api = new FakeDogApi.Builder().latency(LATENCY_MS, 0).build();
+        api.start();
+        apiCalls = new ApiClient.Builder(api.getApiBaseUrl()).build().getApiCalls();
+
+        imageHost = new FakeDogApi.Builder().imageBytes(100000).bandwidth(250000).build();
+        imageHost.start();
+        imageClient = new OkHttpClient.Builder()
+                .addInterceptor(new ImageHostInterceptor(imageHost.getImageBaseUrl()))
+                .build();
+        imageRequest = new Request.Builder()
+                .url(ImageRef.URL_PREFIX + "pug/pug_1.jpg")
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        api.shutdown();
+        imageHost.shutdown();
+    }
+
+    @Benchmark
+    public retrofit2.Response<RandomImage> randomPage() throws IOException {
+        Call<RandomImage> call = apiCalls.getRandomPage(20);
+        return call.execute();
+    }
+
+    @Benchmark
+    public int imageDownload() throws IOException {
+        Response response = imageClient.newCall(imageRequest).execute();
+
+        try {
+            return response.body().bytes().length;
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.dogpics.benchmarks;
+
+import com.example.dogpics.ApiCalls;
+import com.example.dogpics.CircuitBreaker;
+import com.example.dogpics.RandomImage;
+import com.example.dogpics.ResilientApiCalls;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Latency of an Api call against a local MockWebServer where one response in 25 takes 400ms, made
+ * straight through Retrofit and through ResilientApiCalls. Hedging past the 95th percentile
+ * should bring the p0.99 of the sampled calls down to about the hedge delay. The warm-up calls
+ * give ResilientApiCalls the latencies it picks the hedge delay from.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HedgingBenchmark {
+    private static final String RANDOM_PAGE =
+            "{\"message\":[\"https://images.dog.ceo/breeds/pug/1.jpg\"],\"status\":\"success\"}";
+
+    // Runs the callbacks on whichever thread delivers
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Param({"false", "true"})
+    public boolean hedging;
+
+    private MockWebServer server;
+    private ApiCalls apiCalls;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final AtomicInteger requests = new AtomicInteger();
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse response = new MockResponse().setBody(RANDOM_PAGE);
+
+                return requests.incrementAndGet() % 25 == 0
+                        ? response.setBodyDelay(400, TimeUnit.MILLISECONDS)
+                        : response;
+            }
+        });
+        server.start();
+
+        CircuitBreaker breaker = new CircuitBreaker();
+        ApiCalls retrofitCalls = new Retrofit.Builder()
+                .baseUrl(server.url("/api/"))
+                .client(new OkHttpClient.Builder().addInterceptor(breaker).build())
+                .callbackExecutor(DIRECT)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+                .create(ApiCalls.class);
+
+        apiCalls = hedging
+                ? new ResilientApiCalls(retrofitCalls, breaker, DIRECT)
+                : retrofitCalls;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public Response<RandomImage> randomPage() throws IOException {
+        return apiCalls.getRandomPage(1).execute();
+    }
+}
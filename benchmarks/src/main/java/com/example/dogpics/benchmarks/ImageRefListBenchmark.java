@@ -0,0 +1,137 @@
+package com.example.dogpics.benchmarks;
+
+import com.example.dogpics.ImageRefList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling and reading 1,000 URLs as the plain List of Strings the screens used to keep and as an
+ * ImageRefList. The heap each one keeps isn't something JMH reports, main() measures that, run it
+ * with ./gradlew :benchmarks:heapReport.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ImageRefListBenchmark {
+    private static final int URLS = 1000;
+    private static final int BREEDS = 120;
+
+    // Enough URLs for the heap difference to stand out from the noise
+    private static final int HEAP_URLS = 100000;
+
+    private String[] urls;
+    private List<String> plain;
+    private ImageRefList compact;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        urls = new String[URLS];
+
+        for (int i = 0; i < URLS; i++) {
+            urls[i] = url(i);
+        }
+
+        plain = fillPlain();
+        compact = fillCompact();
+    }
+
+    @Benchmark
+    public List<String> fillPlain() {
+        List<String> list = new ArrayList<>();
+
+        for (String url : urls) {
+            // Every URL decoded from a response is its own String
+            list.add(new String(url));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public ImageRefList fillCompact() {
+        ImageRefList list = new ImageRefList();
+
+        for (String url : urls) {
+            list.add(url);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public int readPlain() {
+        int length = 0;
+
+        for (int i = 0; i < URLS; i++) {
+            length += plain.get(i).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int readCompact() {
+        int length = 0;
+
+        for (int i = 0; i < URLS; i++) {
+            length += compact.get(i).length();
+        }
+        return length;
+    }
+
+    /**
+     * Prints the heap kept per 1,000 URLs by each list.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long before = usedHeap();
+        List<String> plain = new ArrayList<>();
+
+        for (int i = 0; i < HEAP_URLS; i++) {
+            plain.add(url(i));
+        }
+
+        long plainBytes = usedHeap() - before;
+        int plainSize = plain.size();
+        plain = null;
+
+        before = usedHeap();
+        ImageRefList compact = new ImageRefList();
+
+        for (int i = 0; i < HEAP_URLS; i++) {
+            compact.add(url(i));
+        }
+
+        long compactBytes = usedHeap() - before;
+        int compactSize = compact.size();
+
+        System.out.println("Heap per 1,000 URLs: List<String> " + plainBytes * 1000 / plainSize
+                + " bytes, ImageRefList " + compactBytes * 1000 / compactSize + " bytes");
+    }
+
+    private static String url(int i) {
+        // Same shape as the Api's URLs: a shared prefix, the breed, then the file name
+        return new StringBuilder("https://images.dog.ceo/breeds/")
+                .append("breed").append(i % BREEDS).append("-sub")
+                .append("/n0").append(2085000 + i % BREEDS).append('_').append(i).append(".jpg")
+                .toString();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.dogpics.benchmarks;
+
+import com.example.dogpics.CatalogSnapshot;
+import com.example.dogpics.UrlListSnapshot;
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load time of the saved breed list and of a saved image list, as the Gson JSON files they used to
+ * be next to CatalogSnapshot and UrlListSnapshot. The snapshots are measured opening the file and
+ * looking up what the app needs first (one breed, one page of URLs) and reading everything. Scale
+ * 1 is the real size, about 100 breeds and a 1000 URL breed, scale 100 is a hundred times that.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BREEDS = 100;
+    private static final int URLS = 1000;
+    private static final int PAGE = 50;
+
+    @Param({"1", "100"})
+    public int scale;
+
+    private final Gson gson = new Gson();
+    private File directory;
+    private File catalogJson;
+    private File catalogSnapshot;
+    private File urlsJson;
+    private File urlsSnapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = File.createTempFile("snapshots", "");
+        directory.delete();
+        directory.mkdirs();
+
+        Map<String, List<String>> catalog = new HashMap<>();
+
+        for (int i = 0; i < BREEDS * scale; i++) {
+            List<String> subBreeds = new ArrayList<>();
+
+            // A quarter of the breeds have sub-breeds, like the real list
+            if (i % 4 == 0) {
+                Collections.addAll(subBreeds, "alpine", "coastal", "royal");
+            }
+            catalog.put("breed" + i, subBreeds);
+        }
+
+        CachedCatalog cachedCatalog = new CachedCatalog();
+        cachedCatalog.catalog = catalog;
+        cachedCatalog.eTag = "\"5e8f-1c2\"";
+        cachedCatalog.checkedAt = System.currentTimeMillis();
+
+        catalogJson = new File(directory, "catalog.json");
+        writeJson(catalogJson, cachedCatalog);
+        catalogSnapshot = new File(directory, "catalog.snap");
+        CatalogSnapshot.write(catalogSnapshot, catalog,
+                Collections.singletonMap("etag", cachedCatalog.eTag));
+
+        CachedList cachedList = new CachedList();
+        cachedList.urls = new ArrayList<>();
+        cachedList.fetchedAt = System.currentTimeMillis();
+
+        for (int i = 0; i < URLS * scale; i++) {
+            cachedList.urls.add("https://images.dog.ceo/breeds/hound-afghan/n02088094_"
+                    + (1000 + i) + ".jpg");
+        }
+
+        urlsJson = new File(directory, "urls.json");
+        writeJson(urlsJson, cachedList);
+        urlsSnapshot = new File(directory, "urls.snap");
+        UrlListSnapshot.write(urlsSnapshot, cachedList.urls,
+                Collections.singletonMap("fetched_at", Long.toString(cachedList.fetchedAt)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public List<String> catalogJsonLookup() throws IOException {
+        return readJson(catalogJson, CachedCatalog.class).catalog.get("breed0");
+    }
+
+    @Benchmark
+    public List<String> catalogSnapshotLookup() throws IOException {
+        return new ArrayList<>(CatalogSnapshot.open(catalogSnapshot).get("breed0"));
+    }
+
+    @Benchmark
+    public int catalogSnapshotReadAll() throws IOException {
+        int names = 0;
+
+        for (Map.Entry<String, List<String>> entry : CatalogSnapshot.open(catalogSnapshot)
+                .entrySet()) {
+            names += entry.getKey().length() + entry.getValue().size();
+        }
+        return names;
+    }
+
+    @Benchmark
+    public List<String> urlsJsonPage() throws IOException {
+        return readJson(urlsJson, CachedList.class).urls.subList(0, PAGE);
+    }
+
+    @Benchmark
+    public List<String> urlsSnapshotPage() throws IOException {
+        return new ArrayList<>(UrlListSnapshot.open(urlsSnapshot).subList(0, PAGE));
+    }
+
+    @Benchmark
+    public List<String> urlsSnapshotReadAll() throws IOException {
+        return new ArrayList<>(UrlListSnapshot.open(urlsSnapshot));
+    }
+
+    private void writeJson(File file, Object value) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF_8);
+
+        try {
+            gson.toJson(value, writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private <T> T readJson(File file, Class<T> type) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(file), UTF_8);
+
+        try {
+            return gson.fromJson(reader, type);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * The JSON BreedCatalogRepository used to save.
+     */
+    static class CachedCatalog {
+        Map<String, List<String>> catalog;
+        String eTag;
+        String lastModified;
+        long checkedAt;
+    }
+
+    /**
+     * The JSON BreedImageIndex used to save for each breed.
+     */
+    static class CachedList {
+        List<String> urls;
+        long fetchedAt;
+    }
+}
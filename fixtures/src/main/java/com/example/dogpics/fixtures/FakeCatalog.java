@@ -0,0 +1,143 @@
+package com.example.dogpics.fixtures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The breeds, sub-breeds and picture file names a FakeDogApi serves. The first breeds are real
+ * ones from the dog Api, with their sub-breeds, the rest are made up names like "breedab" so any
+ * size can be asked for. The same size always gives the same catalog.
+ */
+public class FakeCatalog {
+    // A few real breeds, every fifth entry of the generated ones gets sub-breeds like these
+    private static final String[][] REAL_BREEDS = {
+            {"affenpinscher"},
+            {"akita"},
+            {"beagle"},
+            {"bulldog", "boston", "english", "french"},
+            {"collie", "border"},
+            {"hound", "afghan", "basset", "blood", "english", "ibizan", "plott", "walker"},
+            {"husky"},
+            {"labrador"},
+            {"poodle", "miniature", "standard", "toy"},
+            {"pug"},
+            {"retriever", "chesapeake", "curly", "flatcoated", "golden"},
+            {"shiba"},
+            {"spaniel", "blenheim", "brittany", "cocker"},
+            {"terrier", "american", "australian", "border", "irish", "yorkshire"},
+    };
+    private static final String[] MADE_UP_SUB_BREEDS = {"alpine", "coastal", "royal"};
+
+    // Breed to its sub-breeds, sorted like the Api sorts them
+    private final Map<String, List<String>> breeds;
+    private final int imagesPerBreed;
+
+    private FakeCatalog(Map<String, List<String>> breeds, int imagesPerBreed) {
+        this.breeds = breeds;
+        this.imagesPerBreed = imagesPerBreed;
+    }
+
+    /**
+     * @param breedCount     Number of breeds, not counting sub-breeds
+     * @param imagesPerBreed Pictures of every breed without sub-breeds and of every sub-breed
+     */
+    public static FakeCatalog generate(int breedCount, int imagesPerBreed) {
+        Map<String, List<String>> breeds = new TreeMap<>();
+
+        for (int i = 0; i < breedCount; i++) {
+            if (i < REAL_BREEDS.length) {
+                String[] real = REAL_BREEDS[i];
+                breeds.put(real[0], Arrays.asList(real).subList(1, real.length));
+            } else {
+                List<String> subBreeds = i % 5 == 0
+                        ? Arrays.asList(MADE_UP_SUB_BREEDS)
+                        : Collections.<String>emptyList();
+                breeds.put("breed" + lettersOf(i), subBreeds);
+            }
+        }
+
+        return new FakeCatalog(Collections.unmodifiableMap(breeds), imagesPerBreed);
+    }
+
+    /**
+     * @return 0 as "a", 25 as "z", 26 as "ba", so names stay letters only like real breeds
+     */
+    static String lettersOf(int number) {
+        StringBuilder letters = new StringBuilder();
+
+        do {
+            letters.insert(0, (char) ('a' + number % 26));
+            number /= 26;
+        } while (number > 0);
+
+        return letters.toString();
+    }
+
+    // Getters
+    public Map<String, List<String>> getBreeds() {
+        return breeds;
+    }
+
+    public int getImagesPerBreed() {
+        return imagesPerBreed;
+    }
+
+    public boolean hasBreed(String breed) {
+        return breeds.containsKey(breed);
+    }
+
+    public boolean hasSubBreed(String breed, String subBreed) {
+        List<String> subBreeds = breeds.get(breed);
+        return subBreeds != null && subBreeds.contains(subBreed);
+    }
+
+    /**
+     * @return Every breed path with pictures, e.g. "pug" and "hound-afghan", but not "hound"
+     */
+    public List<String> getImagePaths() {
+        List<String> paths = new ArrayList<>();
+
+        for (Map.Entry<String, List<String>> entry : breeds.entrySet()) {
+            paths.addAll(getImagePaths(entry.getKey(), null));
+        }
+        return paths;
+    }
+
+    /**
+     * @param subBreed A sub-breed, or null for every picture of the breed
+     * @return The breed paths with pictures of the breed or sub-breed
+     */
+    public List<String> getImagePaths(String breed, String subBreed) {
+        List<String> subBreeds = breeds.get(breed);
+
+        if (subBreeds == null) {
+            return Collections.emptyList();
+        }
+
+        if (subBreed != null) {
+            return Collections.singletonList(breed + "-" + subBreed);
+        }
+
+        if (subBreeds.isEmpty()) {
+            return Collections.singletonList(breed);
+        }
+
+        List<String> paths = new ArrayList<>(subBreeds.size());
+
+        for (String sub : subBreeds) {
+            paths.add(breed + "-" + sub);
+        }
+        return paths;
+    }
+
+    /**
+     * @return The file name of a picture, e.g. "hound-afghan_12.jpg"
+     */
+    public static String fileName(String path, int index) {
+        return path + "_" + index + ".jpg";
+    }
+}
@@ -0,0 +1,414 @@
+package com.example.dogpics.fixtures;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * Serves every endpoint of ApiCalls and the pictures from a local MockWebServer, with a
+ * FakeCatalog of any size, so tests and load tests don't need https://dog.ceo. Responses can be
+ * slowed down, throttled to a bandwidth and made to fail at a given rate. Nothing is random
+ * unless asked for, and what is random follows the seed.
+ *
+ * <p>Picture URLs in the responses look like the real ones, https://images.dog.ceo/breeds/..., so
+ * the app parses them the same way. The pictures themselves are served under /breeds/ of this
+ * server; the app's image client sends them there when built with the server's address, see
+ * ImageHostInterceptor. Every picture is the same small JPEG, padded to the picture size.
+ */
+public class FakeDogApi {
+    // Start of the picture URLs in the responses, same as the real Api
+    public static final String IMAGE_URL_PREFIX = "https://images.dog.ceo/breeds/";
+
+    // The Api hands out at most 50 random pictures per call
+    static final int MAX_RANDOM = 50;
+
+    // Throttled bodies are sent in slices this far apart
+    private static final long THROTTLE_PERIOD_MS = 100;
+
+    private final MockWebServer server = new MockWebServer();
+    private final Gson gson = new Gson();
+    private final FakeCatalog catalog;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final long bytesPerSecond;
+    private final double errorRate;
+    private final Random random;
+    private final byte[] image;
+    private final String catalogJson;
+    private final String catalogETag;
+
+    private FakeDogApi(Builder builder) {
+        catalog = builder.catalog != null ? builder.catalog : FakeCatalog.generate(100, 50);
+        latencyMs = builder.latencyMs;
+        jitterMs = builder.jitterMs;
+        bytesPerSecond = builder.bytesPerSecond;
+        errorRate = builder.errorRate;
+        random = new Random(builder.seed);
+        image = loadImage(builder.imageBytes);
+        catalogJson = buildCatalogJson();
+        catalogETag = "\"catalog-" + Integer.toHexString(catalogJson.hashCode()) + "\"";
+
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return shape(route(request));
+            }
+        });
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    /**
+     * Starts on a fixed port, e.g. for an emulator reaching the host at 10.0.2.2.
+     */
+    public void start(int port) throws IOException {
+        server.start(port);
+    }
+
+    public void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    /**
+     * @return The base URL to build the app's ApiClient with, ending in "/api/"
+     */
+    public String getApiBaseUrl() {
+        return server.url("/api/").toString();
+    }
+
+    /**
+     * @return Where the pictures are served, ending in "/breeds/"
+     */
+    public String getImageBaseUrl() {
+        return server.url("/breeds/").toString();
+    }
+
+    public int getRequestCount() {
+        return server.getRequestCount();
+    }
+
+    public FakeCatalog getCatalog() {
+        return catalog;
+    }
+
+    public int getImageSize() {
+        return image.length;
+    }
+
+    /**
+     * Answers a request like the dog Api would, before latency, bandwidth and errors.
+     */
+    MockResponse route(RecordedRequest request) {
+        HttpUrl url = request.getRequestUrl();
+        List<String> segments = url.pathSegments();
+
+        if (segments.size() >= 3 && segments.get(0).equals("breeds")
+                && !segments.get(1).isEmpty()) {
+            return image(request, segments);
+        }
+
+        if (segments.isEmpty() || !segments.get(0).equals("api")) {
+            return notFound("No route found");
+        }
+
+        List<String> api = segments.subList(1, segments.size());
+
+        // breeds/list/all
+        if (api.size() == 3 && api.get(0).equals("breeds") && api.get(1).equals("list")
+                && api.get(2).equals("all")) {
+            return breedList(request);
+        }
+
+        // breeds/image/random/{count}
+        if (api.size() == 4 && api.get(0).equals("breeds") && api.get(1).equals("image")
+                && api.get(2).equals("random")) {
+            return randomImages(catalog.getImagePaths(), api.get(3));
+        }
+
+        if (api.size() < 3 || !api.get(0).equals("breed")) {
+            return notFound("No route found");
+        }
+
+        String breed = api.get(1);
+
+        if (!catalog.hasBreed(breed)) {
+            return notFound("Breed not found (master breed does not exist)");
+        }
+
+        // breed/{breed}/images and breed/{breed}/images/random/{count}
+        if (api.get(2).equals("images")) {
+            return images(catalog.getImagePaths(breed, null), api.subList(3, api.size()));
+        }
+
+        // breed/{breed}/{subBreed}/images and breed/{breed}/{subBreed}/images/random/{count}
+        String subBreed = api.get(2);
+
+        if (api.size() < 4 || !api.get(3).equals("images")) {
+            return notFound("No route found");
+        }
+
+        if (!catalog.hasSubBreed(breed, subBreed)) {
+            return notFound("Breed not found (sub breed does not exist)");
+        }
+
+        return images(catalog.getImagePaths(breed, subBreed), api.subList(4, api.size()));
+    }
+
+    private MockResponse breedList(RecordedRequest request) {
+        if (catalogETag.equals(request.getHeader("If-None-Match"))) {
+            return new MockResponse()
+                    .setResponseCode(304)
+                    .setHeader("ETag", catalogETag);
+        }
+
+        return json(catalogJson)
+                .setHeader("ETag", catalogETag)
+                .setHeader("Cache-Control", "no-cache");
+    }
+
+    /**
+     * @param rest What follows "images" in the path, nothing or "random/{count}"
+     */
+    private MockResponse images(List<String> paths, List<String> rest) {
+        if (rest.isEmpty()) {
+            List<String> urls = new ArrayList<>();
+
+            for (String path : paths) {
+                for (int i = 0; i < catalog.getImagesPerBreed(); i++) {
+                    urls.add(urlOf(path, i));
+                }
+            }
+            return success(urls);
+        }
+
+        if (rest.size() == 2 && rest.get(0).equals("random")) {
+            return randomImages(paths, rest.get(1));
+        }
+        return notFound("No route found");
+    }
+
+    private MockResponse randomImages(List<String> paths, String countSegment) {
+        int count;
+
+        try {
+            count = Math.min(MAX_RANDOM, Math.max(1, Integer.parseInt(countSegment)));
+        } catch (NumberFormatException e) {
+            return notFound("No route found");
+        }
+
+        List<String> urls = new ArrayList<>(count);
+
+        for (int i = 0; i < count && !paths.isEmpty(); i++) {
+            String path = paths.get(random.nextInt(paths.size()));
+            urls.add(urlOf(path, random.nextInt(Math.max(1, catalog.getImagesPerBreed()))));
+        }
+        return success(urls);
+    }
+
+    private MockResponse image(RecordedRequest request, List<String> segments) {
+        String path = segments.get(1);
+        String file = segments.get(2);
+
+        if (!file.startsWith(path + "_") || !file.endsWith(".jpg")) {
+            return notFound("Image not found");
+        }
+
+        String eTag = "\"" + file + "\"";
+
+        if (eTag.equals(request.getHeader("If-None-Match"))) {
+            return new MockResponse().setResponseCode(304).setHeader("ETag", eTag);
+        }
+
+        return new MockResponse()
+                .setHeader("Content-Type", "image/jpeg")
+                .setHeader("Cache-Control", "max-age=604800")
+                .setHeader("ETag", eTag)
+                .setBody(new Buffer().write(image));
+    }
+
+    /**
+     * Adds the configured latency, bandwidth and errors to a response.
+     */
+    private MockResponse shape(MockResponse response) {
+        if (errorRate > 0 && nextDouble() < errorRate) {
+            JsonObject body = new JsonObject();
+            body.addProperty("status", "error");
+            body.addProperty("message", "Service unavailable");
+            body.addProperty("code", 503);
+            response = json(body.toString()).setResponseCode(503);
+        }
+
+        long delay = latencyMs;
+
+        if (jitterMs > 0) {
+            delay += (long) (nextDouble() * jitterMs);
+        }
+
+        if (delay > 0) {
+            response.setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+        }
+
+        if (bytesPerSecond > 0) {
+            long bytesPerPeriod = Math.max(1, bytesPerSecond * THROTTLE_PERIOD_MS / 1000);
+            response.throttleBody(bytesPerPeriod, THROTTLE_PERIOD_MS, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    private double nextDouble() {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    private String buildCatalogJson() {
+        JsonObject message = new JsonObject();
+
+        for (Map.Entry<String, List<String>> entry : catalog.getBreeds().entrySet()) {
+            JsonArray subBreeds = new JsonArray();
+
+            for (String subBreed : entry.getValue()) {
+                subBreeds.add(subBreed);
+            }
+            message.add(entry.getKey(), subBreeds);
+        }
+
+        JsonObject body = new JsonObject();
+        body.add("message", message);
+        body.addProperty("status", "success");
+        return gson.toJson(body);
+    }
+
+    private MockResponse success(List<String> urls) {
+        JsonObject body = new JsonObject();
+        body.add("message", gson.toJsonTree(urls));
+        body.addProperty("status", "success");
+        return json(gson.toJson(body));
+    }
+
+    private static MockResponse notFound(String message) {
+        JsonObject body = new JsonObject();
+        body.addProperty("status", "error");
+        body.addProperty("message", message);
+        body.addProperty("code", 404);
+        return json(body.toString()).setResponseCode(404);
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(body);
+    }
+
+    private static String urlOf(String path, int index) {
+        return IMAGE_URL_PREFIX + path + "/" + FakeCatalog.fileName(path, index);
+    }
+
+    /**
+     * JPEG decoders stop at the end of image marker, so zeros after it only add bytes.
+     */
+    private static byte[] loadImage(int size) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try {
+            InputStream in = FakeDogApi.class.getResourceAsStream("dog.jpg");
+
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("dog.jpg missing from the fixtures", e);
+        }
+
+        byte[] jpeg = out.toByteArray();
+        byte[] padded = new byte[Math.max(size, jpeg.length)];
+        System.arraycopy(jpeg, 0, padded, 0, jpeg.length);
+        return padded;
+    }
+
+    /**
+     * Configures a FakeDogApi. By default it answers right away, at full speed, without errors,
+     * with 100 breeds of 50 pictures each.
+     */
+    public static class Builder {
+        private FakeCatalog catalog;
+        private long latencyMs;
+        private long jitterMs;
+        private long bytesPerSecond;
+        private double errorRate;
+        private int imageBytes;
+        private long seed = 1;
+
+        public Builder catalog(FakeCatalog catalog) {
+            this.catalog = catalog;
+            return this;
+        }
+
+        /**
+         * Wait before sending the headers of every response, latencyMs plus up to jitterMs more.
+         */
+        public Builder latency(long latencyMs, long jitterMs) {
+            this.latencyMs = latencyMs;
+            this.jitterMs = jitterMs;
+            return this;
+        }
+
+        /**
+         * Send every body at about this many bytes per second, 0 for no limit.
+         */
+        public Builder bandwidth(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * Answer this share of the requests, 0 to 1, with 503 Service Unavailable.
+         */
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Pad every picture to this many bytes. Smaller sizes leave the 4KB JPEG as it is.
+         */
+        public Builder imageBytes(int imageBytes) {
+            this.imageBytes = imageBytes;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public FakeDogApi build() {
+            return new FakeDogApi(this);
+        }
+    }
+}
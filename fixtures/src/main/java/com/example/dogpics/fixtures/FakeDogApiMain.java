@@ -0,0 +1,78 @@
+package com.example.dogpics.fixtures;
+
+import java.io.IOException;
+
+/**
+ * Runs a FakeDogApi until killed, for the app on an emulator or device to talk to, e.g.
+ *
+ * <pre>
+ * ./gradlew :fixtures:run --args="--port 8080 --latency 150 --bandwidth 250000"
+ * ./gradlew :app:installDebug -PdogApiHost=http://10.0.2.2:8080/
+ * </pre>
+ *
+ * Options: --port, --latency ms, --jitter ms, --bandwidth bytes/s, --error-rate 0..1,
+ * --breeds, --images per breed, --image-bytes, --seed.
+ */
+public class FakeDogApiMain {
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        long latency = 0;
+        long jitter = 0;
+        int breeds = 100;
+        int images = 50;
+        FakeDogApi.Builder builder = new FakeDogApi.Builder();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--latency":
+                    latency = Long.parseLong(value);
+                    break;
+                case "--jitter":
+                    jitter = Long.parseLong(value);
+                    break;
+                case "--bandwidth":
+                    builder.bandwidth(Long.parseLong(value));
+                    break;
+                case "--error-rate":
+                    builder.errorRate(Double.parseDouble(value));
+                    break;
+                case "--breeds":
+                    breeds = Integer.parseInt(value);
+                    break;
+                case "--images":
+                    images = Integer.parseInt(value);
+                    break;
+                case "--image-bytes":
+                    builder.imageBytes(Integer.parseInt(value));
+                    break;
+                case "--seed":
+                    builder.seed(Long.parseLong(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        FakeDogApi api = builder
+                .catalog(FakeCatalog.generate(breeds, images))
+                .latency(latency, jitter)
+                .build();
+        api.start(port);
+
+        System.out.println("Dog Api at " + api.getApiBaseUrl());
+        System.out.println("Pictures at " + api.getImageBaseUrl());
+        System.out.println("Stop with Ctrl+C");
+
+        // MockWebServer's threads keep running, wait for them
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            api.shutdown();
+        }
+    }
+}